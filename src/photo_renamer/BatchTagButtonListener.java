@@ -0,0 +1,267 @@
+package photo_renamer;
+
+import java.awt.BorderLayout;
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.Dimension;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.AbstractButton;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.WindowConstants;
+
+/**
+ * A batch tagging button that implements ActionListener. 
+ * Adds the chosen tags to every photo marked in the file list as one batch job.
+ */
+public class BatchTagButtonListener implements ActionListener{
+	
+	/** The number of photos named in the error message of a batch that was not completely rolled back. */
+	private static final int MAX_LISTED = 10;
+	
+	/** An instance of Program class that implements all the user features. */
+	private Program program;
+	
+	/** 
+	 * A panel in the main PhotoDisplay window that displays a list of buttons
+	 * that represent the names of the photo files in the selected directory.
+	 */
+	private JPanel filePanel;
+	
+	/**
+	 * A label in the main PhotoDisplay window that displays the original and 
+	 * current names of the selected photo.
+	 */
+	private JLabel photoLabel;
+	
+	/** A panel in the main PhotoDisplay window that displays the currently selected photo.*/
+	private JPanel photoPanel;
+	
+	/**
+	 * A new instance of BatchTagButtonListener.
+	 * 
+	 * @param photoLabel
+	 * 		a label in the main PhotoDisplay window that displays the original and 
+	 * 		current names of the selected photo.
+	 * 
+	 * @param filePanel
+	 * 		a panel in the main PhotoDisplay window that displays a list of buttons 
+	 * 		that represent the names of the photo files in the selected directory.
+	 * 
+	 * @param program
+	 * 		an instance of Program class that implements all the user features.
+	 * 
+	 * @param photoPanel
+	 * 		a panel in the main PhotoDisplay window that displays the currently selected photo.
+	 */
+	public BatchTagButtonListener(JLabel photoLabel, JPanel filePanel, Program program, JPanel photoPanel){
+		this.photoLabel = photoLabel;
+		this.program = program;
+		this.filePanel = filePanel;
+		this.photoPanel = photoPanel;
+	}
+	
+	/**
+	 * @see java.awt.event.ActionListener#actionPerformed(ActionEvent)
+	 */
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		try{
+			buildBatchFrame(photoLabel, filePanel, program, photoPanel).setVisible(true);
+		}
+		catch(NoPhotoSelectedException a){
+			PhotoDisplay.createErrorMessage("No Photos Marked! Ctrl-click photos to mark them.").setVisible(true);
+		}
+	}
+	
+	/**
+	 * Builds and returns a batch tagging window.
+	 * 
+	 * @param photoLabel
+	 * 		a label in the main PhotoDisplay window that displays the original and 
+	 * 		current names of the selected photo.
+	 * 
+	 * @param filePanel
+	 * 		a panel in the main PhotoDisplay window that displays a list of buttons 
+	 * 		that represent the names of the photo files in the selected directory.
+	 * 
+	 * @param program
+	 * 		an instance of Program class that implements all the user features.
+	 * 
+	 * @param photoPanel
+	 * 		a panel in the main PhotoDisplay window that displays the currently selected photo.
+	 * 
+	 * @return a batch tagging window.
+	 * 
+	 * @throws NoPhotoSelectedException
+	 * 		if no photos are marked by the user yet.
+	 */
+	public static JDialog buildBatchFrame(JLabel photoLabel, JPanel filePanel, Program program, JPanel photoPanel) throws NoPhotoSelectedException{
+		ArrayList<Photo> photos = program.getMarkedPhotos();
+		if(photos.isEmpty()){
+			throw new NoPhotoSelectedException("No Photos Marked!");
+		}
+		JFrame batchFrame = new JFrame();
+		JDialog batchWindow = new JDialog(batchFrame, "Tag Marked Photos", Dialog.ModalityType.APPLICATION_MODAL);
+		batchWindow.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+		
+		ArrayList<String> tagsToAdd = new ArrayList<String>();
+		
+		JLabel batchLabel = new JLabel("Tagging " + photos.size() + " marked photos");
+		
+		JTextArea selectedTags = new JTextArea();
+		selectedTags.setEditable(false);
+		selectedTags.setText("Tags to be added:\n");
+		JScrollPane selectScroll = new JScrollPane(selectedTags);
+		selectScroll.setPreferredSize(new Dimension(250, 250));
+		
+		TagSearchPanel availableTags = new TagSearchPanel(program.getTagManager(), "Type to search the available tags:");
+		availableTags.addTagListener(new ActionListener(){
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				String tag = e.getActionCommand();
+				if(!tagsToAdd.contains(tag)){
+					tagsToAdd.add(tag);
+					selectedTags.append("@" + tag + "\n");
+				}
+			}
+		});
+		
+		JButton addButton = new JButton("Add Selected Tags");
+		addButton.setVerticalTextPosition(AbstractButton.CENTER);
+		addButton.setHorizontalTextPosition(AbstractButton.LEADING);
+		addButton.addActionListener(new ActionListener(){
+			public void actionPerformed(ActionEvent c){
+				if(tagsToAdd.size() == 0){
+					PhotoDisplay.createErrorMessage("Please Select Tags to Add").setVisible(true);
+				}
+				else{
+					batchWindow.dispose();
+					runBatch(photos, new ArrayList<String>(tagsToAdd), photoLabel, filePanel, program, photoPanel);
+				}
+			}
+		});
+		
+		Container container = batchWindow.getContentPane();
+		container.add(selectScroll, BorderLayout.CENTER);
+		container.add(availableTags, BorderLayout.WEST);
+		container.add(addButton, BorderLayout.EAST);
+		container.add(batchLabel, BorderLayout.NORTH);
+		batchWindow.pack();
+		return batchWindow;
+	}
+	
+	/**
+	 * Tags the marked photos in the background, showing the progress of the batch 
+	 * and refreshing the main PhotoDisplay window once it is finished. 
+	 * Cancelling, or a photo that cannot be renamed, rolls back the whole batch.
+	 * 
+	 * @param photos
+	 * 		the photos to be tagged.
+	 * 
+	 * @param tags
+	 * 		the tags to be added to each photo.
+	 * 
+	 * @param photoLabel
+	 * 		a label that displays the original and current names of the selected photo.
+	 * 
+	 * @param filePanel
+	 * 		a panel that displays a list of buttons that represent the names of photo files.
+	 * 
+	 * @param program
+	 * 		an instance of Program class that implements all the user features.
+	 * 
+	 * @param photoPanel
+	 * 		a panel that displays the currently selected photo.
+	 */
+	private static void runBatch(ArrayList<Photo> photos, ArrayList<String> tags, JLabel photoLabel, 
+			JPanel filePanel, Program program, JPanel photoPanel){
+		ProgressMonitor monitor = new ProgressMonitor(filePanel, "Tagging " + photos.size() + " photos", "", 0, photos.size());
+		SwingWorker<EventGroup, Integer> worker = new SwingWorker<EventGroup, Integer>(){
+			@Override
+			protected EventGroup doInBackground() throws FileNotRenamedException {
+				return program.addTagsToPhotos(photos, tags, new ProgressListener(){
+					@Override
+					public void progressMade(int finished, int total) {
+						SwingUtilities.invokeLater(new Runnable(){
+							@Override
+							public void run() {
+								if(monitor.isCanceled()){
+									cancel(true);
+								}
+								monitor.setProgress(finished);
+								monitor.setNote(finished + " of " + total + " photos");
+							}
+						});
+					}
+				});
+			}
+			
+			@Override
+			protected void done() {
+				monitor.close();
+				try{
+					get();
+				}
+				catch(ExecutionException e){
+					ArrayList<File> notRestored = new ArrayList<File>();
+					if(e.getCause() instanceof FileNotRenamedException){
+						notRestored = ((FileNotRenamedException) e.getCause()).getNotRestored();
+					}
+					if(notRestored.isEmpty()){
+						PhotoDisplay.createErrorMessage("Could Not Tag All Photos! No Photos Were Renamed.").setVisible(true);
+					}
+					else{
+						JDialog errorMessage = PhotoDisplay.createErrorMessage(describeNotRestored(notRestored));
+						errorMessage.pack();
+						errorMessage.setVisible(true);
+					}
+				}
+				catch(InterruptedException | CancellationException e){
+					// The batch was cancelled and its renames were rolled back.
+				}
+				program.clearMarkedPhotos();
+				if(program.getSelectedPhoto() != null){
+					photoLabel.setText("CURRENT PHOTO NAME: " + program.getSelectedPhoto().getCurName() + " " 
+							+ "ORIGINAL PHOTO NAME: " + program.getSelectedPhoto().getOrigName());
+				}
+				PhotoDisplay.refreshButtons(filePanel, program, photoLabel, photoPanel);
+			}
+		};
+		worker.execute();
+	}
+	
+	/**
+	 * Returns an error message listing the photos of a failed batch that 
+	 * could not be renamed back, at most MAX_LISTED of them by name. 
+	 * 
+	 * @param notRestored
+	 * 		the photos that kept their new names.
+	 * 
+	 * @return the error message, as HTML for a JLabel.
+	 */
+	private static String describeNotRestored(ArrayList<File> notRestored){
+		StringBuilder message = new StringBuilder("<html>Could Not Tag All Photos! These Photos Kept Their New Names:");
+		for(int i = 0; i < notRestored.size() && i < MAX_LISTED; i++){
+			message.append("<br>").append(notRestored.get(i).getName());
+		}
+		if(notRestored.size() > MAX_LISTED){
+			message.append("<br>and ").append(notRestored.size() - MAX_LISTED).append(" more");
+		}
+		return message.append("</html>").toString();
+	}
+}
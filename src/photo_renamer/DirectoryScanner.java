@@ -0,0 +1,703 @@
+package photo_renamer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A scanner that finds all valid photo files under a directory.
+ * Each subdirectory is listed by its own task on a work-stealing
+ * ForkJoinPool, so large and deeply nested directories are walked in parallel.
+ * The photos found are returned by an iterator, and the tasks only list a
+ * bounded number of directories ahead of it, so a scan holds the listings of
+ * a few directories at a time rather than the photos of the whole tree.
+ * The attributes of every file are read once, with a single file system call,
+ * and kept in the PhotoEntry of each photo found.
+ *
+ * If the scanner has a ScanIndex, a directory whose modification time has not
+ * changed since it was recorded is not listed again; only its subdirectories
+ * are checked.
+ *
+ * Directories excluded by the scanner's ScanFilter are skipped before they
+ * are listed or even read, so an excluded subtree costs no file system calls.
+ *
+ * @author group_0653
+ */
+public class DirectoryScanner {
+
+	/** The pool that runs the scanning tasks of this DirectoryScanner. */
+	private ForkJoinPool scanPool;
+
+	/** The index of previously scanned directories, or null if none is used. */
+	private ScanIndex scanIndex;
+
+	/** The executor that runs the blocking file system calls of this scanner, or null. */
+	private volatile IoExecutor ioExecutor;
+
+	/** The number of subdirectories of each directory listed ahead of the iterator of a scan. */
+	private static final int PREFETCH_WINDOW = 8;
+
+	/** The largest number of directories listed ahead of the iterator of a scan at once. */
+	private static final int MAX_PREFETCHED = 256;
+
+	/** The filter deciding which directories are skipped. */
+	private volatile ScanFilter scanFilter;
+
+	/** Whether the format of each photo file is confirmed by reading its first bytes. */
+	private volatile boolean contentSniffing;
+
+	/** The buffer each scanning thread reads file headers into. */
+	private static final ThreadLocal<ByteBuffer> HEADER_BUFFER = new ThreadLocal<ByteBuffer>(){
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(PhotoFormat.HEADER_SIZE);
+		}
+	};
+
+	/**
+	 * A new DirectoryScanner that scans with one thread per available processor.
+	 */
+	public DirectoryScanner(){
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * A new DirectoryScanner that scans with a given number of threads.
+	 *
+	 * @param parallelism
+	 * 		the number of threads used to scan directories.
+	 *
+	 * @throws IllegalArgumentException if parallelism is not positive.
+	 */
+	public DirectoryScanner(int parallelism){
+		this.scanPool = new ForkJoinPool(parallelism);
+		this.scanFilter = new ScanFilter();
+	}
+
+	/**
+	 * Returns the number of threads used by this DirectoryScanner.
+	 *
+	 * @return the parallelism of this DirectoryScanner.
+	 */
+	public int getParallelism(){
+		return scanPool.getParallelism();
+	}
+
+	/**
+	 * Sets the index of previously scanned directories used and updated by this scanner.
+	 *
+	 * @param scanIndex
+	 * 		the ScanIndex to be used, or null to always list every directory.
+	 */
+	public void setScanIndex(ScanIndex scanIndex){
+		this.scanIndex = scanIndex;
+	}
+
+	/**
+	 * Sets the executor that runs the blocking file system calls of this scanner.
+	 * Its per-mount cap limits how many directories are listed at the same time
+	 * on one mount, while the scanning threads keep working on other mounts.
+	 *
+	 * @param ioExecutor
+	 * 		the IoExecutor to be used, or null to make calls directly.
+	 */
+	public void setIoExecutor(IoExecutor ioExecutor){
+		this.ioExecutor = ioExecutor;
+	}
+
+	/**
+	 * Returns the filter deciding which directories this scanner skips.
+	 *
+	 * @return the ScanFilter of this scanner.
+	 */
+	public ScanFilter getScanFilter(){
+		return scanFilter;
+	}
+
+	/**
+	 * Sets the filter deciding which directories this scanner skips. The
+	 * directory being scanned itself is never skipped.
+	 *
+	 * @param scanFilter
+	 * 		the ScanFilter to be used.
+	 */
+	public void setScanFilter(ScanFilter scanFilter){
+		this.scanFilter = scanFilter;
+	}
+
+	/**
+	 * Sets whether the format of each photo file is confirmed by reading its
+	 * first bytes, in addition to checking its extension. Confirming formats
+	 * finds misnamed files, but requires opening every photo file.
+	 *
+	 * @param contentSniffing
+	 * 		true if photo formats should be confirmed from file contents.
+	 */
+	public void setContentSniffing(boolean contentSniffing){
+		this.contentSniffing = contentSniffing;
+	}
+
+	/**
+	 * Returns whether the format of each photo file is confirmed from its first bytes.
+	 *
+	 * @return true if content sniffing is on, false otherwise.
+	 */
+	public boolean isContentSniffing(){
+		return contentSniffing;
+	}
+
+	/**
+	 * Returns whether a file is a valid photo file, according to its name and,
+	 * if content sniffing is on, its first bytes.
+	 *
+	 * @param file
+	 * 		the path of a regular file.
+	 *
+	 * @return true if the file is a valid photo file, false otherwise.
+	 *
+	 * @see PhotoFormat
+	 */
+	public boolean isPhoto(Path file){
+		PhotoFormat format = PhotoFormat.forFileName(file.getFileName().toString());
+		if (format == null){
+			return false;
+		}
+		return !contentSniffing || format.confirm(file, HEADER_BUFFER.get());
+	}
+
+	/**
+	 * Returns a description of the settings that decide which files this
+	 * scanner finds. Records made with different settings cannot be reused.
+	 *
+	 * @return the settings of this scanner.
+	 */
+	String getSettings(){
+		return "sniff=" + contentSniffing;
+	}
+
+	/**
+	 * Finds all valid photo files under a specified directory. The directory
+	 * can potentially have nested subdirectories. The photo files are returned
+	 * in the same order as a sequential depth-first walk of the directory.
+	 *
+	 * Directories are listed as the returned iterator reaches them, with the
+	 * next few listed ahead on the threads of this scanner, so only the
+	 * listings of the directories being walked are held in memory, never the
+	 * entries of the whole tree.
+	 *
+	 * @param directoryFile
+	 * 		the file directory to search in.
+	 *
+	 * @return an iterator over the entries of all the photo files under directoryFile.
+	 *
+	 * @see #isPhoto(Path)
+	 */
+	public Iterator<PhotoEntry> scan(File directoryFile){
+		return scan(directoryFile, null);
+	}
+
+	/**
+	 * Finds all valid photo files under a specified directory, and adds every
+	 * directory visited by the scan, including directoryFile, to directories.
+	 * The directories are all added once the returned iterator is exhausted.
+	 *
+	 * @param directoryFile
+	 * 		the file directory to search in.
+	 * @param directories
+	 * 		a thread-safe collection to add the visited directories to, or null
+	 * 		if the visited directories are not needed.
+	 *
+	 * @return an iterator over the entries of all the photo files under directoryFile.
+	 */
+	public Iterator<PhotoEntry> scan(File directoryFile, Collection<Path> directories){
+		return scan(directoryFile, 0, directories, true);
+	}
+
+	/**
+	 * Finds all valid photo files under a specified directory by listing every
+	 * directory, even ones recorded as unchanged in the ScanIndex. Used when the
+	 * recorded contents of a directory are known to be out of date.
+	 *
+	 * @param directoryFile
+	 * 		the file directory to search in.
+	 * @param depth
+	 * 		the depth of directoryFile below the directory selected in the
+	 * 		program, used to apply the maximum depth of the ScanFilter.
+	 * @param directories
+	 * 		a thread-safe collection to add the visited directories to, or null.
+	 *
+	 * @return an iterator over the entries of all the photo files under directoryFile.
+	 */
+	public Iterator<PhotoEntry> rescan(File directoryFile, int depth, Collection<Path> directories){
+		return scan(directoryFile, depth, directories, false);
+	}
+
+	/**
+	 * Stops the threads of this DirectoryScanner. Scans already in progress
+	 * are completed, but no new scans can be started.
+	 */
+	public void shutdown(){
+		scanPool.shutdown();
+	}
+
+	/**
+	 * Finds all valid photo files under a specified directory.
+	 *
+	 * @param directoryFile
+	 * 		the file directory to search in.
+	 * @param depth
+	 * 		the depth of directoryFile below the directory selected in the program.
+	 * @param directories
+	 * 		a thread-safe collection to add the visited directories to, or null.
+	 * @param useIndex
+	 * 		true if unchanged directories recorded in the ScanIndex may be skipped.
+	 *
+	 * @return an iterator over the entries of all the photo files under directoryFile.
+	 */
+	private Iterator<PhotoEntry> scan(File directoryFile, int depth, Collection<Path> directories, boolean useIndex){
+		Path root = directoryFile.toPath();
+		long lastModified;
+		try{
+			lastModified = Files.readAttributes(root, BasicFileAttributes.class).lastModifiedTime().toMillis();
+		}
+		catch (IOException e){
+			return new ArrayList<PhotoEntry>().iterator();
+		}
+		ScanIndex index = scanIndex;
+		if (index != null){
+			index.useSettings(getSettings());
+		}
+		Collection<Path> visited = directories;
+		if (index != null && visited == null){
+			visited = new ConcurrentLinkedQueue<Path>();
+		}
+		ScanIterator iterator = new ScanIterator(root, visited, index);
+		iterator.push(scanPool.invoke(new ListTask(iterator, root, depth, lastModified, useIndex)));
+		return iterator;
+	}
+
+	/**
+	 * An iterator over the photo files under a directory, in the order of a
+	 * sequential depth-first walk. It keeps the listing of each directory on
+	 * the path from the root to the directory being walked, and forks the
+	 * listing of the next few subdirectories of each of them on the pool of
+	 * the scanner. At most MAX_PREFETCHED listings are forked ahead at once;
+	 * a directory that was not listed ahead is listed when it is reached.
+	 */
+	private class ScanIterator implements Iterator<PhotoEntry> {
+
+		/** The directory being scanned. */
+		private final Path root;
+
+		/** The collection that visited directories are added to, or null. */
+		private final Collection<Path> directories;
+
+		/** The index of previously scanned directories, or null. */
+		private final ScanIndex index;
+
+		/** The number of listings forked ahead that the iterator has not reached yet. */
+		private final AtomicInteger prefetched;
+
+		/** The listings of the directories on the path to the directory being walked. */
+		private final ArrayDeque<ListTask> path;
+
+		/** The next photo to return, or null if it has not been found yet. */
+		private PhotoEntry next;
+
+		/** Whether every directory has been walked. */
+		private boolean finished;
+
+		/**
+		 * A new ScanIterator of the photo files under a directory.
+		 *
+		 * @param root
+		 * 		the directory being scanned.
+		 * @param directories
+		 * 		the collection that visited directories are added to, or null.
+		 * @param index
+		 * 		the index of previously scanned directories, or null.
+		 */
+		private ScanIterator(Path root, Collection<Path> directories, ScanIndex index){
+			this.root = root;
+			this.directories = directories;
+			this.index = index;
+			this.prefetched = new AtomicInteger();
+			this.path = new ArrayDeque<ListTask>();
+		}
+
+		/**
+		 * Returns whether there is another photo file to return, listing
+		 * directories until one is found or every directory has been walked.
+		 *
+		 * @return true if there is another photo file, false otherwise.
+		 */
+		@Override
+		public boolean hasNext(){
+			while (next == null && !path.isEmpty()){
+				ListTask directory = path.peek();
+				PhotoEntry[] photos = directory.record.getPhotos();
+				int[] positions = directory.record.getSubdirectoryPositions();
+				if (directory.nextSubdirectory < positions.length && directory.nextPhoto >= positions[directory.nextSubdirectory]){
+					push(directory.take(directory.nextSubdirectory++));
+				}
+				else if (directory.nextPhoto < photos.length){
+					next = photos[directory.nextPhoto++];
+				}
+				else{
+					path.pop();
+				}
+			}
+			if (next == null && !finished){
+				finished = true;
+				if (index != null){
+					index.retainVisited(root, directories);
+				}
+			}
+			return next != null;
+		}
+
+		/**
+		 * Returns the next photo file.
+		 *
+		 * @return the entry of the next photo file.
+		 */
+		@Override
+		public PhotoEntry next(){
+			if (!hasNext()){
+				throw new NoSuchElementException();
+			}
+			PhotoEntry entry = next;
+			next = null;
+			return entry;
+		}
+
+		/**
+		 * Starts walking a listed directory, unless it could not be listed.
+		 *
+		 * @param directory
+		 * 		the listing of the directory, or null.
+		 */
+		private void push(ListTask directory){
+			if (directory != null && directory.record != null){
+				path.push(directory);
+			}
+		}
+
+		/**
+		 * Reserves a listing to be forked ahead, if fewer than MAX_PREFETCHED are.
+		 *
+		 * @return true if the listing may be forked, false otherwise.
+		 */
+		private boolean reservePrefetch(){
+			while (true){
+				int count = prefetched.get();
+				if (count >= MAX_PREFETCHED){
+					return false;
+				}
+				if (prefetched.compareAndSet(count, count + 1)){
+					return true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * A task that lists a single directory and forks the listing of its first
+	 * subdirectories, so they are ready by the time the iterator reaches them.
+	 */
+	private class ListTask extends RecursiveTask<ListTask> {
+
+		/** The serialID for serialization purposes. */
+		private static final long serialVersionUID = 1L;
+
+		/** The iterator that this task lists a directory for. */
+		private final ScanIterator iterator;
+
+		/** The directory listed by this task. */
+		private final Path directory;
+
+		/** The depth of the directory below the directory selected in the program. */
+		private final int depth;
+
+		/** The modification time of the directory, read before it is listed. */
+		private final long lastModified;
+
+		/** Whether the recorded contents of an unchanged directory may be used. */
+		private final boolean useIndex;
+
+		/** The contents of the directory, or null if it could not be listed. */
+		private ScanIndex.DirectoryRecord record;
+
+		/** The modification time of each subdirectory, or -1 for one that is skipped. */
+		private long[] subdirectoryModified;
+
+		/** The listing forked ahead for each subdirectory, or null if there is none. */
+		private ListTask[] subtasks;
+
+		/** The next photo of the directory to be returned by the iterator. */
+		private int nextPhoto;
+
+		/** The next subdirectory of the directory to be walked by the iterator. */
+		private int nextSubdirectory;
+
+		/**
+		 * A new task that lists a given directory.
+		 *
+		 * @param iterator
+		 * 		the iterator that the directory is listed for.
+		 * @param directory
+		 * 		the directory to be listed.
+		 * @param depth
+		 * 		the depth of the directory below the directory selected in the program.
+		 * @param lastModified
+		 * 		the modification time of the directory.
+		 * @param useIndex
+		 * 		whether the recorded contents of an unchanged directory may be used.
+		 */
+		ListTask(ScanIterator iterator, Path directory, int depth, long lastModified, boolean useIndex){
+			this.iterator = iterator;
+			this.directory = directory;
+			this.depth = depth;
+			this.lastModified = lastModified;
+			this.useIndex = useIndex;
+		}
+
+		/**
+		 * Lists the directory of this task, or reads its recorded contents if it
+		 * is unchanged, and forks the listing of its first subdirectories.
+		 *
+		 * @return this task, holding the contents of its directory.
+		 */
+		@Override
+		protected ListTask compute() {
+			ScanIndex index = iterator.index;
+			ScanIndex.DirectoryRecord found = index == null ? null : index.get(directory);
+			if (found == null || !useIndex || found.getLastModified() != lastModified){
+				try{
+					found = runIo(new Callable<ScanIndex.DirectoryRecord>(){
+						@Override
+						public ScanIndex.DirectoryRecord call() throws IOException {
+							return list();
+						}
+					});
+				}
+				catch (IOException e){
+					return this;
+				}
+				if (index != null){
+					index.put(directory, found);
+				}
+			}
+			if (iterator.directories != null){
+				iterator.directories.add(directory);
+			}
+
+			// Prunes excluded subdirectories before they are read.
+			Path[] subdirectories = found.getSubdirectories();
+			ScanFilter filter = scanFilter;
+			boolean[] excluded = new boolean[subdirectories.length];
+			for (int i = 0; i < subdirectories.length; i++){
+				excluded[i] = filter.excludes(subdirectories[i], depth + 1);
+			}
+			subdirectoryModified = readModifiedTimes(subdirectories, excluded);
+			subtasks = new ListTask[subdirectories.length];
+			record = found;
+			for (int i = 0; i < PREFETCH_WINDOW; i++){
+				prefetch(i);
+			}
+			return this;
+		}
+
+		/**
+		 * Returns the listing of a subdirectory of this task's directory,
+		 * waiting for it if it was forked ahead and listing it otherwise, and
+		 * forks the listing of the subdirectory after the window. Only called
+		 * by the iterator once this task is done.
+		 *
+		 * @param subdirectory
+		 * 		the position of the subdirectory.
+		 *
+		 * @return the listing of the subdirectory, or null if it is skipped.
+		 */
+		private ListTask take(int subdirectory){
+			prefetch(subdirectory + PREFETCH_WINDOW);
+			ListTask subtask = subtasks[subdirectory];
+			subtasks[subdirectory] = null;
+			if (subtask != null){
+				iterator.prefetched.decrementAndGet();
+				return subtask.join();
+			}
+			if (subdirectoryModified[subdirectory] < 0){
+				return null;
+			}
+			return scanPool.invoke(newSubtask(subdirectory));
+		}
+
+		/**
+		 * Forks the listing of a subdirectory of this task's directory, if it
+		 * exists, is not skipped and fewer than MAX_PREFETCHED listings are
+		 * forked ahead.
+		 *
+		 * @param subdirectory
+		 * 		the position of the subdirectory.
+		 */
+		private void prefetch(int subdirectory){
+			if (subdirectory < subtasks.length && subtasks[subdirectory] == null 
+					&& subdirectoryModified[subdirectory] >= 0 && iterator.reservePrefetch()){
+				subtasks[subdirectory] = newSubtask(subdirectory);
+				scanPool.execute(subtasks[subdirectory]);
+			}
+		}
+
+		/**
+		 * Returns a new task listing a subdirectory of this task's directory.
+		 *
+		 * @param subdirectory
+		 * 		the position of the subdirectory.
+		 *
+		 * @return the task listing the subdirectory.
+		 */
+		private ListTask newSubtask(int subdirectory){
+			return new ListTask(iterator, record.getSubdirectories()[subdirectory], depth + 1, 
+					subdirectoryModified[subdirectory], useIndex);
+		}
+
+		/**
+		 * Runs a blocking file system call for this task's directory, through the
+		 * IoExecutor of the scanner if it has one.
+		 *
+		 * @param call
+		 * 		the call to be run.
+		 *
+		 * @return the result of the call.
+		 *
+		 * @throws IOException if the call fails.
+		 */
+		private <T> T runIo(Callable<T> call) throws IOException{
+			IoExecutor executor = ioExecutor;
+			try{
+				return executor == null ? call.call() : executor.call(directory, call);
+			}
+			catch (IOException e){
+				throw e;
+			}
+			catch (Exception e){
+				throw new IOException(e);
+			}
+		}
+
+		/**
+		 * Tells the IoExecutor of the scanner, if it has one, the mount of a 
+		 * subdirectory from the attributes read for it, so listing the 
+		 * subdirectory does not cost another call to find its mount.
+		 *
+		 * @param subdirectory
+		 * 		the subdirectory.
+		 * @param attributes
+		 * 		the attributes read for the subdirectory.
+		 */
+		private void recordMount(Path subdirectory, BasicFileAttributes attributes){
+			IoExecutor executor = ioExecutor;
+			if (executor != null){
+				executor.recordMount(subdirectory, attributes);
+			}
+		}
+
+		/**
+		 * Reads the modification times of the subdirectories of this task's directory.
+		 *
+		 * @param subdirectories
+		 * 		the subdirectories of this task's directory.
+		 * @param excluded
+		 * 		whether each subdirectory is excluded by the ScanFilter.
+		 *
+		 * @return the modification time of each subdirectory, or -1 for one
+		 * 		that was removed or is excluded.
+		 */
+		private long[] readModifiedTimes(Path[] subdirectories, boolean[] excluded){
+			try{
+				return runIo(new Callable<long[]>(){
+					@Override
+					public long[] call() {
+						long[] modifiedTimes = new long[subdirectories.length];
+						for (int i = 0; i < subdirectories.length; i++){
+							if (excluded[i]){
+								modifiedTimes[i] = -1;
+								continue;
+							}
+							try{
+								BasicFileAttributes attributes = Files.readAttributes(subdirectories[i], BasicFileAttributes.class);
+								recordMount(subdirectories[i], attributes);
+								modifiedTimes[i] = attributes.lastModifiedTime().toMillis();
+							}
+							catch (IOException e){
+								// The subdirectory was removed since it was recorded.
+								modifiedTimes[i] = -1;
+							}
+						}
+						return modifiedTimes;
+					}
+				});
+			}
+			catch (IOException e){
+				long[] missing = new long[subdirectories.length];
+				Arrays.fill(missing, -1);
+				return missing;
+			}
+		}
+
+		/**
+		 * Lists the directory of this task, reading the attributes of each item once.
+		 *
+		 * @return the contents of the directory.
+		 *
+		 * @throws IOException if the directory cannot be listed.
+		 */
+		private ScanIndex.DirectoryRecord list() throws IOException{
+			ArrayList<PhotoEntry> photos = new ArrayList<PhotoEntry>();
+			ArrayList<Path> subdirectories = new ArrayList<Path>();
+			ArrayList<Integer> subdirectoryPositions = new ArrayList<Integer>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)){
+				for (Path item: stream){
+					BasicFileAttributes attributes;
+					try{
+						attributes = Files.readAttributes(item, BasicFileAttributes.class);
+					}
+					catch (IOException e){
+						// The item was removed or cannot be read, so it is skipped.
+						continue;
+					}
+					if (attributes.isDirectory()){
+						recordMount(item, attributes);
+						subdirectories.add(item);
+						subdirectoryPositions.add(photos.size());
+					}
+					else if (attributes.isRegularFile() && isPhoto(item)){
+						photos.add(new PhotoEntry(item, attributes));
+					}
+				}
+			}
+			int[] positions = new int[subdirectoryPositions.size()];
+			for (int i = 0; i < positions.length; i++){
+				positions[i] = subdirectoryPositions.get(i);
+			}
+			return new ScanIndex.DirectoryRecord(lastModified, photos.toArray(new PhotoEntry[photos.size()]),
+					subdirectories.toArray(new Path[subdirectories.size()]), positions);
+		}
+	}
+}
@@ -0,0 +1,290 @@
+package photo_renamer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A watcher that keeps a PhotoDirectory up to date with changes made on disk.
+ * Every directory under the root is registered with a WatchService, and each
+ * change is applied to the affected photo entries only. If the WatchService
+ * loses events, the directory where they were lost is scanned again.
+ *
+ * @author group_0653
+ */
+public class DirectoryWatcher implements Runnable {
+
+	/** The PhotoDirectory kept up to date by this watcher. */
+	private PhotoDirectory photoDirectory;
+
+	/** The scanner used to scan new or changed directories. */
+	private volatile DirectoryScanner scanner;
+
+	/** The WatchService that reports changes in the watched directories. */
+	private WatchService watchService;
+
+	/** The directory watched by each registered WatchKey. */
+	private ConcurrentHashMap<WatchKey, Path> watchedDirectories;
+
+	/**
+	 * The directories under the root that were found by a scan, whether or not
+	 * they could be watched, so a deleted path is only treated as a directory
+	 * if it was one.
+	 */
+	private Set<Path> knownDirectories;
+
+	/**
+	 * A new DirectoryWatcher for a PhotoDirectory.
+	 *
+	 * @param photoDirectory
+	 * 		the PhotoDirectory to be kept up to date.
+	 * @param scanner
+	 * 		the scanner used to scan new or changed directories.
+	 *
+	 * @throws IOException if a WatchService cannot be created.
+	 */
+	public DirectoryWatcher(PhotoDirectory photoDirectory, DirectoryScanner scanner) throws IOException{
+		this.photoDirectory = photoDirectory;
+		this.scanner = scanner;
+		this.watchService = photoDirectory.getRoot().getFileSystem().newWatchService();
+		this.watchedDirectories = new ConcurrentHashMap<WatchKey, Path>();
+		this.knownDirectories = ConcurrentHashMap.newKeySet();
+	}
+
+	/**
+	 * Starts watching the given directories on a background thread.
+	 *
+	 * @param directories
+	 * 		the directories under the root of the PhotoDirectory to be watched.
+	 */
+	public void start(Iterable<Path> directories){
+		for (Path directory: directories){
+			register(directory);
+		}
+		Thread watchThread = new Thread(this, "PhotoRenamer directory watcher");
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	/**
+	 * Sets the scanner used to scan new or changed directories, as when the
+	 * program replaces its scanner. Scans already in progress finish with the
+	 * old scanner.
+	 *
+	 * @param scanner
+	 * 		the scanner to be used.
+	 */
+	public void setScanner(DirectoryScanner scanner){
+		this.scanner = scanner;
+	}
+
+	/**
+	 * Stops watching for changes.
+	 */
+	public void close(){
+		try{
+			watchService.close();
+		}
+		catch (IOException e){
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Waits for changes and applies them to the PhotoDirectory until this watcher
+	 * is closed. A change that cannot be applied is reported and skipped, so
+	 * that the watcher keeps applying later changes.
+	 */
+	@Override
+	public void run(){
+		try{
+			while (true){
+				WatchKey key = watchService.take();
+				Path directory = watchedDirectories.get(key);
+				if (directory != null){
+					try{
+						applyChanges(directory, key.pollEvents());
+					}
+					catch (RuntimeException e){
+						e.printStackTrace();
+					}
+				}
+				if (!key.reset()){
+					watchedDirectories.remove(key);
+				}
+			}
+		}
+		catch (ClosedWatchServiceException e){
+			// This watcher was closed.
+		}
+		catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Applies the changes reported by the WatchService for one directory.
+	 * A file that is deleted and created again under a new name with the same
+	 * file key is treated as a rename, so its entry keeps its position.
+	 *
+	 * @param directory
+	 * 		the directory where the changes happened.
+	 * @param events
+	 * 		the changes reported for the directory.
+	 */
+	private void applyChanges(Path directory, List<WatchEvent<?>> events){
+		HashMap<String, PhotoEntry> deleted = new HashMap<String, PhotoEntry>();
+		ArrayList<Path> deletedPaths = new ArrayList<Path>();
+		for (WatchEvent<?> event: events){
+			if (event.kind() == OVERFLOW){
+				rescan(directory);
+				continue;
+			}
+			Path path = directory.resolve((Path) event.context());
+			if (event.kind() == ENTRY_DELETE){
+				PhotoEntry entry = photoDirectory.get(path);
+				if (entry != null && entry.getFileKey() != null){
+					deleted.put(entry.getFileKey(), entry);
+				}
+				else{
+					deletedPaths.add(path);
+				}
+			}
+			else{
+				applyChange(event.kind(), path, deleted);
+			}
+		}
+		for (PhotoEntry entry: deleted.values()){
+			photoDirectory.remove(entry.getPath());
+		}
+		for (Path path: deletedPaths){
+			// A deleted file that is neither a photo nor a known directory, or a photo whose
+			// rename was already applied by the program, changes nothing.
+			if (!photoDirectory.remove(path) && knownDirectories.remove(path)){
+				forgetUnder(path);
+				photoDirectory.removeUnder(path);
+			}
+		}
+	}
+
+	/**
+	 * Forgets the known directories under a directory that was deleted.
+	 *
+	 * @param directory
+	 * 		the deleted directory.
+	 */
+	private void forgetUnder(Path directory){
+		for (Iterator<Path> known = knownDirectories.iterator(); known.hasNext();){
+			if (known.next().startsWith(directory)){
+				known.remove();
+			}
+		}
+	}
+
+	/**
+	 * Applies a single creation or modification reported by the WatchService.
+	 *
+	 * @param kind
+	 * 		the kind of change.
+	 * @param path
+	 * 		the path of the file or directory that changed.
+	 * @param deleted
+	 * 		the entries deleted earlier in the same batch of changes, by file key.
+	 */
+	private void applyChange(WatchEvent.Kind<?> kind, Path path, HashMap<String, PhotoEntry> deleted){
+		BasicFileAttributes attributes;
+		try{
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		}
+		catch (IOException e){
+			// The file was removed again before its change could be applied.
+			photoDirectory.remove(path);
+			return;
+		}
+		if (attributes.isDirectory()){
+			if (kind == ENTRY_CREATE){
+				rescan(path);
+			}
+		}
+		else if (attributes.isRegularFile() && scanner.isPhoto(path)){
+			PhotoEntry entry = new PhotoEntry(path, attributes);
+			PhotoEntry renamedEntry = entry.getFileKey() == null ? null : deleted.remove(entry.getFileKey());
+			if (renamedEntry != null){
+				photoDirectory.rename(renamedEntry.getPath(), entry);
+			}
+			else{
+				photoDirectory.put(entry);
+			}
+		}
+	}
+
+	/**
+	 * Scans a directory again, applies the result to the PhotoDirectory and
+	 * watches any directories under it that are not watched yet. A directory
+	 * excluded by the scanner's ScanFilter is ignored.
+	 *
+	 * @param directory
+	 * 		the directory to be scanned.
+	 */
+	private void rescan(Path directory){
+		DirectoryScanner scanner = this.scanner;
+		Path root = photoDirectory.getRoot();
+		int depth = directory.equals(root) ? 0 : root.relativize(directory).getNameCount();
+		if (depth > 0 && scanner.getScanFilter().excludes(directory, depth)){
+			return;
+		}
+		ConcurrentLinkedQueue<Path> directories = new ConcurrentLinkedQueue<Path>();
+		try{
+			photoDirectory.replaceUnder(directory, scanner.rescan(directory.toFile(), depth, directories));
+		}
+		catch (RejectedExecutionException e){
+			if (this.scanner == scanner){
+				throw e;
+			}
+			// The scanner was replaced and shut down during the scan.
+			rescan(directory);
+			return;
+		}
+		for (Path subdirectory: directories){
+			// Registering an already watched directory returns its existing key.
+			register(subdirectory);
+		}
+	}
+
+	/**
+	 * Registers a directory with the WatchService, and records it as a known
+	 * directory. Directories that cannot be watched, for example because the
+	 * system limit of watches was reached, are skipped.
+	 *
+	 * @param directory
+	 * 		the directory to be watched.
+	 */
+	private void register(Path directory){
+		knownDirectories.add(directory);
+		try{
+			WatchKey key = directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+			watchedDirectories.put(key, directory);
+		}
+		catch (IOException e){
+			// The directory is not watched and will only be updated by renames made in the program.
+		}
+	}
+}
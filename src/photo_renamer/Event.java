@@ -1,9 +1,26 @@
 package photo_renamer;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Clock;
+import java.util.Date;
+import java.util.Locale;
 
 /**
  * An event representing the renaming of an image file.
+ * 
+ * The time of an event is kept as milliseconds since the epoch, read from 
+ * a Clock that can be replaced with setClock, and is only turned into text 
+ * when it is displayed. Events made before times were kept this way keep 
+ * the text of their timestamp as well.
+ * 
+ * An event also keeps the directory of the photo it renamed, so that photos 
+ * of the same name in different directories have different histories. 
+ * Events made before directories were kept have none.
  * @author group_0653
  *
  */
@@ -18,9 +35,18 @@ public class Event implements Serializable {
 	/** The new name of a photo after the renaming event.*/
 	private String newName;
 	
-	/** The date and time when the renaming happens.*/
+	/** The date and time when the renaming happens as text, or null if it is only kept as time.*/
 	private String timestamp;
 	
+	/** The date and time when the renaming happens, in milliseconds since the epoch, or -1 if unknown.*/
+	private long time;
+	
+	/** The absolute path of the directory of the photo renamed, or null if unknown.*/
+	private String directory;
+	
+	/** The clock the time of new events is read from. */
+	private static volatile Clock clock = Clock.systemDefaultZone();
+	
 	/**
 	 * A new event occurrence with the prior and new names as well as the time of the naming event.
 	 * 
@@ -35,6 +61,61 @@ public class Event implements Serializable {
 		this.oldName = oldName;
 		this.newName = newName;
 		this.timestamp = timestamp;
+		this.time = parseTime(timestamp);
+	}
+	
+	/**
+	 * A new event occurrence with the prior and new names as well as the time of the naming event.
+	 * 
+	 * @param oldName 
+	 * 		the prior name of a photo.
+	 * @param newName 
+	 * 		the new name of a photo.
+	 * @param time 
+	 * 		the date and time when the photo is renamed, in milliseconds since the epoch.
+	 */
+	public Event(String oldName, String newName, long time) {
+		this.oldName = oldName;
+		this.newName = newName;
+		this.time = time;
+	}
+	
+	/**
+	 * A new event occurrence with the prior and new names, the time of the 
+	 * naming event and the directory of the photo.
+	 * 
+	 * @param oldName 
+	 * 		the prior name of a photo.
+	 * @param newName 
+	 * 		the new name of a photo.
+	 * @param timestamp the date and time when the photo is renamed,
+	 * 			in DD/MM/YYYY, hh:mm AM/PM format
+	 * @param directory
+	 * 		the absolute path of the directory of the photo, as given by 
+	 * 		directoryOf, or null if unknown.
+	 */
+	public Event(String oldName, String newName, String timestamp, String directory) {
+		this(oldName, newName, timestamp);
+		this.directory = directory;
+	}
+	
+	/**
+	 * A new event occurrence with the prior and new names, the time of the 
+	 * naming event and the directory of the photo.
+	 * 
+	 * @param oldName 
+	 * 		the prior name of a photo.
+	 * @param newName 
+	 * 		the new name of a photo.
+	 * @param time 
+	 * 		the date and time when the photo is renamed, in milliseconds since the epoch.
+	 * @param directory
+	 * 		the absolute path of the directory of the photo, as given by 
+	 * 		directoryOf, or null if unknown.
+	 */
+	public Event(String oldName, String newName, long time, String directory) {
+		this(oldName, newName, time);
+		this.directory = directory;
 	}
 
 	/**
@@ -62,7 +143,131 @@ public class Event implements Serializable {
 	 * @return the time and date of this Event. 
 	 */
 	public String getTimestamp() {
+		if (timestamp == null) {
+			return formatTime(time);
+		}
 		return timestamp;
 	}
 	
+	/**
+	 * Returns the directory of the photo being renamed in this Event.
+	 * 
+	 * @return the absolute path of the directory, or null if this Event 
+	 * 		was made before directories were kept.
+	 */
+	public String getDirectory() {
+		return directory;
+	}
+	
+	/**
+	 * Returns the directory of a photo file as it is kept by an Event.
+	 * 
+	 * @param photoFile
+	 * 		the file of the photo.
+	 * 
+	 * @return the absolute path of the directory of the file.
+	 */
+	public static String directoryOf(File photoFile) {
+		return photoFile.getAbsoluteFile().getParent();
+	}
+	
+	/**
+	 * Returns the date and time of this Event occurrence in milliseconds since the epoch.
+	 * 
+	 * @return the time of this Event, or -1 if the timestamp it was made with could not be read.
+	 */
+	public long getTime() {
+		return time;
+	}
+	
+	/**
+	 * Returns whether the timestamp of this Event is the text of its time, 
+	 * as given by formatTime, so that it need not be kept as text.
+	 * 
+	 * @return true if getTimestamp can be made from getTime, false otherwise.
+	 */
+	public boolean hasFormattedTime() {
+		return timestamp == null || (time != -1 && timestamp.equals(formatTime(time)));
+	}
+	
+	/**
+	 * Sets the clock the time of new events is read from, such as a fixed 
+	 * clock in tests.
+	 * 
+	 * @param newClock
+	 * 		the clock to be used.
+	 */
+	public static void setClock(Clock newClock) {
+		clock = newClock;
+	}
+	
+	/**
+	 * Returns the current time of the clock of new events.
+	 * 
+	 * @return the current time in milliseconds since the epoch.
+	 */
+	public static long currentTime() {
+		return clock.millis();
+	}
+	
+	/**
+	 * Returns a time as text, as Date.toString writes it.
+	 * 
+	 * @param time
+	 * 		a time in milliseconds since the epoch.
+	 * 
+	 * @return the date and time as text.
+	 */
+	public static String formatTime(long time) {
+		return new Date(time).toString();
+	}
+	
+	/**
+	 * Returns the time written as text by Date.toString.
+	 * 
+	 * @param timestamp
+	 * 		the date and time as text.
+	 * 
+	 * @return the time in milliseconds since the epoch, or -1 if timestamp 
+	 * 		is not in the format of Date.toString.
+	 */
+	private static long parseTime(String timestamp) {
+		if (timestamp == null) {
+			return -1;
+		}
+		try {
+			return new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US).parse(timestamp).getTime();
+		}
+		catch (ParseException e) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * Restores a serialized Event, reading the time of an Event serialized 
+	 * before times were kept from its timestamp.
+	 * 
+	 * @param input
+	 * 		the stream the Event is read from.
+	 * 
+	 * @throws IOException if the Event cannot be read.
+	 * 
+	 * @throws ClassNotFoundException if the Event class is not on the classpath.
+	 */
+	private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+		input.defaultReadObject();
+		if (timestamp != null && time == 0) {
+			time = parseTime(timestamp);
+		}
+	}
+
+	/**
+	 * Returns this Event in a user-friendly format.
+	 * 
+	 * @return the string representation of this Event.
+	 */
+	public String displayEvent() {
+		return "Original name: " + oldName + "\n" + "New name: " + newName + "\n" + "Changes made at: " + getTimestamp() + "\n" + "\n";
+	}
+	
 }
@@ -0,0 +1,512 @@
+package photo_renamer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Encodes the events of a Log as the records of a LogSegment.
+ *
+ * The names of an event are not written as text. The old name is written as
+ * a reference to a string of a dictionary shared by the records, and the new
+ * name as the change from the old name: the number of characters the names
+ * start and end with in common, and a reference to the part of the new name
+ * between them. Since a rename only adds, removes or replaces tags, that part
+ * is usually a few tags, such as "@beach", shared by many events. The
+ * directory of the photo, if the event has one, is written as a reference to
+ * a string as well, so it is written as text once for the photos of a
+ * directory. The time of
+ * an event is written as milliseconds since the epoch. Every number is written
+ * as a variable-length integer of 7 bits per byte.
+ *
+ * Strings enter the dictionary in definition records written before the first
+ * event that refers to them, and the dictionary is emptied by a reset record,
+ * so an event can be decoded from the definitions since the last reset before
+ * it. An encoder writes a reset before its first definition, and again when
+ * its dictionary is full, so a new encoder never needs the dictionary of the
+ * records already in a segment. A reset is only written between records, so
+ * an EventGroup whose strings do not fit in the dictionary is written after
+ * a reset and defines all of its strings itself; the dictionary then holds
+ * more strings than it is bounded to until the next event, which is written
+ * after a reset again.
+ *
+ * The strings an event adds to the dictionary are only kept once its records
+ * are written: if they could not be, rollback takes them out again.
+ *
+ * @author group_0653
+ */
+public class EventCodec {
+
+	/** The type of a record of a single Event. */
+	public static final byte EVENT = 1;
+
+	/** The type of a record of an EventGroup. */
+	public static final byte GROUP = 2;
+
+	/** The type of a record of strings added to the dictionary. */
+	public static final byte DEFINE = 3;
+
+	/** The type of a record that empties the dictionary. */
+	public static final byte RESET = 4;
+
+	/** The flag of an event whose timestamp is kept as text, since it cannot be made from its time. */
+	private static final int TEXT_TIMESTAMP = 1;
+
+	/** The flag of an event that keeps the directory of its photo. */
+	private static final int DIRECTORY = 2;
+
+	/** The number of strings after which the dictionary is emptied, which bounds its memory. */
+	private static final int MAX_STRINGS = 1 << 16;
+
+	/** The id of each string of the dictionary, when encoding. */
+	private final HashMap<String, Integer> ids;
+
+	/** The strings of the dictionary, by id. */
+	private final ArrayList<String> strings;
+
+	/** The strings added to the dictionary by the event being encoded. */
+	private final ArrayList<String> defined;
+
+	/** Whether a reset has been written by this encoder. */
+	private boolean started;
+
+	/** Whether the records of the event being encoded start with a reset. */
+	private boolean resetting;
+
+	/**
+	 * A new EventCodec with an empty dictionary, to either encode or decode
+	 * the records of a segment.
+	 */
+	public EventCodec(){
+		this.ids = new HashMap<String, Integer>();
+		this.strings = new ArrayList<String>();
+		this.defined = new ArrayList<String>();
+	}
+
+	/**
+	 * Encodes an event as the records to be appended to a segment: a reset
+	 * or definition records if the dictionary changes, then the event.
+	 *
+	 * @param event
+	 * 		the event to be encoded.
+	 * @param records
+	 * 		the list the contents of the records are added to; the event is
+	 * 		always the last record added.
+	 */
+	public void encode(Event event, List<byte[]> records){
+		// An event that does not fit is written after a reset, even if it does not fit an empty dictionary.
+		resetting = !started || strings.size() + countStrings(event) > MAX_STRINGS;
+		if (resetting){
+			ids.clear();
+			strings.clear();
+			records.add(new byte[] {RESET});
+			started = true;
+		}
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		defined.clear();
+		writeEvent(record, event);
+		if (!defined.isEmpty()){
+			ByteArrayOutputStream definitions = new ByteArrayOutputStream();
+			definitions.write(DEFINE);
+			writeVarLong(definitions, defined.size());
+			for (String string: defined){
+				writeString(definitions, string);
+			}
+			records.add(definitions.toByteArray());
+		}
+		records.add(record.toByteArray());
+	}
+
+	/**
+	 * Takes the strings the event last encoded added to the dictionary out of
+	 * it again, because its records could not be written. If its records
+	 * started with a reset, the next event is encoded after a reset again.
+	 */
+	public void rollback(){
+		for (String string: defined){
+			ids.remove(string);
+		}
+		strings.subList(strings.size() - defined.size(), strings.size()).clear();
+		defined.clear();
+		if (resetting){
+			started = false;
+		}
+	}
+
+	/**
+	 * Decodes a record. Records must be decoded in the order they were
+	 * written, from a reset on, so that the dictionary is known.
+	 *
+	 * @param record
+	 * 		the contents of the record; its position is moved past it.
+	 *
+	 * @return the event of the record, or null if the record only changes
+	 * 		the dictionary.
+	 *
+	 * @throws IOException if the record is not a record of an EventCodec.
+	 */
+	public Event decode(ByteBuffer record) throws IOException{
+		try{
+			byte type = record.get();
+			if (type == RESET){
+				strings.clear();
+				return null;
+			}
+			if (type == DEFINE){
+				long count = readVarLong(record);
+				for (long i = 0; i < count; i++){
+					strings.add(readString(record));
+				}
+				return null;
+			}
+			return readEvent(record, type);
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException e){
+			throw new IOException("The log record is torn.", e);
+		}
+	}
+
+	/**
+	 * Decodes one event of the EventGroup of a record. The events before it
+	 * are stepped over without being decoded.
+	 *
+	 * @param record
+	 * 		the contents of a record holding an EventGroup.
+	 * @param member
+	 * 		the position of the event in the group, from 0.
+	 *
+	 * @return the event.
+	 *
+	 * @throws IOException if the record does not hold a group with that event.
+	 */
+	public Event decodeMember(ByteBuffer record, int member) throws IOException{
+		try{
+			if (record.get() != GROUP){
+				throw new IOException("The log record does not hold a group.");
+			}
+			skipTime(record);
+			readVarLong(record);
+			long size = readVarLong(record);
+			if (member < 0 || member >= size){
+				throw new IOException("The log group has no event " + member + ".");
+			}
+			for (int i = 0; i < member; i++){
+				skipEvent(record);
+			}
+			return readEvent(record, record.get());
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException e){
+			throw new IOException("The log record is torn.", e);
+		}
+	}
+
+	/**
+	 * Returns whether a record holds an event, rather than changing the dictionary.
+	 *
+	 * @param type
+	 * 		the first byte of the record.
+	 *
+	 * @return true if the record holds an event, false otherwise.
+	 */
+	public static boolean isEvent(byte type){
+		return type == EVENT || type == GROUP;
+	}
+
+	/**
+	 * Returns the time of the event of a record without decoding the rest of it.
+	 *
+	 * @param record
+	 * 		the contents of a record holding an event.
+	 *
+	 * @return the time of the event, in milliseconds since the epoch.
+	 */
+	static long timeOf(ByteBuffer record){
+		record.get();
+		readVarLong(record);
+		return unZigZag(readVarLong(record));
+	}
+
+	/**
+	 * Writes an event, and each event of an EventGroup, to a record.
+	 *
+	 * @param record
+	 * 		the record being written.
+	 * @param event
+	 * 		the event.
+	 */
+	private void writeEvent(ByteArrayOutputStream record, Event event){
+		boolean group = event instanceof EventGroup;
+		record.write(group ? GROUP : EVENT);
+		boolean formatted = event.hasFormattedTime();
+		String directory = group ? null : event.getDirectory();
+		writeVarLong(record, (formatted ? 0 : TEXT_TIMESTAMP) | (directory == null ? 0 : DIRECTORY));
+		writeVarLong(record, zigZag(event.getTime()));
+		if (!formatted){
+			writeString(record, event.getTimestamp());
+		}
+		if (group){
+			EventGroup eventGroup = (EventGroup) event;
+			writeVarLong(record, idOf(eventGroup.getNewName()));
+			writeVarLong(record, eventGroup.size());
+			for (Event member: eventGroup.getEvents()){
+				writeEvent(record, member);
+			}
+			return;
+		}
+		String oldName = event.getOldName();
+		String newName = event.getNewName();
+		int prefix = 0;
+		int shorter = Math.min(oldName.length(), newName.length());
+		while (prefix < shorter && oldName.charAt(prefix) == newName.charAt(prefix)){
+			prefix++;
+		}
+		int suffix = 0;
+		while (suffix < shorter - prefix
+				&& oldName.charAt(oldName.length() - 1 - suffix) == newName.charAt(newName.length() - 1 - suffix)){
+			suffix++;
+		}
+		writeVarLong(record, idOf(oldName));
+		writeVarLong(record, prefix);
+		writeVarLong(record, suffix);
+		writeVarLong(record, idOf(newName.substring(prefix, newName.length() - suffix)));
+		if (directory != null){
+			writeVarLong(record, idOf(directory));
+		}
+	}
+
+	/**
+	 * Reads an event, and each event of an EventGroup, from a record.
+	 *
+	 * @param record
+	 * 		the record being read, after the type of the event.
+	 * @param type
+	 * 		the type of the event.
+	 *
+	 * @return the event.
+	 *
+	 * @throws IOException if the record does not hold an event.
+	 */
+	private Event readEvent(ByteBuffer record, byte type) throws IOException{
+		if (!isEvent(type)){
+			throw new IOException("Unknown log record type " + type + ".");
+		}
+		long flags = readVarLong(record);
+		long time = unZigZag(readVarLong(record));
+		String timestamp = (flags & TEXT_TIMESTAMP) != 0 ? readString(record) : null;
+		if (type == GROUP){
+			String description = stringOf(readVarLong(record));
+			int size = (int) readVarLong(record);
+			ArrayList<Event> members = new ArrayList<Event>(Math.min(size, record.remaining()));
+			for (int i = 0; i < size; i++){
+				members.add(readEvent(record, record.get()));
+			}
+			return timestamp == null ? new EventGroup(description, members, time)
+					: new EventGroup(description, members, timestamp);
+		}
+		String oldName = stringOf(readVarLong(record));
+		int prefix = (int) readVarLong(record);
+		int suffix = (int) readVarLong(record);
+		String middle = stringOf(readVarLong(record));
+		if (prefix + suffix > oldName.length()){
+			throw new IOException("The log record does not match its dictionary.");
+		}
+		String newName = oldName.substring(0, prefix) + middle + oldName.substring(oldName.length() - suffix);
+		String directory = (flags & DIRECTORY) != 0 ? stringOf(readVarLong(record)) : null;
+		return timestamp == null ? new Event(oldName, newName, time, directory)
+				: new Event(oldName, newName, timestamp, directory);
+	}
+
+	/**
+	 * Steps over an event, and each event of an EventGroup, in a record.
+	 *
+	 * @param record
+	 * 		the record being read, at the type of the event.
+	 */
+	private static void skipEvent(ByteBuffer record){
+		byte type = record.get();
+		long flags = skipTime(record);
+		if (type == GROUP){
+			readVarLong(record);
+			long size = readVarLong(record);
+			for (long i = 0; i < size; i++){
+				skipEvent(record);
+			}
+			return;
+		}
+		int numbers = (flags & DIRECTORY) != 0 ? 5 : 4;
+		for (int i = 0; i < numbers; i++){
+			readVarLong(record);
+		}
+	}
+
+	/**
+	 * Steps over the flags, time and any timestamp text of an event in a record.
+	 *
+	 * @param record
+	 * 		the record being read, after the type of the event.
+	 *
+	 * @return the flags of the event.
+	 */
+	private static long skipTime(ByteBuffer record){
+		long flags = readVarLong(record);
+		readVarLong(record);
+		if ((flags & TEXT_TIMESTAMP) != 0){
+			int length = (int) readVarLong(record);
+			record.position(record.position() + length);
+		}
+		return flags;
+	}
+
+	/**
+	 * Returns the id of a string in the dictionary, adding it if needed.
+	 *
+	 * @param string
+	 * 		the string.
+	 *
+	 * @return the id of the string.
+	 */
+	private int idOf(String string){
+		Integer id = ids.get(string);
+		if (id == null){
+			id = strings.size();
+			ids.put(string, id);
+			strings.add(string);
+			defined.add(string);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the string of the dictionary with an id. A subclass may find
+	 * the string without having decoded the definition records, as LogReader does.
+	 *
+	 * @param id
+	 * 		the id of the string.
+	 *
+	 * @return the string.
+	 *
+	 * @throws IOException if the dictionary has no string with that id.
+	 */
+	protected String stringOf(long id) throws IOException{
+		if (id < 0 || id >= strings.size()){
+			throw new IOException("The log record refers to an unknown string " + id + ".");
+		}
+		return strings.get((int) id);
+	}
+
+	/**
+	 * Returns the most strings an event can add to the dictionary.
+	 *
+	 * @param event
+	 * 		the event.
+	 *
+	 * @return the number of strings the event refers to.
+	 */
+	private static int countStrings(Event event){
+		if (event instanceof EventGroup){
+			return 1 + 3 * ((EventGroup) event).size();
+		}
+		return 3;
+	}
+
+	/**
+	 * Writes a string as its length in bytes and its UTF-8 bytes.
+	 *
+	 * @param out
+	 * 		the record being written.
+	 * @param string
+	 * 		the string.
+	 */
+	private static void writeString(ByteArrayOutputStream out, String string){
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(out, bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Reads a string written by writeString.
+	 *
+	 * @param in
+	 * 		the record being read.
+	 *
+	 * @return the string.
+	 */
+	static String readString(ByteBuffer in){
+		int length = (int) readVarLong(in);
+		if (!in.hasArray()){
+			// A record read from a mapped file.
+			byte[] bytes = new byte[length];
+			in.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		String string = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+		in.position(in.position() + length);
+		return string;
+	}
+
+	/**
+	 * Writes a number that is not negative, 7 bits per byte, lowest bits first.
+	 *
+	 * @param out
+	 * 		the record being written.
+	 * @param value
+	 * 		the number.
+	 */
+	private static void writeVarLong(ByteArrayOutputStream out, long value){
+		while ((value & ~0x7FL) != 0){
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	/**
+	 * Reads a number written by writeVarLong.
+	 *
+	 * @param in
+	 * 		the record being read.
+	 *
+	 * @return the number.
+	 */
+	static long readVarLong(ByteBuffer in){
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7){
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0){
+				return value;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Maps a number that may be negative to one that is not, so that small
+	 * negative numbers stay short when written by writeVarLong.
+	 *
+	 * @param value
+	 * 		the number.
+	 *
+	 * @return the mapped number.
+	 */
+	private static long zigZag(long value){
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Undoes zigZag.
+	 *
+	 * @param value
+	 * 		the mapped number.
+	 *
+	 * @return the number.
+	 */
+	private static long unZigZag(long value){
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
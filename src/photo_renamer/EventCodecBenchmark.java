@@ -0,0 +1,323 @@
+package photo_renamer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * A benchmark of the encoding of Log events. It encodes and decodes a list
+ * of generated events with an EventCodec, as a LogSegment does, and with the
+ * Java serialization of the whole list that the serialized Log used, and
+ * prints the bytes each takes per event and the time each takes per event.
+ * The events decoded by both are checked against the generated events
+ * before they are timed.
+ *
+ * Run with: java photo_renamer.EventCodecBenchmark [events]
+ *
+ * @author group_0653
+ */
+public class EventCodecBenchmark {
+
+	/** The number of times each measurement is run before it is timed. */
+	private static final int WARMUP_RUNS = 5;
+
+	/** The number of timed runs of each measurement. */
+	private static final int TIMED_RUNS = 10;
+
+	/** The size of the length and checksum a LogSegment writes before each record. */
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	/** The number of renames of each generated batch. */
+	private static final int BATCH_SIZE = 20;
+
+	/** The tags the generated names are made of. */
+	private static final String[] TAGS = {"beach", "sun", "family", "2016", "paris", "dog", "snow", "work"};
+
+	/** Keeps the results of the timed code alive so it is not optimized away. */
+	private static int sink;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args
+	 * 		the number of events, by default 200,000, one in twenty of which
+	 * 		is a batch of twenty renames.
+	 *
+	 * @throws IOException if the events cannot be serialized or decoded.
+	 * @throws ClassNotFoundException if the Event classes are not on the classpath.
+	 */
+	public static void main(String[] args) throws IOException, ClassNotFoundException{
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		Random random = new Random(653);
+		ArrayList<Event> events = new ArrayList<Event>(count);
+		long time = 1480000000000L;
+		for (int i = 0; i < count; i++){
+			time += random.nextInt(60000);
+			if (i % 20 == 0){
+				ArrayList<Event> members = new ArrayList<Event>(BATCH_SIZE);
+				String tag = TAGS[random.nextInt(TAGS.length)];
+				for (int j = 0; j < BATCH_SIZE; j++){
+					members.add(rename(random, tag, time));
+				}
+				events.add(new EventGroup("added @" + tag, members, time));
+			}
+			else{
+				events.add(rename(random, TAGS[random.nextInt(TAGS.length)], time));
+			}
+		}
+
+		ArrayList<ByteBuffer> records = encode(events);
+		byte[] serialized = serialize(events);
+		check(events, decode(records));
+		check(events, deserialize(serialized));
+		long codecBytes = 0;
+		for (ByteBuffer record: records){
+			codecBytes += RECORD_HEADER_SIZE + record.remaining();
+		}
+		System.out.printf("bytes per event: EventCodec %.1f, Java serialization %.1f%n",
+				codecBytes / (double) count, serialized.length / (double) count);
+
+		report("encode", count, timeEncode(events), timeSerialize(events));
+		report("decode", count, timeDecode(records), timeDeserialize(serialized));
+		System.out.println("(" + sink + ")");
+	}
+
+	/**
+	 * Returns a rename of a random photo that adds a tag to it.
+	 *
+	 * @param random
+	 * 		the source of the photo and its tags.
+	 * @param tag
+	 * 		the tag added.
+	 * @param time
+	 * 		the time of the rename.
+	 *
+	 * @return the Event of the rename.
+	 */
+	private static Event rename(Random random, String tag, long time){
+		StringBuilder name = new StringBuilder("IMG_").append(random.nextInt(100000));
+		int tags = random.nextInt(3);
+		for (int t = 0; t < tags; t++){
+			name.append('@').append(TAGS[random.nextInt(TAGS.length)]);
+		}
+		String oldName = name + ".jpg";
+		return new Event(oldName, name.append('@').append(tag).append(".jpg").toString(), time);
+	}
+
+	/**
+	 * Prints the time taken per event by the EventCodec and by Java serialization.
+	 *
+	 * @param label
+	 * 		the operation that was timed.
+	 * @param count
+	 * 		the number of events in one run.
+	 * @param codecNanos
+	 * 		the average time of one run with the EventCodec, in nanoseconds.
+	 * @param serializationNanos
+	 * 		the average time of one run with Java serialization, in nanoseconds.
+	 */
+	private static void report(String label, int count, double codecNanos, double serializationNanos){
+		System.out.printf("%-7s EventCodec %7.1f ns per event, Java serialization %7.1f ns per event (%.1fx)%n",
+				label, codecNanos / count, serializationNanos / count, serializationNanos / codecNanos);
+	}
+
+	/**
+	 * Checks that decoded events are the generated events.
+	 *
+	 * @param events
+	 * 		the generated events.
+	 * @param decoded
+	 * 		the events decoded.
+	 *
+	 * @throws IllegalStateException if an event differs.
+	 */
+	private static void check(ArrayList<Event> events, ArrayList<Event> decoded){
+		if (decoded.size() != events.size()){
+			throw new IllegalStateException(decoded.size() + " events were decoded, not " + events.size());
+		}
+		for (int i = 0; i < events.size(); i++){
+			if (!decoded.get(i).displayEvent().equals(events.get(i).displayEvent())){
+				throw new IllegalStateException("Event " + i + " was not decoded as it was encoded.");
+			}
+		}
+	}
+
+	/**
+	 * Encodes events with a new EventCodec, as the records of a segment.
+	 *
+	 * @param events
+	 * 		the events.
+	 *
+	 * @return the contents of the records, in order.
+	 */
+	private static ArrayList<ByteBuffer> encode(ArrayList<Event> events){
+		EventCodec codec = new EventCodec();
+		ArrayList<byte[]> contents = new ArrayList<byte[]>();
+		for (Event event: events){
+			codec.encode(event, contents);
+		}
+		ArrayList<ByteBuffer> records = new ArrayList<ByteBuffer>(contents.size());
+		for (byte[] record: contents){
+			records.add(ByteBuffer.wrap(record));
+		}
+		return records;
+	}
+
+	/**
+	 * Decodes the records of a segment with a new EventCodec.
+	 *
+	 * @param records
+	 * 		the contents of the records, in order.
+	 *
+	 * @return the decoded events.
+	 *
+	 * @throws IOException if a record cannot be decoded.
+	 */
+	private static ArrayList<Event> decode(ArrayList<ByteBuffer> records) throws IOException{
+		EventCodec codec = new EventCodec();
+		ArrayList<Event> events = new ArrayList<Event>();
+		for (ByteBuffer record: records){
+			Event event = codec.decode(record.duplicate());
+			if (event != null){
+				events.add(event);
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Serializes a list of events as the serialized Log did.
+	 *
+	 * @param events
+	 * 		the events.
+	 *
+	 * @return the serialized list.
+	 *
+	 * @throws IOException if the list cannot be serialized.
+	 */
+	private static byte[] serialize(ArrayList<Event> events) throws IOException{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream output = new ObjectOutputStream(bytes);
+		output.writeObject(events);
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Deserializes a list of events written by serialize.
+	 *
+	 * @param serialized
+	 * 		the serialized list.
+	 *
+	 * @return the events.
+	 *
+	 * @throws IOException if the list cannot be read.
+	 * @throws ClassNotFoundException if the Event classes are not on the classpath.
+	 */
+	@SuppressWarnings("unchecked")
+	private static ArrayList<Event> deserialize(byte[] serialized) throws IOException, ClassNotFoundException{
+		ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(serialized));
+		try{
+			return (ArrayList<Event>) input.readObject();
+		}
+		finally{
+			input.close();
+		}
+	}
+
+	/**
+	 * Times encoding the events with an EventCodec.
+	 *
+	 * @param events
+	 * 		the events.
+	 *
+	 * @return the average time of one run, in nanoseconds.
+	 */
+	private static double timeEncode(ArrayList<Event> events){
+		ArrayList<byte[]> records = new ArrayList<byte[]>(3);
+		long start = 0;
+		for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++){
+			if (run == WARMUP_RUNS){
+				start = System.nanoTime();
+			}
+			EventCodec codec = new EventCodec();
+			int bytes = 0;
+			for (Event event: events){
+				records.clear();
+				codec.encode(event, records);
+				bytes += records.get(records.size() - 1).length;
+			}
+			sink += bytes;
+		}
+		return (System.nanoTime() - start) / (double) TIMED_RUNS;
+	}
+
+	/**
+	 * Times decoding the records of the events with an EventCodec.
+	 *
+	 * @param records
+	 * 		the contents of the records.
+	 *
+	 * @return the average time of one run, in nanoseconds.
+	 *
+	 * @throws IOException if a record cannot be decoded.
+	 */
+	private static double timeDecode(ArrayList<ByteBuffer> records) throws IOException{
+		long start = 0;
+		for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++){
+			if (run == WARMUP_RUNS){
+				start = System.nanoTime();
+			}
+			sink += decode(records).size();
+		}
+		return (System.nanoTime() - start) / (double) TIMED_RUNS;
+	}
+
+	/**
+	 * Times serializing the list of events.
+	 *
+	 * @param events
+	 * 		the events.
+	 *
+	 * @return the average time of one run, in nanoseconds.
+	 *
+	 * @throws IOException if the list cannot be serialized.
+	 */
+	private static double timeSerialize(ArrayList<Event> events) throws IOException{
+		long start = 0;
+		for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++){
+			if (run == WARMUP_RUNS){
+				start = System.nanoTime();
+			}
+			sink += serialize(events).length;
+		}
+		return (System.nanoTime() - start) / (double) TIMED_RUNS;
+	}
+
+	/**
+	 * Times deserializing the list of events.
+	 *
+	 * @param serialized
+	 * 		the serialized list.
+	 *
+	 * @return the average time of one run, in nanoseconds.
+	 *
+	 * @throws IOException if the list cannot be read.
+	 * @throws ClassNotFoundException if the Event classes are not on the classpath.
+	 */
+	private static double timeDeserialize(byte[] serialized) throws IOException, ClassNotFoundException{
+		long start = 0;
+		for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++){
+			if (run == WARMUP_RUNS){
+				start = System.nanoTime();
+			}
+			sink += deserialize(serialized).size();
+		}
+		return (System.nanoTime() - start) / (double) TIMED_RUNS;
+	}
+}
@@ -0,0 +1,241 @@
+package photo_renamer;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventCodecTest {
+
+	private EventCodec encoder;
+	private ArrayList<byte[]> records;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        encoder = new EventCodec();
+        records = new ArrayList<byte[]>();
+    }
+
+    /**
+     * Encodes an event, and returns the types of the records it was encoded as.
+     */
+    private ArrayList<Byte> encode(Event event) {
+        int first = records.size();
+        encoder.encode(event, records);
+        ArrayList<Byte> types = new ArrayList<Byte>();
+        for (byte[] record: records.subList(first, records.size())) {
+            types.add(record[0]);
+        }
+        return types;
+    }
+
+    /**
+     * Decodes every record encoded so far with a new codec.
+     */
+    private ArrayList<Event> decodeAll() throws IOException {
+        EventCodec decoder = new EventCodec();
+        ArrayList<Event> events = new ArrayList<Event>();
+        for (byte[] record: records) {
+            Event event = decoder.decode(ByteBuffer.wrap(record));
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private EventGroup group(int size, String prefix, long time) {
+        ArrayList<Event> members = new ArrayList<Event>();
+        for (int i = 0; i < size; i++) {
+            members.add(new Event(prefix + i + ".jpg", prefix + i + "@t" + i + ".jpg", time));
+        }
+        return new EventGroup("added tags", members, time);
+    }
+
+    private void assertSameEvent(Event expected, Event event) {
+        assertEquals(expected.getOldName(), event.getOldName());
+        assertEquals(expected.getNewName(), event.getNewName());
+        assertEquals(expected.getTimestamp(), event.getTimestamp());
+        assertEquals(expected.getTime(), event.getTime());
+        assertEquals(expected.getDirectory(), event.getDirectory());
+        assertEquals(expected instanceof EventGroup, event instanceof EventGroup);
+        if (expected instanceof EventGroup) {
+            ArrayList<Event> members = ((EventGroup) event).getEvents();
+            assertEquals(((EventGroup) expected).size(), members.size());
+            for (int i = 0; i < members.size(); i++) {
+                assertSameEvent(((EventGroup) expected).getEvents().get(i), members.get(i));
+            }
+        }
+    }
+
+    private void assertSameEvents(Event[] expected, ArrayList<Event> events) {
+        assertEquals(expected.length, events.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertSameEvent(expected[i], events.get(i));
+        }
+    }
+
+    /**
+     * Test method for {@link photo_renamer.EventCodec#decode(java.nio.ByteBuffer)}.
+     * Test case for single events, a group, an event whose timestamp is not
+     * a time, names that are not ASCII, and events with and without the
+     * directory of their photo.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        Event[] events = {
+                new Event("a.jpg", "a@beach.jpg", 1480000000000L),
+                group(3, "b", 1480000001000L),
+                new Event("a@beach.jpg", "a.jpg", "not a time"),
+                new Event("\u00e9t\u00e9.jpg", "\u00e9t\u00e9@plage@\u65e5\u672c.jpg", 1480000002000L),
+                new Event("x@y.jpg", "x@y.jpg", 0L),
+                new Event("a.jpg", "a@sun.jpg", 1480000003000L, "/photos/2016"),
+                new Event("a.jpg", "a@sun.jpg", "not a time", "/photos/2017"),
+        };
+        for (Event event: events) {
+            encode(event);
+        }
+        assertSameEvents(events, decodeAll());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.EventCodec#encode(photo_renamer.Event, java.util.List)}.
+     * Test case for the records written as the dictionary fills: a reset
+     * first, definitions of new strings only, and none for known strings.
+     */
+    @Test
+    public void testDefinitionsOnlyForNewStrings() {
+        assertEquals(Arrays.asList(EventCodec.RESET, EventCodec.DEFINE, EventCodec.EVENT),
+                encode(new Event("a.jpg", "a@beach.jpg", 1000L)));
+        assertEquals(Arrays.asList(EventCodec.DEFINE, EventCodec.EVENT),
+                encode(new Event("b.jpg", "b@beach.jpg", 2000L)));
+        assertEquals(Arrays.asList(EventCodec.EVENT),
+                encode(new Event("a.jpg", "a@beach.jpg", 3000L)));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.EventCodec#encode(photo_renamer.Event, java.util.List)}.
+     * Test case for more than 65,536 strings, after which the dictionary is
+     * reset and the events are still decoded.
+     */
+    @Test
+    public void testResetWhenDictionaryFull() throws IOException {
+        Event[] events = new Event[40000];
+        int resets = 0;
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new Event("p" + i + ".jpg", "p" + i + "@t" + i + ".jpg", 1000L * i);
+            if (encode(events[i]).contains(EventCodec.RESET)) {
+                resets++;
+            }
+        }
+        assertEquals(2, resets);
+        assertSameEvents(events, decodeAll());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.EventCodec#encode(photo_renamer.Event, java.util.List)}.
+     * Test case for a group whose strings do not fit in an empty dictionary,
+     * which is encoded after a reset with all of its strings, and the event
+     * after it, which is encoded after a reset again.
+     */
+    @Test
+    public void testGroupLargerThanDictionary() throws IOException {
+        encode(group(100, "a", 1000L));
+        EventGroup large = group(50000, "b", 2000L);
+        assertEquals(Arrays.asList(EventCodec.RESET, EventCodec.DEFINE, EventCodec.GROUP), encode(large));
+        Event next = new Event("b0@t0.jpg", "b0.jpg", 3000L);
+        assertEquals(Arrays.asList(EventCodec.RESET, EventCodec.DEFINE, EventCodec.EVENT), encode(next));
+        assertSameEvents(new Event[] {group(100, "a", 1000L), large, next}, decodeAll());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.EventCodec#rollback()}.
+     * Test case for an event whose records were not written, whose strings
+     * are defined again by the next event that refers to them.
+     */
+    @Test
+    public void testRollbackForgetsStrings() throws IOException {
+        Event first = new Event("a.jpg", "a@beach.jpg", 1000L);
+        Event lost = new Event("b.jpg", "b@sun.jpg", 2000L);
+        Event next = new Event("b.jpg", "b@sun@beach.jpg", 3000L);
+        encode(first);
+        int written = records.size();
+        encode(lost);
+        records.subList(written, records.size()).clear();
+        encoder.rollback();
+        assertEquals(Arrays.asList(EventCodec.DEFINE, EventCodec.EVENT), encode(next));
+        assertSameEvents(new Event[] {first, next}, decodeAll());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.EventCodec#rollback()}.
+     * Test case for an event that started with a reset, after which the next
+     * event starts with a reset again.
+     */
+    @Test
+    public void testRollbackOfReset() throws IOException {
+        encode(new Event("a.jpg", "a@beach.jpg", 1000L));
+        records.clear();
+        encoder.rollback();
+        Event next = new Event("a.jpg", "a@sun.jpg", 2000L);
+        assertEquals(Arrays.asList(EventCodec.RESET, EventCodec.DEFINE, EventCodec.EVENT), encode(next));
+        assertSameEvents(new Event[] {next}, decodeAll());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.EventCodec#decodeMember(java.nio.ByteBuffer, int)}.
+     * Test case for every event of a group read on its own, and a position
+     * past its last event.
+     */
+    @Test
+    public void testDecodeMember() throws IOException {
+        EventGroup group = group(5, "a", 1000L);
+        encode(group);
+        EventCodec decoder = new EventCodec();
+        for (byte[] record: records.subList(0, records.size() - 1)) {
+            decoder.decode(ByteBuffer.wrap(record));
+        }
+        byte[] groupRecord = records.get(records.size() - 1);
+        for (int i = 0; i < group.size(); i++) {
+            assertSameEvent(group.getEvents().get(i), decoder.decodeMember(ByteBuffer.wrap(groupRecord), i));
+        }
+        try {
+            decoder.decodeMember(ByteBuffer.wrap(groupRecord), 5);
+            fail("decoded an event past the end of the group");
+        } catch (IOException e) {
+            // The group has no such event.
+        }
+        assertEquals(1000L, EventCodec.timeOf(ByteBuffer.wrap(groupRecord)));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.EventCodec#decode(java.nio.ByteBuffer)}.
+     * Test case for a record cut short and a record that refers to a string
+     * that was never defined.
+     */
+    @Test
+    public void testDecodeBadRecords() {
+        encode(new Event("a.jpg", "a@beach.jpg", 1000L));
+        byte[] event = records.get(records.size() - 1);
+        try {
+            new EventCodec().decode(ByteBuffer.wrap(Arrays.copyOf(event, event.length - 1)));
+            fail("decoded a torn record");
+        } catch (IOException e) {
+            // The record is torn.
+        }
+        try {
+            new EventCodec().decode(ByteBuffer.wrap(event));
+            fail("decoded a record without its dictionary");
+        } catch (IOException e) {
+            // The string was never defined.
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package photo_renamer;
+
+import java.util.ArrayList;
+
+/**
+ * An event representing a batch of renamings made as a single operation, 
+ * such as tagging many photos at once. The Log records the whole batch as 
+ * one EventGroup, which keeps the Event of each photo renamed by it.
+ * @author group_0653
+ *
+ */
+public class EventGroup extends Event {
+
+	/** The serialID for serialization purposes. */
+	private static final long serialVersionUID = 4418291530472865263L;
+
+	/** The renaming events of the photos renamed in this batch, in order. */
+	private ArrayList<Event> events;
+
+	/**
+	 * A new event occurrence for a batch of renamings.
+	 * 
+	 * @param description
+	 * 		a description of the batch operation, shown in place of a photo name.
+	 * @param events
+	 * 		the renaming events of the photos renamed in the batch.
+	 * @param timestamp
+	 * 		the date and time when the batch finished.
+	 */
+	public EventGroup(String description, ArrayList<Event> events, String timestamp) {
+		super(events.size() + " photos", description, timestamp);
+		this.events = new ArrayList<Event>(events);
+	}
+
+	/**
+	 * A new event occurrence for a batch of renamings.
+	 * 
+	 * @param description
+	 * 		a description of the batch operation, shown in place of a photo name.
+	 * @param events
+	 * 		the renaming events of the photos renamed in the batch.
+	 * @param time
+	 * 		the date and time when the batch finished, in milliseconds since the epoch.
+	 */
+	public EventGroup(String description, ArrayList<Event> events, long time) {
+		super(events.size() + " photos", description, time);
+		this.events = new ArrayList<Event>(events);
+	}
+
+	/**
+	 * Returns the renaming events of the photos renamed in this batch.
+	 * 
+	 * @return a copy of the list of renaming events in this EventGroup.
+	 */
+	public ArrayList<Event> getEvents() {
+		return new ArrayList<Event>(events);
+	}
+
+	/**
+	 * Returns the number of photos renamed in this batch.
+	 * 
+	 * @return the number of renaming events in this EventGroup.
+	 */
+	public int size() {
+		return events.size();
+	}
+
+	/**
+	 * Returns this EventGroup in a user-friendly format: a summary of the 
+	 * batch followed by the renaming of each photo in it.
+	 * 
+	 * @return the string representation of this EventGroup.
+	 */
+	@Override
+	public String displayEvent() {
+		String display = "Batch: " + getNewName() + " (" + getOldName() + ")\n" + "Changes made at: " + getTimestamp() + "\n";
+		for (Event event: events) {
+			display += "    " + event.getOldName() + " -> " + event.getNewName() + "\n";
+		}
+		return display + "\n";
+	}
+}
@@ -1,10 +1,17 @@
 package photo_renamer;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * An exception to be thrown when Renamer is unable to successfully rename a file. 
  * This could be due to a conflicting filename in the same directory, a incorrect 
  * filepath, or other issues. 
  * 
+ * When a batch of renames fails and some of its photos cannot be renamed 
+ * back, the exception lists them, since they keep their new names. 
+ * 
  * @author group_0653
  */
 
@@ -13,6 +20,9 @@ public class FileNotRenamedException extends Exception{
 	/** The serialID for serialization purposes. */
 	private static final long serialVersionUID = 1L;
 	
+	/** The photo files that could not be renamed back, by their current names. */
+	private final ArrayList<File> notRestored;
+	
 	/**
 	 * An instance of FileNotRenamedException.
 	 * 
@@ -21,6 +31,31 @@ public class FileNotRenamedException extends Exception{
 	 */
 	
 	public FileNotRenamedException(String message) {
+		this(message, new ArrayList<File>());
+	}
+	
+	/**
+	 * An instance of FileNotRenamedException for a batch of renames that 
+	 * could not be completely rolled back.
+	 * 
+	 * @param message
+	 * 		The message to be displayed when this exception is thrown.
+	 * 
+	 * @param notRestored
+	 * 		the photo files that could not be renamed back, by their current names.
+	 */
+	public FileNotRenamedException(String message, List<File> notRestored) {
 		super(message);
+		this.notRestored = new ArrayList<File>(notRestored);
+	}
+	
+	/**
+	 * Returns the photo files that were renamed and could not be renamed back.
+	 * 
+	 * @return a new list of the files, by their current names, empty if every 
+	 * 		rename was undone.
+	 */
+	public ArrayList<File> getNotRestored() {
+		return new ArrayList<File>(notRestored);
 	}
 }
@@ -0,0 +1,212 @@
+package photo_renamer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * A benchmark of the cost of classifying photo files. It times the lookup
+ * of a million generated file names in the PhotoFormat registry against
+ * the substring comparison that the registry replaced, the matching of a
+ * million file headers against the format signatures, and the reading of
+ * the header of real files when content sniffing is on.
+ *
+ * Run with: java photo_renamer.FormatBenchmark [names] [files]
+ *
+ * @author group_0653
+ */
+public class FormatBenchmark {
+
+	/** The number of times each measurement is run before it is timed. */
+	private static final int WARMUP_RUNS = 5;
+
+	/** The number of timed runs of each measurement. */
+	private static final int TIMED_RUNS = 10;
+
+	/** The extensions of the generated names, photo and other files mixed. */
+	private static final String[] EXTENSIONS = {".jpg", ".JPG", ".jpeg", ".png", ".gif", ".tiff",
+		".bmp", ".txt", ".mp4", ".html", ".", ""};
+
+	/** The first bytes of a JPEG, a PNG and a text file. */
+	private static final byte[][] HEADERS = {
+		{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F', 0, 1, 1, 0, 0, 1},
+		{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 0x0D, 'I', 'H', 'D', 'R'},
+		{'p', 'l', 'a', 'i', 'n', ' ', 't', 'e', 'x', 't', ' ', 'f', 'i', 'l', 'e'}};
+
+	/** Keeps the results of the timed code alive so it is not optimized away. */
+	private static int sink;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args
+	 * 		the number of names to classify, by default one million, and the
+	 * 		number of files to sniff, by default 2000.
+	 *
+	 * @throws IOException if the files to sniff cannot be created or deleted.
+	 */
+	public static void main(String[] args) throws IOException{
+		int nameCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int fileCount = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		Random random = new Random(653);
+		String[] names = new String[nameCount];
+		for (int i = 0; i < nameCount; i++){
+			names[i] = "IMG_" + random.nextInt(100000) + (random.nextInt(4) == 0 ? "@tag" : "")
+					+ EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+		}
+		ByteBuffer[] headers = new ByteBuffer[nameCount];
+		for (int i = 0; i < nameCount; i++){
+			headers[i] = ByteBuffer.wrap(HEADERS[i % HEADERS.length]);
+		}
+
+		report("registry lookup", nameCount, timeRegistry(names));
+		report("substring compare", nameCount, timeSubstring(names));
+		report("header match", nameCount, timeHeaders(headers));
+
+		Path directory = Files.createTempDirectory("format-benchmark");
+		Path[] files = new Path[fileCount];
+		try{
+			for (int i = 0; i < fileCount; i++){
+				files[i] = Files.write(directory.resolve("IMG_" + i + (i % 2 == 0 ? ".jpg" : ".png")), HEADERS[i % 2]);
+			}
+			report("sniffed file", fileCount, timeSniffing(files));
+		}
+		finally{
+			for (Path file: files){
+				if (file != null){
+					Files.delete(file);
+				}
+			}
+			Files.delete(directory);
+		}
+		System.out.println("(" + sink + ")");
+	}
+
+	/**
+	 * Prints the time taken per million classifications.
+	 *
+	 * @param label
+	 * 		what was timed.
+	 * @param count
+	 * 		the number of classifications in one run.
+	 * @param nanos
+	 * 		the average time of one run, in nanoseconds.
+	 */
+	private static void report(String label, int count, double nanos){
+		// Nanoseconds per classification are also milliseconds per million.
+		System.out.printf("%-18s %9.2f ms per million%n", label, nanos / count);
+	}
+
+	/**
+	 * Times the classification of names through the PhotoFormat registry.
+	 *
+	 * @param names
+	 * 		the names to classify.
+	 *
+	 * @return the average time of one pass over the names, in nanoseconds.
+	 */
+	private static double timeRegistry(String[] names){
+		long start = 0;
+		for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++){
+			if (run == WARMUP_RUNS){
+				start = System.nanoTime();
+			}
+			int found = 0;
+			for (String name: names){
+				if (PhotoFormat.forFileName(name) != null){
+					found++;
+				}
+			}
+			sink += found;
+		}
+		return (System.nanoTime() - start) / (double) TIMED_RUNS;
+	}
+
+	/**
+	 * Times the classification of names by the substring comparison that the
+	 * registry replaced, which only accepted lower case jpg and png.
+	 *
+	 * @param names
+	 * 		the names to classify.
+	 *
+	 * @return the average time of one pass over the names, in nanoseconds.
+	 */
+	private static double timeSubstring(String[] names){
+		long start = 0;
+		for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++){
+			if (run == WARMUP_RUNS){
+				start = System.nanoTime();
+			}
+			int found = 0;
+			for (String name: names){
+				if (name.lastIndexOf(".") != (name.length() - 1) && name.lastIndexOf(".") != 0){
+					String extension = name.substring(name.lastIndexOf(".") + 1);
+					if (extension.equals("jpg") || extension.equals("png")){
+						found++;
+					}
+				}
+			}
+			sink += found;
+		}
+		return (System.nanoTime() - start) / (double) TIMED_RUNS;
+	}
+
+	/**
+	 * Times the matching of file headers against the signatures of every format.
+	 *
+	 * @param headers
+	 * 		the headers to match.
+	 *
+	 * @return the average time of one pass over the headers, in nanoseconds.
+	 */
+	private static double timeHeaders(ByteBuffer[] headers){
+		PhotoFormat[] formats = PhotoFormat.values();
+		long start = 0;
+		for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++){
+			if (run == WARMUP_RUNS){
+				start = System.nanoTime();
+			}
+			int found = 0;
+			for (ByteBuffer header: headers){
+				for (PhotoFormat format: formats){
+					if (format.matchesHeader(header)){
+						found++;
+						break;
+					}
+				}
+			}
+			sink += found;
+		}
+		return (System.nanoTime() - start) / (double) TIMED_RUNS;
+	}
+
+	/**
+	 * Times the confirmation of files by reading their first bytes, as the
+	 * scanner does when content sniffing is on.
+	 *
+	 * @param files
+	 * 		the files to confirm.
+	 *
+	 * @return the average time of one pass over the files, in nanoseconds.
+	 */
+	private static double timeSniffing(Path[] files){
+		ByteBuffer buffer = ByteBuffer.allocate(PhotoFormat.HEADER_SIZE);
+		long start = 0;
+		for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++){
+			if (run == WARMUP_RUNS){
+				start = System.nanoTime();
+			}
+			int found = 0;
+			for (Path file: files){
+				PhotoFormat format = PhotoFormat.forFileName(file.getFileName().toString());
+				if (format != null && format.confirm(file, buffer)){
+					found++;
+				}
+			}
+			sink += found;
+		}
+		return (System.nanoTime() - start) / (double) TIMED_RUNS;
+	}
+}
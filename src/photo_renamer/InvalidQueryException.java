@@ -0,0 +1,23 @@
+package photo_renamer;
+
+/**
+ * An exception that is thrown when a tag query cannot be parsed.
+ *
+ * @author group_0653
+ *
+ */
+public class InvalidQueryException extends Exception {
+
+	/** The serialID for serialization purposes. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * An instance of InvalidQueryException.
+	 *
+	 * @param message
+	 * 		The message to be displayed when this exception is thrown.
+	 */
+	public InvalidQueryException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,200 @@
+package photo_renamer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A benchmark of the IoExecutor on a simulated high-latency file system.
+ * Every blocking call made through the executor first sleeps for a fixed
+ * latency while it holds its mount permit, as a call to a network file
+ * server would. A synthetic tree is scanned, and a batch of its photos is
+ * renamed, with several per-mount caps, printing the time taken and the
+ * largest number of calls that were in flight at once.
+ *
+ * Run with: java photo_renamer.IoBenchmark [latency ms] [depth] [width] [photos per directory]
+ *
+ * @author group_0653
+ */
+public class IoBenchmark {
+
+	/** The per-mount caps that are compared. */
+	private static final int[] MOUNT_CONCURRENCY = {1, 4, 16, 64};
+
+	/** The number of photos renamed in each batch. */
+	private static final int RENAMES = 400;
+
+	/**
+	 * Builds the synthetic tree, runs the benchmark and deletes the tree.
+	 *
+	 * @param args
+	 * 		the injected latency of each call in milliseconds, the depth and
+	 * 		width of the tree and the number of photos in each directory, by
+	 * 		default 5, 3, 5 and 10.
+	 *
+	 * @throws Exception if the tree cannot be built, renamed or deleted.
+	 */
+	public static void main(String[] args) throws Exception{
+		int latency = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		int width = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		int photos = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+		Path root = Files.createTempDirectory("io-benchmark");
+		try{
+			int created = ScanBenchmark.buildTree(root, depth, width, photos);
+			System.out.println("Tree of " + created + " photos, " + latency + " ms per call");
+			for (int mountConcurrency: MOUNT_CONCURRENCY){
+				LatencyExecutor executor = new LatencyExecutor(mountConcurrency, latency);
+				try{
+					run(root, executor, created);
+				}
+				finally{
+					executor.shutdown();
+				}
+			}
+		}
+		finally{
+			ScanBenchmark.deleteTree(root);
+		}
+	}
+
+	/**
+	 * Scans the tree and renames a batch of its photos through an executor,
+	 * and prints the time taken by each.
+	 *
+	 * @param root
+	 * 		the root of the tree.
+	 * @param executor
+	 * 		the executor injecting the latency.
+	 * @param expected
+	 * 		the number of photos in the tree.
+	 *
+	 * @throws Exception if a photo cannot be renamed.
+	 */
+	private static void run(Path root, LatencyExecutor executor, int expected) throws Exception{
+		DirectoryScanner scanner = new DirectoryScanner(Runtime.getRuntime().availableProcessors());
+		scanner.setIoExecutor(executor);
+		ArrayList<Path> files = new ArrayList<Path>();
+		long start = System.nanoTime();
+		try{
+			for (Iterator<PhotoEntry> photos = scanner.scan(root.toFile()); photos.hasNext();){
+				files.add(photos.next().getPath());
+			}
+		}
+		finally{
+			scanner.shutdown();
+		}
+		double scanMillis = (System.nanoTime() - start) / 1e6;
+		if (files.size() != expected){
+			throw new IllegalStateException("Found " + files.size() + " of " + expected + " photos.");
+		}
+
+		int count = Math.min(RENAMES, files.size());
+		start = System.nanoTime();
+		rename(executor, files, count, "_renamed");
+		double renameMillis = (System.nanoTime() - start) / 1e6;
+		rename(executor, files, count, "");
+		System.out.printf("cap %2d: scan %8.1f ms, %d renames %8.1f ms, at most %d calls at once%n",
+				executor.getMountConcurrency(), scanMillis, count, renameMillis, executor.peak.get());
+	}
+
+	/**
+	 * Renames the first photos of a list at the same time through an
+	 * executor, by adding a suffix to their original names.
+	 *
+	 * @param executor
+	 * 		the executor running the renames.
+	 * @param files
+	 * 		the original paths of the photos.
+	 * @param count
+	 * 		the number of photos to rename.
+	 * @param suffix
+	 * 		the suffix added to each name, or "" to restore the original names.
+	 *
+	 * @throws Exception if a photo cannot be renamed.
+	 */
+	private static void rename(IoExecutor executor, ArrayList<Path> files, int count, String suffix) throws Exception{
+		ArrayList<Future<Void>> renames = new ArrayList<Future<Void>>();
+		for (int i = 0; i < count; i++){
+			Path original = files.get(i);
+			Path source = suffix.isEmpty() ? original.resolveSibling(original.getFileName() + "_renamed") : original;
+			Path target = suffix.isEmpty() ? original : original.resolveSibling(original.getFileName() + suffix);
+			renames.add(executor.submit(source, new Callable<Void>(){
+				@Override
+				public Void call() throws IOException {
+					Files.move(source, target);
+					return null;
+				}
+			}));
+		}
+		try{
+			for (Future<Void> future: renames){
+				future.get();
+			}
+		}
+		catch (ExecutionException e){
+			throw (Exception) e.getCause();
+		}
+	}
+
+	/**
+	 * An IoExecutor whose calls each sleep for a fixed latency before they
+	 * run, while holding their mount permit, and which records the largest
+	 * number of calls in flight at once.
+	 */
+	private static class LatencyExecutor extends IoExecutor {
+
+		/** The injected latency of each call, in milliseconds. */
+		private final int latency;
+
+		/** The number of calls in flight. */
+		private final AtomicInteger running;
+
+		/** The largest number of calls that were in flight at once. */
+		private final AtomicInteger peak;
+
+		/**
+		 * A new LatencyExecutor.
+		 *
+		 * @param mountConcurrency
+		 * 		the number of calls allowed to run at the same time on one mount.
+		 * @param latency
+		 * 		the injected latency of each call, in milliseconds.
+		 */
+		LatencyExecutor(int mountConcurrency, int latency){
+			super(mountConcurrency);
+			this.latency = latency;
+			this.running = new AtomicInteger();
+			this.peak = new AtomicInteger();
+		}
+
+		@Override
+		public <T> T call(Path path, Callable<T> task) throws Exception{
+			return super.call(path, new Callable<T>(){
+				@Override
+				public T call() throws Exception {
+					int now = running.incrementAndGet();
+					while (true){
+						int highest = peak.get();
+						if (now <= highest || peak.compareAndSet(highest, now)){
+							break;
+						}
+					}
+					try{
+						Thread.sleep(latency);
+						return task.call();
+					}
+					finally{
+						running.decrementAndGet();
+					}
+				}
+			});
+		}
+	}
+}
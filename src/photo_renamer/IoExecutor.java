@@ -0,0 +1,500 @@
+package photo_renamer;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * An executor for blocking file system calls such as listing directories and
+ * renaming files. On network mounts each call can take milliseconds, so many
+ * calls are run at the same time: on virtual threads when the Java runtime
+ * supports them, and on a bounded pool of threads otherwise.
+ *
+ * The number of calls running at the same time on each mount is capped, so
+ * that thousands of overlapping calls do not flood a file server. The mount
+ * of each call is found from the device of the directory it accesses, so a
+ * network share mounted under a local directory gets a cap of its own. The
+ * mount of each directory is remembered, either from the attributes a scan
+ * already read for it or from a single lookup, so a call does not cost an
+ * extra round trip to the server before it runs.
+ *
+ * @author group_0653
+ */
+public class IoExecutor {
+
+	/** The default number of calls allowed to run at the same time on one mount. */
+	public static final int DEFAULT_MOUNT_CONCURRENCY = 32;
+
+	/** The executor that runs submitted calls. */
+	private ExecutorService executor;
+
+	/** Whether submitted calls run on virtual threads. */
+	private boolean virtualThreads;
+
+	/** The number of calls allowed to run at the same time on one mount. */
+	private volatile int mountConcurrency;
+
+	/** The permits limiting the calls running on each mount. */
+	private ConcurrentHashMap<String, MountPermits> mountPermits;
+
+	/** The permits of the mount of each directory whose mount is known. */
+	private ConcurrentHashMap<Path, MountPermits> directoryPermits;
+
+	/** The permits limiting the lookups of mounts that are not known yet, which are calls as well. */
+	private MountPermits lookupPermits;
+
+	/**
+	 * A new IoExecutor that allows DEFAULT_MOUNT_CONCURRENCY calls at a time on each mount.
+	 */
+	public IoExecutor(){
+		this(DEFAULT_MOUNT_CONCURRENCY);
+	}
+
+	/**
+	 * A new IoExecutor that allows a given number of calls at a time on each mount.
+	 *
+	 * @param mountConcurrency
+	 * 		the number of calls allowed to run at the same time on one mount.
+	 *
+	 * @throws IllegalArgumentException if mountConcurrency is not positive.
+	 */
+	public IoExecutor(int mountConcurrency){
+		if (mountConcurrency <= 0){
+			throw new IllegalArgumentException("Mount concurrency must be positive.");
+		}
+		this.mountConcurrency = mountConcurrency;
+		this.mountPermits = new ConcurrentHashMap<String, MountPermits>();
+		this.directoryPermits = new ConcurrentHashMap<Path, MountPermits>();
+		this.lookupPermits = new MountPermits(mountConcurrency);
+		this.executor = newVirtualThreadExecutor();
+		this.virtualThreads = executor != null;
+		if (executor == null){
+			this.executor = Executors.newFixedThreadPool(mountConcurrency, new ThreadFactory(){
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "PhotoRenamer I/O");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns whether submitted calls run on virtual threads.
+	 *
+	 * @return true if virtual threads are used, false if a bounded pool is used.
+	 */
+	public boolean usesVirtualThreads(){
+		return virtualThreads;
+	}
+
+	/**
+	 * Returns the number of calls allowed to run at the same time on one mount.
+	 *
+	 * @return the concurrency cap of each mount.
+	 */
+	public int getMountConcurrency(){
+		return mountConcurrency;
+	}
+
+	/**
+	 * Sets the number of calls allowed to run at the same time on one mount.
+	 * The permits of every mount are resized in place, so calls already
+	 * running are counted against the new cap and it is never exceeded.
+	 *
+	 * @param mountConcurrency
+	 * 		the number of calls allowed to run at the same time on one mount.
+	 *
+	 * @throws IllegalArgumentException if mountConcurrency is not positive.
+	 */
+	public synchronized void setMountConcurrency(int mountConcurrency){
+		if (mountConcurrency <= 0){
+			throw new IllegalArgumentException("Mount concurrency must be positive.");
+		}
+		int change = mountConcurrency - this.mountConcurrency;
+		this.mountConcurrency = mountConcurrency;
+		for (MountPermits permits: mountPermits.values()){
+			permits.resize(change);
+		}
+		lookupPermits.resize(change);
+		if (executor instanceof ThreadPoolExecutor){
+			// The bounded pool grows and shrinks with the cap of a mount.
+			ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+			if (change > 0){
+				pool.setMaximumPoolSize(mountConcurrency);
+				pool.setCorePoolSize(mountConcurrency);
+			}
+			else if (change < 0){
+				pool.setCorePoolSize(mountConcurrency);
+				pool.setMaximumPoolSize(mountConcurrency);
+			}
+		}
+	}
+
+	/**
+	 * Submits a blocking call on a path to be run in the background, once
+	 * the mount of the path has a free slot.
+	 *
+	 * @param path
+	 * 		the path that the call accesses.
+	 * @param task
+	 * 		the call to be run.
+	 *
+	 * @return a Future for the result of the call.
+	 */
+	public <T> Future<T> submit(Path path, Callable<T> task){
+		return executor.submit(new Callable<T>(){
+			@Override
+			public T call() throws Exception {
+				return IoExecutor.this.call(path, task);
+			}
+		});
+	}
+
+	/**
+	 * Runs a blocking call on a path in the calling thread, once the mount
+	 * of the path has a free slot. When called from a ForkJoinPool, the pool
+	 * is told that the thread is blocked, so it can keep other tasks running.
+	 *
+	 * @param path
+	 * 		the path that the call accesses.
+	 * @param task
+	 * 		the call to be run.
+	 *
+	 * @return the result of the call.
+	 *
+	 * @throws Exception if the call throws an exception.
+	 */
+	public <T> T call(Path path, Callable<T> task) throws Exception{
+		Semaphore permits = permitsFor(path);
+		if (!ForkJoinTask.inForkJoinPool()){
+			permits.acquire();
+			try{
+				return task.call();
+			}
+			finally{
+				permits.release();
+			}
+		}
+		ForkJoinPool.managedBlock(new PermitBlocker(permits));
+		try{
+			BlockingCall<T> blockingCall = new BlockingCall<T>(task);
+			ForkJoinPool.managedBlock(blockingCall);
+			return blockingCall.getResult();
+		}
+		finally{
+			permits.release();
+		}
+	}
+
+	/**
+	 * Stops the threads of this IoExecutor. Calls already submitted are still run.
+	 */
+	public void shutdown(){
+		executor.shutdown();
+	}
+
+	/**
+	 * Records the mount of a directory from attributes already read for it,
+	 * as a scan does for each subdirectory it lists, so that calls on the
+	 * directory and its files do not look the mount up again. Attributes
+	 * that do not name a device are ignored.
+	 *
+	 * @param directory
+	 * 		the directory.
+	 * @param attributes
+	 * 		the attributes read for the directory.
+	 */
+	public void recordMount(Path directory, BasicFileAttributes attributes){
+		String mount = deviceOf(attributes);
+		if (mount != null){
+			directoryPermits.put(directory, permitsOf(mount));
+		}
+	}
+
+	/**
+	 * Returns the permits limiting the calls running on the mount of a path.
+	 * The mount of a directory is remembered once it is known; a path whose
+	 * own mount is not known is counted against the mount of its directory,
+	 * since a file is on the mount of its directory. Only when neither is
+	 * known is the mount looked up, holding one of the permits of lookups.
+	 *
+	 * @param path
+	 * 		the path that a call accesses.
+	 *
+	 * @return the permits of the path's mount.
+	 *
+	 * @throws InterruptedException if interrupted while waiting to look the mount up.
+	 */
+	private Semaphore permitsFor(Path path) throws InterruptedException{
+		MountPermits permits = directoryPermits.get(path);
+		Path directory = path.getParent();
+		if (permits == null && directory != null){
+			permits = directoryPermits.get(directory);
+		}
+		if (permits != null){
+			return permits;
+		}
+		if (ForkJoinTask.inForkJoinPool()){
+			ForkJoinPool.managedBlock(new PermitBlocker(lookupPermits));
+		}
+		else{
+			lookupPermits.acquire();
+		}
+		try{
+			return resolveMount(path);
+		}
+		finally{
+			lookupPermits.release();
+		}
+	}
+
+	/**
+	 * Looks up the mount that a path is on, and remembers it for the directory
+	 * that was read: the path if it is a directory, and its parent otherwise.
+	 * If the path does not exist yet, as the target of a rename, its nearest
+	 * existing ancestor is read instead.
+	 *
+	 * @param path
+	 * 		the path whose mount is looked up.
+	 *
+	 * @return the permits of the mount of the path.
+	 */
+	private MountPermits resolveMount(Path path){
+		for (Path existing = path; existing != null; existing = existing.getParent()){
+			BasicFileAttributes attributes;
+			try{
+				attributes = Files.readAttributes(existing, BasicFileAttributes.class);
+			}
+			catch (IOException e){
+				// The path does not exist yet, so its parent is tried instead.
+				continue;
+			}
+			Path directory = attributes.isDirectory() || existing.getParent() == null ? existing : existing.getParent();
+			String mount = deviceOf(attributes);
+			if (mount == null){
+				try{
+					mount = Files.getFileStore(existing).toString();
+				}
+				catch (IOException e){
+					mount = "";
+				}
+			}
+			MountPermits permits = permitsOf(mount);
+			directoryPermits.put(directory, permits);
+			return permits;
+		}
+		Path root = path.toAbsolutePath().getRoot();
+		return permitsOf(root == null ? "" : root.toString());
+	}
+
+	/**
+	 * Returns the permits of a mount, creating them the first time.
+	 *
+	 * @param mount
+	 * 		the name of the mount.
+	 *
+	 * @return the permits of the mount.
+	 */
+	private MountPermits permitsOf(String mount){
+		MountPermits permits = mountPermits.get(mount);
+		if (permits == null){
+			// Created under the lock so a concurrent resize cannot miss it.
+			synchronized (this){
+				permits = mountPermits.get(mount);
+				if (permits == null){
+					permits = new MountPermits(mountConcurrency);
+					mountPermits.put(mount, permits);
+				}
+			}
+		}
+		return permits;
+	}
+
+	/**
+	 * Returns a name for the device of a file from its attributes. Where the
+	 * file system reports one, the file key of a file names its device and
+	 * its inode, as "(dev=803,ino=1234)".
+	 *
+	 * @param attributes
+	 * 		the attributes of a file.
+	 *
+	 * @return the name of the device of the file, or null if its file key
+	 * 		does not name one.
+	 */
+	private static String deviceOf(BasicFileAttributes attributes){
+		Object fileKey = attributes.fileKey();
+		if (fileKey == null){
+			return null;
+		}
+		String key = fileKey.toString();
+		int start = key.indexOf("dev=");
+		if (start < 0){
+			return null;
+		}
+		int end = key.indexOf(',', start);
+		return "dev " + key.substring(start + 4, end < 0 ? key.length() : end);
+	}
+
+	/**
+	 * Returns an executor that runs each task on a new virtual thread, if the
+	 * Java runtime supports virtual threads.
+	 *
+	 * @return an executor using virtual threads, or null if they are not supported.
+	 */
+	private static ExecutorService newVirtualThreadExecutor(){
+		try{
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		}
+		catch (ReflectiveOperationException | UnsupportedOperationException e){
+			return null;
+		}
+	}
+
+	/**
+	 * The permits of one mount, which can be resized while calls hold them.
+	 */
+	private static class MountPermits extends Semaphore {
+
+		/** The serialID for serialization purposes. */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * New permits for a mount.
+		 *
+		 * @param permits
+		 * 		the number of calls allowed to run at the same time on the mount.
+		 */
+		MountPermits(int permits){
+			super(permits);
+		}
+
+		/**
+		 * Changes the number of calls allowed at the same time. Removed permits
+		 * are taken back as the calls holding them release them.
+		 *
+		 * @param change
+		 * 		the number of permits to be added, or removed if negative.
+		 */
+		void resize(int change){
+			if (change > 0){
+				release(change);
+			}
+			else if (change < 0){
+				reducePermits(-change);
+			}
+		}
+	}
+
+	/**
+	 * A blocker that waits for a mount permit inside a ForkJoinPool.
+	 */
+	private static class PermitBlocker implements ForkJoinPool.ManagedBlocker {
+
+		/** The permits of the mount. */
+		private Semaphore permits;
+
+		/** Whether a permit has been acquired. */
+		private boolean acquired;
+
+		/**
+		 * A new blocker for the permits of a mount.
+		 *
+		 * @param permits
+		 * 		the permits of the mount.
+		 */
+		PermitBlocker(Semaphore permits){
+			this.permits = permits;
+		}
+
+		@Override
+		public boolean block() throws InterruptedException {
+			if (!acquired){
+				permits.acquire();
+				acquired = true;
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable() {
+			if (!acquired){
+				acquired = permits.tryAcquire();
+			}
+			return acquired;
+		}
+	}
+
+	/**
+	 * A blocker that runs a blocking call inside a ForkJoinPool.
+	 */
+	private static class BlockingCall<T> implements ForkJoinPool.ManagedBlocker {
+
+		/** The call to be run. */
+		private Callable<T> task;
+
+		/** Whether the call has been run. */
+		private boolean done;
+
+		/** The result of the call. */
+		private T result;
+
+		/** The exception thrown by the call, or null. */
+		private Exception exception;
+
+		/**
+		 * A new blocker for a call.
+		 *
+		 * @param task
+		 * 		the call to be run.
+		 */
+		BlockingCall(Callable<T> task){
+			this.task = task;
+		}
+
+		@Override
+		public boolean block() {
+			try{
+				result = task.call();
+			}
+			catch (Exception e){
+				exception = e;
+			}
+			done = true;
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable() {
+			return done;
+		}
+
+		/**
+		 * Returns the result of the call, or throws the exception it threw.
+		 *
+		 * @return the result of the call.
+		 *
+		 * @throws Exception if the call threw an exception.
+		 */
+		T getResult() throws Exception{
+			if (exception != null){
+				throw exception;
+			}
+			return result;
+		}
+	}
+}
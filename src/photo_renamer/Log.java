@@ -2,11 +2,14 @@ package photo_renamer;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -15,19 +18,112 @@ import java.util.NoSuchElementException;
  * A log of events.
  * This class is involved in the Iterator Design Pattern.
  * It acts as a container for Event objects.
+ * 
+ * Once opened, a Log is backed by a LogSegment: each event is appended to 
+ * the segment file as it is added, and the events already in the file are 
+ * only read the first time they are asked for. Single events and ranges of 
+ * events are read with a LogReader, which decodes only the events asked for; 
+ * the whole list of events is only read by getEventList. 
+ * 
+ * The events of each photo are found with a PhotoEventIndex, which is kept 
+ * up to date as events are added and written to its own file when the Log 
+ * is closed. 
  * @author group_0653
  *
  */
 public class Log implements Iterable<Event> {
 	
-	/** A list of events that has occurred in this application. */
+	/** The number of events read at a time to bring the photo index up to date. */
+	private static final int INDEX_BATCH = 1000;
+	
+	/** A list of events that has occurred in this application, or null until it is read from the segment. */
 	private ArrayList<Event> eventList;
 	
+	/** The segment file events are appended to, or null if this Log is not open. */
+	private LogSegment segment;
+	
+	/** The index of the events of each photo, or null until it is read from its file. */
+	private PhotoEventIndex photoIndex;
+	
+	/** The file the photo index is written to when this Log is closed, or null if it is not written. */
+	private String photoIndexFileName;
+	
+	/** The error that stopped events being appended to the segment, or null if there was none. */
+	private IOException failure;
+	
 	/**
 	 * A new instance of Log with an empty list of events.
 	 */
 	public Log(){
 		this.eventList = new ArrayList<Event>();
+		this.photoIndex = new PhotoEventIndex();
+	}
+	
+	/**
+	 * Opens a segment file as the contents of this Log, replacing the events 
+	 * it held. Events in the file are not read until they are asked for, and 
+	 * events added from now on are appended to the file. 
+	 * 
+	 * @param fileName
+	 * 		the segment file, created if it does not exist.
+	 * 
+	 * @throws IOException if the file cannot be opened or is not a segment file.
+	 */
+	public synchronized void open(String fileName) throws IOException {
+		open(fileName, null);
+	}
+	
+	/**
+	 * Opens a segment file as the contents of this Log, as open does, along 
+	 * with the file its PhotoEventIndex is kept in. Neither file is read 
+	 * until it is needed, and the events added to the segment after the 
+	 * index was last written are indexed when the index is first used. 
+	 * 
+	 * @param fileName
+	 * 		the segment file, created if it does not exist.
+	 * @param indexFileName
+	 * 		the index file, read if it exists, or null if the index is not kept.
+	 * 
+	 * @throws IOException if the segment file cannot be opened or is not a segment file.
+	 */
+	public synchronized void open(String fileName, String indexFileName) throws IOException {
+		close();
+		LogSegment opened = new LogSegment();
+		opened.open(fileName);
+		this.segment = opened;
+		this.eventList = null;
+		this.photoIndex = null;
+		this.photoIndexFileName = indexFileName;
+		this.failure = null;
+	}
+	
+	/**
+	 * Closes the segment file of this Log, if it is open. Events that were 
+	 * not read before the file was closed are no longer in this Log, which 
+	 * should be opened again before it is used.
+	 * 
+	 * @throws IOException if the segment file cannot be closed.
+	 */
+	public synchronized void close() throws IOException {
+		if (segment == null){
+			return;
+		}
+		try{
+			// An index that was never read is still valid for the events before it.
+			if (photoIndexFileName != null && photoIndex != null){
+				photoIndex.serializeIndex(photoIndexFileName);
+			}
+		}
+		catch (IOException e){
+			// The index is built again from the segment when it is next used.
+			e.printStackTrace();
+		}
+		try{
+			segment.close();
+		}
+		finally{
+			segment = null;
+		}
 	}
 	
 	/**
@@ -35,18 +131,214 @@ public class Log implements Iterable<Event> {
 	 *  
 	 * @return the ArrayList of Event objects representing all renaming events. 
 	 */
-	public ArrayList<Event> getEventList() {
-		return eventList;
+	public synchronized ArrayList<Event> getEventList() {
+		return events();
 	}
 
 	/**
-	 * Adds an Event to this Log's list of events.
+	 * Adds an Event to this Log's list of events, and appends it to the 
+	 * segment file if this Log is open. The event is written to the segment 
+	 * while the lock of this Log is held, and forced to disk once the lock is 
+	 * released, so events added by other threads while it is forced share 
+	 * the next force instead of waiting for the lock. 
+	 * 
+	 * If the event cannot be appended, it is not added, and neither is any 
+	 * event after it, so the Log is never left with a gap; an event written 
+	 * but not forced to disk stays in this Log. The renames are still in the 
+	 * RenameJournal, which must then not be checkpointed; they are added to 
+	 * the Log by RenameJournal.replay when it is next opened. 
 	 * 
 	 * @param event
 	 * 		an Event representing a renaming occurrence.  
+	 * 
+	 * @see #hasFailed()
 	 */
 	public void addEvent(Event event) {
-		eventList.add(event);
+		LogSegment written;
+		long end = 0;
+		synchronized (this){
+			int position = size();
+			written = segment;
+			if (written != null){
+				if (failure != null){
+					return;
+				}
+				try{
+					end = written.write(event);
+				}
+				catch (IOException e){
+					failure = e;
+					e.printStackTrace();
+					return;
+				}
+			}
+			if (photoIndex != null && photoIndex.size() == position){
+				photoIndex.addEvent(position, event);
+			}
+			if (eventList != null){
+				eventList.add(event);
+			}
+		}
+		if (written == null){
+			return;
+		}
+		// Forced without holding the lock of this Log, so that other events 
+		// can be written meanwhile and share the next force.
+		try{
+			written.sync(end);
+		}
+		catch (IOException e){
+			synchronized (this){
+				if (failure == null){
+					failure = e;
+				}
+			}
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Returns whether an event could not be appended to the segment file 
+	 * since this Log was opened, after which no more events are added.
+	 * 
+	 * @return true if an append failed, false otherwise.
+	 */
+	public synchronized boolean hasFailed() {
+		return failure != null;
+	}
+	
+	/**
+	 * Returns the number of events in this Log, which is also the position 
+	 * the next event will be added at. Events from a position on can be 
+	 * undone with Program.revertSince. The events are not read to count them.
+	 * 
+	 * @return the number of events in this Log.
+	 */
+	public synchronized int size() {
+		if (eventList == null && segment != null){
+			return segment.size();
+		}
+		return events().size();
+	}
+	
+	/**
+	 * Returns the event at a position in this Log. Unless the whole list of 
+	 * events was already read, only this event is read from the segment file.
+	 * 
+	 * @param index
+	 * 		the position of the event, from 0.
+	 * 
+	 * @return the Event at index.
+	 */
+	public synchronized Event get(int index) {
+		if (eventList == null && segment != null){
+			try{
+				return segment.getReader().get(index);
+			}
+			catch (IOException e){
+				e.printStackTrace();
+			}
+		}
+		return events().get(index);
+	}
+	
+	/**
+	 * Returns the events in a range of positions in this Log. Unless the whole 
+	 * list of events was already read, only these events are read from the 
+	 * segment file.
+	 * 
+	 * @param from
+	 * 		the position of the first event, inclusive.
+	 * @param to
+	 * 		the position after the last event, exclusive.
+	 * 
+	 * @return a new list of the events from from to to.
+	 */
+	public synchronized ArrayList<Event> getEvents(int from, int to) {
+		if (eventList == null && segment != null){
+			try{
+				return segment.getReader().get(from, to);
+			}
+			catch (IOException e){
+				e.printStackTrace();
+			}
+		}
+		return new ArrayList<Event>(events().subList(from, to));
+	}
+	
+	/**
+	 * Returns the renames of a photo recorded in this Log, found with the 
+	 * PhotoEventIndex, so only these renames are read from the segment file. 
+	 * A rename made in a batch is read from its EventGroup on its own.
+	 * 
+	 * @param directory
+	 * 		the directory of the photo, as given by Event.directoryOf; renames 
+	 * 		logged before events kept their directory are found by name alone.
+	 * @param name
+	 * 		a name of the photo, with or without tags.
+	 * 
+	 * @return a new list of the Event of each rename of the photo, in order.
+	 */
+	public synchronized ArrayList<Event> getPhotoEvents(String directory, String name) {
+		ArrayList<Event> events = new ArrayList<Event>();
+		for (long entry: photoIndex().get(directory, name)){
+			int position = PhotoEventIndex.positionOf(entry);
+			int member = PhotoEventIndex.memberOf(entry);
+			if (member < 0){
+				events.add(get(position));
+				continue;
+			}
+			Event rename = null;
+			if (eventList == null && segment != null){
+				try{
+					rename = segment.getReader().getMember(position, member);
+				}
+				catch (IOException e){
+					e.printStackTrace();
+				}
+			}
+			if (rename == null){
+				rename = ((EventGroup) events().get(position)).getEvents().get(member);
+			}
+			events.add(rename);
+		}
+		return events;
+	}
+	
+	/**
+	 * Returns the events of this Log that happened in a span of time. The 
+	 * events of the span are found by their times with LogReader.firstAtOrAfter, 
+	 * so only they are read from the segment file. An EventGroup is found by 
+	 * the time its batch finished.
+	 * 
+	 * @param from
+	 * 		the start of the span, inclusive, in milliseconds since the epoch.
+	 * @param to
+	 * 		the end of the span, exclusive, in milliseconds since the epoch.
+	 * 
+	 * @return a new list of the events of the span, in order.
+	 */
+	public synchronized ArrayList<Event> getEventsBetween(long from, long to) {
+		ArrayList<Event> candidates = null;
+		if (segment != null){
+			try{
+				LogReader reader = segment.getReader();
+				candidates = reader.get(reader.firstAtOrAfter(from), reader.firstAtOrAfter(to));
+			}
+			catch (IOException e){
+				e.printStackTrace();
+			}
+		}
+		if (candidates == null){
+			candidates = events();
+		}
+		ArrayList<Event> events = new ArrayList<Event>();
+		for (Event event: candidates){
+			if (event.getTime() >= from && event.getTime() < to){
+				events.add(event);
+			}
+		}
+		return events;
 	}
 	
 	/**
@@ -55,11 +347,63 @@ public class Log implements Iterable<Event> {
 	 * @return the string representation of all events in this Log. 
 	 */
 	public String displayLog() {
-		String log = "";
-		for (Event event: eventList) {
-			log += "Original name: " + event.getOldName() + "\n" + "New name: " + event.getNewName() + "\n" + "Changes made at: " + event.getTimestamp() + "\n" + "\n";
+		StringBuilder log = new StringBuilder();
+		for (Event event: getEventList()) {
+			log.append(event.displayEvent());
+		}
+		return log.toString();	
+	}
+	
+	/**
+	 * Returns the PhotoEventIndex of this Log, reading it from its file the 
+	 * first time, and indexes the events added since it was written. The 
+	 * caller must hold the lock of this Log.
+	 * 
+	 * @return the up to date index of the events of each photo.
+	 */
+	private PhotoEventIndex photoIndex() {
+		if (photoIndex == null){
+			photoIndex = new PhotoEventIndex();
+			if (photoIndexFileName != null && new File(photoIndexFileName).canRead()){
+				try{
+					photoIndex.loadIndex(photoIndexFileName);
+				}
+				catch (IOException e){
+					e.printStackTrace();
+				}
+				if (photoIndex.size() > size()){
+					// The index was written for another segment.
+					photoIndex.clear();
+				}
+			}
+		}
+		int end = size();
+		for (int from = photoIndex.size(); from < end; from += INDEX_BATCH){
+			int position = from;
+			for (Event event: getEvents(from, Math.min(end, from + INDEX_BATCH))){
+				photoIndex.addEvent(position++, event);
+			}
+		}
+		return photoIndex;
+	}
+	
+	/**
+	 * Returns the list of events of this Log, reading it from the segment 
+	 * file the first time. The caller must hold the lock of this Log.
+	 * 
+	 * @return the ArrayList of Event objects of this Log.
+	 */
+	private ArrayList<Event> events() {
+		if (eventList == null){
+			try{
+				eventList = segment == null ? new ArrayList<Event>() : segment.readAll();
+			}
+			catch (IOException e){
+				e.printStackTrace();
+				eventList = new ArrayList<Event>();
+			}
 		}
-		return log;	
+		return eventList;
 	}
 	
 	/**
@@ -74,13 +418,14 @@ public class Log implements Iterable<Event> {
 	}
 	
 	/**
-     * Returns an iterator for this Log.
+     * Returns an iterator for this Log. The iterator reads the events one 
+     * at a time, and covers the events in this Log when it is made.
      * 
      * @return an iterator for this Log.
      */
 	@Override
     public Iterator<Event> iterator() {
-        return new LogIterator();
+        return new LogIterator(size());
     }
 
     /**
@@ -90,9 +435,22 @@ public class Log implements Iterable<Event> {
      */
     private class LogIterator implements Iterator<Event> {
 
+        /** The number of events to iterate over. */
+        private final int end;
+
         /** The index of the next Event to return. */
         private int current = 0;
 
+        /**
+         * A new LogIterator over the first events of the Log.
+         * 
+         * @param end
+         * 		the number of events to iterate over.
+         */
+        private LogIterator(int end) {
+            this.end = end;
+        }
+
         /**
          * Returns whether there is another Event to return.
          * 
@@ -100,7 +458,7 @@ public class Log implements Iterable<Event> {
          */
         @Override
         public boolean hasNext() {
-            return current < eventList.size();
+            return current < end;
         }
 
         /**
@@ -112,15 +470,14 @@ public class Log implements Iterable<Event> {
         public Event next() {
             Event event;
 
-            // List.get(i) throws an IndexOutBoundsException if
-            // we call it with i >= eventList.size().
+            // Log.get(i) throws an IndexOutBoundsException if
+            // we call it with i >= size().
             // But Iterator's next() needs to throw a 
             // NoSuchElementException if there are no more elements.
-            try {
-                event = eventList.get(current);
-            } catch (IndexOutOfBoundsException e) {
+            if (current >= end) {
                 throw new NoSuchElementException();
             }
+            event = get(current);
             current += 1;
             return event;
         }
@@ -135,8 +492,9 @@ public class Log implements Iterable<Event> {
     }
 	
 	/**
-	 * Serializes the ArrayList of Events of this Log to a file 
-	 * for access by the program if it is closed and reopened.
+	 * Serializes the ArrayList of Events of this Log to a file. A Log that 
+	 * is open does not need to be serialized, since its events are written 
+	 * to its segment file as they are added.
 	 * 
 	 * @param fileName
 	 * 		the file to serialize the ArrayList of Event objects eventList in Log to. 
@@ -149,7 +507,7 @@ public class Log implements Iterable<Event> {
 		FileOutputStream file = new FileOutputStream(fileName);
 		BufferedOutputStream buffer = new BufferedOutputStream(file);
 		ObjectOutputStream output = new ObjectOutputStream(buffer);
-		output.writeObject(eventList);
+		output.writeObject(getEventList());
 		output.close();
 		}
 	
@@ -175,5 +533,48 @@ public class Log implements Iterable<Event> {
 		input.close();
 		setEventList((ArrayList<Event>) events);
 	}
+	
+	/**
+	 * Moves the events of a Log serialized by serializeLog into a new 
+	 * segment file, then deletes the serialized file. Nothing is done if 
+	 * there is no serialized file. If the segment file already holds events, 
+	 * the serialized file was already moved and is only deleted. 
+	 * 
+	 * The segment is written under a temporary name and then renamed, so a 
+	 * crash during the move leaves the serialized file to be moved again.
+	 * 
+	 * @param oldFileName
+	 * 		the serialized Log.
+	 * @param fileName
+	 * 		the segment file.
+	 * 
+	 * @throws IOException if either file cannot be read or written. 
+	 * 
+	 * @throws ClassNotFoundException if the Log and Event classes are not on the classpath. 
+	 */
+	public static void migrateLog(String oldFileName, String fileName) throws IOException, ClassNotFoundException{
+		File oldFile = new File(oldFileName);
+		File newFile = new File(fileName);
+		if (!oldFile.exists()){
+			return;
+		}
+		if (newFile.length() == 0){
+			Log oldLog = new Log();
+			oldLog.loadLog(oldFileName);
+			File tempFile = new File(fileName + ".tmp");
+			Files.deleteIfExists(tempFile.toPath());
+			LogSegment temp = new LogSegment();
+			temp.open(tempFile.getPath());
+			try{
+				temp.appendAll(oldLog.getEventList());
+			}
+			finally{
+				temp.close();
+			}
+			Files.move(tempFile.toPath(), newFile.toPath(), StandardCopyOption.ATOMIC_MOVE, 
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+		Files.delete(oldFile.toPath());
+	}
 
 }
\ No newline at end of file
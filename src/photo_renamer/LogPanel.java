@@ -0,0 +1,193 @@
+package photo_renamer;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.util.ArrayList;
+
+import javax.swing.AbstractListModel;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTextArea;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+
+/**
+ * A view of the events of a Log, one row per event. Only the rows that are
+ * visible are read from the Log, a page of events at a time, so the view
+ * opens at once however many events the Log holds. Selecting a row shows the
+ * event in full, including every rename of a batch.
+ *
+ * @author group_0653
+ */
+public class LogPanel extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The number of events read from the Log at a time. */
+	public static final int PAGE_SIZE = 100;
+
+	/** The Log whose events are shown. */
+	private Log log;
+
+	/** The rows of the events of the Log. */
+	private LogListModel rows;
+
+	/** The list showing the rows. */
+	private JList<String> eventList;
+
+	/** The text showing the selected event in full. */
+	private JTextArea eventText;
+
+	/** The label showing the number of events. */
+	private JLabel title;
+
+	/**
+	 * A new LogPanel showing the events of a Log.
+	 *
+	 * @param log
+	 * 		the Log whose events are shown.
+	 */
+	public LogPanel(Log log){
+		super(new BorderLayout());
+		this.log = log;
+		this.rows = new LogListModel(log);
+		this.eventList = new JList<String>(rows);
+		this.eventText = new JTextArea();
+		this.title = new JLabel("Program Log");
+		eventText.setEditable(false);
+		eventList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		// With a fixed cell size, the list does not read every row to lay itself out.
+		eventList.setFixedCellHeight(eventList.getFontMetrics(eventList.getFont()).getHeight() + 2);
+		eventList.setFixedCellWidth(600);
+		eventList.addListSelectionListener(new ListSelectionListener(){
+			@Override
+			public void valueChanged(ListSelectionEvent e) {
+				int index = eventList.getSelectedIndex();
+				eventText.setText(index < 0 ? "" : rows.getEvent(index).displayEvent());
+				eventText.setCaretPosition(0);
+			}
+		});
+		JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(eventList), new JScrollPane(eventText));
+		split.setResizeWeight(0.6);
+		add(title, BorderLayout.NORTH);
+		add(split, BorderLayout.CENTER);
+		setPreferredSize(new Dimension(200, 150));
+	}
+
+	/**
+	 * Shows the events added to the Log since the view was last refreshed,
+	 * and scrolls to the newest event.
+	 */
+	public void refresh(){
+		rows.refresh();
+		title.setText("Program Log (" + log.size() + " events)");
+		if (rows.getSize() > 0){
+			eventList.ensureIndexIsVisible(rows.getSize() - 1);
+		}
+	}
+
+	/**
+	 * Returns an event as one row: its time, and its names or the
+	 * description of its batch.
+	 *
+	 * @param event
+	 * 		the event.
+	 *
+	 * @return the row of the event.
+	 */
+	private static String describe(Event event){
+		if (event instanceof EventGroup){
+			return event.getTimestamp() + "   Batch: " + event.getNewName() + " (" + event.getOldName() + ")";
+		}
+		return event.getTimestamp() + "   " + event.getOldName() + " -> " + event.getNewName();
+	}
+
+	/**
+	 * The rows of a Log, read a page of events at a time as they are shown.
+	 */
+	private static class LogListModel extends AbstractListModel<String> {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The Log whose events are shown. */
+		private final Log log;
+
+		/** The number of events shown. */
+		private int size;
+
+		/** The position in the Log of the first event of the page read last. */
+		private int pageStart;
+
+		/** The events of the page read last. */
+		private ArrayList<Event> page;
+
+		/**
+		 * A new LogListModel of the events of a Log, showing none until it is refreshed.
+		 *
+		 * @param log
+		 * 		the Log whose events are shown.
+		 */
+		private LogListModel(Log log){
+			this.log = log;
+			this.page = new ArrayList<Event>();
+		}
+
+		/**
+		 * Shows every event of the Log, including those added since the last refresh.
+		 */
+		private void refresh(){
+			int oldSize = size;
+			size = log.size();
+			page = new ArrayList<Event>();
+			if (size > oldSize){
+				fireIntervalAdded(this, oldSize, size - 1);
+			}
+			else if (size < oldSize){
+				fireContentsChanged(this, 0, oldSize - 1);
+			}
+		}
+
+		/**
+		 * Returns the event shown at a row, reading its page if needed.
+		 *
+		 * @param index
+		 * 		the row of the event.
+		 *
+		 * @return the event.
+		 */
+		private Event getEvent(int index){
+			if (index < pageStart || index >= pageStart + page.size()){
+				pageStart = index - index % PAGE_SIZE;
+				page = log.getEvents(pageStart, Math.min(size, pageStart + PAGE_SIZE));
+			}
+			return page.get(index - pageStart);
+		}
+
+		/**
+		 * Returns the number of rows.
+		 *
+		 * @return the number of events shown.
+		 */
+		@Override
+		public int getSize(){
+			return size;
+		}
+
+		/**
+		 * Returns the row of an event.
+		 *
+		 * @param index
+		 * 		the position of the event in the Log.
+		 *
+		 * @return the row of the event.
+		 */
+		@Override
+		public String getElementAt(int index){
+			return describe(getEvent(index));
+		}
+	}
+}
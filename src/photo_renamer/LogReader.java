@@ -0,0 +1,511 @@
+package photo_renamer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Reads the events of a LogSegment at any position without reading the
+ * events before it. The segment file is mapped into memory, and the position
+ * of each event record is kept in an index built by stepping from record to
+ * record by their lengths, so no event is decoded to build it.
+ *
+ * The strings of the dictionary of the EventCodec are not read either. The
+ * index also keeps the position of each definition record and the id of its
+ * first string, so a string an event refers to is found by a binary search
+ * among the definitions since the last reset before the event.
+ *
+ * The index also keeps, for each event, the latest time of the events up to
+ * it. Since events are appended as they happen, this column is their times
+ * in order, and since it never decreases even if the clock was set back, it
+ * can always be searched by halves to find the events of a span of time.
+ *
+ * The segment is mapped in windows, each twice the size of the one before up
+ * to MAX_WINDOW_SIZE, so a growing segment is mapped a few times in all rather
+ * than once for every event appended to it. A window is only mapped once the
+ * segment fills it, since mapping past the end of the file would grow it; the
+ * bytes after the last window are read into memory as they are appended. A
+ * segment must be smaller than 2 GB to be read this way.
+ *
+ * @author group_0653
+ */
+public class LogReader {
+
+	/** The size of the length and checksum written before each record. */
+	private static final int HEADER_SIZE = 8;
+
+	/** The size of the first window of the segment file that is mapped. */
+	private static final int FIRST_WINDOW_SIZE = 1 << 18;
+
+	/** The largest size of a window, which is also the most bytes held in memory after the last window. */
+	private static final int MAX_WINDOW_SIZE = 1 << 24;
+
+	/** The channel of the segment file, which is owned by the segment. */
+	private final FileChannel channel;
+
+	/** The mapped windows of the segment file, in order, in the first windowCount slots. */
+	private MappedByteBuffer[] windows;
+
+	/** The position in the segment file of the start of each window. */
+	private int[] windowStarts;
+
+	/** The number of mapped windows. */
+	private int windowCount;
+
+	/** The position after the last mapped window. */
+	private int mappedEnd;
+
+	/** The bytes of the segment file from mappedEnd to indexed, which do not fill a window yet. */
+	private ByteBuffer tail;
+
+	/** The position after the last record in the index. */
+	private int indexed;
+
+	/** The position of the record of each event, by its position in the Log. */
+	private int[] offsets;
+
+	/** The number of events in the index. */
+	private int count;
+
+	/** The latest time of the events up to each event, in milliseconds since the epoch. */
+	private long[] latestTimes;
+
+	/** The position of each reset record, in order. */
+	private int[] resets;
+
+	/** The position in the Log of the first event after each reset. */
+	private int[] firstEvents;
+
+	/** The position in defines of the first definition record after each reset. */
+	private int[] firstDefines;
+
+	/** The number of reset records in the index. */
+	private int resetCount;
+
+	/** The position of each definition record, in order. */
+	private int[] defines;
+
+	/** The id of the first string of each definition record. */
+	private int[] defineIds;
+
+	/** The number of definition records in the index. */
+	private int defineCount;
+
+	/** The id the next string defined will have. */
+	private int nextId;
+
+	/** The codec events are decoded with, finding strings through the index. */
+	private final MappedDictionary dictionary;
+
+	/**
+	 * A new LogReader for the records of a segment file from a position on.
+	 * The reader is empty until it is extended.
+	 *
+	 * @param channel
+	 * 		the channel of the segment file, open for reading.
+	 * @param start
+	 * 		the position of the first record.
+	 */
+	public LogReader(FileChannel channel, int start){
+		this.channel = channel;
+		this.indexed = start;
+		this.windows = new MappedByteBuffer[8];
+		this.windowStarts = new int[8];
+		this.tail = ByteBuffer.allocate(0);
+		this.offsets = new int[1024];
+		this.latestTimes = new long[1024];
+		this.resets = new int[16];
+		this.firstEvents = new int[16];
+		this.firstDefines = new int[16];
+		this.defines = new int[1024];
+		this.defineIds = new int[1024];
+		this.dictionary = new MappedDictionary();
+	}
+
+	/**
+	 * Maps the segment file up to a position, and adds the records before it
+	 * to the index. The records must be whole, as they are once appended by
+	 * the segment. Only the windows the new records fill are mapped, and the
+	 * rest of the new records is read into memory.
+	 *
+	 * @param end
+	 * 		the position after the last record of the segment.
+	 *
+	 * @throws IOException if the file cannot be mapped or is too large to map.
+	 */
+	public synchronized void extend(long end) throws IOException{
+		if (end <= indexed){
+			return;
+		}
+		if (end > Integer.MAX_VALUE){
+			throw new IOException("The log segment is too large to be mapped.");
+		}
+		map((int) end);
+		int position = indexed;
+		while (position < end){
+			int length = bytes(position, 4).getInt();
+			byte type = bytes(position + HEADER_SIZE, 1).get();
+			if (EventCodec.isEvent(type)){
+				if (count == offsets.length){
+					offsets = Arrays.copyOf(offsets, count * 2);
+					latestTimes = Arrays.copyOf(latestTimes, count * 2);
+				}
+				long time = EventCodec.timeOf(record(position));
+				latestTimes[count] = count == 0 ? time : Math.max(time, latestTimes[count - 1]);
+				offsets[count++] = position;
+			}
+			else if (type == EventCodec.DEFINE){
+				if (defineCount == defines.length){
+					defines = Arrays.copyOf(defines, defineCount * 2);
+					defineIds = Arrays.copyOf(defineIds, defineCount * 2);
+				}
+				defines[defineCount] = position;
+				defineIds[defineCount++] = nextId;
+				ByteBuffer record = record(position);
+				record.get();
+				nextId += (int) EventCodec.readVarLong(record);
+			}
+			else if (type == EventCodec.RESET){
+				if (resetCount == resets.length){
+					resets = Arrays.copyOf(resets, resetCount * 2);
+					firstEvents = Arrays.copyOf(firstEvents, resetCount * 2);
+					firstDefines = Arrays.copyOf(firstDefines, resetCount * 2);
+				}
+				resets[resetCount] = position;
+				firstEvents[resetCount] = count;
+				firstDefines[resetCount++] = defineCount;
+				nextId = 0;
+			}
+			position += HEADER_SIZE + length;
+		}
+		indexed = position;
+	}
+
+	/**
+	 * Returns the number of events in the index.
+	 *
+	 * @return the number of events that can be read.
+	 */
+	public synchronized int size(){
+		return count;
+	}
+
+	/**
+	 * Returns the position of the first event at or after a time, so that
+	 * every event before it happened before that time. An event logged while
+	 * the clock was set back may be after the position but before the time.
+	 *
+	 * @param time
+	 * 		a time in milliseconds since the epoch.
+	 *
+	 * @return the position in the Log of the first event whose time, or
+	 * 		the time of an event before it, is at or after time; or the
+	 * 		number of events if there is none.
+	 */
+	public synchronized int firstAtOrAfter(long time){
+		int low = 0;
+		int high = count;
+		while (low < high){
+			int middle = (low + high) >>> 1;
+			if (latestTimes[middle] < time){
+				low = middle + 1;
+			}
+			else{
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the event at a position in the Log.
+	 *
+	 * @param index
+	 * 		the position of the event, from 0.
+	 *
+	 * @return the decoded event.
+	 *
+	 * @throws IOException if the record of the event cannot be decoded.
+	 */
+	public synchronized Event get(int index) throws IOException{
+		if (index < 0 || index >= count){
+			throw new IndexOutOfBoundsException("Event " + index + " of " + count);
+		}
+		dictionary.reset = resetOf(index);
+		return dictionary.decode(record(offsets[index]));
+	}
+
+	/**
+	 * Returns one event of the EventGroup at a position in the Log, without
+	 * decoding the other events of the group.
+	 *
+	 * @param index
+	 * 		the position of the group, from 0.
+	 * @param member
+	 * 		the position of the event in the group, from 0.
+	 *
+	 * @return the decoded event.
+	 *
+	 * @throws IOException if the record at index does not hold a group with that event.
+	 */
+	public synchronized Event getMember(int index, int member) throws IOException{
+		if (index < 0 || index >= count){
+			throw new IndexOutOfBoundsException("Event " + index + " of " + count);
+		}
+		dictionary.reset = resetOf(index);
+		return dictionary.decodeMember(record(offsets[index]), member);
+	}
+
+	/**
+	 * Returns the events in a range of positions in the Log.
+	 *
+	 * @param from
+	 * 		the position of the first event, inclusive.
+	 * @param to
+	 * 		the position after the last event, exclusive.
+	 *
+	 * @return a new list of the decoded events, in order.
+	 *
+	 * @throws IOException if the record of an event cannot be decoded.
+	 */
+	public synchronized ArrayList<Event> get(int from, int to) throws IOException{
+		if (from < 0 || to > count || from > to){
+			throw new IndexOutOfBoundsException("Events " + from + " to " + to + " of " + count);
+		}
+		ArrayList<Event> events = new ArrayList<Event>(to - from);
+		for (int i = from; i < to; i++){
+			events.add(get(i));
+		}
+		return events;
+	}
+
+	/**
+	 * Maps the windows of the segment file that end at or before a position,
+	 * and reads the bytes after the last window up to it.
+	 *
+	 * @param end
+	 * 		the position after the last record of the segment.
+	 *
+	 * @throws IOException if the file cannot be mapped or read.
+	 */
+	private void map(int end) throws IOException{
+		int filled = mappedEnd + tail.limit();
+		int size = windowCount == 0 ? FIRST_WINDOW_SIZE : Math.min(windows[windowCount - 1].capacity() * 2, MAX_WINDOW_SIZE);
+		while (end - mappedEnd >= size){
+			if (windowCount == windows.length){
+				windows = Arrays.copyOf(windows, windowCount * 2);
+				windowStarts = Arrays.copyOf(windowStarts, windowCount * 2);
+			}
+			windows[windowCount] = channel.map(FileChannel.MapMode.READ_ONLY, mappedEnd, size);
+			windowStarts[windowCount++] = mappedEnd;
+			mappedEnd += size;
+			size = Math.min(size * 2, MAX_WINDOW_SIZE);
+		}
+		if (filled < mappedEnd){
+			// The bytes read into memory are now in a window.
+			tail.limit(0);
+			filled = mappedEnd;
+		}
+		if (tail.capacity() < end - mappedEnd){
+			ByteBuffer grown = ByteBuffer.allocate(Math.min(Math.max(tail.capacity() * 2, end - mappedEnd), size));
+			tail.position(0);
+			grown.put(tail);
+			tail = grown;
+		}
+		ByteBuffer read = tail.duplicate();
+		read.limit(end - mappedEnd);
+		read.position(filled - mappedEnd);
+		while (read.hasRemaining()){
+			if (channel.read(read, mappedEnd + read.position()) < 0){
+				throw new IOException("The log segment ends before its last record.");
+			}
+		}
+		tail.limit(end - mappedEnd);
+	}
+
+	/**
+	 * Returns the contents of the record at a position of the segment.
+	 *
+	 * @param position
+	 * 		the position of the record.
+	 *
+	 * @return a buffer holding only the contents of the record.
+	 */
+	private ByteBuffer record(int position){
+		return bytes(position + HEADER_SIZE, bytes(position, 4).getInt());
+	}
+
+	/**
+	 * Returns the bytes at a position of the segment. They are read from
+	 * the window or the memory holding them, or copied if they cross the
+	 * end of a window.
+	 *
+	 * @param position
+	 * 		the position of the first byte.
+	 * @param length
+	 * 		the number of bytes.
+	 *
+	 * @return a buffer holding only the bytes.
+	 */
+	private ByteBuffer bytes(int position, int length){
+		int buffer = bufferOf(position);
+		ByteBuffer source = buffer < windowCount ? windows[buffer] : tail;
+		int offset = position - (buffer < windowCount ? windowStarts[buffer] : mappedEnd);
+		if (offset + length <= source.limit()){
+			ByteBuffer bytes = source.duplicate();
+			bytes.limit(offset + length);
+			bytes.position(offset);
+			return bytes.slice();
+		}
+		byte[] copy = new byte[length];
+		int copied = 0;
+		while (copied < length){
+			ByteBuffer part = source.duplicate();
+			part.position(offset);
+			int count = Math.min(length - copied, part.remaining());
+			part.get(copy, copied, count);
+			copied += count;
+			buffer++;
+			source = buffer < windowCount ? windows[buffer] : tail;
+			offset = 0;
+		}
+		return ByteBuffer.wrap(copy);
+	}
+
+	/**
+	 * Returns the window holding a position of the segment.
+	 *
+	 * @param position
+	 * 		the position.
+	 *
+	 * @return the index of the window, or windowCount if the position is
+	 * 		after the last window.
+	 */
+	private int bufferOf(int position){
+		if (position >= mappedEnd){
+			return windowCount;
+		}
+		int low = 0;
+		int high = windowCount - 1;
+		while (low < high){
+			int middle = (low + high + 1) >>> 1;
+			if (windowStarts[middle] <= position){
+				low = middle;
+			}
+			else{
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the last reset before an event, whose dictionary the event was
+	 * encoded with.
+	 *
+	 * @param index
+	 * 		the position of the event in the Log.
+	 *
+	 * @return the index of the reset.
+	 *
+	 * @throws IOException if the event was written without a reset before it.
+	 */
+	private int resetOf(int index) throws IOException{
+		int low = 0;
+		int high = resetCount - 1;
+		int reset = -1;
+		while (low <= high){
+			int middle = (low + high) >>> 1;
+			if (firstEvents[middle] <= index){
+				reset = middle;
+				low = middle + 1;
+			}
+			else{
+				high = middle - 1;
+			}
+		}
+		if (reset < 0){
+			throw new IOException("The log segment has no dictionary for event " + index + ".");
+		}
+		return reset;
+	}
+
+	/**
+	 * An EventCodec that finds the strings of the dictionary of a reset in
+	 * the mapped definition records.
+	 */
+	private class MappedDictionary extends EventCodec {
+
+		/** The index of the reset whose dictionary is used. */
+		private int reset;
+
+		/** The position in defines of the definition record whose strings are kept, or -1 if none is. */
+		private int readDefine = -1;
+
+		/** The strings of the definition record readDefine. */
+		private String[] readStrings;
+
+		/** The position in defines of the definition record a single string was last read from. */
+		private int lastDefine = -1;
+
+		/**
+		 * Returns a string of the dictionary of the reset, reading it from
+		 * its definition record.
+		 *
+		 * @param id
+		 * 		the id of the string.
+		 *
+		 * @return the string.
+		 *
+		 * @throws IOException if the dictionary has no string with that id.
+		 */
+		@Override
+		protected String stringOf(long id) throws IOException{
+			// The last definition of the reset whose first id is at or before id.
+			int low = firstDefines[reset];
+			int high = (reset + 1 < resetCount ? firstDefines[reset + 1] : defineCount) - 1;
+			int define = -1;
+			while (low <= high){
+				int middle = (low + high) >>> 1;
+				if (defineIds[middle] <= id){
+					define = middle;
+					low = middle + 1;
+				}
+				else{
+					high = middle - 1;
+				}
+			}
+			if (define >= 0){
+				long offset = id - defineIds[define];
+				if (define == readDefine){
+					return offset < readStrings.length ? readStrings[(int) offset] : null;
+				}
+				ByteBuffer record = record(defines[define]);
+				record.get();
+				int strings = (int) EventCodec.readVarLong(record);
+				if (offset < strings){
+					if (define != lastDefine){
+						// Only the string asked for is read, as for a single rename of a batch.
+						lastDefine = define;
+						for (long i = 0; i < offset; i++){
+							int length = (int) EventCodec.readVarLong(record);
+							record.position(record.position() + length);
+						}
+						return EventCodec.readString(record);
+					}
+					// The strings of a batch being decoded are defined in one record, so it is read once.
+					readStrings = new String[strings];
+					for (int i = 0; i < strings; i++){
+						readStrings[i] = EventCodec.readString(record);
+					}
+					readDefine = define;
+					return readStrings[(int) offset];
+				}
+			}
+			throw new IOException("The log record refers to an unknown string " + id + ".");
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package photo_renamer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LogReaderTest {
+
+	private File directory;
+	private String segmentFile;
+	private LogSegment segment;
+	private ArrayList<Event> appended;
+
+    /**
+     * Opens an empty segment in a new directory.
+     *
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("log-reader-test").toFile();
+        segmentFile = new File(directory, "EventLog").getPath();
+        segment = new LogSegment();
+        segment.open(segmentFile);
+        appended = new ArrayList<Event>();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        segment.close();
+        for (File file: directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Appends events from a number on, every tenth a batch of three renames.
+     * Every name is new, so the dictionary of the codec is reset after
+     * about 30,000 events.
+     */
+    private void append(int from, int to) throws IOException {
+        ArrayList<Event> events = new ArrayList<Event>();
+        for (int i = from; i < to; i++) {
+            Event event = new Event("p" + i + ".jpg", "p" + i + "@t" + i + ".jpg", 1000L * i);
+            if (i % 10 == 0) {
+                ArrayList<Event> members = new ArrayList<Event>();
+                members.add(event);
+                members.add(new Event("q" + i + ".jpg", "q" + i + "@x.jpg", 1000L * i));
+                members.add(new Event("r" + i + ".jpg", "r" + i + "@x.jpg", 1000L * i));
+                event = new EventGroup("batch " + i, members, 1000L * i);
+            }
+            events.add(event);
+        }
+        segment.appendAll(events);
+        appended.addAll(events);
+    }
+
+    /**
+     * Test method for {@link photo_renamer.LogReader#get(int)}.
+     * Test case for events read in random order from a segment that grew
+     * past several mapped windows and dictionary resets as it was read.
+     */
+    @Test
+    public void testRandomReads() throws IOException {
+        Random random = new Random(653);
+        int appendedCount = 0;
+        for (int step = 1; step <= 8; step++) {
+            append(appendedCount, step * 10000);
+            appendedCount = step * 10000;
+            LogReader reader = segment.getReader();
+            assertEquals(appendedCount, reader.size());
+            for (int i = 0; i < 500; i++) {
+                int index = random.nextInt(appendedCount);
+                assertEquals(appended.get(index).displayEvent(), reader.get(index).displayEvent());
+            }
+            assertEquals(appended.get(appendedCount - 1).displayEvent(), reader.get(appendedCount - 1).displayEvent());
+        }
+        assertTrue(new File(segmentFile).length() > 3 << 20);
+    }
+
+    /**
+     * Test method for {@link photo_renamer.LogReader#get(int, int)}.
+     * Test case for ranges of events, including an empty one, read after
+     * the segment was opened again.
+     */
+    @Test
+    public void testRangeReads() throws IOException {
+        append(0, 40000);
+        segment.close();
+        segment.open(segmentFile);
+        LogReader reader = segment.getReader();
+        for (int from: new int[] {0, 9995, 29990, 39999, 40000}) {
+            int to = Math.min(from + 20, 40000);
+            ArrayList<Event> events = reader.get(from, to);
+            assertEquals(to - from, events.size());
+            for (int i = from; i < to; i++) {
+                assertEquals(appended.get(i).displayEvent(), events.get(i - from).displayEvent());
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link photo_renamer.LogReader#getMember(int, int)}.
+     * Test case for every rename of batches on both sides of a dictionary
+     * reset, each read on its own.
+     */
+    @Test
+    public void testMemberReads() throws IOException {
+        append(0, 40000);
+        LogReader reader = segment.getReader();
+        for (int index: new int[] {0, 10, 15000, 39990, 30000, 20}) {
+            EventGroup group = (EventGroup) appended.get(index);
+            for (int member = 0; member < group.size(); member++) {
+                assertEquals(group.getEvents().get(member).displayEvent(),
+                        reader.getMember(index, member).displayEvent());
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link photo_renamer.LogReader#getMember(int, int)}.
+     * Test case for a batch whose strings do not fit in the dictionary of the
+     * codec, between batches that do.
+     */
+    @Test
+    public void testMemberReadsOfLargeBatch() throws IOException {
+        append(0, 10);
+        ArrayList<Event> members = new ArrayList<Event>();
+        for (int i = 0; i < 30000; i++) {
+            members.add(new Event("s" + i + ".jpg", "s" + i + "@y.jpg", 20000L, "/photos/" + i));
+        }
+        EventGroup large = new EventGroup("added @y", members, 20000L);
+        segment.append(large);
+        appended.add(large);
+        append(11, 21);
+        LogReader reader = segment.getReader();
+        assertEquals(21, reader.size());
+        for (int member: new int[] {0, 21845, 29999}) {
+            assertEquals(members.get(member).displayEvent(), reader.getMember(10, member).displayEvent());
+            assertEquals(members.get(member).getDirectory(), reader.getMember(10, member).getDirectory());
+        }
+        assertEquals(appended.get(20).displayEvent(), reader.get(20).displayEvent());
+        assertEquals(appended.get(9).displayEvent(), reader.get(9).displayEvent());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.LogReader#getMember(int, int)}.
+     * Test case for a rename past the end of a batch, and an event that is
+     * not a batch.
+     */
+    @Test
+    public void testMemberReadsOutOfRange() throws IOException {
+        append(0, 20);
+        LogReader reader = segment.getReader();
+        try {
+            reader.getMember(10, 3);
+            fail("read a rename past the end of a batch");
+        } catch (IOException e) {
+            // The batch has three renames.
+        }
+        try {
+            reader.getMember(11, 0);
+            fail("read a rename of an event that is not a batch");
+        } catch (IOException e) {
+            // The event is a single rename.
+        }
+    }
+
+    /**
+     * Test method for {@link photo_renamer.LogReader#get(int)}.
+     * Test case for a position past the last event.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfRange() throws IOException {
+        append(0, 5);
+        segment.getReader().get(5);
+    }
+}
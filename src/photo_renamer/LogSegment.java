@@ -0,0 +1,445 @@
+package photo_renamer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of the events of a Log. Each event is appended as one
+ * record when it is added to the Log, so the Log never has to be written as a
+ * whole, and opening the file does not read the events in it.
+ *
+ * The file starts with a header holding the number of events in it and
+ * whether it was closed cleanly. A file that was not closed cleanly is
+ * scanned when it is opened, and cut off after its last whole record.
+ *
+ * Like the RenameJournal, every record is written as its length, a CRC32
+ * checksum and its contents, and events appended at the same time share a
+ * single force to disk. The contents of the records are written by an
+ * EventCodec, which also writes records of its own between the events.
+ *
+ * @author group_0653
+ */
+public class LogSegment {
+
+	/** The first bytes of every segment file. */
+	private static final int MAGIC = 0x504C4F47;
+
+	/** The version of the format of segment files. */
+	private static final byte VERSION = 2;
+
+	/** The size of the header at the start of the file. */
+	private static final int FILE_HEADER_SIZE = 10;
+
+	/** The size of the length and checksum written before each record. */
+	private static final int HEADER_SIZE = 8;
+
+	/** The channel records are appended to, or null if the segment is not open. */
+	private FileChannel channel;
+
+	/** The number of bytes in the segment, including its header. */
+	private long writtenPosition;
+
+	/** The number of bytes known to be forced to disk. */
+	private volatile long syncedPosition;
+
+	/** The number of events in the segment. */
+	private int count;
+
+	/** The codec events are encoded with, or null if the segment is not open. */
+	private EventCodec codec;
+
+	/** Whether a failed append left part of a record that could not be cut off. */
+	private boolean torn;
+
+	/** The reader of the events of the segment, or null if none was asked for. */
+	private LogReader reader;
+
+	/** The lock held while the segment is forced to disk. */
+	private final Object syncLock = new Object();
+
+	/**
+	 * Opens a segment file for appending, creating it if it does not exist.
+	 * Only the header is read, unless the file was not closed cleanly.
+	 *
+	 * @param fileName
+	 * 		the segment file.
+	 *
+	 * @throws IOException if the file cannot be opened or is not a segment file.
+	 */
+	public void open(String fileName) throws IOException{
+		close();
+		FileChannel opened = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.READ);
+		synchronized (this){
+			try{
+				ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+				if (opened.size() < FILE_HEADER_SIZE){
+					// A new file, or one whose header was torn as it was created.
+					opened.truncate(0);
+					count = 0;
+					writtenPosition = FILE_HEADER_SIZE;
+				}
+				else{
+					readFully(opened, header, 0);
+					header.flip();
+					if (header.getInt() != MAGIC || header.get() != VERSION){
+						throw new IOException(fileName + " is not a log segment.");
+					}
+					boolean clean = header.get() == 1;
+					count = header.getInt();
+					writtenPosition = clean ? opened.size() : recover(opened);
+				}
+				// Until the segment is closed, its header does not hold its count.
+				writeHeader(opened, false);
+				opened.force(true);
+				opened.position(writtenPosition);
+			}
+			catch (IOException e){
+				opened.close();
+				throw e;
+			}
+			channel = opened;
+			codec = new EventCodec();
+			torn = false;
+			syncedPosition = writtenPosition;
+		}
+	}
+
+	/**
+	 * Returns the number of events in this segment.
+	 *
+	 * @return the number of events appended to the segment.
+	 */
+	public synchronized int size(){
+		return count;
+	}
+
+	/**
+	 * Appends an event to this segment, and waits until it is forced to disk.
+	 *
+	 * @param event
+	 * 		the event to be appended.
+	 *
+	 * @throws IOException if the segment is not open or cannot be written to.
+	 */
+	public void append(Event event) throws IOException{
+		sync(write(event));
+	}
+
+	/**
+	 * Appends an event to this segment without waiting until it is forced to
+	 * disk. The event is on disk once sync is called with the position after
+	 * it, which can be done without holding any lock the caller appended under.
+	 *
+	 * @param event
+	 * 		the event to be appended.
+	 *
+	 * @return the position in the segment after the event.
+	 *
+	 * @throws IOException if the segment is not open or cannot be written to.
+	 */
+	public synchronized long write(Event event) throws IOException{
+		return appendEvent(event);
+	}
+
+	/**
+	 * Appends a list of events to this segment, and waits until they are all
+	 * forced to disk with a single force.
+	 *
+	 * @param events
+	 * 		the events to be appended, in order.
+	 *
+	 * @throws IOException if the segment is not open or cannot be written to.
+	 */
+	public void appendAll(List<Event> events) throws IOException{
+		long end = 0;
+		synchronized (this){
+			for (Event event: events){
+				end = appendEvent(event);
+			}
+		}
+		sync(end);
+	}
+
+	/**
+	 * Reads every event in this segment.
+	 *
+	 * @return a new list of the events, in the order they were appended.
+	 *
+	 * @throws IOException if the segment is not open or cannot be read.
+	 */
+	public synchronized ArrayList<Event> readAll() throws IOException{
+		if (channel == null){
+			throw new IOException("The log segment is not open.");
+		}
+		ByteBuffer contents = ByteBuffer.allocate((int) (writtenPosition - FILE_HEADER_SIZE));
+		readFully(channel, contents, FILE_HEADER_SIZE);
+		contents.flip();
+		ArrayList<Event> events = new ArrayList<Event>(count);
+		EventCodec decoder = new EventCodec();
+		while (contents.hasRemaining()){
+			int length = contents.getInt();
+			contents.getInt();
+			ByteBuffer record = ByteBuffer.wrap(contents.array(), contents.position(), length).slice();
+			contents.position(contents.position() + length);
+			Event event = decoder.decode(record);
+			if (event != null){
+				events.add(event);
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Returns a reader of the events in this segment, which reads any event
+	 * without reading the others. The reader covers the events appended so
+	 * far, and is extended to cover new events each time it is asked for.
+	 *
+	 * @return the reader of this segment.
+	 *
+	 * @throws IOException if the segment is not open or cannot be mapped.
+	 */
+	public synchronized LogReader getReader() throws IOException{
+		if (channel == null){
+			throw new IOException("The log segment is not open.");
+		}
+		if (reader == null){
+			reader = new LogReader(channel, FILE_HEADER_SIZE);
+		}
+		reader.extend(writtenPosition);
+		return reader;
+	}
+
+	/**
+	 * Forces the segment to disk, records its count in its header and closes it.
+	 *
+	 * @throws IOException if the segment cannot be forced or closed.
+	 */
+	public void close() throws IOException{
+		synchronized (syncLock){
+			synchronized (this){
+				if (channel == null){
+					return;
+				}
+				try{
+					channel.force(false);
+					// A torn segment is scanned and cut off when it is next opened.
+					writeHeader(channel, !torn);
+					channel.force(false);
+					// Events written before the segment was closed need not be forced again.
+					syncedPosition = Long.MAX_VALUE;
+				}
+				finally{
+					channel.close();
+					channel = null;
+					codec = null;
+					reader = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Appends the records of an event to the segment. The caller must hold
+	 * the lock of this segment. If a record cannot be written, the records
+	 * of the event already written are cut off, so the segment ends with the
+	 * last whole event, and the strings it added to the dictionary of the
+	 * codec are taken out again.
+	 *
+	 * @param event
+	 * 		the event to be appended.
+	 *
+	 * @return the position in the segment after the event.
+	 *
+	 * @throws IOException if the segment is not open or cannot be written to.
+	 */
+	private long appendEvent(Event event) throws IOException{
+		if (codec == null){
+			throw new IOException("The log segment is not open.");
+		}
+		if (torn){
+			throw new IOException("The log segment holds part of a record that could not be cut off.");
+		}
+		ArrayList<byte[]> records = new ArrayList<byte[]>(3);
+		codec.encode(event, records);
+		long start = writtenPosition;
+		long end = 0;
+		try{
+			for (byte[] contents: records){
+				end = appendRecord(contents);
+			}
+		}
+		catch (IOException e){
+			codec.rollback();
+			writtenPosition = start;
+			try{
+				channel.truncate(start);
+				channel.position(start);
+			}
+			catch (IOException truncateFailure){
+				torn = true;
+				e.addSuppressed(truncateFailure);
+			}
+			throw e;
+		}
+		count++;
+		return end;
+	}
+
+	/**
+	 * Appends a record to the segment. The caller must hold the lock of this segment.
+	 *
+	 * @param contents
+	 * 		the contents of the record.
+	 *
+	 * @return the position in the segment after the record.
+	 *
+	 * @throws IOException if the segment is not open or cannot be written to.
+	 */
+	private long appendRecord(byte[] contents) throws IOException{
+		if (channel == null){
+			throw new IOException("The log segment is not open.");
+		}
+		CRC32 checksum = new CRC32();
+		checksum.update(contents, 0, contents.length);
+		ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + contents.length);
+		record.putInt(contents.length);
+		record.putInt((int) checksum.getValue());
+		record.put(contents);
+		record.flip();
+		while (record.hasRemaining()){
+			channel.write(record);
+		}
+		writtenPosition += HEADER_SIZE + contents.length;
+		return writtenPosition;
+	}
+
+	/**
+	 * Waits until the segment is forced to disk up to a given position, as in
+	 * RenameJournal. Only one thread forces the segment at a time, and each
+	 * force covers every event written before it started, so threads that
+	 * wrote events while a force was running share the next one.
+	 *
+	 * @param position
+	 * 		the position in the segment that must be on disk, as returned by write.
+	 *
+	 * @throws IOException if the segment cannot be forced.
+	 */
+	public void sync(long position) throws IOException{
+		if (syncedPosition >= position){
+			return;
+		}
+		synchronized (syncLock){
+			if (syncedPosition >= position){
+				return;
+			}
+			FileChannel syncChannel;
+			long target;
+			synchronized (this){
+				syncChannel = channel;
+				target = writtenPosition;
+			}
+			if (syncChannel == null){
+				throw new IOException("The log segment is not open.");
+			}
+			syncChannel.force(false);
+			syncedPosition = target;
+		}
+	}
+
+	/**
+	 * Counts the whole records of a segment that was not closed cleanly, and
+	 * cuts off a record torn by a crash and anything after it.
+	 *
+	 * @param file
+	 * 		the channel of the segment file.
+	 *
+	 * @return the position after the last whole record.
+	 *
+	 * @throws IOException if the file cannot be read or cut off.
+	 */
+	private long recover(FileChannel file) throws IOException{
+		long size = file.size();
+		long position = FILE_HEADER_SIZE;
+		count = 0;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		CRC32 checksum = new CRC32();
+		while (size - position >= HEADER_SIZE){
+			header.clear();
+			readFully(file, header, position);
+			header.flip();
+			int length = header.getInt();
+			int expected = header.getInt();
+			if (length <= 0 || length > size - position - HEADER_SIZE){
+				break;
+			}
+			ByteBuffer contents = ByteBuffer.allocate(length);
+			readFully(file, contents, position + HEADER_SIZE);
+			checksum.reset();
+			checksum.update(contents.array(), 0, length);
+			if ((int) checksum.getValue() != expected){
+				break;
+			}
+			position += HEADER_SIZE + length;
+			if (EventCodec.isEvent(contents.get(0))){
+				count++;
+			}
+		}
+		if (position < size){
+			file.truncate(position);
+		}
+		return position;
+	}
+
+	/**
+	 * Writes the header of the segment with its current count.
+	 *
+	 * @param file
+	 * 		the channel of the segment file.
+	 * @param clean
+	 * 		whether the segment is being closed cleanly.
+	 *
+	 * @throws IOException if the header cannot be written.
+	 */
+	private void writeHeader(FileChannel file, boolean clean) throws IOException{
+		ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.put(VERSION);
+		header.put((byte) (clean ? 1 : 0));
+		header.putInt(count);
+		header.flip();
+		long position = 0;
+		while (header.hasRemaining()){
+			position += file.write(header, position);
+		}
+	}
+
+	/**
+	 * Reads bytes from a position of a file until a buffer is full.
+	 *
+	 * @param file
+	 * 		the channel of the file.
+	 * @param buffer
+	 * 		the buffer to fill.
+	 * @param position
+	 * 		the position in the file to read from.
+	 *
+	 * @throws IOException if the file cannot be read or ends first.
+	 */
+	private static void readFully(FileChannel file, ByteBuffer buffer, long position) throws IOException{
+		while (buffer.hasRemaining()){
+			int read = file.read(buffer, position);
+			if (read < 0){
+				throw new EOFException();
+			}
+			position += read;
+		}
+	}
+}
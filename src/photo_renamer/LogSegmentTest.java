@@ -0,0 +1,201 @@
+package photo_renamer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LogSegmentTest {
+
+	private File directory;
+	private String segmentFile;
+	private LogSegment segment;
+	private ArrayList<Event> appended;
+
+    /**
+     * Opens an empty segment in a new directory.
+     *
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("log-segment-test").toFile();
+        segmentFile = new File(directory, "EventLog").getPath();
+        segment = new LogSegment();
+        segment.open(segmentFile);
+        appended = new ArrayList<Event>();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        segment.close();
+        for (File file: directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Appends a rename, or a batch of two renames, to the segment.
+     */
+    private void append(int i, boolean batch) throws IOException {
+        Event event = new Event("p" + i + ".jpg", "p" + i + "@x.jpg", 1000L * i);
+        if (batch) {
+            ArrayList<Event> members = new ArrayList<Event>(Arrays.asList(event,
+                    new Event("q" + i + ".jpg", "q" + i + "@x.jpg", 1000L * i)));
+            event = new EventGroup("added x", members, 1000L * i);
+        }
+        segment.append(event);
+        appended.add(event);
+    }
+
+    /**
+     * Asserts that the segment holds the appended events, in order.
+     */
+    private void assertHolds(ArrayList<Event> expected) throws IOException {
+        assertEquals(expected.size(), segment.size());
+        ArrayList<Event> read = segment.readAll();
+        assertEquals(expected.size(), read.size());
+        for (int i = 0; i < read.size(); i++) {
+            assertEquals(expected.get(i).displayEvent(), read.get(i).displayEvent());
+            assertEquals(expected.get(i).displayEvent(), segment.getReader().get(i).displayEvent());
+        }
+    }
+
+    /**
+     * Marks the closed segment file as not closed cleanly, as a crash would
+     * leave it, with a count that is wrong.
+     */
+    private void markUnclean(RandomAccessFile file) throws IOException {
+        file.seek(5);
+        file.writeByte(0);
+        file.writeInt(9999);
+    }
+
+    /**
+     * Test method for {@link photo_renamer.LogSegment#open(java.lang.String)}.
+     * Test case for a segment closed cleanly and opened again.
+     */
+    @Test
+    public void testReopenKeepsEvents() throws IOException {
+        append(1, false);
+        append(2, true);
+        append(3, false);
+        segment.close();
+        segment.open(segmentFile);
+        assertHolds(appended);
+        append(4, true);
+        assertHolds(appended);
+    }
+
+    /**
+     * Test method for {@link photo_renamer.LogSegment#open(java.lang.String)}.
+     * Test case for a segment whose last record was torn by a crash, which
+     * is cut off after its last whole record.
+     */
+    @Test
+    public void testRecoverCutsTornRecord() throws IOException {
+        append(1, false);
+        append(2, true);
+        segment.close();
+        long length = new File(segmentFile).length();
+        RandomAccessFile file = new RandomAccessFile(segmentFile, "rw");
+        try {
+            markUnclean(file);
+            file.seek(length);
+            file.writeInt(100);
+            file.writeInt(0);
+            file.write(new byte[] {EventCodec.EVENT, 0, 0});
+        } finally {
+            file.close();
+        }
+        segment.open(segmentFile);
+        assertEquals(length, new File(segmentFile).length());
+        assertHolds(appended);
+        append(3, false);
+        segment.close();
+        segment.open(segmentFile);
+        assertHolds(appended);
+    }
+
+    /**
+     * Test method for {@link photo_renamer.LogSegment#open(java.lang.String)}.
+     * Test case for a whole record whose contents do not match its checksum,
+     * which is cut off with everything after it.
+     */
+    @Test
+    public void testRecoverStopsAtBadChecksum() throws IOException {
+        append(1, false);
+        append(2, false);
+        append(3, true);
+        segment.close();
+        long length = new File(segmentFile).length();
+        RandomAccessFile file = new RandomAccessFile(segmentFile, "rw");
+        try {
+            markUnclean(file);
+            file.seek(length - 1);
+            int last = file.read();
+            file.seek(length - 1);
+            file.write(last ^ 0xFF);
+        } finally {
+            file.close();
+        }
+        segment.open(segmentFile);
+        assertTrue(new File(segmentFile).length() < length);
+        appended.remove(2);
+        assertHolds(appended);
+    }
+
+    /**
+     * Test method for {@link photo_renamer.LogSegment#open(java.lang.String)}.
+     * Test case for a segment that was never closed after events were
+     * appended, whose count is found by scanning it.
+     */
+    @Test
+    public void testRecoverCountsUncleanSegment() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            append(i, i % 3 == 0);
+        }
+        segment.close();
+        RandomAccessFile file = new RandomAccessFile(segmentFile, "rw");
+        try {
+            markUnclean(file);
+        } finally {
+            file.close();
+        }
+        segment.open(segmentFile);
+        assertHolds(appended);
+    }
+
+    /**
+     * Test method for {@link photo_renamer.LogSegment#open(java.lang.String)}.
+     * Test case for a file that is not a segment.
+     */
+    @Test(expected = IOException.class)
+    public void testOpenRejectsOtherFile() throws IOException {
+        segment.close();
+        Files.write(new File(segmentFile).toPath(), "not a log segment".getBytes("UTF-8"));
+        segment.open(segmentFile);
+    }
+
+    /**
+     * Test method for {@link photo_renamer.LogSegment#append(photo_renamer.Event)}.
+     * Test case for an append to a closed segment.
+     */
+    @Test(expected = IOException.class)
+    public void testAppendAfterClose() throws IOException {
+        segment.close();
+        append(1, false);
+    }
+}
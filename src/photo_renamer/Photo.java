@@ -17,6 +17,18 @@ public class Photo {
 	/** The original (untagged) name of the Photo.*/
 	private String origName;
 	
+	/** The scanned entry of this Photo's file, or null if the Photo was not found by a scan.*/
+	private PhotoEntry photoEntry;
+	
+	/** The current name of this photo, parsed into its base name, tags and extension. */
+	private PhotoName photoName;
+	
+	/** The IDs of the tags in the current name of this photo, or null if not yet computed. */
+	private TagSet tagSet;
+	
+	/** The dictionary that gave the IDs in tagSet. */
+	private TagDictionary tagSetDictionary;
+	
 	/**
 	 * A new Photo instance representing a photo file. 
 	 * 
@@ -26,7 +38,20 @@ public class Photo {
 	public Photo(File photoFile){
 		this.photoFile = photoFile;
 		this.curName = photoFile.getName();
-		this.origName = removeAllTags(photoFile);
+		this.photoName = PhotoName.of(curName);
+		this.origName = photoName.getUntaggedName();
+	}
+	
+	/**
+	 * A new Photo instance representing a photo file found by a directory scan. 
+	 * The file attributes read by the scan are kept with the Photo.
+	 * 
+	 * @param photoEntry
+	 * 		the scanned entry of a file for Photo to represent.
+	 */
+	public Photo(PhotoEntry photoEntry){
+		this(photoEntry.getFile());
+		this.photoEntry = photoEntry;
 	}
 	
 	/**
@@ -37,6 +62,9 @@ public class Photo {
 	 */
 	public void setPhotoFile(File photoFile) {
 		this.photoFile = photoFile;
+		if (photoEntry != null){
+			photoEntry = photoEntry.renamedTo(photoFile.toPath());
+		}
 	}
 	
 	/** 
@@ -56,8 +84,38 @@ public class Photo {
 	 * @param newName
 	 * 		the new name to set Photo's curName to.
 	 */
-	void setCurName(String newName){
+	synchronized void setCurName(String newName){
 		curName = newName;
+		photoName = PhotoName.of(newName);
+		tagSet = null;
+	}
+	
+	/**
+	 * Returns the current name of this photo, parsed into its base name, 
+	 * tags and extension. 
+	 * 
+	 * @return the parsed current name of this photo.
+	 */
+	public PhotoName getPhotoName(){
+		return photoName;
+	}
+	
+	/**
+	 * Returns the IDs of the tags in the current name of this photo. The set 
+	 * is computed once per name and dictionary, so checking the tags of this 
+	 * photo again does not parse or compare strings. 
+	 * 
+	 * @param dictionary
+	 * 		the dictionary giving the tag IDs.
+	 * 
+	 * @return the TagSet of the tags of this photo.
+	 */
+	public synchronized TagSet getTagSet(TagDictionary dictionary){
+		if (tagSet == null || tagSetDictionary != dictionary){
+			tagSet = dictionary.internAll(photoName);
+			tagSetDictionary = dictionary;
+		}
+		return tagSet;
 	}
 	
 	/**
@@ -87,6 +145,16 @@ public class Photo {
 	public File getPhotoFile(){
 		return photoFile;
 	}
+	
+	/**
+	 * Returns the scanned entry of the file represented by this photo, 
+	 * including its size, modification time and file key. 
+	 * 
+	 * @return the entry of this photo's file, or null if the photo was not found by a scan.
+	 */
+	public PhotoEntry getPhotoEntry(){
+		return photoEntry;
+	}
 
 	/**
 	 * Removes all tags from a photo and returns the original
@@ -98,16 +166,20 @@ public class Photo {
 	 * @return the untagged filename of a photo file.
 	 */
 	public static String removeAllTags(File photofile){
-		String filename = photofile.getName();
-		if (filename.indexOf("@") > 0){
-			int lastIndex = filename.indexOf("@");
-			String newName = filename.substring(0, lastIndex);
-			newName += filename.substring(filename.length() - 4);
-			return newName;
-		}
-		else{
-			return filename;
-		}
+		return removeAllTags(photofile.getName());
+	}
+	
+	/**
+	 * Removes all tags from a photo file name and returns the original
+	 * (untagged) name of the photo. 
+	 * 
+	 * @param filename
+	 * 		the name of the photo file whose tags are going to be removed.
+	 * 
+	 * @return the untagged filename of a photo file.
+	 */
+	public static String removeAllTags(String filename){
+		return PhotoName.untaggedName(filename);
 	}
 
 }
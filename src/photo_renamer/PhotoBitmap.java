@@ -0,0 +1,961 @@
+package photo_renamer;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A compressed set of photo IDs. IDs are split into chunks of 65536 by their
+ * high 16 bits, and each chunk is stored in whichever of three containers is
+ * smallest for it: a sorted array of the low 16 bits for a few IDs, a bitmap
+ * of 1024 words for many IDs, or a list of runs for IDs that come in long
+ * stretches, as the IDs of photos scanned from one directory do.
+ *
+ * The set operations return new bitmaps and never change their operands, so
+ * a query can combine the postings of a TagIndex without copying them first.
+ *
+ * @author group_0653
+ */
+public class PhotoBitmap {
+
+	/** The largest number of IDs kept in an array container. */
+	private static final int ARRAY_LIMIT = 4096;
+
+	/** The number of words of a bitmap container. */
+	private static final int WORDS = 1024;
+
+	/** The high 16 bits of the IDs of each chunk, in increasing order, in the first size slots. */
+	private char[] keys;
+
+	/** The container of each chunk, matching keys. */
+	private Container[] containers;
+
+	/** The number of chunks. */
+	private int size;
+
+	/**
+	 * A new, empty PhotoBitmap.
+	 */
+	public PhotoBitmap(){
+		this(new char[4], new Container[4], 0);
+	}
+
+	/**
+	 * A new PhotoBitmap with the given chunks.
+	 *
+	 * @param keys
+	 * 		the high 16 bits of the IDs of each chunk.
+	 * @param containers
+	 * 		the container of each chunk.
+	 * @param size
+	 * 		the number of chunks.
+	 */
+	private PhotoBitmap(char[] keys, Container[] containers, int size){
+		this.keys = keys;
+		this.containers = containers;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the bitmap of a group of photo IDs.
+	 *
+	 * @param ids
+	 * 		the IDs, in any order.
+	 *
+	 * @return a new PhotoBitmap of ids.
+	 */
+	public static PhotoBitmap of(int... ids){
+		PhotoBitmap bitmap = new PhotoBitmap();
+		for (int id: ids){
+			bitmap.add(id);
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Adds a photo ID to this bitmap.
+	 *
+	 * @param id
+	 * 		the photo ID, which cannot be negative.
+	 *
+	 * @return true if the ID was added, false if it was already in the bitmap.
+	 */
+	public boolean add(int id){
+		if (id < 0){
+			throw new IllegalArgumentException("Photo IDs cannot be negative: " + id);
+		}
+		char key = (char) (id >>> 16);
+		int index = indexOf(key);
+		if (index < 0){
+			index = -index - 1;
+			insertChunk(index, key, new ArrayContainer());
+		}
+		Container container = containers[index];
+		int cardinality = container.cardinality();
+		containers[index] = container.add((char) id);
+		return containers[index].cardinality() > cardinality;
+	}
+
+	/**
+	 * Removes a photo ID from this bitmap.
+	 *
+	 * @param id
+	 * 		the photo ID.
+	 *
+	 * @return true if the ID was removed, false if it was not in the bitmap.
+	 */
+	public boolean remove(int id){
+		int index = id < 0 ? -1 : indexOf((char) (id >>> 16));
+		if (index < 0){
+			return false;
+		}
+		Container container = containers[index];
+		int cardinality = container.cardinality();
+		Container result = container.remove((char) id);
+		if (result == null){
+			System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+			System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+			containers[--size] = null;
+			return true;
+		}
+		containers[index] = result;
+		return result.cardinality() < cardinality;
+	}
+
+	/**
+	 * Returns whether this bitmap contains a photo ID.
+	 *
+	 * @param id
+	 * 		the photo ID.
+	 *
+	 * @return true if id is in this bitmap, false otherwise.
+	 */
+	public boolean contains(int id){
+		int index = id < 0 ? -1 : indexOf((char) (id >>> 16));
+		return index >= 0 && containers[index].contains((char) id);
+	}
+
+	/**
+	 * Returns the number of photo IDs in this bitmap.
+	 *
+	 * @return the cardinality of this bitmap.
+	 */
+	public int cardinality(){
+		int cardinality = 0;
+		for (int i = 0; i < size; i++){
+			cardinality += containers[i].cardinality();
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Returns whether this bitmap has no photo IDs.
+	 *
+	 * @return true if this bitmap is empty, false otherwise.
+	 */
+	public boolean isEmpty(){
+		return size == 0;
+	}
+
+	/**
+	 * Returns the photo IDs in both this bitmap and another.
+	 *
+	 * @param other
+	 * 		the other bitmap.
+	 *
+	 * @return a new PhotoBitmap of the intersection.
+	 */
+	public PhotoBitmap and(PhotoBitmap other){
+		PhotoBitmap result = new PhotoBitmap(new char[Math.min(size, other.size) + 1],
+				new Container[Math.min(size, other.size) + 1], 0);
+		int i = 0;
+		int j = 0;
+		while (i < size && j < other.size){
+			if (keys[i] < other.keys[j]){
+				i++;
+			}
+			else if (keys[i] > other.keys[j]){
+				j++;
+			}
+			else{
+				result.appendChunk(keys[i], and(containers[i], other.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the photo IDs in either this bitmap or another.
+	 *
+	 * @param other
+	 * 		the other bitmap.
+	 *
+	 * @return a new PhotoBitmap of the union.
+	 */
+	public PhotoBitmap or(PhotoBitmap other){
+		PhotoBitmap result = new PhotoBitmap(new char[size + other.size + 1],
+				new Container[size + other.size + 1], 0);
+		int i = 0;
+		int j = 0;
+		while (i < size || j < other.size){
+			if (j == other.size || (i < size && keys[i] < other.keys[j])){
+				result.appendChunk(keys[i], containers[i].copy());
+				i++;
+			}
+			else if (i == size || keys[i] > other.keys[j]){
+				result.appendChunk(other.keys[j], other.containers[j].copy());
+				j++;
+			}
+			else{
+				result.appendChunk(keys[i], or(containers[i], other.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the photo IDs in this bitmap but not in another.
+	 *
+	 * @param other
+	 * 		the other bitmap.
+	 *
+	 * @return a new PhotoBitmap of the difference.
+	 */
+	public PhotoBitmap andNot(PhotoBitmap other){
+		PhotoBitmap result = new PhotoBitmap(new char[size + 1], new Container[size + 1], 0);
+		int j = 0;
+		for (int i = 0; i < size; i++){
+			while (j < other.size && other.keys[j] < keys[i]){
+				j++;
+			}
+			if (j < other.size && other.keys[j] == keys[i]){
+				result.appendChunk(keys[i], andNot(containers[i], other.containers[j]));
+			}
+			else{
+				result.appendChunk(keys[i], containers[i].copy());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Stores every chunk in run containers where that takes less space. Best
+	 * called after many IDs have been added, since adding to or removing from
+	 * a chunk of runs first turns it back into an array or a bitmap.
+	 */
+	public void runOptimize(){
+		for (int i = 0; i < size; i++){
+			containers[i] = containers[i].runOptimize();
+		}
+	}
+
+	/**
+	 * Returns the photo IDs of this bitmap in increasing order.
+	 *
+	 * @return a new array of the IDs.
+	 */
+	public int[] toArray(){
+		int[] ids = new int[cardinality()];
+		int count = 0;
+		for (int i = 0; i < size; i++){
+			count = containers[i].fill(ids, count, keys[i] << 16);
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns an iterator over the photo IDs of this bitmap in increasing order.
+	 * The IDs of one chunk are read at a time, so a few IDs can be read from a
+	 * large bitmap without copying all of it. The bitmap must not be changed
+	 * while it is iterated.
+	 *
+	 * @return an iterator over the IDs.
+	 */
+	public PrimitiveIterator.OfInt iterator(){
+		return new PrimitiveIterator.OfInt(){
+
+			/** The index of the next chunk to be read. */
+			private int chunk;
+
+			/** The IDs of the chunk being read. */
+			private int[] ids = new int[0];
+
+			/** The number of IDs of the chunk being read. */
+			private int count;
+
+			/** The index of the next ID to be returned in ids. */
+			private int next;
+
+			@Override
+			public boolean hasNext(){
+				while (next == count && chunk < size){
+					Container container = containers[chunk];
+					if (ids.length < container.cardinality()){
+						ids = new int[container.cardinality()];
+					}
+					count = container.fill(ids, 0, keys[chunk] << 16);
+					next = 0;
+					chunk++;
+				}
+				return next < count;
+			}
+
+			@Override
+			public int nextInt(){
+				if (!hasNext()){
+					throw new NoSuchElementException();
+				}
+				return ids[next++];
+			}
+		};
+	}
+
+	/**
+	 * Returns a copy of this bitmap that shares nothing with it.
+	 *
+	 * @return a new PhotoBitmap with the IDs of this bitmap.
+	 */
+	public PhotoBitmap copy(){
+		Container[] copies = new Container[Math.max(size, 1)];
+		for (int i = 0; i < size; i++){
+			copies[i] = containers[i].copy();
+		}
+		return new PhotoBitmap(Arrays.copyOf(keys, Math.max(size, 1)), copies, size);
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString(){
+		return "PhotoBitmap[" + cardinality() + " photos in " + size + " chunks]";
+	}
+
+	/**
+	 * Returns the index of the chunk with a key.
+	 *
+	 * @param key
+	 * 		the high 16 bits of the IDs of the chunk.
+	 *
+	 * @return the index of the chunk, or (-(insertion point) - 1) if there is none.
+	 */
+	private int indexOf(char key){
+		// New photos are given the highest IDs, so the last chunk is checked first.
+		if (size > 0 && keys[size - 1] == key){
+			return size - 1;
+		}
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+
+	/**
+	 * Inserts a chunk at an index.
+	 *
+	 * @param index
+	 * 		the index of the new chunk.
+	 * @param key
+	 * 		the high 16 bits of the IDs of the chunk.
+	 * @param container
+	 * 		the container of the chunk.
+	 */
+	private void insertChunk(int index, char key, Container container){
+		if (size == keys.length){
+			keys = Arrays.copyOf(keys, size * 2);
+			containers = Arrays.copyOf(containers, size * 2);
+		}
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		System.arraycopy(containers, index, containers, index + 1, size - index);
+		keys[index] = key;
+		containers[index] = container;
+		size++;
+	}
+
+	/**
+	 * Adds a chunk after the last chunk, unless its container is empty. There
+	 * must be room for it.
+	 *
+	 * @param key
+	 * 		the high 16 bits of the IDs of the chunk, above every key so far.
+	 * @param container
+	 * 		the container of the chunk, or null if it is empty.
+	 */
+	private void appendChunk(char key, Container container){
+		if (container != null){
+			keys[size] = key;
+			containers[size] = container;
+			size++;
+		}
+	}
+
+	/**
+	 * Returns the intersection of two containers.
+	 *
+	 * @param a
+	 * 		a container.
+	 * @param b
+	 * 		another container.
+	 *
+	 * @return a new container, or null if the intersection is empty.
+	 */
+	private static Container and(Container a, Container b){
+		if (b instanceof ArrayContainer && !(a instanceof ArrayContainer)){
+			Container swap = a;
+			a = b;
+			b = swap;
+		}
+		if (a instanceof ArrayContainer){
+			// Only the few values of the array need to be checked.
+			ArrayContainer array = (ArrayContainer) a;
+			char[] values = new char[array.cardinality];
+			int count = 0;
+			for (int i = 0; i < array.cardinality; i++){
+				if (b.contains(array.values[i])){
+					values[count++] = array.values[i];
+				}
+			}
+			return count == 0 ? null : new ArrayContainer(values, count);
+		}
+		long[] aWords = a.words();
+		long[] bWords = b.words();
+		long[] words = new long[WORDS];
+		int cardinality = 0;
+		for (int i = 0; i < WORDS; i++){
+			words[i] = aWords[i] & bWords[i];
+			cardinality += Long.bitCount(words[i]);
+		}
+		return fromWords(words, cardinality);
+	}
+
+	/**
+	 * Returns the union of two containers.
+	 *
+	 * @param a
+	 * 		a container.
+	 * @param b
+	 * 		another container.
+	 *
+	 * @return a new container.
+	 */
+	private static Container or(Container a, Container b){
+		if (a instanceof ArrayContainer && b instanceof ArrayContainer
+				&& a.cardinality() + b.cardinality() <= ARRAY_LIMIT){
+			ArrayContainer x = (ArrayContainer) a;
+			ArrayContainer y = (ArrayContainer) b;
+			char[] values = new char[x.cardinality + y.cardinality];
+			int count = 0;
+			int i = 0;
+			int j = 0;
+			while (i < x.cardinality || j < y.cardinality){
+				if (j == y.cardinality || (i < x.cardinality && x.values[i] < y.values[j])){
+					values[count++] = x.values[i++];
+				}
+				else if (i == x.cardinality || x.values[i] > y.values[j]){
+					values[count++] = y.values[j++];
+				}
+				else{
+					values[count++] = x.values[i++];
+					j++;
+				}
+			}
+			return new ArrayContainer(values, count);
+		}
+		long[] aWords = a.words();
+		long[] bWords = b.words();
+		long[] words = new long[WORDS];
+		int cardinality = 0;
+		for (int i = 0; i < WORDS; i++){
+			words[i] = aWords[i] | bWords[i];
+			cardinality += Long.bitCount(words[i]);
+		}
+		return fromWords(words, cardinality);
+	}
+
+	/**
+	 * Returns the values of one container that are not in another.
+	 *
+	 * @param a
+	 * 		the container to take values from.
+	 * @param b
+	 * 		the container of the values to leave out.
+	 *
+	 * @return a new container, or null if the difference is empty.
+	 */
+	private static Container andNot(Container a, Container b){
+		if (a instanceof ArrayContainer){
+			ArrayContainer array = (ArrayContainer) a;
+			char[] values = new char[array.cardinality];
+			int count = 0;
+			for (int i = 0; i < array.cardinality; i++){
+				if (!b.contains(array.values[i])){
+					values[count++] = array.values[i];
+				}
+			}
+			return count == 0 ? null : new ArrayContainer(values, count);
+		}
+		long[] aWords = a.words();
+		long[] bWords = b.words();
+		long[] words = new long[WORDS];
+		int cardinality = 0;
+		for (int i = 0; i < WORDS; i++){
+			words[i] = aWords[i] & ~bWords[i];
+			cardinality += Long.bitCount(words[i]);
+		}
+		return fromWords(words, cardinality);
+	}
+
+	/**
+	 * Returns an array or bitmap container of the bits of a chunk, whichever is smaller.
+	 *
+	 * @param words
+	 * 		the bits of the chunk, which the container may keep.
+	 * @param cardinality
+	 * 		the number of bits set in words.
+	 *
+	 * @return a container of the bits, or null if no bit is set.
+	 */
+	private static Container fromWords(long[] words, int cardinality){
+		if (cardinality == 0){
+			return null;
+		}
+		if (cardinality > ARRAY_LIMIT){
+			return new BitmapContainer(words, cardinality);
+		}
+		char[] values = new char[cardinality];
+		int count = 0;
+		for (int i = 0; i < WORDS; i++){
+			long word = words[i];
+			while (word != 0){
+				values[count++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
+		}
+		return new ArrayContainer(values, count);
+	}
+
+	/**
+	 * The low 16 bits of the photo IDs of one chunk.
+	 */
+	private static abstract class Container {
+
+		/**
+		 * Returns the number of values in this container.
+		 *
+		 * @return the cardinality of this container.
+		 */
+		abstract int cardinality();
+
+		/**
+		 * Returns whether this container has a value.
+		 *
+		 * @param value
+		 * 		the low 16 bits of a photo ID.
+		 *
+		 * @return true if value is in this container, false otherwise.
+		 */
+		abstract boolean contains(char value);
+
+		/**
+		 * Adds a value to this container.
+		 *
+		 * @param value
+		 * 		the low 16 bits of a photo ID.
+		 *
+		 * @return this container, or the container that replaces it.
+		 */
+		abstract Container add(char value);
+
+		/**
+		 * Removes a value from this container.
+		 *
+		 * @param value
+		 * 		the low 16 bits of a photo ID.
+		 *
+		 * @return this container, the container that replaces it, or null if it is now empty.
+		 */
+		abstract Container remove(char value);
+
+		/**
+		 * Returns the bits of this container, one per value. The array must not be changed.
+		 *
+		 * @return the 1024 words of the bits.
+		 */
+		abstract long[] words();
+
+		/**
+		 * Copies the values of this container into an array of photo IDs.
+		 *
+		 * @param ids
+		 * 		the array to copy into.
+		 * @param index
+		 * 		the index of ids to start copying at.
+		 * @param high
+		 * 		the high 16 bits of the IDs, already shifted.
+		 *
+		 * @return the index of ids after the last ID copied.
+		 */
+		abstract int fill(int[] ids, int index, int high);
+
+		/**
+		 * Returns a copy of this container that shares nothing with it.
+		 *
+		 * @return a new container with the values of this container.
+		 */
+		abstract Container copy();
+
+		/**
+		 * Returns the container that stores the values of this container in the
+		 * least space: a run container if the values come in few enough runs,
+		 * otherwise an array or a bitmap container.
+		 *
+		 * @return this container, or the container that replaces it.
+		 */
+		Container runOptimize(){
+			long[] words = words();
+			int runs = 0;
+			for (int i = 0; i < WORDS; i++){
+				// A run starts at every set bit whose lower neighbour is not set.
+				long previous = (words[i] << 1) | (i > 0 ? words[i - 1] >>> 63 : 0);
+				runs += Long.bitCount(words[i] & ~previous);
+			}
+			int cardinality = cardinality();
+			int arrayBytes = cardinality > ARRAY_LIMIT ? WORDS * 8 : cardinality * 2;
+			if (runs * 4 < arrayBytes){
+				return this instanceof RunContainer ? this : RunContainer.fromWords(words, runs, cardinality);
+			}
+			return this instanceof RunContainer ? fromWords(words, cardinality) : this;
+		}
+	}
+
+	/**
+	 * A container of at most ARRAY_LIMIT values, kept in a sorted array.
+	 */
+	private static final class ArrayContainer extends Container {
+
+		/** The values, in increasing order, in the first cardinality slots. */
+		private char[] values;
+
+		/** The number of values. */
+		private int cardinality;
+
+		/**
+		 * A new, empty ArrayContainer.
+		 */
+		ArrayContainer(){
+			this(new char[4], 0);
+		}
+
+		/**
+		 * A new ArrayContainer of sorted values.
+		 *
+		 * @param values
+		 * 		the values, in increasing order.
+		 * @param cardinality
+		 * 		the number of values.
+		 */
+		ArrayContainer(char[] values, int cardinality){
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		int cardinality(){
+			return cardinality;
+		}
+
+		@Override
+		boolean contains(char value){
+			return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+		}
+
+		@Override
+		Container add(char value){
+			int index = cardinality > 0 && values[cardinality - 1] < value
+					? -cardinality - 1 : Arrays.binarySearch(values, 0, cardinality, value);
+			if (index >= 0){
+				return this;
+			}
+			if (cardinality == ARRAY_LIMIT){
+				return new BitmapContainer(words(), cardinality).add(value);
+			}
+			int insert = -index - 1;
+			if (cardinality == values.length){
+				values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_LIMIT));
+			}
+			System.arraycopy(values, insert, values, insert + 1, cardinality - insert);
+			values[insert] = value;
+			cardinality++;
+			return this;
+		}
+
+		@Override
+		Container remove(char value){
+			int index = Arrays.binarySearch(values, 0, cardinality, value);
+			if (index >= 0){
+				System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+				cardinality--;
+			}
+			return cardinality == 0 ? null : this;
+		}
+
+		@Override
+		long[] words(){
+			long[] words = new long[WORDS];
+			for (int i = 0; i < cardinality; i++){
+				words[values[i] >>> 6] |= 1L << values[i];
+			}
+			return words;
+		}
+
+		@Override
+		int fill(int[] ids, int index, int high){
+			for (int i = 0; i < cardinality; i++){
+				ids[index++] = high | values[i];
+			}
+			return index;
+		}
+
+		@Override
+		Container copy(){
+			return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+		}
+	}
+
+	/**
+	 * A container of more than ARRAY_LIMIT values, kept as one bit per value.
+	 */
+	private static final class BitmapContainer extends Container {
+
+		/** The bits of the values. */
+		private final long[] words;
+
+		/** The number of bits set. */
+		private int cardinality;
+
+		/**
+		 * A new BitmapContainer of bits.
+		 *
+		 * @param words
+		 * 		the 1024 words of the bits.
+		 * @param cardinality
+		 * 		the number of bits set.
+		 */
+		BitmapContainer(long[] words, int cardinality){
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		int cardinality(){
+			return cardinality;
+		}
+
+		@Override
+		boolean contains(char value){
+			return (words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		@Override
+		Container add(char value){
+			if (!contains(value)){
+				words[value >>> 6] |= 1L << value;
+				cardinality++;
+			}
+			return this;
+		}
+
+		@Override
+		Container remove(char value){
+			if (contains(value)){
+				words[value >>> 6] &= ~(1L << value);
+				cardinality--;
+				if (cardinality <= ARRAY_LIMIT){
+					return fromWords(words, cardinality);
+				}
+			}
+			return this;
+		}
+
+		@Override
+		long[] words(){
+			return words;
+		}
+
+		@Override
+		int fill(int[] ids, int index, int high){
+			for (int i = 0; i < WORDS; i++){
+				long word = words[i];
+				while (word != 0){
+					ids[index++] = high | ((i << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return index;
+		}
+
+		@Override
+		Container copy(){
+			return new BitmapContainer(words.clone(), cardinality);
+		}
+	}
+
+	/**
+	 * A container of values that come in runs, kept as the first value and
+	 * length of each run. It is never changed; adding or removing a value
+	 * replaces it with an array or a bitmap container.
+	 */
+	private static final class RunContainer extends Container {
+
+		/** The first value of each run, in increasing order. */
+		private final char[] starts;
+
+		/** The number of values of each run, less one. */
+		private final char[] lengths;
+
+		/** The number of values. */
+		private final int cardinality;
+
+		/**
+		 * A new RunContainer of runs.
+		 *
+		 * @param starts
+		 * 		the first value of each run.
+		 * @param lengths
+		 * 		the number of values of each run, less one.
+		 * @param cardinality
+		 * 		the number of values.
+		 */
+		RunContainer(char[] starts, char[] lengths, int cardinality){
+			this.starts = starts;
+			this.lengths = lengths;
+			this.cardinality = cardinality;
+		}
+
+		/**
+		 * Returns the RunContainer of the bits of a chunk.
+		 *
+		 * @param words
+		 * 		the 1024 words of the bits.
+		 * @param runs
+		 * 		the number of runs of set bits.
+		 * @param cardinality
+		 * 		the number of bits set.
+		 *
+		 * @return a new RunContainer of the bits.
+		 */
+		static RunContainer fromWords(long[] words, int runs, int cardinality){
+			char[] starts = new char[runs];
+			char[] lengths = new char[runs];
+			int run = 0;
+			int value = 0;
+			while (run < runs){
+				int start = nextBit(words, value, true);
+				int end = nextBit(words, start, false);
+				starts[run] = (char) start;
+				lengths[run] = (char) (end - start - 1);
+				run++;
+				value = end;
+			}
+			return new RunContainer(starts, lengths, cardinality);
+		}
+
+		/**
+		 * Returns the first bit at or after an index that is set, or that is clear.
+		 *
+		 * @param words
+		 * 		the 1024 words of the bits.
+		 * @param from
+		 * 		the index to start at.
+		 * @param set
+		 * 		true to find a set bit, false to find a clear bit.
+		 *
+		 * @return the index of the bit, or 65536 if there is none.
+		 */
+		private static int nextBit(long[] words, int from, boolean set){
+			int i = from >>> 6;
+			if (i >= WORDS){
+				return WORDS << 6;
+			}
+			long word = (set ? words[i] : ~words[i]) & (-1L << from);
+			while (word == 0){
+				if (++i == WORDS){
+					return WORDS << 6;
+				}
+				word = set ? words[i] : ~words[i];
+			}
+			return (i << 6) + Long.numberOfTrailingZeros(word);
+		}
+
+		@Override
+		int cardinality(){
+			return cardinality;
+		}
+
+		@Override
+		boolean contains(char value){
+			int index = Arrays.binarySearch(starts, value);
+			if (index >= 0){
+				return true;
+			}
+			int run = -index - 2;
+			return run >= 0 && value - starts[run] <= lengths[run];
+		}
+
+		@Override
+		Container add(char value){
+			if (contains(value)){
+				return this;
+			}
+			return PhotoBitmap.fromWords(words(), cardinality).add(value);
+		}
+
+		@Override
+		Container remove(char value){
+			if (!contains(value)){
+				return this;
+			}
+			Container container = PhotoBitmap.fromWords(words(), cardinality);
+			return container.remove(value);
+		}
+
+		@Override
+		long[] words(){
+			long[] words = new long[WORDS];
+			for (int run = 0; run < starts.length; run++){
+				int start = starts[run];
+				int end = start + lengths[run] + 1;
+				int first = start >>> 6;
+				int last = (end - 1) >>> 6;
+				if (first == last){
+					words[first] |= (-1L >>> (64 - (end - start))) << start;
+				}
+				else{
+					words[first] |= -1L << start;
+					for (int i = first + 1; i < last; i++){
+						words[i] = -1L;
+					}
+					words[last] |= -1L >>> (64 - (end - (last << 6)));
+				}
+			}
+			return words;
+		}
+
+		@Override
+		int fill(int[] ids, int index, int high){
+			for (int run = 0; run < starts.length; run++){
+				int end = starts[run] + lengths[run];
+				for (int value = starts[run]; value <= end; value++){
+					ids[index++] = high | value;
+				}
+			}
+			return index;
+		}
+
+		@Override
+		Container copy(){
+			return this;
+		}
+	}
+}
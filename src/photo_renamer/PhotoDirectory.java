@@ -0,0 +1,635 @@
+package photo_renamer;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The photo files found under the directory selected by the program.
+ * The directory is scanned once when it is selected; after that, renames
+ * and changes on disk are applied to the affected entries only, so the
+ * cost of a change does not depend on the number of photos in the directory.
+ * All methods are thread-safe.
+ * 
+ * The photos can be paged through with an iterator or stream, which copy 
+ * a small page of entries at a time instead of the whole directory. The 
+ * photos of a scan are added the same way, a page at a time as the scan 
+ * finds them, so the whole scan is never held in a list. 
+ * 
+ * Besides its entry, a photo costs one slot and a few ints: its generation 
+ * and its bucket in an open-addressing table of positions by path, which is 
+ * kept at most half full, rather than a node and a boxed position in a HashMap. 
+ *
+ * @author group_0653
+ */
+public class PhotoDirectory implements Iterable<PhotoEntry> {
+
+	/** The number of entries copied at a time by the iterators of a PhotoDirectory. */
+	private static final int PAGE_SIZE = 1024;
+
+	/** The root directory that the photos were found under. */
+	private final Path root;
+
+	/** The photo entries in scan order. Removed entries are left as null until compaction. */
+	private ArrayList<PhotoEntry> slots;
+
+	/**
+	 * The positions of the entries, found by the hash of their path with linear 
+	 * probing. Each bucket holds a position in slots plus one, or 0 if empty.
+	 */
+	private int[] table;
+
+	/** The number of photos in this PhotoDirectory. */
+	private int count;
+
+	/** The replacement that last put or renamed the entry in each slot. */
+	private int[] generations;
+
+	/** The number of replacements started, so entries put since a replacement started can be told apart. */
+	private int generation;
+
+	/** The number of null slots left by removed entries. */
+	private int removedSlots;
+
+	/** The number of times the slots have been compacted, so iterators can find their place again. */
+	private int compactions;
+
+	/** The listeners to be notified whenever this PhotoDirectory changes. */
+	private ArrayList<Runnable> listeners;
+
+	/** The listeners to be told about each entry that is added, removed or renamed. */
+	private ArrayList<EntryListener> entryListeners;
+
+	/**
+	 * A new PhotoDirectory of no photos, to be filled by replaceUnder with the 
+	 * photo entries found by a scan of root.
+	 *
+	 * @param root
+	 * 		the root directory that the photos will be found under.
+	 */
+	public PhotoDirectory(Path root){
+		this.root = root;
+		this.slots = new ArrayList<PhotoEntry>();
+		this.table = new int[16];
+		this.generations = new int[16];
+		this.listeners = new ArrayList<Runnable>();
+		this.entryListeners = new ArrayList<EntryListener>();
+	}
+
+	/**
+	 * Returns the root directory that the photos were found under.
+	 *
+	 * @return the root directory of this PhotoDirectory.
+	 */
+	public Path getRoot(){
+		return root;
+	}
+
+	/**
+	 * Returns the number of photos in this PhotoDirectory.
+	 *
+	 * @return the number of photos.
+	 */
+	public synchronized int size(){
+		return count;
+	}
+
+	/**
+	 * Returns the entries of all the photos in this PhotoDirectory in scan order.
+	 * The returned list is a copy and is not changed by later updates.
+	 *
+	 * @return a list of all the photo entries.
+	 *
+	 * @deprecated copies every photo in the directory; use iterator or stream 
+	 * 		to page through the photos instead.
+	 */
+	@Deprecated
+	public synchronized ArrayList<PhotoEntry> getPhotos(){
+		return compactSlots();
+	}
+
+	/**
+	 * Returns the entries of all the photos in this PhotoDirectory in scan order, 
+	 * without the slots left by removed entries. The caller must hold the lock 
+	 * of this PhotoDirectory.
+	 *
+	 * @return a new list of all the photo entries.
+	 */
+	private ArrayList<PhotoEntry> compactSlots(){
+		ArrayList<PhotoEntry> photos = new ArrayList<PhotoEntry>(count);
+		for (PhotoEntry entry: slots){
+			if (entry != null){
+				photos.add(entry);
+			}
+		}
+		return photos;
+	}
+
+	/**
+	 * Returns an iterator over the photos in this PhotoDirectory in scan order.
+	 * The iterator copies a page of entries at a time, and reflects changes 
+	 * made while iterating to photos it has not reached yet.
+	 *
+	 * @return an iterator over the photo entries.
+	 */
+	@Override
+	public Iterator<PhotoEntry> iterator(){
+		return new PageIterator();
+	}
+
+	/**
+	 * Returns a spliterator over the photos in this PhotoDirectory, estimating 
+	 * its size as the current number of photos.
+	 *
+	 * @return a spliterator over the photo entries.
+	 */
+	@Override
+	public Spliterator<PhotoEntry> spliterator(){
+		Iterator<PhotoEntry> photos = iterator();
+		return new Spliterators.AbstractSpliterator<PhotoEntry>(size(), Spliterator.ORDERED | Spliterator.NONNULL){
+			@Override
+			public boolean tryAdvance(Consumer<? super PhotoEntry> action) {
+				if (!photos.hasNext()){
+					return false;
+				}
+				action.accept(photos.next());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Returns a sequential stream of the photos in this PhotoDirectory in scan order.
+	 *
+	 * @return a stream of the photo entries.
+	 */
+	public Stream<PhotoEntry> stream(){
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Returns the entry of the photo at a given path.
+	 *
+	 * @param path
+	 * 		the path of the photo.
+	 *
+	 * @return the entry of the photo, or null if there is no photo at path.
+	 */
+	public synchronized PhotoEntry get(Path path){
+		int position = positionOf(path);
+		return position < 0 ? null : slots.get(position);
+	}
+
+	/**
+	 * Adds the entry of a photo to this PhotoDirectory. If there already is an
+	 * entry for the same path, it is replaced in place.
+	 *
+	 * @param entry
+	 * 		the entry of the photo to be added.
+	 */
+	public void put(PhotoEntry entry){
+		synchronized (this){
+			putEntry(entry);
+		}
+		fireChanged();
+	}
+
+	/**
+	 * Removes the photo at a given path from this PhotoDirectory.
+	 *
+	 * @param path
+	 * 		the path of the photo to be removed.
+	 *
+	 * @return true if there was a photo at path, false otherwise.
+	 */
+	public boolean remove(Path path){
+		boolean removed;
+		synchronized (this){
+			removed = removeEntry(path);
+		}
+		if (removed){
+			fireChanged();
+		}
+		return removed;
+	}
+
+	/**
+	 * Replaces the entry of a renamed photo with the entry for its new path,
+	 * keeping its position in this PhotoDirectory. If there is no entry for
+	 * oldPath, the new entry is added instead.
+	 *
+	 * @param oldPath
+	 * 		the path of the photo before it was renamed.
+	 * @param newEntry
+	 * 		the entry of the photo after it was renamed.
+	 */
+	public void rename(Path oldPath, PhotoEntry newEntry){
+		synchronized (this){
+			int position = positionOf(oldPath);
+			if (position < 0 || positionOf(newEntry.getPath()) >= 0){
+				if (position >= 0){
+					removeEntry(oldPath);
+				}
+				putEntry(newEntry);
+			}
+			else{
+				unindex(oldPath);
+				slots.set(position, newEntry);
+				generations[position] = generation;
+				index(newEntry.getPath(), position);
+				fireEntryChanged(oldPath, newEntry);
+			}
+		}
+		fireChanged();
+	}
+
+	/**
+	 * Replaces the entries of all the photos under a directory with the entries
+	 * found by a new scan of that directory. Photos still found by the scan keep
+	 * their position in this PhotoDirectory.
+	 *
+	 * The entries are read from the scan a page at a time, and each page is 
+	 * added while the lock is held, so the photos found so far can be shown 
+	 * while the scan goes on. Once the scan is finished, the photos under 
+	 * directory that were neither found by it nor put or renamed in the 
+	 * meantime are removed.
+	 *
+	 * @param directory
+	 * 		the directory that was scanned again.
+	 * @param photoEntries
+	 * 		an iterator over the entries of all the photo files now under directory.
+	 */
+	public void replaceUnder(Path directory, Iterator<PhotoEntry> photoEntries){
+		int replacement;
+		synchronized (this){
+			replacement = ++generation;
+		}
+		ArrayList<PhotoEntry> page = new ArrayList<PhotoEntry>(PAGE_SIZE);
+		while (photoEntries.hasNext()){
+			page.add(photoEntries.next());
+			if (page.size() == PAGE_SIZE || !photoEntries.hasNext()){
+				synchronized (this){
+					for (PhotoEntry entry: page){
+						putEntry(entry);
+					}
+				}
+				page.clear();
+				fireChanged();
+			}
+		}
+		synchronized (this){
+			ArrayList<Path> removed = new ArrayList<Path>();
+			for (int i = 0; i < slots.size(); i++){
+				PhotoEntry entry = slots.get(i);
+				if (entry != null && generations[i] - replacement < 0 && entry.getPath().startsWith(directory)){
+					removed.add(entry.getPath());
+				}
+			}
+			for (Path path: removed){
+				removeEntry(path);
+			}
+		}
+		fireChanged();
+	}
+
+	/**
+	 * Removes the entries of all the photos under a directory.
+	 *
+	 * @param directory
+	 * 		the directory that was removed.
+	 */
+	public void removeUnder(Path directory){
+		replaceUnder(directory, new ArrayList<PhotoEntry>().iterator());
+	}
+
+	/**
+	 * Adds a listener to be run every time this PhotoDirectory changes.
+	 * Listeners may be run on any thread.
+	 *
+	 * @param listener
+	 * 		the listener to be added.
+	 */
+	public synchronized void addListener(Runnable listener){
+		listeners.add(listener);
+	}
+
+	/**
+	 * Adds a listener to be told about every entry added to, removed from or
+	 * renamed in this PhotoDirectory from now on. The listener is run while
+	 * the lock of this PhotoDirectory is held, so it sees the changes in the
+	 * order they were made, and must not call back into this PhotoDirectory.
+	 *
+	 * @param listener
+	 * 		the listener to be added.
+	 */
+	public synchronized void addEntryListener(EntryListener listener){
+		entryListeners.add(listener);
+	}
+
+	/**
+	 * Adds or replaces an entry. The caller must hold the lock of this PhotoDirectory.
+	 *
+	 * @param entry
+	 * 		the entry to be added or replaced.
+	 */
+	private void putEntry(PhotoEntry entry){
+		int position = positionOf(entry.getPath());
+		if (position >= 0){
+			slots.set(position, entry);
+			generations[position] = generation;
+			fireEntryChanged(entry.getPath(), entry);
+		}
+		else{
+			position = slots.size();
+			slots.add(entry);
+			if (position == generations.length){
+				generations = Arrays.copyOf(generations, position * 2);
+			}
+			generations[position] = generation;
+			index(entry.getPath(), position);
+			fireEntryChanged(null, entry);
+		}
+	}
+
+	/**
+	 * Removes an entry and compacts the slots once more than half of them are
+	 * empty. The caller must hold the lock of this PhotoDirectory.
+	 *
+	 * @param path
+	 * 		the path of the entry to be removed.
+	 *
+	 * @return true if there was an entry for path, false otherwise.
+	 */
+	private boolean removeEntry(Path path){
+		int position = unindex(path);
+		if (position < 0){
+			return false;
+		}
+		slots.set(position, null);
+		removedSlots++;
+		fireEntryChanged(path, null);
+		if (removedSlots > slots.size() / 2){
+			int[] compactedGenerations = new int[Math.max(16, count * 2)];
+			int compactedCount = 0;
+			for (int i = 0; i < slots.size(); i++){
+				if (slots.get(i) != null){
+					compactedGenerations[compactedCount++] = generations[i];
+				}
+			}
+			slots = compactSlots();
+			generations = compactedGenerations;
+			compactions++;
+			table = new int[table.length];
+			count = 0;
+			for (int i = 0; i < slots.size(); i++){
+				index(slots.get(i).getPath(), i);
+			}
+			removedSlots = 0;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the position in slots of the entry of a path. The caller must 
+	 * hold the lock of this PhotoDirectory.
+	 *
+	 * @param path
+	 * 		the path of the entry.
+	 *
+	 * @return the position of the entry, or -1 if there is no entry for path.
+	 */
+	private int positionOf(Path path){
+		int bucket = bucketOf(path);
+		return bucket < 0 ? -1 : table[bucket] - 1;
+	}
+
+	/**
+	 * Returns the bucket of the table holding the position of a path. The 
+	 * caller must hold the lock of this PhotoDirectory.
+	 *
+	 * @param path
+	 * 		the path of an entry.
+	 *
+	 * @return the bucket of the entry, or -1 if there is no entry for path.
+	 */
+	private int bucketOf(Path path){
+		int mask = table.length - 1;
+		for (int bucket = hash(path) & mask; table[bucket] != 0; bucket = (bucket + 1) & mask){
+			if (slots.get(table[bucket] - 1).getPath().equals(path)){
+				return bucket;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Records the position of the entry of a path that has none yet, growing 
+	 * the table so it stays at most half full. The caller must hold the lock 
+	 * of this PhotoDirectory.
+	 *
+	 * @param path
+	 * 		the path of the entry.
+	 * @param position
+	 * 		the position of the entry in slots.
+	 */
+	private void index(Path path, int position){
+		if ((count + 1) * 2 > table.length){
+			int[] oldTable = table;
+			table = new int[oldTable.length * 2];
+			for (int oldPosition: oldTable){
+				if (oldPosition != 0){
+					insert(slots.get(oldPosition - 1).getPath(), oldPosition);
+				}
+			}
+		}
+		insert(path, position + 1);
+		count++;
+	}
+
+	/**
+	 * Puts a position plus one in the first empty bucket for a path.
+	 *
+	 * @param path
+	 * 		the path of the entry.
+	 * @param value
+	 * 		the position of the entry plus one.
+	 */
+	private void insert(Path path, int value){
+		int mask = table.length - 1;
+		int bucket = hash(path) & mask;
+		while (table[bucket] != 0){
+			bucket = (bucket + 1) & mask;
+		}
+		table[bucket] = value;
+	}
+
+	/**
+	 * Forgets the position of the entry of a path, moving back the entries 
+	 * probed after it so that none is cut off from its bucket. The caller 
+	 * must hold the lock of this PhotoDirectory, and the entry must still be 
+	 * in its slot.
+	 *
+	 * @param path
+	 * 		the path of the entry.
+	 *
+	 * @return the position of the entry, or -1 if there is no entry for path.
+	 */
+	private int unindex(Path path){
+		int bucket = bucketOf(path);
+		if (bucket < 0){
+			return -1;
+		}
+		int position = table[bucket] - 1;
+		int mask = table.length - 1;
+		int empty = bucket;
+		table[empty] = 0;
+		for (int next = (empty + 1) & mask; table[next] != 0; next = (next + 1) & mask){
+			int home = hash(slots.get(table[next] - 1).getPath()) & mask;
+			// The entry may move back unless its home bucket lies after the empty one.
+			if (((next - home) & mask) >= ((next - empty) & mask)){
+				table[empty] = table[next];
+				table[next] = 0;
+				empty = next;
+			}
+		}
+		count--;
+		return position;
+	}
+
+	/**
+	 * Returns the hash of a path, spread so that nearby paths use distant buckets.
+	 *
+	 * @param path
+	 * 		a path.
+	 *
+	 * @return the hash of path.
+	 */
+	private static int hash(Path path){
+		int h = path.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Tells every entry listener about a changed entry. The caller must hold 
+	 * the lock of this PhotoDirectory.
+	 *
+	 * @param oldPath
+	 * 		the path of the entry before the change, or null if it was added.
+	 * @param newEntry
+	 * 		the entry after the change, or null if it was removed.
+	 */
+	private void fireEntryChanged(Path oldPath, PhotoEntry newEntry){
+		for (EntryListener listener: entryListeners){
+			listener.entryChanged(oldPath, newEntry);
+		}
+	}
+
+	/**
+	 * Runs every listener of this PhotoDirectory.
+	 */
+	private void fireChanged(){
+		ArrayList<Runnable> toNotify;
+		synchronized (this){
+			toNotify = new ArrayList<Runnable>(listeners);
+		}
+		for (Runnable listener: toNotify){
+			listener.run();
+		}
+	}
+
+	/**
+	 * An iterator over the photos of this PhotoDirectory that copies 
+	 * one page of entries at a time while holding the lock.
+	 */
+	private class PageIterator implements Iterator<PhotoEntry> {
+
+		/** The slot to copy the next page from. */
+		private int cursor = 0;
+
+		/** The number of compactions when the last page was copied. */
+		private int seenCompactions = compactions;
+
+		/** The path of the last entry copied, used to find the cursor again after a compaction. */
+		private Path lastPath;
+
+		/** The current page of entries. */
+		private ArrayList<PhotoEntry> page = new ArrayList<PhotoEntry>(PAGE_SIZE);
+
+		/** The index of the next entry to return from page. */
+		private int nextInPage = 0;
+
+		/**
+		 * Returns whether there is another photo to return.
+		 * 
+		 * @return true if there is another photo, false otherwise.
+		 */
+		@Override
+		public boolean hasNext(){
+			if (nextInPage == page.size()){
+				copyPage();
+			}
+			return nextInPage < page.size();
+		}
+
+		/**
+		 * Returns the next photo.
+		 * 
+		 * @return the entry of the next photo.
+		 */
+		@Override
+		public PhotoEntry next(){
+			if (!hasNext()){
+				throw new NoSuchElementException();
+			}
+			return page.get(nextInPage++);
+		}
+
+		/**
+		 * Copies the next page of entries, starting at the cursor.
+		 */
+		private void copyPage(){
+			page.clear();
+			nextInPage = 0;
+			synchronized (PhotoDirectory.this){
+				if (seenCompactions != compactions){
+					int lastPosition = lastPath == null ? -1 : positionOf(lastPath);
+					cursor = lastPosition < 0 ? Math.min(cursor, slots.size()) : lastPosition + 1;
+					seenCompactions = compactions;
+				}
+				while (cursor < slots.size() && page.size() < PAGE_SIZE){
+					PhotoEntry entry = slots.get(cursor++);
+					if (entry != null){
+						page.add(entry);
+					}
+				}
+			}
+			if (!page.isEmpty()){
+				lastPath = page.get(page.size() - 1).getPath();
+			}
+		}
+	}
+
+	/**
+	 * A listener told about each photo entry added to, removed from or renamed
+	 * in a PhotoDirectory.
+	 */
+	public interface EntryListener {
+
+		/**
+		 * Called after an entry of a PhotoDirectory changes.
+		 *
+		 * @param oldPath
+		 * 		the path of the entry before the change, or null if it was added.
+		 * @param newEntry
+		 * 		the entry after the change, or null if it was removed.
+		 */
+		void entryChanged(Path oldPath, PhotoEntry newEntry);
+	}
+}
@@ -1,6 +1,7 @@
 package photo_renamer;
 
 import java.awt.BorderLayout;
+import java.awt.Color;
 import java.awt.Container;
 import java.awt.Dialog;
 import java.awt.Dimension;
@@ -8,8 +9,10 @@ import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.imageio.ImageIO;
 import javax.swing.AbstractButton;
@@ -21,14 +24,26 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
-import javax.swing.JTextArea;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 /**
  * A photo displayer.
  */
 public class PhotoDisplay {
 	
+	/** The number of photos added to the file list each time more photos are shown. */
+	private static final int PAGE_SIZE = 200;
+	
+	/** The client property of the file list panel that holds the number of photos shown. */
+	private static final String SHOWN_PHOTOS = "shownPhotos";
+	
+	/** The client property of the file list panel that holds the TagQuery filtering it, if any. */
+	private static final String PHOTO_QUERY = "photoQuery";
+	
 	/**
 	 * Builds a display window for the Photo Renamer program.
 	 * Returns a photo displayer window.
@@ -54,10 +69,7 @@ public class PhotoDisplay {
 		programMenuPanel.setPreferredSize(new Dimension(175, 768));
 		programMenuPanel.setLayout(new BoxLayout(programMenuPanel, BoxLayout.Y_AXIS));
 		
-		JTextArea programText = new JTextArea();
-		programText.setEditable(false);
-		JScrollPane programTextScroll = new JScrollPane(programText);
-		programTextScroll.setPreferredSize(new Dimension(200, 100));
+		LogPanel logPanel = new LogPanel(program.getLog());
 		
 		
 		JPanel filePanel = new JPanel();
@@ -66,17 +78,58 @@ public class PhotoDisplay {
 		fileScroll.setPreferredSize(new Dimension(300,768));
 		JLabel fileLabel = new JLabel("All Photos Under This Directory:");
 		filePanel.add(fileLabel);
+		// Refreshes the list of photos once for each batch of changes found on disk, or by the scan of
+		// the directory, which may still be running; the listener is added first so no page is missed.
+		AtomicBoolean refreshPending = new AtomicBoolean(false);
+		program.getPhotoDirectory().addListener(new Runnable(){
+			@Override
+			public void run() {
+				if (refreshPending.compareAndSet(false, true)){
+					SwingUtilities.invokeLater(new Runnable(){
+						@Override
+						public void run() {
+							refreshPending.set(false);
+							refreshButtons(filePanel, program, photoLabel, photoPanel);
+						}
+					});
+				}
+			}
+		});
 		refreshButtons(filePanel, program, photoLabel, photoPanel);
 		
+		JTextField queryField = new JTextField();
+		JLabel queryStatus = new JLabel(" ");
+		queryStatus.setForeground(Color.RED);
+		queryField.getDocument().addDocumentListener(new DocumentListener(){
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				filterPhotos(queryField.getText(), queryStatus, filePanel, program, photoLabel, photoPanel);
+			}
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				filterPhotos(queryField.getText(), queryStatus, filePanel, program, photoLabel, photoPanel);
+			}
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				filterPhotos(queryField.getText(), queryStatus, filePanel, program, photoLabel, photoPanel);
+			}
+		});
+		JPanel queryPanel = new JPanel(new BorderLayout());
+		queryPanel.add(new JLabel("Filter by tags, e.g. beach AND NOT blurry:"), BorderLayout.NORTH);
+		queryPanel.add(queryField, BorderLayout.CENTER);
+		queryPanel.add(queryStatus, BorderLayout.SOUTH);
+		JPanel fileListPanel = new JPanel(new BorderLayout());
+		fileListPanel.add(queryPanel, BorderLayout.NORTH);
+		fileListPanel.add(fileScroll, BorderLayout.CENTER);
+		
+		
 		
 		JButton viewLog = new JButton("View Program Log");
 		viewLog.setVerticalTextPosition(AbstractButton.CENTER);
 		viewLog.setHorizontalTextPosition(AbstractButton.LEADING);
 		viewLog.addActionListener(new ActionListener(){
 			public void actionPerformed(ActionEvent a){
-				programText.removeAll();
-				programText.setText("Program Log\n");
-				programText.append(program.getLog().displayLog());
+				logPanel.refresh();
 			}
 		});
 		
@@ -91,6 +144,11 @@ public class PhotoDisplay {
 		renamePhoto.setHorizontalTextPosition(AbstractButton.LEADING);
 		renamePhoto.addActionListener(new RenamePhotoButtonListener(photoLabel, filePanel, program, photoPanel));
 		
+		JButton batchTag = new JButton("Tag Marked Photos");
+		batchTag.setVerticalTextPosition(AbstractButton.CENTER);
+		batchTag.setHorizontalTextPosition(AbstractButton.LEADING);
+		batchTag.addActionListener(new BatchTagButtonListener(photoLabel, filePanel, program, photoPanel));
+		
 		JButton revertName = new JButton("View/Revert Photo Name");
 		revertName.setVerticalTextPosition(AbstractButton.CENTER);
 		revertName.setHorizontalTextPosition(AbstractButton.LEADING);
@@ -110,15 +168,16 @@ public class PhotoDisplay {
 		programMenuPanel.add(viewLog);
 		programMenuPanel.add(editTags);
 		programMenuPanel.add(renamePhoto);
+		programMenuPanel.add(batchTag);
 		programMenuPanel.add(revertName);
 		programMenuPanel.add(directorySelect);
 		
 		Container container = programWindow.getContentPane();
 		container.add(photoLabel, BorderLayout.NORTH);
-		container.add(fileScroll, BorderLayout.EAST);
+		container.add(fileListPanel, BorderLayout.EAST);
 		container.add(photoScroll, BorderLayout.CENTER);
 		container.add(programMenuPanel, BorderLayout.WEST);
-		container.add(programTextScroll, BorderLayout.SOUTH);
+		container.add(logPanel, BorderLayout.SOUTH);
 		
 		programWindow.pack();
 		return programWindow;
@@ -127,7 +186,10 @@ public class PhotoDisplay {
 	/**
 	 * Utilizes the Program class to refresh and update the information displayed 
 	 * by this photo displayer's filePanel, photoLabel, and photoPanel after 
-	 * every time a photo is renamed.
+	 * every time a photo is renamed. The photos are read from the program's 
+	 * PhotoDirectory, which is already up to date, so no directory is scanned again. 
+	 * If the list is filtered by a tag query, only the photos matching it are shown. 
+	 * Only one page of photos is shown at first; more are read as the user asks for them.
 	 * 
 	 * @param filePanel
 	 * 		a panel that displays a list of buttons that represent all the names
@@ -144,36 +206,163 @@ public class PhotoDisplay {
 	 */
 	public static void refreshButtons(JPanel filePanel, Program program, JLabel photoLabel, JPanel photoPanel){
 		
+		// Keeps showing as many photos as were shown before the refresh.
+		Object shown = filePanel.getClientProperty(SHOWN_PHOTOS);
+		int photosToShow = Math.max(PAGE_SIZE, shown == null ? 0 : (Integer) shown);
 		filePanel.removeAll();
-		program.selectDirectory(program.getCurDirectory());
-		for(File photoFile: program.getDirectoryFiles()){
-			JButton photoButton = new JButton(photoFile.getName());
-			photoButton.setVerticalTextPosition(AbstractButton.CENTER);
-			photoButton.setHorizontalTextPosition(AbstractButton.LEADING);
-			photoButton.addActionListener(new ActionListener(){
+		filePanel.putClientProperty(SHOWN_PHOTOS, 0);
+		TagQuery query = (TagQuery) filePanel.getClientProperty(PHOTO_QUERY);
+		Iterator<PhotoEntry> photos = query == null ? program.photoIterator() : program.queryPhotos(query);
+		addPhotoButtons(filePanel, photos, photosToShow, program, photoLabel, photoPanel);
+		filePanel.revalidate();
+		filePanel.repaint();
+	}
+	
+	/**
+	 * Filters the photos shown by filePanel by a tag query as it is typed. While 
+	 * the text is not a valid query, the reason is shown by queryStatus and the 
+	 * list is left as it was; an empty query shows every photo again. 
+	 * 
+	 * @param text
+	 * 		the text of the query.
+	 * 
+	 * @param queryStatus
+	 * 		a label that displays why the query is not valid.
+	 * 
+	 * @param filePanel
+	 * 		a panel that displays a list of buttons that represent all the names
+	 * 		of photo files in the selected directory.
+	 * 
+	 * @param program
+	 * 		an instance of Program class that implements all the user features.
+	 * 
+	 * @param photoLabel
+	 * 		a label that displays the original and current names of the selected photo.
+	 * 
+	 * @param photoPanel
+	 * 		a panel that displays the currently selected photo.
+	 */
+	private static void filterPhotos(String text, JLabel queryStatus, JPanel filePanel, 
+			Program program, JLabel photoLabel, JPanel photoPanel){
+		TagQuery query = null;
+		if (!text.trim().isEmpty()){
+			try {
+				query = TagQuery.parse(text);
+			} catch (InvalidQueryException e) {
+				queryStatus.setText(e.getMessage());
+				return;
+			}
+		}
+		queryStatus.setText(" ");
+		filePanel.putClientProperty(PHOTO_QUERY, query);
+		filePanel.putClientProperty(SHOWN_PHOTOS, 0);
+		refreshButtons(filePanel, program, photoLabel, photoPanel);
+	}
+	
+	/**
+	 * Adds a button to filePanel for each of the next photos of an iterator, 
+	 * followed by a button that shows the next page of photos if there are more. 
+	 * Only the photos that are shown are read from the iterator. 
+	 * 
+	 * @param filePanel
+	 * 		a panel that displays a list of buttons that represent the names
+	 * 		of photo files in the selected directory.
+	 * 
+	 * @param photos
+	 * 		an iterator over the photos in the selected directory that are not shown yet.
+	 * 
+	 * @param count
+	 * 		the number of photos to show.
+	 * 
+	 * @param program
+	 * 		an instance of Program class that implements all the user features.
+	 * 
+	 * @param photoLabel
+	 * 		a label that displays the original and current names of the selected photo.
+	 * 
+	 * @param photoPanel
+	 * 		a panel that displays the currently selected photo.
+	 */
+	private static void addPhotoButtons(JPanel filePanel, Iterator<PhotoEntry> photos, int count, 
+			Program program, JLabel photoLabel, JPanel photoPanel){
+		int added = 0;
+		while(added < count && photos.hasNext()){
+			filePanel.add(createPhotoButton(photos.next(), program, photoLabel, photoPanel));
+			added++;
+		}
+		filePanel.putClientProperty(SHOWN_PHOTOS, (Integer) filePanel.getClientProperty(SHOWN_PHOTOS) + added);
+		if(photos.hasNext()){
+			JButton moreButton = new JButton("Show More Photos");
+			moreButton.setVerticalTextPosition(AbstractButton.CENTER);
+			moreButton.setHorizontalTextPosition(AbstractButton.LEADING);
+			moreButton.addActionListener(new ActionListener(){
 				@Override
 				public void actionPerformed(ActionEvent e) {
-					program.setSelectedPhoto(photoFile);
-					try{
-						BufferedImage photo = ImageIO.read(photoFile);
-						ImageIcon image = new ImageIcon(photo);
-						JLabel imageLabel = new JLabel(image);
-						photoPanel.removeAll();
-						photoPanel.add(imageLabel);
-						photoPanel.revalidate();
-						photoPanel.repaint();
-						photoLabel.setText("CURRENT PHOTO NAME: " + program.getSelectedPhoto().getCurName() + " " 
-								+ "ORIGINAL PHOTO NAME: " + program.getSelectedPhoto().getOrigName());
-					}
-					catch(IOException r){
-						r.printStackTrace();
-					}
+					filePanel.remove(moreButton);
+					addPhotoButtons(filePanel, photos, PAGE_SIZE, program, photoLabel, photoPanel);
+					filePanel.revalidate();
+					filePanel.repaint();
 				}
 			});
-			filePanel.add(photoButton);
+			filePanel.add(moreButton);
 		}
-		filePanel.revalidate();
-		filePanel.repaint();
+	}
+	
+	/**
+	 * Returns a button that selects and displays a photo when clicked. 
+	 * Clicking the button while holding Ctrl marks or unmarks the photo 
+	 * for batch tagging instead; marked photos are shown in blue. 
+	 * 
+	 * @param photoEntry
+	 * 		the entry of the photo represented by the button.
+	 * 
+	 * @param program
+	 * 		an instance of Program class that implements all the user features.
+	 * 
+	 * @param photoLabel
+	 * 		a label that displays the original and current names of the selected photo.
+	 * 
+	 * @param photoPanel
+	 * 		a panel that displays the currently selected photo.
+	 * 
+	 * @return a button for the photo.
+	 */
+	private static JButton createPhotoButton(PhotoEntry photoEntry, Program program, JLabel photoLabel, JPanel photoPanel){
+		JButton photoButton = new JButton(photoEntry.getName());
+		photoButton.setToolTipText(photoEntry.getSize() / 1024 + " KB, last modified " 
+				+ new Date(photoEntry.getLastModified()));
+		photoButton.setVerticalTextPosition(AbstractButton.CENTER);
+		photoButton.setHorizontalTextPosition(AbstractButton.LEADING);
+		Color unmarkedColor = photoButton.getForeground();
+		if(program.isMarkedPhoto(photoEntry)){
+			photoButton.setForeground(Color.BLUE);
+		}
+		photoButton.addActionListener(new ActionListener(){
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				if((e.getModifiers() & (ActionEvent.CTRL_MASK | ActionEvent.META_MASK)) != 0){
+					boolean marked = program.toggleMarkedPhoto(photoEntry);
+					photoButton.setForeground(marked ? Color.BLUE : unmarkedColor);
+					return;
+				}
+				program.setSelectedPhoto(photoEntry);
+				try{
+					BufferedImage photo = ImageIO.read(photoEntry.getFile());
+					ImageIcon image = new ImageIcon(photo);
+					JLabel imageLabel = new JLabel(image);
+					photoPanel.removeAll();
+					photoPanel.add(imageLabel);
+					photoPanel.revalidate();
+					photoPanel.repaint();
+					photoLabel.setText("CURRENT PHOTO NAME: " + program.getSelectedPhoto().getCurName() + " " 
+							+ "ORIGINAL PHOTO NAME: " + program.getSelectedPhoto().getOrigName());
+				}
+				catch(IOException r){
+					r.printStackTrace();
+				}
+			}
+		});
+		return photoButton;
 	}
 	
 	/**
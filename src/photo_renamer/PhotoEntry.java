@@ -0,0 +1,141 @@
+package photo_renamer;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A photo file found by a directory scan, together with the file attributes
+ * read while scanning. The attributes are read once per file so the rest of
+ * the program does not need to access the file system again to obtain them.
+ *
+ * @author group_0653
+ */
+public final class PhotoEntry {
+
+	/** The path of the photo file. */
+	private final Path path;
+
+	/** The size of the photo file in bytes. */
+	private final long size;
+
+	/** The time the photo file was last modified, in milliseconds since the epoch. */
+	private final long lastModified;
+
+	/**
+	 * The string form of the file key that uniquely identifies the photo file, 
+	 * or null if none is available. Strings are used so that keys read back from 
+	 * a ScanIndex can be compared with keys read from the file system.
+	 */
+	private final String fileKey;
+
+	/**
+	 * A new PhotoEntry for a photo file with the given attributes.
+	 *
+	 * @param path
+	 * 		the path of the photo file.
+	 * @param size
+	 * 		the size of the photo file in bytes.
+	 * @param lastModified
+	 * 		the time the photo file was last modified, in milliseconds since the epoch.
+	 * @param fileKey
+	 * 		the string form of the file key of the photo file, or null if none is available.
+	 */
+	public PhotoEntry(Path path, long size, long lastModified, String fileKey){
+		this.path = path;
+		this.size = size;
+		this.lastModified = lastModified;
+		this.fileKey = fileKey;
+	}
+
+	/**
+	 * A new PhotoEntry for a photo file with attributes read from the file system.
+	 *
+	 * @param path
+	 * 		the path of the photo file.
+	 * @param attributes
+	 * 		the attributes of the photo file.
+	 */
+	public PhotoEntry(Path path, BasicFileAttributes attributes){
+		this(path, attributes.size(), attributes.lastModifiedTime().toMillis(), 
+				attributes.fileKey() == null ? null : attributes.fileKey().toString());
+	}
+
+	/**
+	 * Returns the path of this photo file.
+	 *
+	 * @return the path of this photo file.
+	 */
+	public Path getPath(){
+		return path;
+	}
+
+	/**
+	 * Returns this photo file as a File.
+	 *
+	 * @return the File for this photo file.
+	 */
+	public File getFile(){
+		return path.toFile();
+	}
+
+	/**
+	 * Returns the name of this photo file.
+	 *
+	 * @return the name of this photo file.
+	 */
+	public String getName(){
+		return path.getFileName().toString();
+	}
+
+	/**
+	 * Returns the size of this photo file in bytes.
+	 *
+	 * @return the size of this photo file.
+	 */
+	public long getSize(){
+		return size;
+	}
+
+	/**
+	 * Returns the time this photo file was last modified.
+	 *
+	 * @return the last modified time in milliseconds since the epoch.
+	 */
+	public long getLastModified(){
+		return lastModified;
+	}
+
+	/**
+	 * Returns the string form of the file key that uniquely identifies this photo file.
+	 *
+	 * @return the file key of this photo file, or null if none is available.
+	 */
+	public String getFileKey(){
+		return fileKey;
+	}
+
+	/**
+	 * Returns the entry for this photo file after it has been renamed to a new path.
+	 * Renaming does not change the size, modification time or file key of a file,
+	 * so the attributes of this entry are carried over.
+	 *
+	 * @param newPath
+	 * 		the new path of the photo file.
+	 *
+	 * @return the entry for the renamed photo file.
+	 */
+	public PhotoEntry renamedTo(Path newPath){
+		return new PhotoEntry(newPath, size, lastModified, fileKey);
+	}
+
+	/**
+	 * Returns the path of this photo file.
+	 *
+	 * @return the string representation of this entry's path.
+	 */
+	@Override
+	public String toString(){
+		return path.toString();
+	}
+}
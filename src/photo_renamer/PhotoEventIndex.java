@@ -0,0 +1,314 @@
+package photo_renamer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An index of the events of a Log by the photo they renamed, so the history
+ * of one photo is found without reading the rest of the Log. A photo is known
+ * by its directory and its name without tags, since a rename only changes the
+ * tags of a name, so photos of the same name in different directories have
+ * different histories. The renames of events made before events kept their
+ * directory are known by the name alone, and are part of the history of every
+ * photo of that name.
+ *
+ * Each entry is the position of an event in the Log and, for a rename made in
+ * a batch, the position of the rename in its EventGroup. The events of the Log
+ * are indexed in order; the index records how many it has indexed, so the
+ * events added after it was last written can be indexed when it is loaded.
+ *
+ * @author group_0653
+ */
+public class PhotoEventIndex {
+
+	/** The first bytes of every index file. */
+	private static final int MAGIC = 0x50455649;
+
+	/** The version of the format of index files. */
+	private static final int VERSION = 2;
+
+	/** The number of entries a photo has room for when its first entry is added. */
+	private static final int FIRST_CAPACITY = 4;
+
+	/** The entries of each photo, by its key, in the order of the Log. */
+	private HashMap<String, Entries> entries;
+
+	/** The number of events of the Log that are indexed. */
+	private int indexedEvents;
+
+	/**
+	 * A new PhotoEventIndex of no events.
+	 */
+	public PhotoEventIndex(){
+		this.entries = new HashMap<String, Entries>();
+	}
+
+	/**
+	 * Indexes the next event of the Log, and each rename of an EventGroup.
+	 *
+	 * @param position
+	 * 		the position of the event in the Log, which must be the number of
+	 * 		events indexed so far.
+	 * @param event
+	 * 		the event.
+	 */
+	public synchronized void addEvent(int position, Event event){
+		if (position != indexedEvents){
+			throw new IllegalArgumentException("Event " + position + " indexed after " + indexedEvents + " events.");
+		}
+		if (event instanceof EventGroup){
+			int member = 0;
+			for (Event rename: ((EventGroup) event).getEvents()){
+				add(rename, entry(position, member++));
+			}
+		}
+		else{
+			add(event, entry(position, -1));
+		}
+		indexedEvents++;
+	}
+
+	/**
+	 * Returns the number of events of the Log that are indexed.
+	 *
+	 * @return the number of events indexed.
+	 */
+	public synchronized int size(){
+		return indexedEvents;
+	}
+
+	/**
+	 * Returns the entries of the events that renamed a photo.
+	 *
+	 * @param directory
+	 * 		the directory of the photo, as given by Event.directoryOf, or null
+	 * 		for only the renames of events that kept no directory.
+	 * @param name
+	 * 		a name of the photo, with or without tags.
+	 *
+	 * @return a new array of the entries of the photo, in the order of the Log,
+	 * 		to be read with positionOf and memberOf.
+	 */
+	public synchronized long[] get(String directory, String name){
+		String photo = Photo.removeAllTags(name);
+		long[] unknown = toArray(entries.get(key(null, photo)));
+		if (directory == null){
+			return unknown;
+		}
+		long[] known = toArray(entries.get(key(directory, photo)));
+		if (unknown.length == 0){
+			return known;
+		}
+		// Entries grow with the position of their event, so both are merged in order.
+		long[] merged = new long[unknown.length + known.length];
+		int u = 0;
+		int k = 0;
+		for (int i = 0; i < merged.length; i++){
+			if (k == known.length || (u < unknown.length && unknown[u] < known[k])){
+				merged[i] = unknown[u++];
+			}
+			else{
+				merged[i] = known[k++];
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * Removes every entry, as when the index no longer matches its Log.
+	 */
+	public synchronized void clear(){
+		entries.clear();
+		indexedEvents = 0;
+	}
+
+	/**
+	 * Returns the position in the Log of the event of an entry.
+	 *
+	 * @param entry
+	 * 		an entry returned by get.
+	 *
+	 * @return the position of the event.
+	 */
+	public static int positionOf(long entry){
+		return (int) (entry >>> 32);
+	}
+
+	/**
+	 * Returns the position in its EventGroup of the rename of an entry.
+	 *
+	 * @param entry
+	 * 		an entry returned by get.
+	 *
+	 * @return the position of the rename in its group, or -1 if the event
+	 * 		of the entry is not an EventGroup.
+	 */
+	public static int memberOf(long entry){
+		return (int) entry - 1;
+	}
+
+	/**
+	 * Writes the entries of this index to a file.
+	 *
+	 * @param fileName
+	 * 		the file to write the index to.
+	 *
+	 * @throws IOException if the file cannot be written.
+	 */
+	public synchronized void serializeIndex(String fileName) throws IOException{
+		FileOutputStream file = new FileOutputStream(fileName);
+		BufferedOutputStream buffer = new BufferedOutputStream(file);
+		DataOutputStream output = new DataOutputStream(buffer);
+		try{
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(indexedEvents);
+			output.writeInt(entries.size());
+			for (Map.Entry<String, Entries> photo: entries.entrySet()){
+				Entries photoEntries = photo.getValue();
+				output.writeUTF(photo.getKey());
+				output.writeInt(photoEntries.count);
+				for (int i = 0; i < photoEntries.count; i++){
+					output.writeLong(photoEntries.values[i]);
+				}
+			}
+		}
+		finally{
+			output.close();
+		}
+	}
+
+	/**
+	 * Replaces the entries of this index with those written to a file by
+	 * serializeIndex. An index file of another version is ignored.
+	 *
+	 * @param fileName
+	 * 		the file to read the index from.
+	 *
+	 * @throws IOException if the file cannot be read or is not an index file.
+	 */
+	public synchronized void loadIndex(String fileName) throws IOException{
+		FileInputStream file = new FileInputStream(fileName);
+		BufferedInputStream buffer = new BufferedInputStream(file);
+		DataInputStream input = new DataInputStream(buffer);
+		try{
+			if (input.readInt() != MAGIC){
+				throw new IOException("Not a photo event index: " + fileName);
+			}
+			if (input.readInt() != VERSION){
+				return;
+			}
+			int events = input.readInt();
+			int photos = input.readInt();
+			HashMap<String, Entries> loaded = new HashMap<String, Entries>(photos * 2);
+			for (int i = 0; i < photos; i++){
+				String key = input.readUTF();
+				Entries photoEntries = new Entries(input.readInt());
+				while (photoEntries.count < photoEntries.values.length){
+					photoEntries.values[photoEntries.count++] = input.readLong();
+				}
+				loaded.put(key, photoEntries);
+			}
+			entries = loaded;
+			indexedEvents = events;
+		}
+		finally{
+			input.close();
+		}
+	}
+
+	/**
+	 * Adds an entry to the entries of the photo renamed by an event. The
+	 * array of the entries of a photo doubles when it is full, so adding an
+	 * entry takes constant time on average.
+	 *
+	 * @param rename
+	 * 		the rename, which is not an EventGroup.
+	 * @param entry
+	 * 		the entry of the rename.
+	 */
+	private void add(Event rename, long entry){
+		String key = key(rename.getDirectory(), Photo.removeAllTags(rename.getOldName()));
+		Entries photoEntries = entries.get(key);
+		if (photoEntries == null){
+			photoEntries = new Entries(FIRST_CAPACITY);
+			entries.put(key, photoEntries);
+		}
+		else if (photoEntries.count == photoEntries.values.length){
+			photoEntries.values = Arrays.copyOf(photoEntries.values, Math.max(FIRST_CAPACITY, photoEntries.values.length * 2));
+		}
+		photoEntries.values[photoEntries.count++] = entry;
+	}
+
+	/**
+	 * Returns the key of a photo in this index.
+	 *
+	 * @param directory
+	 * 		the directory of the photo, or null if unknown.
+	 * @param photo
+	 * 		the name of the photo without tags.
+	 *
+	 * @return the key of the photo.
+	 */
+	private static String key(String directory, String photo){
+		return directory == null ? photo : directory + File.separator + photo;
+	}
+
+	/**
+	 * Returns a copy of the entries of a photo.
+	 *
+	 * @param photoEntries
+	 * 		the entries of the photo, or null if it has none.
+	 *
+	 * @return a new array of the entries.
+	 */
+	private static long[] toArray(Entries photoEntries){
+		return photoEntries == null ? new long[0] : Arrays.copyOf(photoEntries.values, photoEntries.count);
+	}
+
+	/**
+	 * Returns the entry of a rename.
+	 *
+	 * @param position
+	 * 		the position of its event in the Log.
+	 * @param member
+	 * 		the position of the rename in its EventGroup, or -1 if the event is not a group.
+	 *
+	 * @return the entry.
+	 */
+	private static long entry(int position, int member){
+		return ((long) position << 32) | (member + 1);
+	}
+
+	/**
+	 * The entries of a photo: an array with room for more entries than it
+	 * holds, and the number it holds.
+	 */
+	private static class Entries {
+
+		/** The entries, of which the first count are used. */
+		private long[] values;
+
+		/** The number of entries. */
+		private int count;
+
+		/**
+		 * New empty entries.
+		 *
+		 * @param capacity
+		 * 		the number of entries there is room for.
+		 */
+		private Entries(int capacity){
+			this.values = new long[capacity];
+		}
+	}
+}
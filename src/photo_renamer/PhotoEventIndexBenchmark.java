@@ -0,0 +1,280 @@
+package photo_renamer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * A benchmark of looking up the renames of one photo in a Log. A segment of
+ * generated renames of photos in several directories is written, and the
+ * renames of random photos are found with the PhotoEventIndex of the Log and
+ * by reading every event of the Log, as the revert dialog once did. It prints
+ * the time of the first lookup, which builds the index from the segment, the
+ * time of the first lookup after the Log is opened again, which reads the
+ * index file, and the average time of a lookup each way. The renames found
+ * both ways are checked against each other before they are timed.
+ *
+ * Run with: java photo_renamer.PhotoEventIndexBenchmark [events] [directories] [photos per directory]
+ *
+ * @author group_0653
+ */
+public class PhotoEventIndexBenchmark {
+
+	/** The number of lookups timed with the index. */
+	private static final int INDEXED_LOOKUPS = 10000;
+
+	/** The number of lookups timed by reading every event, each of which reads the whole Log. */
+	private static final int SCANNED_LOOKUPS = 20;
+
+	/** The number of renames of each generated batch. */
+	private static final int BATCH_SIZE = 20;
+
+	/** The tags the generated names are made of. */
+	private static final String[] TAGS = {"beach", "sun", "family", "2016", "paris", "dog", "snow", "work"};
+
+	/** Keeps the results of the timed code alive so it is not optimized away. */
+	private static int sink;
+
+	/**
+	 * Writes the segment, runs the benchmark and deletes the segment.
+	 *
+	 * @param args
+	 * 		the number of events, the number of directories and the number of
+	 * 		photos in each directory, by default 200,000, 10 and 5,000. One
+	 * 		event in twenty is a batch of twenty renames.
+	 *
+	 * @throws IOException if the Log cannot be written or read.
+	 */
+	public static void main(String[] args) throws IOException{
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int directories = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int photos = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+		Path root = Files.createTempDirectory("photo-event-index-benchmark");
+		String segmentFile = new File(root.toFile(), "EventLog").getPath();
+		String indexFile = new File(root.toFile(), "PhotoEventIndex").getPath();
+		try{
+			Random random = new Random(653);
+			String[] paths = new String[directories];
+			for (int d = 0; d < directories; d++){
+				paths[d] = new File(root.toFile(), "album" + d).getAbsolutePath();
+			}
+			LogSegment segment = new LogSegment();
+			segment.open(segmentFile);
+			try{
+				segment.appendAll(generate(random, count, paths, photos));
+			}
+			finally{
+				segment.close();
+			}
+
+			String[] lookupDirectories = new String[INDEXED_LOOKUPS];
+			String[] lookupNames = new String[INDEXED_LOOKUPS];
+			for (int i = 0; i < INDEXED_LOOKUPS; i++){
+				lookupDirectories[i] = paths[random.nextInt(directories)];
+				lookupNames[i] = "IMG_" + random.nextInt(photos) + "@" + TAGS[random.nextInt(TAGS.length)] + ".jpg";
+			}
+
+			Log log = new Log();
+			log.open(segmentFile, indexFile);
+			long start = System.nanoTime();
+			sink += log.getPhotoEvents(lookupDirectories[0], lookupNames[0]).size();
+			double buildMillis = (System.nanoTime() - start) / 1e6;
+			double indexedNanos = timeIndexed(log, lookupDirectories, lookupNames);
+			log.close();
+			System.out.printf("%d events, %d directories, %d photos per directory, index file %.1f MB%n",
+					count, directories, photos, new File(indexFile).length() / 1e6);
+
+			log.open(segmentFile, indexFile);
+			start = System.nanoTime();
+			ArrayList<ArrayList<Event>> indexed = new ArrayList<ArrayList<Event>>();
+			for (int i = 0; i < SCANNED_LOOKUPS; i++){
+				indexed.add(log.getPhotoEvents(lookupDirectories[i], lookupNames[i]));
+			}
+			double reopenMillis = (System.nanoTime() - start) / 1e6;
+			ArrayList<Event> events = log.getEventList();
+			for (int i = 0; i < SCANNED_LOOKUPS; i++){
+				check(indexed.get(i), scan(events, lookupDirectories[i], lookupNames[i]));
+			}
+			double scannedNanos = timeScanned(events, lookupDirectories, lookupNames);
+			log.close();
+
+			System.out.printf("first lookup, building the index: %8.1f ms%n", buildMillis);
+			System.out.printf("first %d lookups after reopening:  %8.1f ms%n", SCANNED_LOOKUPS, reopenMillis);
+			System.out.printf("lookup with the index %10.1f us, reading every event %10.1f us (%.0fx)%n",
+					indexedNanos / 1e3, scannedNanos / 1e3, scannedNanos / indexedNanos);
+			System.out.println("(" + sink + ")");
+		}
+		finally{
+			ScanBenchmark.deleteTree(root);
+		}
+	}
+
+	/**
+	 * Returns generated renames, each of which adds a tag to a random photo.
+	 * The same photo names are used in every directory.
+	 *
+	 * @param random
+	 * 		the source of the photos and their tags.
+	 * @param count
+	 * 		the number of events.
+	 * @param paths
+	 * 		the directories of the photos.
+	 * @param photos
+	 * 		the number of photos in each directory.
+	 *
+	 * @return the events.
+	 */
+	private static ArrayList<Event> generate(Random random, int count, String[] paths, int photos){
+		ArrayList<Event> events = new ArrayList<Event>(count);
+		long time = 1480000000000L;
+		for (int i = 0; i < count; i++){
+			time += random.nextInt(60000);
+			String tag = TAGS[random.nextInt(TAGS.length)];
+			if (i % 20 == 0){
+				ArrayList<Event> members = new ArrayList<Event>(BATCH_SIZE);
+				for (int j = 0; j < BATCH_SIZE; j++){
+					members.add(rename(random, paths, photos, tag, time));
+				}
+				events.add(new EventGroup("added @" + tag, members, time));
+			}
+			else{
+				events.add(rename(random, paths, photos, tag, time));
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Returns a rename of a random photo that adds a tag to it.
+	 *
+	 * @param random
+	 * 		the source of the photo.
+	 * @param paths
+	 * 		the directories of the photos.
+	 * @param photos
+	 * 		the number of photos in each directory.
+	 * @param tag
+	 * 		the tag added.
+	 * @param time
+	 * 		the time of the rename.
+	 *
+	 * @return the Event of the rename.
+	 */
+	private static Event rename(Random random, String[] paths, int photos, String tag, long time){
+		String name = "IMG_" + random.nextInt(photos);
+		return new Event(name + ".jpg", name + "@" + tag + ".jpg", time, paths[random.nextInt(paths.length)]);
+	}
+
+	/**
+	 * Returns the renames of a photo found by reading every event, as the
+	 * revert dialog once did.
+	 *
+	 * @param events
+	 * 		every event of the Log.
+	 * @param directory
+	 * 		the directory of the photo.
+	 * @param name
+	 * 		a name of the photo.
+	 *
+	 * @return the renames of the photo, in order.
+	 */
+	private static ArrayList<Event> scan(ArrayList<Event> events, String directory, String name){
+		String photo = Photo.removeAllTags(name);
+		ArrayList<Event> renames = new ArrayList<Event>();
+		for (Event event: events){
+			if (event instanceof EventGroup){
+				for (Event member: ((EventGroup) event).getEvents()){
+					addIfRenamed(renames, member, directory, photo);
+				}
+			}
+			else{
+				addIfRenamed(renames, event, directory, photo);
+			}
+		}
+		return renames;
+	}
+
+	/**
+	 * Adds a rename to a list if it renamed a photo.
+	 *
+	 * @param renames
+	 * 		the renames found so far.
+	 * @param rename
+	 * 		the rename, which is not an EventGroup.
+	 * @param directory
+	 * 		the directory of the photo.
+	 * @param photo
+	 * 		the name of the photo without tags.
+	 */
+	private static void addIfRenamed(ArrayList<Event> renames, Event rename, String directory, String photo){
+		if (directory.equals(rename.getDirectory()) && photo.equals(Photo.removeAllTags(rename.getOldName()))){
+			renames.add(rename);
+		}
+	}
+
+	/**
+	 * Checks that the renames found with the index are those found by
+	 * reading every event.
+	 *
+	 * @param indexed
+	 * 		the renames found with the index.
+	 * @param scanned
+	 * 		the renames found by reading every event.
+	 *
+	 * @throws IllegalStateException if a rename differs.
+	 */
+	private static void check(ArrayList<Event> indexed, ArrayList<Event> scanned){
+		if (indexed.size() != scanned.size()){
+			throw new IllegalStateException(indexed.size() + " renames were found with the index, not " + scanned.size());
+		}
+		for (int i = 0; i < indexed.size(); i++){
+			if (!indexed.get(i).displayEvent().equals(scanned.get(i).displayEvent())){
+				throw new IllegalStateException("Rename " + i + " found with the index differs.");
+			}
+		}
+	}
+
+	/**
+	 * Times looking up the renames of photos with the index of a Log.
+	 *
+	 * @param log
+	 * 		the Log, whose index is built.
+	 * @param directories
+	 * 		the directory of each photo.
+	 * @param names
+	 * 		the name of each photo.
+	 *
+	 * @return the average time of one lookup, in nanoseconds.
+	 */
+	private static double timeIndexed(Log log, String[] directories, String[] names){
+		long start = System.nanoTime();
+		for (int i = 0; i < names.length; i++){
+			sink += log.getPhotoEvents(directories[i], names[i]).size();
+		}
+		return (System.nanoTime() - start) / (double) names.length;
+	}
+
+	/**
+	 * Times looking up the renames of photos by reading every event, already
+	 * read into memory.
+	 *
+	 * @param events
+	 * 		every event of the Log.
+	 * @param directories
+	 * 		the directory of each photo.
+	 * @param names
+	 * 		the name of each photo.
+	 *
+	 * @return the average time of one lookup, in nanoseconds.
+	 */
+	private static double timeScanned(ArrayList<Event> events, String[] directories, String[] names){
+		long start = System.nanoTime();
+		for (int i = 0; i < SCANNED_LOOKUPS; i++){
+			sink += scan(events, directories[i], names[i]).size();
+		}
+		return (System.nanoTime() - start) / (double) SCANNED_LOOKUPS;
+	}
+}
@@ -0,0 +1,214 @@
+package photo_renamer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PhotoEventIndexTest {
+
+	private File directory;
+	private String segmentFile;
+	private String indexFile;
+	private PhotoEventIndex index;
+
+    /**
+     * Makes a new directory and an empty index.
+     *
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("photo-event-index-test").toFile();
+        segmentFile = new File(directory, "EventLog").getPath();
+        indexFile = new File(directory, "PhotoEventIndex").getPath();
+        index = new PhotoEventIndex();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        for (File file: directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private Event rename(String name, String tag, String photoDirectory, long time) {
+        return new Event(name + ".jpg", name + "@" + tag + ".jpg", time, photoDirectory);
+    }
+
+    /**
+     * Returns the entries of a photo as "position:member" strings.
+     */
+    private ArrayList<String> entries(String photoDirectory, String name) {
+        ArrayList<String> found = new ArrayList<String>();
+        for (long entry: index.get(photoDirectory, name)) {
+            found.add(PhotoEventIndex.positionOf(entry) + ":" + PhotoEventIndex.memberOf(entry));
+        }
+        return found;
+    }
+
+    /**
+     * Returns the new names of the renames of a photo found by a Log.
+     */
+    private ArrayList<String> newNames(Log log, String photoDirectory, String name) {
+        ArrayList<String> names = new ArrayList<String>();
+        for (Event event: log.getPhotoEvents(photoDirectory, name)) {
+            names.add(event.getNewName());
+        }
+        return names;
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoEventIndex#get(java.lang.String, java.lang.String)}.
+     * Test case for photos of the same name in different directories, renames
+     * made in a batch, and a lookup by a name with tags.
+     */
+    @Test
+    public void testSameNameInDifferentDirectories() {
+        index.addEvent(0, rename("a", "sun", "/photos/2016", 1000L));
+        ArrayList<Event> members = new ArrayList<Event>(Arrays.asList(
+                rename("b", "dog", "/photos/2016", 2000L), rename("a", "dog", "/photos/2017", 2000L)));
+        index.addEvent(1, new EventGroup("added @dog", members, 2000L));
+        index.addEvent(2, rename("a@sun", "beach", "/photos/2016", 3000L));
+        assertEquals(Arrays.asList("0:-1", "2:-1"), entries("/photos/2016", "a@beach.jpg"));
+        assertEquals(Arrays.asList("1:1"), entries("/photos/2017", "a.jpg"));
+        assertEquals(Arrays.asList("1:0"), entries("/photos/2016", "b.jpg"));
+        assertTrue(entries("/photos/2018", "a.jpg").isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoEventIndex#get(java.lang.String, java.lang.String)}.
+     * Test case for renames logged before events kept their directory, which
+     * are part of the history of a photo of that name in every directory.
+     */
+    @Test
+    public void testRenamesWithoutDirectory() {
+        index.addEvent(0, new Event("a.jpg", "a@sun.jpg", 1000L));
+        index.addEvent(1, rename("a", "dog", "/photos/2016", 2000L));
+        index.addEvent(2, new Event("a@sun.jpg", "a.jpg", 3000L));
+        index.addEvent(3, rename("a", "dog", "/photos/2017", 4000L));
+        assertEquals(Arrays.asList("0:-1", "1:-1", "2:-1"), entries("/photos/2016", "a.jpg"));
+        assertEquals(Arrays.asList("0:-1", "2:-1", "3:-1"), entries("/photos/2017", "a.jpg"));
+        assertEquals(Arrays.asList("0:-1", "2:-1"), entries(null, "a.jpg"));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoEventIndex#addEvent(int, photo_renamer.Event)}.
+     * Test case for a photo renamed many times, whose entries are all kept
+     * in order, and an event indexed out of order.
+     */
+    @Test
+    public void testManyRenamesOfOnePhoto() {
+        for (int i = 0; i < 1000; i++) {
+            index.addEvent(i, rename("a", "t" + i, "/photos", 1000L * i));
+        }
+        long[] found = index.get("/photos", "a.jpg");
+        assertEquals(1000, found.length);
+        for (int i = 0; i < found.length; i++) {
+            assertEquals(i, PhotoEventIndex.positionOf(found[i]));
+        }
+        try {
+            index.addEvent(1001, rename("a", "late", "/photos", 0L));
+            fail("indexed an event out of order");
+        } catch (IllegalArgumentException e) {
+            // Event 1000 was not indexed.
+        }
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoEventIndex#loadIndex(java.lang.String)}.
+     * Test case for an index written to a file and read back, and a file that
+     * is not an index.
+     */
+    @Test
+    public void testSerializeAndLoad() throws IOException {
+        index.addEvent(0, rename("a", "sun", "/photos/2016", 1000L));
+        index.addEvent(1, new EventGroup("added @dog", new ArrayList<Event>(Arrays.asList(
+                rename("a", "dog", "/photos/2017", 2000L), rename("\u00e9t\u00e9", "dog", "/photos/2017", 2000L))), 2000L));
+        index.addEvent(2, new Event("a.jpg", "a@x.jpg", 3000L));
+        index.serializeIndex(indexFile);
+        index = new PhotoEventIndex();
+        index.loadIndex(indexFile);
+        assertEquals(3, index.size());
+        assertEquals(Arrays.asList("0:-1", "2:-1"), entries("/photos/2016", "a.jpg"));
+        assertEquals(Arrays.asList("1:0", "2:-1"), entries("/photos/2017", "a.jpg"));
+        assertEquals(Arrays.asList("1:1"), entries("/photos/2017", "\u00e9t\u00e9.jpg"));
+        index.addEvent(3, rename("a", "sun", "/photos/2016", 4000L));
+        assertEquals(Arrays.asList("0:-1", "2:-1", "3:-1"), entries("/photos/2016", "a.jpg"));
+        FileOutputStream output = new FileOutputStream(segmentFile);
+        output.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        output.close();
+        try {
+            index.loadIndex(segmentFile);
+            fail("loaded a file that is not an index");
+        } catch (IOException e) {
+            // The file does not start with the magic number of an index.
+        }
+        assertEquals(4, index.size());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.Log#getPhotoEvents(java.lang.String, java.lang.String)}.
+     * Test case for events appended to the segment after the index file was
+     * written, which are indexed when the index is read again.
+     */
+    @Test
+    public void testCatchUp() throws IOException {
+        Log log = new Log();
+        log.open(segmentFile, indexFile);
+        log.addEvent(rename("a", "sun", "/photos", 1000L));
+        log.addEvent(rename("b", "sun", "/photos", 2000L));
+        assertEquals(Arrays.asList("a@sun.jpg"), newNames(log, "/photos", "a.jpg"));
+        log.close();
+        log.open(segmentFile);
+        log.addEvent(rename("a@sun", "dog", "/photos", 3000L));
+        log.addEvent(new EventGroup("added @snow", new ArrayList<Event>(Arrays.asList(
+                rename("a@sun@dog", "snow", "/photos", 4000L))), 4000L));
+        log.close();
+        index.loadIndex(indexFile);
+        assertEquals(2, index.size());
+        log.open(segmentFile, indexFile);
+        assertEquals(Arrays.asList("a@sun.jpg", "a@sun@dog.jpg", "a@sun@dog@snow.jpg"),
+                newNames(log, "/photos", "a.jpg"));
+        log.addEvent(rename("a", "work", "/photos", 5000L));
+        assertEquals(4, newNames(log, "/photos", "a.jpg").size());
+        log.close();
+        index.loadIndex(indexFile);
+        assertEquals(5, index.size());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.Log#getPhotoEvents(java.lang.String, java.lang.String)}.
+     * Test case for an index file of more events than its segment, written for
+     * another segment, which is built again from the segment.
+     */
+    @Test
+    public void testStaleIndexCleared() throws IOException {
+        Log log = new Log();
+        log.open(new File(directory, "OtherLog").getPath(), indexFile);
+        for (int i = 0; i < 5; i++) {
+            log.addEvent(rename("a", "old" + i, "/photos", 1000L * i));
+        }
+        assertEquals(5, newNames(log, "/photos", "a.jpg").size());
+        log.close();
+        log.open(segmentFile, indexFile);
+        log.addEvent(rename("a", "new", "/photos", 9000L));
+        assertEquals(Arrays.asList("a@new.jpg"), newNames(log, "/photos", "a.jpg"));
+        log.close();
+        index.loadIndex(indexFile);
+        assertEquals(1, index.size());
+    }
+}
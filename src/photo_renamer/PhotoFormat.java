@@ -0,0 +1,227 @@
+package photo_renamer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The photo file formats recognized by the program, with the file name
+ * extensions and leading magic bytes of each format.
+ *
+ * File names are classified with a precomputed hash table of extensions.
+ * The lookup ignores case and does not allocate any objects, since it is
+ * run on every file found while scanning a directory.
+ *
+ * @author group_0653
+ */
+public enum PhotoFormat {
+
+	/** The JPEG format. */
+	JPEG(new String[] {"jpg", "jpeg", "jpe"}, new int[][] {{0xFF, 0xD8, 0xFF}}),
+
+	/** The PNG format. */
+	PNG(new String[] {"png"}, new int[][] {{0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A}}),
+
+	/** The GIF format. */
+	GIF(new String[] {"gif"}, new int[][] {{'G', 'I', 'F', '8', '7', 'a'}, {'G', 'I', 'F', '8', '9', 'a'}}),
+
+	/** The BMP format. */
+	BMP(new String[] {"bmp"}, new int[][] {{'B', 'M'}}),
+
+	/** The TIFF format, in little-endian and big-endian byte order. */
+	TIFF(new String[] {"tif", "tiff"}, new int[][] {{'I', 'I', 0x2A, 0x00}, {'M', 'M', 0x00, 0x2A}});
+
+	/** The number of leading bytes read from a file to confirm its format. */
+	public static final int HEADER_SIZE = 16;
+
+	/** The number of slots in the extension table. Must be a power of two. */
+	private static final int TABLE_SIZE = 64;
+
+	/** The longest extension in the table. */
+	private static final int MAX_EXTENSION_LENGTH;
+
+	/** The lowercase extension stored in each slot of the table, or null for an empty slot. */
+	private static final String[] TABLE_EXTENSIONS = new String[TABLE_SIZE];
+
+	/** The format of the extension stored in each slot of the table. */
+	private static final PhotoFormat[] TABLE_FORMATS = new PhotoFormat[TABLE_SIZE];
+
+	static {
+		int maxLength = 0;
+		for (PhotoFormat format: values()){
+			for (String extension: format.extensions){
+				int slot = hash(extension, 0, extension.length()) & (TABLE_SIZE - 1);
+				while (TABLE_EXTENSIONS[slot] != null){
+					slot = (slot + 1) & (TABLE_SIZE - 1);
+				}
+				TABLE_EXTENSIONS[slot] = extension;
+				TABLE_FORMATS[slot] = format;
+				maxLength = Math.max(maxLength, extension.length());
+			}
+		}
+		MAX_EXTENSION_LENGTH = maxLength;
+	}
+
+	/** The lowercase file name extensions of this format. */
+	private final String[] extensions;
+
+	/** The magic byte sequences that files of this format may start with. */
+	private final int[][] signatures;
+
+	/**
+	 * A new PhotoFormat.
+	 *
+	 * @param extensions
+	 * 		the lowercase file name extensions of the format.
+	 * @param signatures
+	 * 		the magic byte sequences that files of the format may start with.
+	 */
+	private PhotoFormat(String[] extensions, int[][] signatures){
+		this.extensions = extensions;
+		this.signatures = signatures;
+	}
+
+	/**
+	 * Returns the format of a file with a given name, based on its extension.
+	 * The extension is matched ignoring case. A name that starts with its only
+	 * dot, or that ends with a dot, has no extension.
+	 *
+	 * @param name
+	 * 		the name of the file.
+	 *
+	 * @return the format of the file, or null if it is not a recognized photo format.
+	 */
+	public static PhotoFormat forFileName(CharSequence name){
+		int length = name.length();
+		int dot = length - 1;
+		while (dot >= 0 && length - dot - 1 <= MAX_EXTENSION_LENGTH && name.charAt(dot) != '.'){
+			dot--;
+		}
+		if (dot <= 0 || dot == length - 1 || name.charAt(dot) != '.'){
+			return null;
+		}
+		int start = dot + 1;
+		int slot = hash(name, start, length) & (TABLE_SIZE - 1);
+		while (TABLE_EXTENSIONS[slot] != null){
+			if (matches(TABLE_EXTENSIONS[slot], name, start, length)){
+				return TABLE_FORMATS[slot];
+			}
+			slot = (slot + 1) & (TABLE_SIZE - 1);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns whether the first bytes of a file match a signature of this format.
+	 *
+	 * @param header
+	 * 		a buffer holding the first bytes of the file between its position and limit.
+	 *
+	 * @return true if the bytes start with one of this format's signatures, false otherwise.
+	 */
+	public boolean matchesHeader(ByteBuffer header){
+		int start = header.position();
+		for (int[] signature: signatures){
+			if (header.remaining() < signature.length){
+				continue;
+			}
+			boolean matched = true;
+			for (int i = 0; i < signature.length && matched; i++){
+				matched = (header.get(start + i) & 0xFF) == signature[i];
+			}
+			if (matched){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether a file really has this format, by reading its first bytes
+	 * into a buffer that is reused between calls.
+	 *
+	 * @param file
+	 * 		the file to be checked.
+	 * @param buffer
+	 * 		a buffer of at least HEADER_SIZE bytes to read the file's first bytes into.
+	 *
+	 * @return true if the file starts with a signature of this format, false
+	 * 		otherwise or if the file cannot be read.
+	 */
+	public boolean confirm(Path file, ByteBuffer buffer){
+		buffer.clear();
+		buffer.limit(HEADER_SIZE);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0){
+				// Keeps reading until the header is full or the file ends.
+			}
+		}
+		catch (IOException e){
+			return false;
+		}
+		buffer.flip();
+		return matchesHeader(buffer);
+	}
+
+	/**
+	 * Returns a hash of the characters of name between start and end,
+	 * ignoring the case of ASCII letters.
+	 *
+	 * @param name
+	 * 		the characters to be hashed.
+	 * @param start
+	 * 		the index of the first character.
+	 * @param end
+	 * 		the index after the last character.
+	 *
+	 * @return the hash of the characters.
+	 */
+	private static int hash(CharSequence name, int start, int end){
+		int hash = 0;
+		for (int i = start; i < end; i++){
+			hash = 31 * hash + toLowerCase(name.charAt(i));
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Returns whether the characters of name between start and end equal
+	 * a lowercase extension, ignoring the case of ASCII letters.
+	 *
+	 * @param extension
+	 * 		the lowercase extension.
+	 * @param name
+	 * 		the characters to be compared.
+	 * @param start
+	 * 		the index of the first character.
+	 * @param end
+	 * 		the index after the last character.
+	 *
+	 * @return true if the characters equal the extension, false otherwise.
+	 */
+	private static boolean matches(String extension, CharSequence name, int start, int end){
+		if (extension.length() != end - start){
+			return false;
+		}
+		for (int i = start; i < end; i++){
+			if (extension.charAt(i - start) != toLowerCase(name.charAt(i))){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the lowercase form of an ASCII letter, or the character itself otherwise.
+	 *
+	 * @param c
+	 * 		the character.
+	 *
+	 * @return the lowercase character.
+	 */
+	private static char toLowerCase(char c){
+		return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+	}
+}
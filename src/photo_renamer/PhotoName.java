@@ -0,0 +1,404 @@
+package photo_renamer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The parts of a photo file name: its base name, its tags and its extension.
+ * A name such as "my.photo@beach@sun.jpg" has the base name "my.photo", the
+ * tags "beach" and "sun" and the extension ".jpg".
+ *
+ * The extension starts at the last dot of the name, unless that dot is the
+ * first character. The tags start at the first '@' before the extension,
+ * unless that '@' is the first character, in which case the name has no tags.
+ * Empty tags, as in "photo@@beach.jpg", are ignored.
+ *
+ * A name is parsed once, by jumping from one '@' to the next with
+ * String.indexOf, and only where each part starts is recorded, so parts are
+ * not copied until they are asked for. A PhotoName can be reused
+ * for many names with parse, which keeps loops over many names free of
+ * allocations; a PhotoName must not be shared between threads while it is
+ * being reused. When only the tags as a whole are dropped or added to,
+ * untaggedName and addTags find where the base name and the extension end
+ * without parsing the tags at all.
+ *
+ * @author group_0653
+ */
+public final class PhotoName {
+
+	/** The name being parsed. */
+	private String name;
+
+	/** The index where the tags start, or the extension if the name has no tags. */
+	private int baseEnd;
+
+	/** The index where the extension starts, or the length of the name if it has none. */
+	private int extensionStart;
+
+	/** The index of the '@' before each tag. */
+	private int[] tagStarts;
+
+	/** The index after the last character of each tag. */
+	private int[] tagEnds;
+
+	/** The number of tags in the name. */
+	private int tagCount;
+
+	/**
+	 * A new PhotoName with no name, to be given one with parse.
+	 */
+	public PhotoName(){
+		this.name = "";
+		this.tagStarts = new int[4];
+		this.tagEnds = new int[4];
+	}
+
+	/**
+	 * Returns a new PhotoName for a photo file name.
+	 *
+	 * @param name
+	 * 		the name of the photo file.
+	 *
+	 * @return the parsed name.
+	 */
+	public static PhotoName of(String name){
+		return new PhotoName().parse(name);
+	}
+
+	/**
+	 * Returns a photo file name without its tags, as the photo was originally
+	 * named. Only the first '@' and the last dot of the name are looked for,
+	 * so no PhotoName is made.
+	 *
+	 * @param name
+	 * 		the name of the photo file.
+	 *
+	 * @return the base name followed by the extension.
+	 */
+	public static String untaggedName(String name){
+		int extensionStart = extensionStart(name);
+		int baseEnd = baseEnd(name, extensionStart);
+		if (baseEnd == extensionStart){
+			return name;
+		}
+		return name.substring(0, baseEnd) + name.substring(extensionStart);
+	}
+
+	/**
+	 * Returns a photo file name with tags added after its current tags and
+	 * before its extension. Only the last dot of the name is looked for, so
+	 * no PhotoName is made.
+	 *
+	 * @param name
+	 * 		the name of the photo file.
+	 * @param tags
+	 * 		the tags to be added, without their '@'s.
+	 *
+	 * @return the new name.
+	 */
+	public static String addTags(String name, Collection<String> tags){
+		int extensionStart = extensionStart(name);
+		int added = 0;
+		for (String tag: tags){
+			added += tag.length() + 1;
+		}
+		StringBuilder newName = new StringBuilder(name.length() + added);
+		newName.append(name, 0, extensionStart);
+		for (String tag: tags){
+			newName.append('@').append(tag);
+		}
+		newName.append(name, extensionStart, name.length());
+		return newName.toString();
+	}
+
+	/**
+	 * Parses a photo file name into this PhotoName, replacing the name it held.
+	 *
+	 * @param name
+	 * 		the name of the photo file.
+	 *
+	 * @return this PhotoName.
+	 */
+	public PhotoName parse(String name){
+		this.name = name;
+		extensionStart = extensionStart(name);
+		baseEnd = baseEnd(name, extensionStart);
+
+		// The tags start at the end of the base name, if it ends before the extension.
+		tagCount = 0;
+		int at = baseEnd;
+		while (at >= 0 && at < extensionStart){
+			int next = name.indexOf('@', at + 1);
+			int end = next >= 0 && next < extensionStart ? next : extensionStart;
+			if (end > at + 1){
+				if (tagCount == tagStarts.length){
+					tagStarts = Arrays.copyOf(tagStarts, tagCount * 2);
+					tagEnds = Arrays.copyOf(tagEnds, tagCount * 2);
+				}
+				tagStarts[tagCount] = at;
+				tagEnds[tagCount++] = end;
+			}
+			at = next;
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the whole name held by this PhotoName.
+	 *
+	 * @return the photo file name.
+	 */
+	public String getName(){
+		return name;
+	}
+
+	/**
+	 * Returns the base name, without the tags and the extension.
+	 *
+	 * @return the base name.
+	 */
+	public String getBase(){
+		return name.substring(0, baseEnd);
+	}
+
+	/**
+	 * Returns the extension, including its dot, or "" if the name has none.
+	 *
+	 * @return the extension.
+	 */
+	public String getExtension(){
+		return name.substring(extensionStart);
+	}
+
+	/**
+	 * Returns the name without its tags, as the photo was originally named.
+	 *
+	 * @return the base name followed by the extension.
+	 */
+	public String getUntaggedName(){
+		if (baseEnd == extensionStart){
+			return name;
+		}
+		return name.substring(0, baseEnd) + name.substring(extensionStart);
+	}
+
+	/**
+	 * Returns the number of tags in the name.
+	 *
+	 * @return the number of tags.
+	 */
+	public int getTagCount(){
+		return tagCount;
+	}
+
+	/**
+	 * Returns a tag of the name, in the order the tags appear.
+	 *
+	 * @param index
+	 * 		the position of the tag, from 0.
+	 *
+	 * @return the tag, without its '@'.
+	 */
+	public String getTag(int index){
+		if (index < 0 || index >= tagCount){
+			throw new IndexOutOfBoundsException("Tag " + index + " of " + tagCount);
+		}
+		return name.substring(tagStarts[index] + 1, tagEnds[index]);
+	}
+
+	/**
+	 * Returns the tags of the name, in the order they appear.
+	 *
+	 * @return a new list of the tags, without their '@'s.
+	 */
+	public ArrayList<String> getTags(){
+		ArrayList<String> tags = new ArrayList<String>(tagCount);
+		for (int i = 0; i < tagCount; i++){
+			tags.add(getTag(i));
+		}
+		return tags;
+	}
+
+	/**
+	 * Returns whether the name has a given tag. No strings are created.
+	 *
+	 * @param tag
+	 * 		the tag, without its '@'.
+	 *
+	 * @return true if the name has tag, false otherwise.
+	 */
+	public boolean hasTag(String tag){
+		return indexOfTag(tag) >= 0;
+	}
+
+	/**
+	 * Returns whether the name has one or more of a group of tags.
+	 *
+	 * @param tags
+	 * 		the tags, without their '@'s.
+	 *
+	 * @return true if the name has a tag of tags, false otherwise.
+	 */
+	public boolean hasAnyTag(Collection<String> tags){
+		if (tagCount == 0){
+			return false;
+		}
+		for (String tag: tags){
+			if (indexOfTag(tag) >= 0){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the name with tags added after its current tags and before its extension.
+	 *
+	 * @param tags
+	 * 		the tags to be added, without their '@'s.
+	 *
+	 * @return the new name.
+	 */
+	public String withTagsAdded(Collection<String> tags){
+		return addTags(name, tags);
+	}
+
+	/**
+	 * Returns the name without some of its tags. Only whole tags are removed,
+	 * so removing "sun" from "photo@sunset.jpg" leaves the name unchanged.
+	 *
+	 * @param tags
+	 * 		the tags to be removed, without their '@'s.
+	 *
+	 * @return the new name, or the same name if it has none of the tags.
+	 */
+	public String withTagsRemoved(Collection<String> tags){
+		if (!hasAnyTag(tags)){
+			return name;
+		}
+		StringBuilder newName = new StringBuilder(name.length());
+		newName.append(name, 0, baseEnd);
+		for (int i = 0; i < tagCount; i++){
+			if (!containsTag(tags, tagStarts[i] + 1, tagEnds[i])){
+				newName.append(name, tagStarts[i], tagEnds[i]);
+			}
+		}
+		newName.append(name, extensionStart, name.length());
+		return newName.toString();
+	}
+
+	/**
+	 * Returns the name with one tag replaced by another, in the same place. If
+	 * the name already has the new tag, the old tag is only removed, so that
+	 * the tags of the name are merged.
+	 *
+	 * @param oldTag
+	 * 		the tag to be replaced, without its '@'.
+	 * @param newTag
+	 * 		the tag that replaces it, without its '@'.
+	 *
+	 * @return the new name, or the same name if it does not have oldTag.
+	 */
+	public String withTagReplaced(String oldTag, String newTag){
+		if (indexOfTag(oldTag) < 0){
+			return name;
+		}
+		boolean hasNewTag = indexOfTag(newTag) >= 0;
+		StringBuilder newName = new StringBuilder(name.length() + newTag.length());
+		newName.append(name, 0, baseEnd);
+		for (int i = 0; i < tagCount; i++){
+			int start = tagStarts[i] + 1;
+			boolean isOldTag = tagEnds[i] - start == oldTag.length()
+					&& name.regionMatches(start, oldTag, 0, oldTag.length());
+			if (!isOldTag){
+				newName.append(name, tagStarts[i], tagEnds[i]);
+			}
+			else if (!hasNewTag){
+				newName.append('@').append(newTag);
+				hasNewTag = true;
+			}
+		}
+		newName.append(name, extensionStart, name.length());
+		return newName.toString();
+	}
+
+	/**
+	 * Returns the name held by this PhotoName.
+	 *
+	 * @return the photo file name.
+	 */
+	@Override
+	public String toString(){
+		return name;
+	}
+
+	/**
+	 * Returns where the extension of a name starts: at its last dot, unless
+	 * that dot is the first character.
+	 *
+	 * @param name
+	 * 		the name of the photo file.
+	 *
+	 * @return the index of the extension, or the length of the name if it has none.
+	 */
+	private static int extensionStart(String name){
+		int lastDot = name.lastIndexOf('.');
+		return lastDot > 0 ? lastDot : name.length();
+	}
+
+	/**
+	 * Returns where the base name of a name ends: at the first '@' before the
+	 * extension, unless that '@' is the first character.
+	 *
+	 * @param name
+	 * 		the name of the photo file.
+	 * @param extensionStart
+	 * 		the index of the extension of the name.
+	 *
+	 * @return the index where the tags start, or extensionStart if the name has none.
+	 */
+	private static int baseEnd(String name, int extensionStart){
+		int at = name.indexOf('@');
+		return at > 0 && at < extensionStart ? at : extensionStart;
+	}
+
+	/**
+	 * Returns the position of a tag in the name.
+	 *
+	 * @param tag
+	 * 		the tag, without its '@'.
+	 *
+	 * @return the position of the tag, or -1 if the name does not have it.
+	 */
+	private int indexOfTag(String tag){
+		for (int i = 0; i < tagCount; i++){
+			int start = tagStarts[i] + 1;
+			if (tagEnds[i] - start == tag.length() && name.regionMatches(start, tag, 0, tag.length())){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns whether a part of the name is one of a group of tags.
+	 *
+	 * @param tags
+	 * 		the tags.
+	 * @param start
+	 * 		the index where the part starts.
+	 * @param end
+	 * 		the index where the part ends.
+	 *
+	 * @return true if the part is a tag of tags, false otherwise.
+	 */
+	private boolean containsTag(Collection<String> tags, int start, int end){
+		for (String tag: tags){
+			if (end - start == tag.length() && name.regionMatches(start, tag, 0, tag.length())){
+				return true;
+			}
+		}
+		return false;
+	}
+}
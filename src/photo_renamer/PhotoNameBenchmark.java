@@ -0,0 +1,297 @@
+package photo_renamer;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * A benchmark of photo name parsing. It runs the name operations of the
+ * program over a million generated names twice: with PhotoName, reusing one
+ * PhotoName where the tags are parsed and with PhotoName.untaggedName and
+ * PhotoName.addTags where they are not, and with the substring and split
+ * code that PhotoName replaced, which is
+ * kept here only to be compared against. Both are checked to agree on the
+ * generated names before they are timed.
+ *
+ * Run with: java photo_renamer.PhotoNameBenchmark [names]
+ *
+ * @author group_0653
+ */
+public class PhotoNameBenchmark {
+
+	/** The number of times each measurement is run before it is timed. */
+	private static final int WARMUP_RUNS = 5;
+
+	/** The number of timed runs of each measurement. */
+	private static final int TIMED_RUNS = 10;
+
+	/** The tags the generated names are made of. */
+	private static final String[] TAGS = {"beach", "sun", "family", "2016", "paris", "dog", "snow", "work"};
+
+	/** Keeps the results of the timed code alive so it is not optimized away. */
+	private static int sink;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args
+	 * 		the number of names, by default one million.
+	 */
+	public static void main(String[] args){
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		Random random = new Random(653);
+		String[] names = new String[count];
+		for (int i = 0; i < count; i++){
+			StringBuilder name = new StringBuilder("IMG_").append(random.nextInt(100000));
+			int tags = random.nextInt(4);
+			for (int t = 0; t < tags; t++){
+				name.append('@').append(TAGS[random.nextInt(TAGS.length)]);
+			}
+			names[i] = name.append(".jpg").toString();
+		}
+		ArrayList<String> query = new ArrayList<String>();
+		query.add("sun");
+		query.add("dog");
+		check(names, query);
+
+		report("untagged name", count, timeUntagged(names, true), timeUntagged(names, false));
+		report("tags of name", count, timeTags(names, true), timeTags(names, false));
+		report("has any tag", count, timeHasAnyTag(names, query, true), timeHasAnyTag(names, query, false));
+		report("add tags", count, timeAddTags(names, query, true), timeAddTags(names, query, false));
+		System.out.println("(" + sink + ")");
+	}
+
+	/**
+	 * Prints the time taken per million names by PhotoName and by the old code.
+	 *
+	 * @param label
+	 * 		the operation that was timed.
+	 * @param count
+	 * 		the number of names in one run.
+	 * @param photoNameNanos
+	 * 		the average time of one run with PhotoName, in nanoseconds.
+	 * @param oldNanos
+	 * 		the average time of one run with the old code, in nanoseconds.
+	 */
+	private static void report(String label, int count, double photoNameNanos, double oldNanos){
+		// Nanoseconds per name are also milliseconds per million names.
+		System.out.printf("%-14s PhotoName %7.1f ms per million, old code %7.1f ms per million (%.1fx)%n",
+				label, photoNameNanos / count, oldNanos / count, oldNanos / photoNameNanos);
+	}
+
+	/**
+	 * Checks that PhotoName and the old code agree on every name.
+	 *
+	 * @param names
+	 * 		the generated names.
+	 * @param query
+	 * 		the tags looked for in each name.
+	 *
+	 * @throws IllegalStateException if they disagree on a name.
+	 */
+	private static void check(String[] names, ArrayList<String> query){
+		PhotoName parser = new PhotoName();
+		for (String name: names){
+			parser.parse(name);
+			if (!parser.getUntaggedName().equals(oldRemoveAllTags(name))
+					|| !PhotoName.untaggedName(name).equals(oldRemoveAllTags(name))
+					|| !parser.getTags().equals(oldTagsInName(name))
+					|| parser.hasAnyTag(query) != oldContainsAnyTag(name, query)
+					|| !parser.withTagsAdded(query).equals(oldAddTags(name, query))
+					|| !PhotoName.addTags(name, query).equals(oldAddTags(name, query))){
+				throw new IllegalStateException("PhotoName and the old code disagree on " + name);
+			}
+		}
+	}
+
+	/**
+	 * Times finding the untagged name of every name.
+	 *
+	 * @param names
+	 * 		the generated names.
+	 * @param usePhotoName
+	 * 		true to time PhotoName, false to time the old code.
+	 *
+	 * @return the average time of one pass over the names, in nanoseconds.
+	 */
+	private static double timeUntagged(String[] names, boolean usePhotoName){
+		long start = 0;
+		for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++){
+			if (run == WARMUP_RUNS){
+				start = System.nanoTime();
+			}
+			int length = 0;
+			for (String name: names){
+				length += usePhotoName ? PhotoName.untaggedName(name).length() : oldRemoveAllTags(name).length();
+			}
+			sink += length;
+		}
+		return (System.nanoTime() - start) / (double) TIMED_RUNS;
+	}
+
+	/**
+	 * Times listing the tags of every name.
+	 *
+	 * @param names
+	 * 		the generated names.
+	 * @param usePhotoName
+	 * 		true to time PhotoName, false to time the old code.
+	 *
+	 * @return the average time of one pass over the names, in nanoseconds.
+	 */
+	private static double timeTags(String[] names, boolean usePhotoName){
+		PhotoName parser = new PhotoName();
+		long start = 0;
+		for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++){
+			if (run == WARMUP_RUNS){
+				start = System.nanoTime();
+			}
+			int tags = 0;
+			for (String name: names){
+				tags += usePhotoName ? parser.parse(name).getTags().size() : oldTagsInName(name).size();
+			}
+			sink += tags;
+		}
+		return (System.nanoTime() - start) / (double) TIMED_RUNS;
+	}
+
+	/**
+	 * Times checking every name for a group of tags.
+	 *
+	 * @param names
+	 * 		the generated names.
+	 * @param query
+	 * 		the tags looked for.
+	 * @param usePhotoName
+	 * 		true to time PhotoName, false to time the old code.
+	 *
+	 * @return the average time of one pass over the names, in nanoseconds.
+	 */
+	private static double timeHasAnyTag(String[] names, ArrayList<String> query, boolean usePhotoName){
+		PhotoName parser = new PhotoName();
+		long start = 0;
+		for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++){
+			if (run == WARMUP_RUNS){
+				start = System.nanoTime();
+			}
+			int found = 0;
+			for (String name: names){
+				if (usePhotoName ? parser.parse(name).hasAnyTag(query) : oldContainsAnyTag(name, query)){
+					found++;
+				}
+			}
+			sink += found;
+		}
+		return (System.nanoTime() - start) / (double) TIMED_RUNS;
+	}
+
+	/**
+	 * Times adding a group of tags to every name.
+	 *
+	 * @param names
+	 * 		the generated names.
+	 * @param query
+	 * 		the tags added.
+	 * @param usePhotoName
+	 * 		true to time PhotoName, false to time the old code.
+	 *
+	 * @return the average time of one pass over the names, in nanoseconds.
+	 */
+	private static double timeAddTags(String[] names, ArrayList<String> query, boolean usePhotoName){
+		long start = 0;
+		for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++){
+			if (run == WARMUP_RUNS){
+				start = System.nanoTime();
+			}
+			int length = 0;
+			for (String name: names){
+				length += usePhotoName ? PhotoName.addTags(name, query).length() : oldAddTags(name, query).length();
+			}
+			sink += length;
+		}
+		return (System.nanoTime() - start) / (double) TIMED_RUNS;
+	}
+
+	/**
+	 * The old Photo.removeAllTags.
+	 *
+	 * @param name
+	 * 		a photo name.
+	 *
+	 * @return the name without its tags.
+	 */
+	private static String oldRemoveAllTags(String name){
+		if (name.indexOf("@") > 0){
+			int lastIndex = name.indexOf("@");
+			String newName = name.substring(0, lastIndex);
+			int extensionIndex = name.lastIndexOf('.');
+			if (extensionIndex > lastIndex){
+				newName += name.substring(extensionIndex);
+			}
+			return newName;
+		}
+		return name;
+	}
+
+	/**
+	 * The old TagManager.getTagsInNameList.
+	 *
+	 * @param name
+	 * 		a photo name.
+	 *
+	 * @return the tags of the name.
+	 */
+	private static ArrayList<String> oldTagsInName(String name){
+		ArrayList<String> tagsInNameList = new ArrayList<String>();
+		int firstTagIndex = name.indexOf('@');
+		int extensionIndex = name.indexOf('.');
+		if (firstTagIndex > 0){
+			String tagsInName = name.substring(firstTagIndex + 1, extensionIndex);
+			for (String tag: tagsInName.split("@")){
+				tagsInNameList.add(tag);
+			}
+		}
+		return tagsInNameList;
+	}
+
+	/**
+	 * The old TagManager.nameContainsTag.
+	 *
+	 * @param name
+	 * 		a photo name.
+	 * @param tags
+	 * 		the tags looked for.
+	 *
+	 * @return true if the name has one of the tags.
+	 */
+	private static boolean oldContainsAnyTag(String name, ArrayList<String> tags){
+		ArrayList<String> tagsInNameList = oldTagsInName(name);
+		ArrayList<String> sameTags = new ArrayList<String>();
+		for (String tag: tags){
+			if (tagsInNameList.contains(tag)){
+				sameTags.add(tag);
+			}
+		}
+		return !sameTags.isEmpty();
+	}
+
+	/**
+	 * The old TagManager.addTagsToName.
+	 *
+	 * @param name
+	 * 		a photo name.
+	 * @param tags
+	 * 		the tags to be added.
+	 *
+	 * @return the name with the tags added.
+	 */
+	private static String oldAddTags(String name, ArrayList<String> tags){
+		int extensionIndex = name.lastIndexOf('.') > 0 ? name.lastIndexOf('.') : name.length();
+		StringBuilder newName = new StringBuilder(name.length() + 16 * tags.size());
+		newName.append(name, 0, extensionIndex);
+		for (String tag: tags){
+			newName.append('@').append(tag);
+		}
+		newName.append(name, extensionIndex, name.length());
+		return newName.toString();
+	}
+}
@@ -0,0 +1,168 @@
+package photo_renamer;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PhotoNameTest {
+
+	private ArrayList<String> tags;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        tags = new ArrayList<String>();
+    }
+
+    /**
+     * Returns the name rebuilt from its parsed parts.
+     */
+    private String rebuild(PhotoName name) {
+        StringBuilder rebuilt = new StringBuilder(name.getBase());
+        for (String tag: name.getTags()) {
+            rebuilt.append('@').append(tag);
+        }
+        return rebuilt.append(name.getExtension()).toString();
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoName#parse(java.lang.String)}.
+     * Test case for a name with a dotted base name and two tags.
+     */
+    @Test
+    public void testParseParts() {
+        PhotoName name = PhotoName.of("my.photo@beach@sun.jpg");
+        assertEquals("my.photo", name.getBase());
+        assertEquals(Arrays.asList("beach", "sun"), name.getTags());
+        assertEquals(".jpg", name.getExtension());
+        assertEquals("my.photo.jpg", name.getUntaggedName());
+        assertEquals("my.photo@beach@sun.jpg", name.getName());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoName#parse(java.lang.String)}.
+     * Test case for names whose parts rebuild the name exactly.
+     */
+    @Test
+    public void testParseRoundTrip() {
+        for (String text: new String[] {"a.jpg", "a@x.jpg", "a@x@y@z@w@v.jpeg", "a.b.c@x.png",
+                "noextension@x", ".hidden@x.jpg", "a@x.y@z.jpg"}) {
+            PhotoName name = PhotoName.of(text);
+            assertEquals(text, rebuild(name));
+            assertEquals(name.getTags(), PhotoName.of(name.getName()).getTags());
+        }
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoName#parse(java.lang.String)}.
+     * Test case for names with no tags: a leading '@', an '@' after the
+     * last dot, and empty tags only.
+     */
+    @Test
+    public void testParseNoTags() {
+        assertEquals(0, PhotoName.of("@photo.jpg").getTagCount());
+        assertEquals("@photo.jpg", PhotoName.of("@photo.jpg").getUntaggedName());
+        assertEquals(0, PhotoName.of("photo.j@pg").getTagCount());
+        PhotoName empty = PhotoName.of("photo@@.jpg");
+        assertEquals(0, empty.getTagCount());
+        assertEquals("photo.jpg", empty.getUntaggedName());
+        assertEquals(Arrays.asList("a"), PhotoName.of("photo@@a.jpg").getTags());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoName#parse(java.lang.String)}.
+     * Test case for one PhotoName reused for names with more, then fewer tags.
+     */
+    @Test
+    public void testParseReused() {
+        PhotoName name = new PhotoName();
+        name.parse("a@1@2@3@4@5@6@7@8@9.jpg");
+        assertEquals(9, name.getTagCount());
+        assertEquals("9", name.getTag(8));
+        name.parse("b@x.png");
+        assertEquals(Arrays.asList("x"), name.getTags());
+        assertEquals("b.png", name.getUntaggedName());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoName#getTag(int)}.
+     * Test case for a position past the last tag.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetTagOutOfRange() {
+        PhotoName.of("a@x.jpg").getTag(1);
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoName#hasTag(java.lang.String)}.
+     * Test case for a tag that is only a prefix of a tag of the name.
+     */
+    @Test
+    public void testHasTagWholeTagsOnly() {
+        PhotoName name = PhotoName.of("photo@sunset.jpg");
+        assertTrue(name.hasTag("sunset"));
+        assertFalse(name.hasTag("sun"));
+        assertFalse(name.hasTag("photo"));
+        tags.add("sun");
+        assertFalse(name.hasAnyTag(tags));
+        tags.add("sunset");
+        assertTrue(name.hasAnyTag(tags));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoName#withTagsAdded(java.util.Collection)}.
+     * Test case for tags added and removed again, giving back the name.
+     */
+    @Test
+    public void testAddRemoveRoundTrip() {
+        tags.add("beach");
+        tags.add("sun");
+        String tagged = PhotoName.of("my.photo@old.jpg").withTagsAdded(tags);
+        assertEquals("my.photo@old@beach@sun.jpg", tagged);
+        assertEquals("my.photo@old.jpg", PhotoName.of(tagged).withTagsRemoved(tags));
+        assertEquals("noextension@x", PhotoName.of("noextension").withTagsAdded(Arrays.asList("x")));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoName#untaggedName(java.lang.String)}.
+     * Test case for names whose untagged name and added tags are found
+     * without parsing their tags, as a parsed PhotoName finds them.
+     */
+    @Test
+    public void testUntaggedNameAndAddTags() {
+        tags.add("beach");
+        for (String text: new String[] {"a.jpg", "a@x@y.jpg", "a.b.c@x.png", "noextension@x", "@photo.jpg",
+                "photo.j@pg", "photo@@.jpg", ".hidden@x.jpg", "a@x.y@z.jpg"}) {
+            assertEquals(PhotoName.of(text).getUntaggedName(), PhotoName.untaggedName(text));
+            assertEquals(PhotoName.of(text).withTagsAdded(tags), PhotoName.addTags(text, tags));
+        }
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoName#withTagsRemoved(java.util.Collection)}.
+     * Test case for a tag that is a prefix of a tag of the name.
+     */
+    @Test
+    public void testRemoveWholeTagsOnly() {
+        tags.add("sun");
+        assertEquals("photo@sunset.jpg", PhotoName.of("photo@sunset.jpg").withTagsRemoved(tags));
+        assertEquals("photo@sunset.jpg", PhotoName.of("photo@sun@sunset.jpg").withTagsRemoved(tags));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoName#withTagReplaced(java.lang.String, java.lang.String)}.
+     * Test case for a tag renamed in place, and merged into a tag the name has.
+     */
+    @Test
+    public void testWithTagReplaced() {
+        assertEquals("p@x@b@y.jpg", PhotoName.of("p@x@a@y.jpg").withTagReplaced("a", "b"));
+        assertEquals("p@b@y.jpg", PhotoName.of("p@a@b@y.jpg").withTagReplaced("a", "b"));
+        assertEquals("p@y.jpg", PhotoName.of("p@y.jpg").withTagReplaced("a", "b"));
+    }
+}
@@ -2,21 +2,26 @@ package photo_renamer;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 
 /** 
  * A representation of the names, from original to current, of all photos found by the program.
+ * All methods are thread-safe, since photos may be found by a DirectoryWatcher in the background.
+ * 
+ * As a listener of a PhotoDirectory, the original name of each photo is added 
+ * as the photo is added to the directory, one photo at a time as a scan finds it. 
  * 
  * @author group_0653
  */
-public class PhotoNames {
+public class PhotoNames implements PhotoDirectory.EntryListener {
 	
 	/** The HashMap that associates each photo with all of its names so far. */
 	private HashMap<String, ArrayList<String>> photoNamesHistory;
@@ -35,11 +40,31 @@ public class PhotoNames {
 	 * @param photo
 	 * 		the Photo with a new name to be added to its history.
 	 */
-	public void addNewPhotoName(Photo photo){
+	public synchronized void addNewPhotoName(Photo photo){
 		ArrayList<String> photoUpdate = photoNamesHistory.get(photo.getOrigName());
 		photoUpdate.add(photo.getCurName());
 	}
 	
+	/**
+	 * Adds a past name to the list of names of the photo with a given original 
+	 * name, creating the list if the photo has not been found by the program yet. 
+	 * Used to restore names recorded in the RenameJournal. 
+	 * 
+	 * @param origName
+	 * 		the original (untagged) name of the photo.
+	 * 
+	 * @param name
+	 * 		the past name to be added to the photo's history.
+	 */
+	public synchronized void addPastName(String origName, String name){
+		ArrayList<String> photoUpdate = photoNamesHistory.get(origName);
+		if (photoUpdate == null){
+			photoUpdate = new ArrayList<String>();
+			photoNamesHistory.put(origName, photoUpdate);
+		}
+		photoUpdate.add(name);
+	}
+	
 	/** 
 	 * Returns an ArrayList of Strings representing all the names 
 	 * of a given photo, from the original to the current.
@@ -49,7 +74,7 @@ public class PhotoNames {
 	 * 
 	 * @return an ArrayList of strings, representing all past names of photo. 
 	 */
-	public ArrayList<String> listNames(Photo photo){
+	public synchronized ArrayList<String> listNames(Photo photo){
 		String originalPhotoName = photo.getOrigName();
 		return photoNamesHistory.get(originalPhotoName);
 	}
@@ -62,20 +87,55 @@ public class PhotoNames {
 	 * NOTE:This method must be run by the program before any photo file renaming is done.
 	 * Precondition: directoryFile is a directory.
 	 * 
-	 * @param photoFiles
-	 * 		a list of photo files whose names are going to be added to photoNamesHistory. 
+	 * @param photoEntries
+	 * 		a list of photo entries whose names are going to be added to photoNamesHistory. 
+	 */
+	public void populatePhotoNames(ArrayList<PhotoEntry> photoEntries){
+		populatePhotoNames(photoEntries.iterator());
+		}
+	
+	/**
+	 * Populates the photoNamesHistory of this PhotoNames with the original 
+	 * names of the photos returned by an iterator, consuming the photos one 
+	 * at a time so they never need to be held in a single list.  
+	 *  
+	 * @param photoEntries
+	 * 		an iterator over the photo entries whose names are going to be added to photoNamesHistory. 
 	 */
-	public void populatePhotoNames(ArrayList<File> photoFiles){
+	public synchronized void populatePhotoNames(Iterator<PhotoEntry> photoEntries){
 		
-		for(File element: photoFiles){
-			 String fileName = Photo.removeAllTags(element);
-			 if(!photoNamesHistory.containsKey(fileName)){
-				 ArrayList<String> originalPhotoName = new ArrayList<String>();
-				 photoNamesHistory.put(fileName, originalPhotoName);
-			 }
+		while(photoEntries.hasNext()){
+			 addOriginalName(PhotoName.untaggedName(photoEntries.next().getName()));
 		 	}
 		}
 	
+	/**
+	 * Adds the original name of a photo added to a PhotoDirectory, or renamed 
+	 * in it, unless the photo is already known. 
+	 * 
+	 * @see PhotoDirectory.EntryListener#entryChanged(Path, PhotoEntry)
+	 */
+	@Override
+	public synchronized void entryChanged(Path oldPath, PhotoEntry newEntry){
+		if (newEntry != null){
+			addOriginalName(PhotoName.untaggedName(newEntry.getName()));
+		}
+	}
+	
+	/**
+	 * Adds an empty list of past names for a photo with a given original name, 
+	 * unless the photo is already known. 
+	 * 
+	 * @param fileName
+	 * 		the original (untagged) name of the photo.
+	 */
+	private void addOriginalName(String fileName){
+		if(!photoNamesHistory.containsKey(fileName)){
+			ArrayList<String> originalPhotoName = new ArrayList<String>();
+			photoNamesHistory.put(fileName, originalPhotoName);
+		}
+	}
+	
 	/**
 	 * Sets the photoNamesHistory of this PhotoNames to a given HashMap of 
 	 * String keys and ArrayList of String values.
@@ -87,7 +147,7 @@ public class PhotoNames {
 	 * 		the HashMap of String and ArrayList of Strings to set the HashMap 
 	 * 		photoNameHistory of photoNames to. 
 	 */
-	private void setPhotoNamesHistory(HashMap<String, ArrayList<String>> photoHistory){
+	private synchronized void setPhotoNamesHistory(HashMap<String, ArrayList<String>> photoHistory){
 		this.photoNamesHistory = photoHistory;
 	}
 
@@ -101,7 +161,7 @@ public class PhotoNames {
 	 * @throws IOException if the file to be serialized to is disturbed during 
 	 * 		the serializing process. 
 	 */
-	public void serializePhotoNames(String fileName) throws IOException{
+	public synchronized void serializePhotoNames(String fileName) throws IOException{
 		FileOutputStream file = new FileOutputStream(fileName);
 		BufferedOutputStream buffer = new BufferedOutputStream(file);
 		ObjectOutputStream output = new ObjectOutputStream(buffer);
@@ -122,7 +182,7 @@ public class PhotoNames {
 	 * @throws ClassNotFoundException if the PhotoNames class is not on the classpath. 
 	 */
 	@SuppressWarnings("unchecked")
-	public void loadPhotoNames(String fileName) throws IOException, ClassNotFoundException{
+	public synchronized void loadPhotoNames(String fileName) throws IOException, ClassNotFoundException{
 		FileInputStream file = new FileInputStream(fileName);
 		BufferedInputStream buffer = new BufferedInputStream(file);
 		ObjectInputStream input = new ObjectInputStream(buffer);
@@ -0,0 +1,131 @@
+package photo_renamer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Gives every indexed photo a small integer ID, by the path of its file. A
+ * photo keeps its ID when it is renamed, and the ID of a removed photo is
+ * given to the next photo added, so IDs stay dense.
+ *
+ * @author group_0653
+ */
+public class PhotoRegistry {
+
+	/** The ID of each photo, by the path of its file. */
+	private final HashMap<String, Integer> ids;
+
+	/** The path of the photo with each ID, or null if the ID is free. */
+	private final ArrayList<String> paths;
+
+	/** The IDs of removed photos, to be given out again. */
+	private int[] freeIds;
+
+	/** The number of IDs in freeIds. */
+	private int freeCount;
+
+	/**
+	 * A new, empty PhotoRegistry.
+	 */
+	public PhotoRegistry(){
+		this.ids = new HashMap<String, Integer>();
+		this.paths = new ArrayList<String>();
+		this.freeIds = new int[8];
+	}
+
+	/**
+	 * Returns the ID of the photo at a path.
+	 *
+	 * @param path
+	 * 		the path of the photo file.
+	 *
+	 * @return the ID of the photo, or -1 if no photo at path is registered.
+	 */
+	public int lookup(String path){
+		Integer id = ids.get(path);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Registers the photo at a path and returns its new ID. The path must not
+	 * be registered already.
+	 *
+	 * @param path
+	 * 		the path of the photo file.
+	 *
+	 * @return the ID given to the photo.
+	 */
+	public int register(String path){
+		int id;
+		if (freeCount > 0){
+			id = freeIds[--freeCount];
+			paths.set(id, path);
+		}
+		else{
+			id = paths.size();
+			paths.add(path);
+		}
+		ids.put(path, id);
+		return id;
+	}
+
+	/**
+	 * Moves the ID of a photo to the new path of its renamed file.
+	 *
+	 * @param id
+	 * 		the ID of the photo.
+	 * @param newPath
+	 * 		the path of the photo file after it was renamed.
+	 */
+	public void rename(int id, String newPath){
+		ids.remove(paths.get(id));
+		paths.set(id, newPath);
+		ids.put(newPath, id);
+	}
+
+	/**
+	 * Unregisters a photo, so that its ID can be given to another photo.
+	 *
+	 * @param id
+	 * 		the ID of the photo.
+	 */
+	public void unregister(int id){
+		ids.remove(paths.get(id));
+		paths.set(id, null);
+		if (freeCount == freeIds.length){
+			freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+		}
+		freeIds[freeCount++] = id;
+	}
+
+	/**
+	 * Returns the path of the photo with an ID.
+	 *
+	 * @param id
+	 * 		the ID of the photo.
+	 *
+	 * @return the path of the photo file, or null if the ID is free.
+	 */
+	public String getPath(int id){
+		return id < paths.size() ? paths.get(id) : null;
+	}
+
+	/**
+	 * Returns the number of IDs given out so far. Every ID is below this number.
+	 *
+	 * @return the number of IDs.
+	 */
+	public int capacity(){
+		return paths.size();
+	}
+
+	/**
+	 * Returns the number of registered photos.
+	 *
+	 * @return the number of photos.
+	 */
+	public int size(){
+		return ids.size();
+	}
+}
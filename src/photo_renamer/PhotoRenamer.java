@@ -7,6 +7,7 @@ import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.io.File;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.AbstractButton;
 
@@ -15,6 +16,7 @@ import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.SwingWorker;
 
 
 /**
@@ -119,6 +121,29 @@ public class PhotoRenamer{
 					File selectedFile = fileChooser.getSelectedFile();
 					if(selectedFile.exists()){
 						newProgram.selectDirectory(selectedFile);
+						// The directory is scanned in the background; its photos are shown a page at a time as they are found.
+						SwingWorker<Void, Void> scan = new SwingWorker<Void, Void>(){
+							@Override
+							protected Void doInBackground() {
+								newProgram.scanSelectedDirectory();
+								return null;
+							}
+							
+							@Override
+							protected void done() {
+								try{
+									get();
+								}
+								catch(ExecutionException e){
+									e.printStackTrace();
+									PhotoDisplay.createErrorMessage("Could Not Scan The Whole Directory!").setVisible(true);
+								}
+								catch(InterruptedException e){
+									Thread.currentThread().interrupt();
+								}
+							}
+						};
+						scan.execute();
 						PhotoDisplay.buildDisplay(newProgram).setVisible(true);
 					}
 				}
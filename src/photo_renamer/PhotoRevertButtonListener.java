@@ -7,6 +7,7 @@ import java.awt.Dialog;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
 
 import javax.swing.BoxLayout;
 import javax.swing.ButtonGroup;
@@ -136,8 +137,12 @@ public class PhotoRevertButtonListener implements ActionListener{
 			}
 		});
 		
+		ArrayList<String> pastPhotoNames = program.showPhotoHistory();
+		// The renames of the photo are found by the index of the Log, not by reading every event.
+		ArrayList<Event> photoEvents = program.showPhotoEvents();
+		
 		ButtonGroup buttonGroup = new ButtonGroup();
-		for(String pastPhotoName: program.showPhotoHistory()){
+		for(String pastPhotoName: pastPhotoNames){
 			JRadioButton pastPhotoButton = new JRadioButton(pastPhotoName);
 			pastPhotoButton.addActionListener(new ActionListener(){
 				public void actionPerformed(ActionEvent e) {
@@ -154,9 +159,14 @@ public class PhotoRevertButtonListener implements ActionListener{
 		JTextArea listPreviousNames = new JTextArea();
 		listPreviousNames.setText("All Previous Names of this Photo: \n");
 		listPreviousNames.setEditable(false);
-		for(String photoName: program.showPhotoHistory()){
+		for(String photoName: pastPhotoNames){
 			listPreviousNames.append(photoName + "\n");
 		}
+		listPreviousNames.append("\nRenames of this Photo: \n");
+		for(Event photoEvent: photoEvents){
+			listPreviousNames.append(photoEvent.getTimestamp() + "\n    " + photoEvent.getOldName() 
+					+ " -> " + photoEvent.getNewName() + "\n");
+		}
 		JScrollPane nameScroll = new JScrollPane(listPreviousNames);
 		nameScroll.setPreferredSize(new Dimension(250, 250));
 		
@@ -2,7 +2,27 @@ package photo_renamer;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 /**
  * The PhotoRenamer Program that implements all of the user features.   
@@ -23,12 +43,36 @@ public class Program {
 	/** The selected Photo for the program to rename or access information through. */
 	private Photo selectedPhoto;
 	
-	/** All the photo files in the current directory. */
-	private ArrayList<File> directoryFiles;
+	/** The photos marked by the user to be renamed together, by path, in the order they were marked. */
+	private LinkedHashMap<Path, PhotoEntry> markedPhotos;
+	
+	/** The photo files in the current directory, kept up to date as photos are renamed. */
+	private PhotoDirectory photoDirectory;
+	
+	/** Applies changes made on disk under the current directory to photoDirectory. */
+	private DirectoryWatcher directoryWatcher;
 	
 	/** The current directory selected by the program. */
 	private File curDirectory; 
 	
+	/** Responsible for finding all the photo files under a directory in parallel. */
+	private DirectoryScanner scanner;
+	
+	/** Responsible for recording the contents of scanned directories between runs of the program. */
+	private ScanIndex scanIndex;
+	
+	/** Responsible for running blocking file system calls with a per-mount concurrency cap. */
+	private IoExecutor ioExecutor;
+	
+	/** Responsible for deciding which directories are skipped when scanning. */
+	private ScanFilter scanFilter;
+	
+	/** Responsible for recording every rename until the state files of the program are written. */
+	private RenameJournal renameJournal;
+	
+	/** Responsible for finding the photos that carry each tag without parsing every photo name. */
+	private TagIndex tagIndex;
+	
 	
 	/**
 	 * An instance of the PhotoRenamer program.
@@ -37,7 +81,16 @@ public class Program {
 		this.newPhotoNames = new PhotoNames();
 		this.newLog = new Log();
 		this.newTagManager = new TagManager();
-		this.directoryFiles = new ArrayList<File>();
+		this.markedPhotos = new LinkedHashMap<Path, PhotoEntry>();
+		this.scanIndex = new ScanIndex();
+		this.ioExecutor = new IoExecutor();
+		this.scanFilter = new ScanFilter();
+		this.renameJournal = new RenameJournal();
+		this.tagIndex = new TagIndex(TagManager.getTagDictionary());
+		this.scanner = new DirectoryScanner();
+		this.scanner.setScanIndex(scanIndex);
+		this.scanner.setIoExecutor(ioExecutor);
+		this.scanner.setScanFilter(scanFilter);
 	}
 	
 	/**
@@ -45,18 +98,40 @@ public class Program {
 	 * Checks if a previous instance of the program has run before and serializes 
 	 * instances of the PhotoNames class, Log class, and TagManager class. 
 	 * Loads these instances into the newly instantiated classes of this instance 
-	 * of the Photo Renamer program. 
+	 * of the Photo Renamer program. The Log is opened on its segment file, 
+	 * EventLog, without reading its events, along with the PhotoEventIndex of 
+	 * the events of each photo; a Log serialized by an older version of the 
+	 * program is first moved into the segment file. 
+	 * Also loads the ScanIndex of previously 
+	 * scanned directories, the ScanFilter of directories to skip and the 
+	 * TagIndex of the photos carrying each tag. 
+	 * 
+	 * Renames recorded in the RenameJournal since the state files were last 
+	 * written, for example because the program stopped without being closed, 
+	 * are then applied to the PhotoNames and Log, and the journal is opened 
+	 * to record the renames of this session. Once the recovered names are 
+	 * written, the journal is emptied, so a second crash does not replay them. 
 	 * 
 	 * @see PhotoNames
 	 * @see Log
 	 * @see TagManager
+	 * @see ScanIndex
+	 * @see ScanFilter
+	 * @see RenameJournal
+	 * @see TagIndex
 	 */
 	public void open(){
 		
 		String curDir = System.getProperty("user.dir");
 		File savedPhotoNames = new File(curDir, "PhotoNames");
 		File savedLog = new File(curDir, "Log");
+		File savedEventLog = new File(curDir, "EventLog");
+		File savedPhotoEventIndex = new File(curDir, "PhotoEventIndex");
 		File savedTagManager = new File(curDir, "TagManager");
+		File savedScanIndex = new File(curDir, "ScanIndex");
+		File savedScanSettings = new File(curDir, "ScanSettings");
+		File savedRenameJournal = new File(curDir, "RenameJournal");
+		File savedTagIndex = new File(curDir, "TagIndex");
 		
 		try{
 			if (savedPhotoNames.canRead()){
@@ -71,9 +146,8 @@ public class Program {
 		}
 		
 		try{
-			if (savedLog.canRead()){
-				newLog.loadLog(savedLog.getPath());
-			}
+			Log.migrateLog(savedLog.getPath(), savedEventLog.getPath());
+			newLog.open(savedEventLog.getPath(), savedPhotoEventIndex.getPath());
 		}
 		catch (ClassNotFoundException e){
 			e.printStackTrace();
@@ -93,6 +167,52 @@ public class Program {
 		catch(IOException e){
 			e.printStackTrace();
 		}
+		
+		try{
+			if (savedScanIndex.canRead()){
+				scanIndex.loadScanIndex(savedScanIndex.getPath());
+			}
+		}
+		catch(IOException e){
+			e.printStackTrace();
+		}
+		
+		try{
+			if (savedScanSettings.canRead()){
+				scanFilter.loadScanFilter(savedScanSettings.getPath());
+			}
+		}
+		catch (ClassNotFoundException e){
+			e.printStackTrace();
+			}
+		catch(IOException e){
+			e.printStackTrace();
+		}
+		
+		try{
+			if (savedTagIndex.canRead()){
+				tagIndex.loadTagIndex(savedTagIndex.getPath());
+			}
+		}
+		catch(IOException e){
+			e.printStackTrace();
+		}
+		
+		try{
+			int recovered = RenameJournal.replay(savedRenameJournal.getPath(), newPhotoNames, newLog);
+			renameJournal.open(savedRenameJournal.getPath());
+			Renamer.setJournal(renameJournal);
+			if (recovered > 0){
+				newPhotoNames.serializePhotoNames(savedPhotoNames.getPath());
+			}
+			if (!newLog.hasFailed()){
+				renameJournal.checkpoint();
+			}
+		}
+		catch(IOException e){
+			// Renames are still made, but cannot be recovered after a crash.
+			e.printStackTrace();
+		}
 	}
 	
 	/**
@@ -108,11 +228,85 @@ public class Program {
 	 * Returns the list of files in the currently selected directory.
 	 * 
 	 * @return the list of files in the selected directory.
+	 * 
+	 * @deprecated copies every photo in the directory; use photoIterator or 
+	 * 		streamPhotos to page through the photos instead.
 	 */
+	@Deprecated
 	public ArrayList<File> getDirectoryFiles(){
+		ArrayList<File> directoryFiles = new ArrayList<File>();
+		Iterator<PhotoEntry> entries = photoIterator();
+		while (entries.hasNext()){
+			directoryFiles.add(entries.next().getFile());
+		}
 		return directoryFiles;
 	}
 	
+	/**
+	 * Returns the entries of the photo files in the currently selected directory, 
+	 * including the file attributes read when the directory was scanned.
+	 * 
+	 * @return the list of photo entries in the selected directory.
+	 * 
+	 * @deprecated copies every photo in the directory; use photoIterator or 
+	 * 		streamPhotos to page through the photos instead.
+	 */
+	@Deprecated
+	public ArrayList<PhotoEntry> getDirectoryPhotos(){
+		ArrayList<PhotoEntry> photos = new ArrayList<PhotoEntry>();
+		Iterator<PhotoEntry> entries = photoIterator();
+		while (entries.hasNext()){
+			photos.add(entries.next());
+		}
+		return photos;
+	}
+	
+	/**
+	 * Returns an iterator over the entries of the photo files in the currently 
+	 * selected directory. Entries are copied a page at a time, so the photos can 
+	 * be paged through without copying the whole directory. 
+	 * 
+	 * @return an iterator over the photo entries in the selected directory.
+	 */
+	public Iterator<PhotoEntry> photoIterator(){
+		if (photoDirectory == null){
+			return new ArrayList<PhotoEntry>().iterator();
+		}
+		return photoDirectory.iterator();
+	}
+	
+	/**
+	 * Returns a stream of the entries of the photo files in the currently 
+	 * selected directory, with the number of photos as its size estimate. 
+	 * 
+	 * @return a stream of the photo entries in the selected directory.
+	 */
+	public Stream<PhotoEntry> streamPhotos(){
+		if (photoDirectory == null){
+			return Stream.empty();
+		}
+		return photoDirectory.stream();
+	}
+	
+	/**
+	 * Returns the number of photo files in the currently selected directory.
+	 * 
+	 * @return the number of photos in the selected directory.
+	 */
+	public int getPhotoCount(){
+		return photoDirectory == null ? 0 : photoDirectory.size();
+	}
+	
+	/**
+	 * Returns the photo files in the currently selected directory. The returned 
+	 * PhotoDirectory is kept up to date as photos are renamed or changed on disk. 
+	 * 
+	 * @return the PhotoDirectory of the selected directory, or null if no directory is selected.
+	 */
+	public PhotoDirectory getPhotoDirectory(){
+		return photoDirectory;
+	}
+	
 	/**
 	 * Returns the photo file currently selected by the user.
 	 * 
@@ -135,6 +329,65 @@ public class Program {
 		selectedPhoto = photo;
 	}
 	
+	/**
+	 * Selects and sets a scanned photo entry as the photo for the program to 
+	 * rename or access information through. 
+	 * 
+	 * @param photoEntry
+	 * 		the entry of a valid photo file found by the program.
+	 */
+	public void setSelectedPhoto(PhotoEntry photoEntry){
+		selectedPhoto = new Photo(photoEntry);
+	}
+	
+	/**
+	 * Marks or unmarks a photo to be renamed together with the other marked photos.
+	 * 
+	 * @param photoEntry
+	 * 		the entry of a photo found by the program.
+	 * 
+	 * @return true if the photo is now marked, false if it is now unmarked.
+	 */
+	public synchronized boolean toggleMarkedPhoto(PhotoEntry photoEntry){
+		if (markedPhotos.remove(photoEntry.getPath()) != null){
+			return false;
+		}
+		markedPhotos.put(photoEntry.getPath(), photoEntry);
+		return true;
+	}
+	
+	/**
+	 * Returns whether a photo is marked to be renamed together with the other marked photos.
+	 * 
+	 * @param photoEntry
+	 * 		the entry of a photo found by the program.
+	 * 
+	 * @return true if the photo is marked, false otherwise.
+	 */
+	public synchronized boolean isMarkedPhoto(PhotoEntry photoEntry){
+		return markedPhotos.containsKey(photoEntry.getPath());
+	}
+	
+	/**
+	 * Returns the photos marked by the user, in the order they were marked. 
+	 * 
+	 * @return a list of the marked photos.
+	 */
+	public synchronized ArrayList<Photo> getMarkedPhotos(){
+		ArrayList<Photo> photos = new ArrayList<Photo>(markedPhotos.size());
+		for (PhotoEntry entry: markedPhotos.values()){
+			photos.add(new Photo(entry));
+		}
+		return photos;
+	}
+	
+	/**
+	 * Unmarks all the photos marked by the user.
+	 */
+	public synchronized void clearMarkedPhotos(){
+		markedPhotos.clear();
+	}
+	
 	/**
 	 * Returns the instance of Log for this instance of Program.
 	 * 
@@ -144,6 +397,47 @@ public class Program {
 		return newLog;
 	}
 	
+	/**
+	 * Returns the events recorded in the Log in a span of time, such as 
+	 * what changed between two dates. Only the events of the span are read 
+	 * from the Log. 
+	 * 
+	 * @param from
+	 * 		the start of the span, inclusive, in milliseconds since the epoch.
+	 * 
+	 * @param to
+	 * 		the end of the span, exclusive, in milliseconds since the epoch.
+	 * 
+	 * @return the events of the span, in the order they were recorded.
+	 */
+	public ArrayList<Event> eventsBetween(long from, long to){
+		return newLog.getEventsBetween(from, to);
+	}
+	
+	/**
+	 * Returns the renames of photos recorded in the Log in a recent span of 
+	 * time, such as the last hour. The renames of a batch are returned one by 
+	 * one if the batch finished in the span. 
+	 * 
+	 * @param milliseconds
+	 * 		the length of the span, which ends now.
+	 * 
+	 * @return the Event of each rename, in the order they were recorded.
+	 */
+	public ArrayList<Event> recentRenames(long milliseconds){
+		long now = Event.currentTime();
+		ArrayList<Event> renames = new ArrayList<Event>();
+		for (Event event: newLog.getEventsBetween(now - milliseconds, now + 1)){
+			if (event instanceof EventGroup){
+				renames.addAll(((EventGroup) event).getEvents());
+			}
+			else{
+				renames.add(event);
+			}
+		}
+		return renames;
+	}
+	
 	/**
 	 * Returns the instance of TagManager for this instance of Program.
 	 * 
@@ -154,41 +448,110 @@ public class Program {
 	}
 	
 	/**
-	 * Finds all valid photo files under a specified directory and adds them 
-	 * to ArrayList photos. The directory can potentially have nested subdirectories. 
+	 * Sets the number of threads used to find the photo files under a directory. 
+	 * The DirectoryWatcher of the current directory scans with the new threads too. 
+	 * 
+	 * @param parallelism
+	 * 		the number of threads used to scan directories.
+	 * 
+	 * @throws IllegalArgumentException if parallelism is not positive.
+	 */
+	public void setScanParallelism(int parallelism){
+		DirectoryScanner oldScanner = scanner;
+		scanner = new DirectoryScanner(parallelism);
+		scanner.setScanIndex(scanIndex);
+		scanner.setIoExecutor(ioExecutor);
+		scanner.setScanFilter(scanFilter);
+		scanner.setContentSniffing(oldScanner.isContentSniffing());
+		synchronized (this){
+			if (directoryWatcher != null){
+				directoryWatcher.setScanner(scanner);
+			}
+		}
+		oldScanner.shutdown();
+	}
+	
+	/**
+	 * Returns the ScanFilter deciding which directories are skipped when the 
+	 * photos under a directory are found. Changes to it apply from the next 
+	 * time a directory is selected, and are saved when the program is closed. 
+	 * 
+	 * @return the ScanFilter of this instance of Program.
+	 */
+	public ScanFilter getScanFilter(){
+		return scanFilter;
+	}
+	
+	/**
+	 * Returns the IoExecutor that runs the blocking file system calls of the program, 
+	 * such as directory listings and bulk renames. 
+	 * 
+	 * @return the IoExecutor of this instance of Program.
+	 */
+	public IoExecutor getIoExecutor(){
+		return ioExecutor;
+	}
+	
+	/**
+	 * Sets the number of blocking file system calls the program may run at the 
+	 * same time on one mount. A low number protects slow network file servers; 
+	 * a high number hides the latency of each call. 
+	 * 
+	 * @param mountConcurrency
+	 * 		the number of calls allowed to run at the same time on one mount.
+	 * 
+	 * @throws IllegalArgumentException if mountConcurrency is not positive.
+	 */
+	public void setMountConcurrency(int mountConcurrency){
+		ioExecutor.setMountConcurrency(mountConcurrency);
+	}
+	
+	/**
+	 * Finds all valid photo files under a specified directory and adds their 
+	 * entries to the PhotoDirectory of the program. The directory can potentially 
+	 * have nested subdirectories. Subdirectories are scanned in parallel by the 
+	 * DirectoryScanner of the program. 
 	 * 
-	 * Precondition: directoryFile represents a directory. 
+	 * Precondition: directoryFile represents a directory under the selected directory. 
 	 * 
 	 * @param directoryFile
 	 * 		the file directory to search in.
 	 *
+	 * @see DirectoryScanner
 	 * @see CheckExtension
 	 */
 	public void populatePhotos(File directoryFile){
+		if (photoDirectory != null){
+			populatePhotos(photoDirectory, directoryFile, null);
+		}
+	}
+	
+	/**
+	 * Finds all valid photo files under a specified directory, adds their entries 
+	 * to a PhotoDirectory, and adds every directory visited to directories. The 
+	 * entries are added a page at a time as the scan finds them, and the 
+	 * PhotoNames of the program, listening to the PhotoDirectory, adds the name 
+	 * of each photo as it is added. 
+	 * 
+	 * @param scanned
+	 * 		the PhotoDirectory the entries are added to.
+	 * @param directoryFile
+	 * 		the file directory to search in.
+	 * @param directories
+	 * 		a thread-safe collection to add the visited directories to, or null.
+	 */
+	private void populatePhotos(PhotoDirectory scanned, File directoryFile, Collection<Path> directories){
 		
 		if (directoryFile.isDirectory()){
-			for(File item: directoryFile.listFiles()){
-				
-				if(item.isDirectory() == false && CheckExtension(item) == true){
-					directoryFiles.add(item);
-				}
-				else if(item.isDirectory() == false && CheckExtension(item) == false){
-					;
-				}
-				else{
-					populatePhotos(item);	
-				}		
-			}
-		}
-		else{
-			;
+			scanned.replaceUnder(directoryFile.toPath(), scanner.scan(directoryFile, directories));
 		}
 	}
 	
 	/**
-	 * Selects a directory file for the program. Populates the ArrayList of 
-	 * files in FileExplorer and populates the PhotoNames HashMap of files 
-	 * and history of file names. 
+	 * Selects a directory file for the program, with a new PhotoDirectory of 
+	 * no photos yet, and stops watching the directory selected before. The 
+	 * photos under the directory are found by scanSelectedDirectory, which 
+	 * can be run on another thread while the photos found so far are shown. 
 	 * 
 	 * Precondition: directoryFile represents a file directory.
 	 * 
@@ -196,12 +559,80 @@ public class Program {
 	 * 		the directory file to be selected.
 	 */
 
-	public void selectDirectory(File directoryFile){
+	public synchronized void selectDirectory(File directoryFile){
+		if (directoryWatcher != null){
+			directoryWatcher.close();
+			directoryWatcher = null;
+		}
 		curDirectory = directoryFile;
-		directoryFiles = new ArrayList<File>();
-		populatePhotos(directoryFile);
-		newPhotoNames.populatePhotoNames(directoryFiles);
+		photoDirectory = new PhotoDirectory(directoryFile.toPath());
+		photoDirectory.addEntryListener(newPhotoNames);
+	}
+	
+	/**
+	 * Scans the directory selected by selectDirectory. Populates its 
+	 * PhotoDirectory and the PhotoNames of the program a page at a time, and 
+	 * then starts watching the directory so later changes are applied without 
+	 * another scan. If another directory was selected during the scan, the 
+	 * directory scanned is not watched. 
+	 */
+	public void scanSelectedDirectory(){
+		File directoryFile;
+		PhotoDirectory scanned;
+		synchronized (this){
+			directoryFile = curDirectory;
+			scanned = photoDirectory;
+		}
+		if (scanned == null){
+			return;
+		}
+		ConcurrentLinkedQueue<Path> directories = new ConcurrentLinkedQueue<Path>();
+		populatePhotos(scanned, directoryFile, directories);
+		// Photos indexed in an earlier run are not parsed again; later changes reach the index as they happen.
+		tagIndex.replaceUnder(directoryFile.toPath(), scanned.iterator());
+		scanned.addEntryListener(tagIndex);
+		synchronized (this){
+			if (photoDirectory != scanned){
+				return;
+			}
+			try{
+				directoryWatcher = new DirectoryWatcher(scanned, scanner);
+				directoryWatcher.start(directories);
+			}
+			catch (IOException e){
+				// Without a watcher, only renames made in the program are applied.
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Applies the renaming of a Photo to the PhotoDirectory of the program, 
+	 * so that only the entry of the renamed photo is updated. 
+	 * 
+	 * @param photo
+	 * 		the Photo that was renamed.
+	 * 
+	 * @param oldPath
+	 * 		the path of the Photo before it was renamed.
+	 */
+	private void updateRenamedPhoto(Photo photo, Path oldPath){
+		if (photoDirectory == null){
+			return;
+		}
+		PhotoEntry entry = photo.getPhotoEntry();
+		if (entry == null){
+			Path newPath = photo.getPhotoFile().toPath();
+			try{
+				entry = new PhotoEntry(newPath, Files.readAttributes(newPath, BasicFileAttributes.class));
+			}
+			catch (IOException e){
+				photoDirectory.remove(oldPath);
+				return;
+			}
 		}
+		photoDirectory.rename(oldPath, entry);
+	}
 	
 	
 	/**
@@ -215,8 +646,10 @@ public class Program {
 	public void revertPhotoName(String oldName){
 		
 		try{
+		Path oldPath = selectedPhoto.getPhotoFile().toPath();
 		Event renameEvent = TagManager.revertName(selectedPhoto, oldName);
 		newLog.addEvent(renameEvent);
+		updateRenamedPhoto(selectedPhoto, oldPath);
 		}
 		catch(FileNotRenamedException e){
 			e.printStackTrace();
@@ -235,14 +668,716 @@ public class Program {
 	public void addPhotoTags(ArrayList<String> tags) throws DuplicateTagsException{
 		try {
 			newPhotoNames.addNewPhotoName(selectedPhoto);
+			Path oldPath = selectedPhoto.getPhotoFile().toPath();
 			Event newEvent = newTagManager.addPhotoTags(tags, selectedPhoto);
 			newLog.addEvent(newEvent);
+			updateRenamedPhoto(selectedPhoto, oldPath);
 		} 
 		catch (FileNotRenamedException e) {
 			e.printStackTrace();
 		}
 	}
 	
+	/**
+	 * Adds one or more Tags to each of a collection of Photos as a single batch job. 
+	 * 
+	 * @param photos
+	 * 		the photos to be tagged.
+	 * 
+	 * @param tags
+	 * 		the list of tags to be added to each photo.
+	 * 
+	 * @return the EventGroup recorded in the Log for the batch, or null if no photo was renamed.
+	 * 
+	 * @throws FileNotRenamedException if a photo could not be renamed, in 
+	 * 		which case no photo is renamed.
+	 * 
+	 * @see #addTagsToPhotos(Collection, ArrayList, ProgressListener)
+	 */
+	public EventGroup addTagsToPhotos(Collection<Photo> photos, ArrayList<String> tags) throws FileNotRenamedException{
+		return addTagsToPhotos(photos, tags, null);
+	}
+	
+	/**
+	 * Adds one or more Tags to each of a collection of Photos as a single batch job. 
+	 * The renames are planned first, and run only if none of them collides with 
+	 * another file or is too long. Photos that already contain one of the tags 
+	 * are left unchanged. 
+	 * 
+	 * @param photos
+	 * 		the photos to be tagged.
+	 * 
+	 * @param tags
+	 * 		the list of tags to be added to each photo.
+	 * 
+	 * @param progressListener
+	 * 		the listener notified as each photo is finished, or null.
+	 * 
+	 * @return the EventGroup recorded in the Log for the batch, or null if no 
+	 * 		photo was renamed or the batch was interrupted.
+	 * 
+	 * @throws FileNotRenamedException if a photo could not be renamed, in 
+	 * 		which case no photo is renamed.
+	 * 
+	 * @see #planAddTags(Collection, ArrayList)
+	 * @see #executePlan(RenamePlan, ProgressListener)
+	 */
+	public EventGroup addTagsToPhotos(Collection<Photo> photos, ArrayList<String> tags, ProgressListener progressListener) 
+			throws FileNotRenamedException{
+		return executePlan(planAddTags(photos, tags), progressListener);
+	}
+	
+	/**
+	 * Plans the addition of one or more Tags to each of a collection of Photos, 
+	 * without renaming any file. The new names are checked against the photo 
+	 * files of the current directory. 
+	 * 
+	 * @param photos
+	 * 		the photos to be tagged.
+	 * 
+	 * @param tags
+	 * 		the list of tags to be added to each photo.
+	 * 
+	 * @return the plan of the renames, which can be run with executePlan.
+	 */
+	public RenamePlan planAddTags(Collection<Photo> photos, ArrayList<String> tags){
+		return newRenamePlanner().planAddTags(photos, tags);
+	}
+	
+	/**
+	 * Plans the removal of one or more Tags from each of a collection of Photos, 
+	 * without renaming any file. The new names are checked against the photo 
+	 * files of the current directory. 
+	 * 
+	 * @param photos
+	 * 		the photos to be renamed.
+	 * 
+	 * @param tags
+	 * 		the list of tags to be removed from each photo.
+	 * 
+	 * @return the plan of the renames, which can be run with executePlan.
+	 */
+	public RenamePlan planRemoveTags(Collection<Photo> photos, ArrayList<String> tags){
+		return newRenamePlanner().planRemoveTags(photos, tags);
+	}
+	
+	/**
+	 * Renames one of the available tags, and renames every photo in the current
+	 * directory carrying it as a single batch job. The photos are found through
+	 * the TagIndex, and the renames are planned, run at the same time and logged
+	 * as one EventGroup like any other batch. The list of available tags is only
+	 * changed once every photo has been renamed.
+	 * 
+	 * @param oldTag
+	 * 		the available tag to be renamed.
+	 * 
+	 * @param newTag
+	 * 		the new name of the tag.
+	 * 
+	 * @param progressListener
+	 * 		the listener notified as each photo is finished, or null.
+	 * 
+	 * @return the EventGroup recorded in the Log for the batch, or null if no
+	 * 		photo was renamed.
+	 * 
+	 * @throws NonExistentTagsException if oldTag is not an available tag.
+	 * 
+	 * @throws DuplicateTagsException if newTag is already an available tag.
+	 * 
+	 * @throws FileNotRenamedException if a photo could not be renamed, in
+	 * 		which case no photo is renamed and the tags are left unchanged.
+	 * 
+	 * @see TagManager#renameTag(String, String)
+	 */
+	public EventGroup renameTag(String oldTag, String newTag, ProgressListener progressListener)
+			throws NonExistentTagsException, DuplicateTagsException, FileNotRenamedException{
+		if (!newTagManager.isAvailableTag(oldTag)){
+			throw new NonExistentTagsException("Cannot rename a non-existant tag!");
+		}
+		if (newTagManager.isAvailableTag(newTag)){
+			throw new DuplicateTagsException("Tags are already in the program!");
+		}
+		if (!TagManager.isValidTag(newTag)){
+			throw new IllegalArgumentException("Not a valid tag: " + newTag);
+		}
+		EventGroup group = replaceTag(oldTag, newTag, "renamed @" + oldTag + " to @" + newTag, progressListener);
+		newTagManager.renameTag(oldTag, newTag);
+		return group;
+	}
+
+	/**
+	 * Merges one available tag into another, and renames every photo in the
+	 * current directory carrying the first tag as a single batch job: the tag
+	 * is replaced by the second tag, or dropped if the photo already has it.
+	 * The list of available tags is only changed once every photo has been renamed.
+	 * 
+	 * @param sourceTag
+	 * 		the available tag to be merged away.
+	 * 
+	 * @param targetTag
+	 * 		the available tag that is kept.
+	 * 
+	 * @param progressListener
+	 * 		the listener notified as each photo is finished, or null.
+	 * 
+	 * @return the EventGroup recorded in the Log for the batch, or null if no
+	 * 		photo was renamed.
+	 * 
+	 * @throws NonExistentTagsException if either tag is not an available tag.
+	 * 
+	 * @throws FileNotRenamedException if a photo could not be renamed, in
+	 * 		which case no photo is renamed and the tags are left unchanged.
+	 * 
+	 * @see TagManager#mergeTags(String, String)
+	 */
+	public EventGroup mergeTags(String sourceTag, String targetTag, ProgressListener progressListener)
+			throws NonExistentTagsException, FileNotRenamedException{
+		if (!newTagManager.isAvailableTag(sourceTag) || !newTagManager.isAvailableTag(targetTag)){
+			throw new NonExistentTagsException("Cannot merge non-existant tags!");
+		}
+		if (sourceTag.equals(targetTag)){
+			throw new IllegalArgumentException("Cannot merge a tag into itself: " + sourceTag);
+		}
+		EventGroup group = replaceTag(sourceTag, targetTag, "merged @" + sourceTag + " into @" + targetTag, progressListener);
+		newTagManager.mergeTags(sourceTag, targetTag);
+		return group;
+	}
+
+	/**
+	 * Replaces one tag by another in every photo in the current directory
+	 * carrying it, as a single batch job.
+	 * 
+	 * @param oldTag
+	 * 		the tag to be replaced.
+	 * 
+	 * @param newTag
+	 * 		the tag that replaces it.
+	 * 
+	 * @param description
+	 * 		a description of the change, recorded in the Log.
+	 * 
+	 * @param progressListener
+	 * 		the listener notified as each photo is finished, or null.
+	 * 
+	 * @return the EventGroup recorded in the Log for the batch, or null if no
+	 * 		photo was renamed.
+	 * 
+	 * @throws FileNotRenamedException if a photo could not be renamed, in
+	 * 		which case no photo is renamed.
+	 */
+	private EventGroup replaceTag(String oldTag, String newTag, String description, ProgressListener progressListener)
+			throws FileNotRenamedException{
+		ArrayList<Photo> photos = new ArrayList<Photo>();
+		for (PhotoEntry entry: getPhotosWithTag(oldTag)){
+			photos.add(new Photo(entry));
+		}
+		RenamePlan plan = newRenamePlanner().planReplaceTag(photos, oldTag, newTag, description);
+		EventGroup group = executePlan(plan, progressListener);
+		if (group == null && plan.count(RenamePlan.Status.OK) > 0){
+			throw new FileNotRenamedException("The photos were not renamed: the batch was interrupted.");
+		}
+		return group;
+	}
+
+	/**
+	 * Plans the revert of every photo under a directory to its original name, 
+	 * the name it had before any tag was added to it, without renaming any file. 
+	 * 
+	 * @param root
+	 * 		the directory whose photos are reverted; the current directory or 
+	 * 		a directory under it.
+	 * 
+	 * @return the plan of the renames, which can be run with executePlan.
+	 */
+	public RenamePlan planRevertUnder(File root){
+		Path rootPath = root.toPath();
+		ArrayList<Photo> photos = new ArrayList<Photo>();
+		ArrayList<String> origNames = new ArrayList<String>();
+		Iterator<PhotoEntry> entries = photoIterator();
+		while (entries.hasNext()){
+			PhotoEntry entry = entries.next();
+			if (entry.getPath().startsWith(rootPath)){
+				Photo photo = new Photo(entry);
+				photos.add(photo);
+				origNames.add(photo.getOrigName());
+			}
+		}
+		return newRenamePlanner().planRevert(photos, origNames, "reverted the photos under " + root.getName());
+	}
+	
+	/**
+	 * Plans the revert of every rename recorded in the Log from a position on, 
+	 * without renaming any file. Each photo in the current directory renamed 
+	 * since that position is given back the name it had then. The renames of 
+	 * a photo are followed by its directory and name, so photos of the same 
+	 * name in different directories are reverted apart; renames logged before 
+	 * the Log recorded directories are left out of the plan. 
+	 * 
+	 * @param logPosition
+	 * 		the position in the Log of the first event to be undone, as given 
+	 * 		by Log.size before the renames were made.
+	 * 
+	 * @return the plan of the renames, which can be run with executePlan.
+	 */
+	public RenamePlan planRevertSince(int logPosition){
+		// The name each photo had at logPosition, by its directory and current name.
+		HashMap<String, String> firstNames = new HashMap<String, String>();
+		// Only the events from logPosition on are read from the segment file.
+		int size = newLog.size();
+		for (Event event: newLog.getEvents(Math.min(Math.max(logPosition, 0), size), size)){
+			ArrayList<Event> renames = new ArrayList<Event>();
+			if (event instanceof EventGroup){
+				renames = ((EventGroup) event).getEvents();
+			}
+			else{
+				renames.add(event);
+			}
+			for (Event rename: renames){
+				if (rename.getDirectory() == null){
+					continue;
+				}
+				String firstName = firstNames.remove(photoKey(rename.getDirectory(), rename.getOldName()));
+				firstNames.put(photoKey(rename.getDirectory(), rename.getNewName()), 
+						firstName == null ? rename.getOldName() : firstName);
+			}
+		}
+		
+		ArrayList<Photo> photos = new ArrayList<Photo>();
+		ArrayList<String> firstNameList = new ArrayList<String>();
+		Iterator<PhotoEntry> entries = photoIterator();
+		while (entries.hasNext()){
+			PhotoEntry entry = entries.next();
+			String firstName = firstNames.get(photoKey(Event.directoryOf(entry.getFile()), entry.getName()));
+			if (firstName != null && !firstName.equals(entry.getName())){
+				photos.add(new Photo(entry));
+				firstNameList.add(firstName);
+			}
+		}
+		return newRenamePlanner().planRevert(photos, firstNameList, "reverted the renames since Log position " + logPosition);
+	}
+	
+	/**
+	 * Returns a key identifying a photo by its directory and name.
+	 * 
+	 * @param directory
+	 * 		the absolute path of the directory of the photo.
+	 * 
+	 * @param name
+	 * 		the name of the photo.
+	 * 
+	 * @return the key of the photo.
+	 */
+	private static String photoKey(String directory, String name){
+		return directory + File.separatorChar + name;
+	}
+	
+	/**
+	 * Reverts every photo under a directory to its original name as a single 
+	 * batch job. The renames are planned first, including photos swapping 
+	 * names, and run at the same time only if none collides with another file. 
+	 * 
+	 * @param root
+	 * 		the directory whose photos are reverted.
+	 * 
+	 * @param progressListener
+	 * 		the listener notified as each photo is finished, or null.
+	 * 
+	 * @return the EventGroup recorded in the Log for the batch, or null if no 
+	 * 		photo was renamed or the batch was interrupted.
+	 * 
+	 * @throws FileNotRenamedException if a photo could not be renamed, in 
+	 * 		which case no photo is renamed.
+	 * 
+	 * @see #planRevertUnder(File)
+	 */
+	public EventGroup revertUnder(File root, ProgressListener progressListener) throws FileNotRenamedException{
+		return executePlan(planRevertUnder(root), progressListener);
+	}
+	
+	/**
+	 * Reverts every rename recorded in the Log from a position on as a single 
+	 * batch job, so that a whole session of renames can be undone at once. 
+	 * 
+	 * @param logPosition
+	 * 		the position in the Log of the first event to be undone.
+	 * 
+	 * @param progressListener
+	 * 		the listener notified as each photo is finished, or null.
+	 * 
+	 * @return the EventGroup recorded in the Log for the batch, or null if no 
+	 * 		photo was renamed or the batch was interrupted.
+	 * 
+	 * @throws FileNotRenamedException if a photo could not be renamed, in 
+	 * 		which case no photo is renamed.
+	 * 
+	 * @see #planRevertSince(int)
+	 */
+	public EventGroup revertSince(int logPosition, ProgressListener progressListener) throws FileNotRenamedException{
+		return executePlan(planRevertSince(logPosition), progressListener);
+	}
+	
+	/**
+	 * Returns a RenamePlanner that knows the photo files of the current directory.
+	 * 
+	 * @return a new RenamePlanner.
+	 */
+	private RenamePlanner newRenamePlanner(){
+		if (photoDirectory == null){
+			return new RenamePlanner(new ArrayList<PhotoEntry>());
+		}
+		return new RenamePlanner(photoDirectory);
+	}
+	
+	/**
+	 * Runs the renames of a RenamePlan as a single batch job. The renames run 
+	 * at the same time on the program's IoExecutor, and the whole batch is 
+	 * recorded in the Log as one EventGroup. Photos planned as NOOP are left 
+	 * unchanged. 
+	 * 
+	 * The batch is all-or-nothing: the renames belong to one RenameTransaction, 
+	 * and if any photo cannot be renamed, or the calling thread is interrupted, 
+	 * the renames that have not started are skipped and the renames already made 
+	 * are rolled back. A plan with a collision or a name that is too long is 
+	 * refused before any file is renamed. 
+	 * 
+	 * Renames that take a name another photo of the plan gives up, as in a 
+	 * revert, are made after that photo is renamed, one chain per task; the 
+	 * first photo of a cycle of renames is moved to a temporary name first. 
+	 * 
+	 * @param plan
+	 * 		the plan to be run.
+	 * 
+	 * @param progressListener
+	 * 		the listener notified as each photo is finished, or null.
+	 * 
+	 * @return the EventGroup recorded in the Log for the batch, or null if no 
+	 * 		photo was renamed or the batch was interrupted.
+	 * 
+	 * @throws FileNotRenamedException if the plan cannot be run or a photo could 
+	 * 		not be renamed, in which case no photo is renamed, except the photos 
+	 * 		that could not be renamed back, which the exception lists.
+	 */
+	public EventGroup executePlan(RenamePlan plan, ProgressListener progressListener) throws FileNotRenamedException{
+		if (!plan.isExecutable()){
+			throw new FileNotRenamedException("The photos could not be renamed: " + plan);
+		}
+		// Renames that depend on each other are made in order, one chain per task.
+		ArrayList<RenamePlan.Chain> chains = plan.getChains();
+		ArrayList<RenamePlan.Item> batch = new ArrayList<RenamePlan.Item>(plan.count(RenamePlan.Status.OK));
+		int[] chainStarts = new int[chains.size()];
+		for (int c = 0; c < chains.size(); c++){
+			chainStarts[c] = batch.size();
+			batch.addAll(chains.get(c).getItems());
+		}
+		int total = batch.size();
+		RenameJournal.Operation operation = plan.getOperation();
+		AtomicInteger finished = new AtomicInteger();
+		AtomicBoolean cancelled = new AtomicBoolean(false);
+		AtomicReference<FileNotRenamedException> failure = new AtomicReference<FileNotRenamedException>();
+		RenameTransaction transaction = new RenameTransaction();
+		Event[] events = new Event[total];
+		File[] temporaryFiles = new File[chains.size()];
+		ArrayList<Future<Void>> renames = new ArrayList<Future<Void>>(chains.size());
+		for (int c = 0; c < chains.size(); c++){
+			RenamePlan.Chain chain = chains.get(c);
+			int chainStart = chainStarts[c];
+			int chainIndex = c;
+			renames.add(ioExecutor.submit(chain.getItems().get(0).getSource().toPath(), new Callable<Void>(){
+				@Override
+				public Void call() {
+					List<RenamePlan.Item> items = chain.getItems();
+					int done = 0;
+					try{
+						for (int i = 0; i < items.size() && !cancelled.get(); i++){
+							RenamePlan.Item item = items.get(i);
+							Photo photo = item.getPhoto();
+							if (!photo.getPhotoFile().equals(item.getSource())){
+								throw new FileNotRenamedException("This photo was renamed after the plan was made: " + photo.getPhotoFile());
+							}
+							long time = Event.currentTime();
+							if (i == 0 && chain.isCycle()){
+								// Frees the name taken by the last photo of the cycle.
+								temporaryFiles[chainIndex] = temporaryFile(item.getSource());
+								transaction.rename(item.getSource(), temporaryFiles[chainIndex], RenameJournal.Operation.MOVE_ASIDE, time);
+								continue;
+							}
+							events[chainStart + i] = renamePlanned(transaction, item, item.getSource(), operation, time);
+							progressMade();
+							done++;
+						}
+						if (chain.isCycle() && temporaryFiles[chainIndex] != null && !cancelled.get()){
+							long time = Event.currentTime();
+							events[chainStart] = renamePlanned(transaction, items.get(0), temporaryFiles[chainIndex], operation, time);
+							progressMade();
+							done++;
+						}
+					}
+					catch (FileNotRenamedException e){
+						failure.compareAndSet(null, e);
+						cancelled.set(true);
+					}
+					finally{
+						// Photos that were skipped are finished too.
+						for (; done < items.size(); done++){
+							progressMade();
+						}
+					}
+					return null;
+				}
+				
+				/**
+				 * Tells the progress listener that one more photo of the chain is finished.
+				 */
+				private void progressMade(){
+					if (progressListener != null){
+						progressListener.progressMade(finished.incrementAndGet(), total);
+					}
+				}
+			}));
+		}
+		
+		// Every rename is waited for, even after an interruption, so that the 
+		// transaction knows every rename made before it is committed or rolled back.
+		boolean interrupted = false;
+		for (Future<Void> rename: renames){
+			while (true){
+				try{
+					rename.get();
+					break;
+				}
+				catch (InterruptedException e){
+					interrupted = true;
+					cancelled.set(true);
+				}
+				catch (ExecutionException e){
+					failure.compareAndSet(null, new FileNotRenamedException("This file could not be renamed: " + e.getCause()));
+					cancelled.set(true);
+					break;
+				}
+			}
+		}
+		
+		if (cancelled.get()){
+			ArrayList<File> notRestored = transaction.rollback();
+			HashSet<File> keptNames = new HashSet<File>(notRestored);
+			for (int i = 0; i < total; i++){
+				// A photo that could not be renamed back keeps its new name.
+				if (events[i] != null && !keptNames.contains(batch.get(i).getTarget())){
+					Photo photo = batch.get(i).getPhoto();
+					photo.setPhotoFile(batch.get(i).getSource());
+					photo.setCurName(events[i].getOldName());
+				}
+			}
+			FileNotRenamedException rollbackFailure = null;
+			if (!notRestored.isEmpty()){
+				String reason = failure.get() == null ? "The batch was interrupted." : failure.get().getMessage();
+				rollbackFailure = new FileNotRenamedException(reason 
+						+ " These photos could not be renamed back: " + notRestored, notRestored);
+			}
+			if (interrupted){
+				Thread.currentThread().interrupt();
+			}
+			if (failure.get() != null){
+				throw rollbackFailure == null ? failure.get() : rollbackFailure;
+			}
+			if (rollbackFailure != null){
+				// The result of an interrupted batch is not looked at.
+				rollbackFailure.printStackTrace();
+			}
+			return null;
+		}
+		transaction.commit();
+		
+		ArrayList<Event> renamed = new ArrayList<Event>(total);
+		for (int c = 0; c < chains.size(); c++){
+			// The first photo of a cycle left its path before the others took theirs, 
+			// and took its new path after them.
+			int chainEnd = c + 1 < chains.size() ? chainStarts[c + 1] : total;
+			int first = chainStarts[c];
+			if (chains.get(c).isCycle() && photoDirectory != null){
+				photoDirectory.remove(batch.get(first).getSource().toPath());
+			}
+			for (int i = chains.get(c).isCycle() ? first + 1 : first; i < chainEnd; i++){
+				addRenamedPhoto(batch.get(i), events[i], batch.get(i).getSource().toPath(), operation, renamed);
+			}
+			if (chains.get(c).isCycle()){
+				addRenamedPhoto(batch.get(first), events[first], temporaryFiles[c].toPath(), operation, renamed);
+			}
+		}
+		if (renamed.isEmpty()){
+			return null;
+		}
+		
+		EventGroup group = new EventGroup(plan.getDescription(), renamed, Event.currentTime());
+		newLog.addEvent(group);
+		return group;
+	}
+	
+	/**
+	 * Renames a photo of a RenamePlan to its planned name as part of a transaction.
+	 * 
+	 * @param transaction
+	 * 		the transaction of the plan.
+	 * 
+	 * @param item
+	 * 		the planned rename of the photo.
+	 * 
+	 * @param from
+	 * 		the file to be renamed: the source file of the item, or the temporary 
+	 * 		file it was moved to.
+	 * 
+	 * @param operation
+	 * 		the kind of change made by the plan.
+	 * 
+	 * @param time
+	 * 		the date and time of the rename, in milliseconds since the epoch.
+	 * 
+	 * @return the Event of the rename.
+	 * 
+	 * @throws FileNotRenamedException if the file could not be renamed.
+	 */
+	private static Event renamePlanned(RenameTransaction transaction, RenamePlan.Item item, File from, 
+			RenameJournal.Operation operation, long time) throws FileNotRenamedException{
+		Photo photo = item.getPhoto();
+		String oldName = photo.getCurName();
+		transaction.rename(from, item.getTarget(), operation, time);
+		photo.setCurName(item.getNewName());
+		photo.setPhotoFile(item.getTarget());
+		return new Event(oldName, item.getNewName(), time, Event.directoryOf(item.getTarget()));
+	}
+	
+	/**
+	 * Returns an unused file in the same directory as a photo, that the photo 
+	 * can be moved to while its new name is still taken by another photo. 
+	 * 
+	 * @param photoFile
+	 * 		the file of the photo.
+	 * 
+	 * @return a file that does not exist.
+	 */
+	private static File temporaryFile(File photoFile){
+		File temporary = new File(photoFile.getParentFile(), "." + photoFile.getName() + ".renaming");
+		for (int i = 1; temporary.exists(); i++){
+			temporary = new File(photoFile.getParentFile(), "." + photoFile.getName() + ".renaming" + i);
+		}
+		return temporary;
+	}
+	
+	/**
+	 * Records the rename of a photo of a finished batch: adds its old name to 
+	 * its history if the batch keeps past names, and updates the PhotoDirectory 
+	 * and the selected photo. 
+	 * 
+	 * @param item
+	 * 		the planned rename of the photo.
+	 * 
+	 * @param event
+	 * 		the Event of the rename, or null if the photo was not renamed.
+	 * 
+	 * @param oldPath
+	 * 		the path the photo was renamed from.
+	 * 
+	 * @param operation
+	 * 		the kind of change made by the batch.
+	 * 
+	 * @param renamed
+	 * 		the Events of the batch, which event is added to.
+	 */
+	private void addRenamedPhoto(RenamePlan.Item item, Event event, Path oldPath, 
+			RenameJournal.Operation operation, ArrayList<Event> renamed){
+		if (event == null){
+			return;
+		}
+		Photo photo = item.getPhoto();
+		renamed.add(event);
+		if (operation.keepsPastName()){
+			newPhotoNames.addPastName(photo.getOrigName(), event.getOldName());
+		}
+		updateRenamedPhoto(photo, oldPath);
+		if (selectedPhoto != null && selectedPhoto.getPhotoFile().equals(item.getSource())){
+			selectedPhoto = photo;
+		}
+	}
+	
+	/**
+	 * Returns the photos in the current directory that carry a tag, found 
+	 * through the TagIndex of the program without parsing any photo name. 
+	 * 
+	 * @param tag
+	 * 		the tag, with or without its '@'.
+	 * 
+	 * @return a new list of the entries of the photos with tag.
+	 */
+	public ArrayList<PhotoEntry> getPhotosWithTag(String tag){
+		ArrayList<PhotoEntry> photos = new ArrayList<PhotoEntry>();
+		if (photoDirectory == null){
+			return photos;
+		}
+		for (Path path: tagIndex.getPhotosWithTag(tag.startsWith("@") ? tag.substring(1) : tag)){
+			PhotoEntry entry = photoDirectory.get(path);
+			if (entry != null){
+				photos.add(entry);
+			}
+		}
+		return photos;
+	}
+	
+	/**
+	 * Returns an iterator over the photos in the current directory that match 
+	 * a tag query. The query is answered from the TagIndex of the program in 
+	 * one pass over its compressed postings; the entry of each matching photo 
+	 * is only looked up as the iterator reaches it, so the first page of a 
+	 * large result can be shown without reading the rest. 
+	 * 
+	 * @param query
+	 * 		the tag query.
+	 * 
+	 * @return an iterator over the entries of the matching photos.
+	 */
+	public Iterator<PhotoEntry> queryPhotos(TagQuery query){
+		PhotoDirectory directory = photoDirectory;
+		if (directory == null){
+			return new ArrayList<PhotoEntry>().iterator();
+		}
+		PrimitiveIterator.OfInt ids = tagIndex.query(query).iterator();
+		return new Iterator<PhotoEntry>(){
+			
+			/** The next matching entry, or null if it has not been found yet. */
+			private PhotoEntry next;
+			
+			@Override
+			public boolean hasNext() {
+				// Photos indexed under other directories are skipped.
+				while (next == null && ids.hasNext()){
+					String path = tagIndex.getPath(ids.nextInt());
+					if (path != null){
+						next = directory.get(Paths.get(path));
+					}
+				}
+				return next != null;
+			}
+			
+			@Override
+			public PhotoEntry next() {
+				if (!hasNext()){
+					throw new NoSuchElementException();
+				}
+				PhotoEntry entry = next;
+				next = null;
+				return entry;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the TagIndex of the program, which finds the photos carrying each tag.
+	 * 
+	 * @return the TagIndex of the program.
+	 */
+	public TagIndex getTagIndex(){
+		return tagIndex;
+	}
+	
 	/**
 	 * Returns all the past names of the Photo selected by the program. 
 	 * 
@@ -253,6 +1388,18 @@ public class Program {
 	public ArrayList<String> showPhotoHistory(){
 		return newPhotoNames.listNames(selectedPhoto);
 	}
+	
+	/**
+	 * Returns every rename of the Photo selected by the program recorded in 
+	 * the Log, found by the index of the events of each photo, so the time 
+	 * taken does not grow with the size of the Log. 
+	 * 
+	 * @return
+	 * 		an ArrayList of the Event of each rename of the Photo, in order.
+	 */
+	public ArrayList<Event> showPhotoEvents(){
+		return newLog.getPhotoEvents(Event.directoryOf(selectedPhoto.getPhotoFile()), selectedPhoto.getCurName());
+	}
 
 	/**
 	 * Returns the parent directory of the currently selected Photo file.
@@ -266,14 +1413,26 @@ public class Program {
 	
 	/**
 	 * A method that must be run before this instance of the program is closed. 
-	 * Serializes or reserializes the instances of PhotoNames, Log, and TagManager 
-	 * so all names of the photos, the log of the program, and the tags used 
-	 * by the program can be made available next time the program is run. 
+	 * Serializes or reserializes the instances of PhotoNames, TagManager, 
+	 * ScanIndex, ScanFilter and TagIndex so all names of the photos, the tags 
+	 * used by the program, the contents of scanned directories, the directories 
+	 * to skip and the photos carrying each tag can be made available next time 
+	 * the program is run. The Log, whose events were written as they were 
+	 * added, only has its segment file closed. 
+	 * Once the names of the photos and the log are written, the RenameJournal 
+	 * is emptied, since its renames no longer need to be recovered. 
 	 * 
 	 */
 	public void close(){
 		
+		synchronized (this){
+			if (directoryWatcher != null){
+				directoryWatcher.close();
+				directoryWatcher = null;
+			}
+		}
 		String curDir = System.getProperty("user.dir");
+		boolean historySaved = true;
 		
 		try {
 			File savePhotoNames = new File(curDir, "PhotoNames");
@@ -282,14 +1441,26 @@ public class Program {
 			//newPhotoNames.serializePhotoNames("/Users/shawneerizqa/Desktop/CSC207/rizqatsa/PhotoNames.txt");
 		} 
 		catch (IOException e) {
+			historySaved = false;
 			e.printStackTrace();
 		}
+		if (newLog.hasFailed()){
+			// The renames the Log is missing are added from the journal at the next start.
+			historySaved = false;
+		}
 		try{
-			File saveLog = new File(curDir, "Log");
-			newLog.serializeLog(saveLog.getPath());	
-			//newLog.serializeLog("C:\\Users\\Julian2\\Documents\\Log");	
-			//newLog.serializeLog("/Users/shawneerizqa/Desktop/CSC207/rizqatsa/Log.txt");
+			newLog.close();
 		} 
+		catch (IOException e){
+			historySaved = false;
+			e.printStackTrace();
+		}
+		try{
+			if (historySaved){
+				renameJournal.checkpoint();
+			}
+			renameJournal.close();
+		}
 		catch (IOException e){
 			e.printStackTrace();
 		}
@@ -302,37 +1473,69 @@ public class Program {
 		catch (IOException e){
 			e.printStackTrace();
 		}
+		try{
+			File saveScanIndex = new File(curDir, "ScanIndex");
+			scanIndex.serializeScanIndex(saveScanIndex.getPath());
+		}
+		catch (IOException e){
+			e.printStackTrace();
+		}
+		try{
+			File saveScanSettings = new File(curDir, "ScanSettings");
+			scanFilter.serializeScanFilter(saveScanSettings.getPath());
+		}
+		catch (IOException e){
+			e.printStackTrace();
+		}
+		try{
+			File saveTagIndex = new File(curDir, "TagIndex");
+			tagIndex.serializeTagIndex(saveTagIndex.getPath());
+		}
+		catch (IOException e){
+			e.printStackTrace();
+		}
+		ioExecutor.shutdown();
 	}
 	
 	
 	/**
-	 * Obtains the file extension of a given file and checks if 
-	 * it is a common photo filetype. 
-	 * Based on Pankaj's code for checking file extensions.: 
-	 * http://www.journaldev.com/842/how-to-get-file-extension-in-java.  
-	 * Returns true if the file contains is a common photo file,
-	 * and false otherwise.
+	 * Sets whether the format of each photo file found in a directory is confirmed 
+	 * by reading its first bytes, in addition to checking its extension. 
+	 * 
+	 * @param contentSniffing
+	 * 		true if photo formats should be confirmed from file contents.
+	 * 
+	 * @see PhotoFormat
+	 */
+	public void setContentSniffing(boolean contentSniffing){
+		scanner.setContentSniffing(contentSniffing);
+	}
+	
+	/**
+	 * Checks if a given file has the extension of a common photo filetype. 
+	 * Returns true if the file is a common photo file, and false otherwise.
 	 * 
 	 * @param file
 	 * 		the file to check the extension of.
-	 * @return true if the given file has the extensions .jpg or .png,
-	 * 		false otherwise.
+	 * @return true if the given file has the extension of a format in 
+	 * 		PhotoFormat, ignoring case, false otherwise.
+	 * 
+	 * @see PhotoFormat#forFileName(CharSequence)
 	 */
-	// http://www.journaldev.com/842/how-to-get-file-extension-in-java
 	public static Boolean CheckExtension(File file){
-		String name = file.getName();
-		if(name.lastIndexOf(".") != (name.length() - 1) && name.lastIndexOf(".") != 0){
-			String extension = name.substring(name.lastIndexOf(".") + 1);
-			if(extension.equals("jpg") || extension.equals("png")){
-				return true;
-			}
-			else{
-				return false;
-			}
-		}
-		else{
-			return false;
-		}	
+		return CheckExtension(file.getName());
+	}
+	
+	/**
+	 * Checks if a given file name has the extension of a common photo filetype. 
+	 * 
+	 * @param name
+	 * 		the file name to check the extension of.
+	 * @return true if the given file name has the extension of a format in 
+	 * 		PhotoFormat, ignoring case, false otherwise.
+	 */
+	public static Boolean CheckExtension(String name){
+		return PhotoFormat.forFileName(name) != null;
 	}
 
 }
\ No newline at end of file
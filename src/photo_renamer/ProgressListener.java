@@ -0,0 +1,20 @@
+package photo_renamer;
+
+/**
+ * A listener notified as a batch job of the program makes progress.
+ * It may be notified on any thread.
+ * 
+ * @author group_0653
+ */
+public interface ProgressListener {
+
+	/**
+	 * Called each time another item of a batch job is finished.
+	 * 
+	 * @param finished
+	 * 		the number of items finished so far.
+	 * @param total
+	 * 		the total number of items in the job.
+	 */
+	void progressMade(int finished, int total);
+}
@@ -0,0 +1,526 @@
+package photo_renamer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the renames made by the program. Each rename is
+ * recorded as an intent before the file is renamed, and as committed once it
+ * succeeds, so the names of photos and the Log can be recovered if the program
+ * stops before its state files are written by Program.close.
+ *
+ * An intent is forced to disk before its rename is made. Renames made at the
+ * same time share a single force: a thread that finds another thread already
+ * forcing the journal waits for it and is then usually covered by it.
+ *
+ * Every record is written as its length, a CRC32 checksum and its contents, so
+ * a record torn by a crash is detected and ignored when the journal is replayed.
+ *
+ * @author group_0653
+ */
+public class RenameJournal {
+
+	/** The kind of change made by a journaled rename. */
+	public enum Operation {
+
+		/** Tags were added to the name of a photo; its old name is added to its history. */
+		ADD_TAGS,
+
+		/** Tags were removed from the name of a photo. */
+		REMOVE_TAGS,
+
+		/** A photo was renamed back to one of its past names. */
+		REVERT,
+
+		/** A rename of a failed RenameTransaction was undone; it cancels out that rename. */
+		ROLLBACK,
+
+		/** A tag of a photo was renamed or merged into another tag; its old name is added to its history. */
+		RENAME_TAG,
+
+		/**
+		 * A photo of a cycle of renames was moved to a temporary name to free its
+		 * name for another photo. It is not in the Log on its own: the rename of
+		 * the photo from the temporary name to its new name stands for both.
+		 */
+		MOVE_ASIDE;
+
+		/**
+		 * Returns whether the old name of a photo renamed by this operation is
+		 * added to the history of the photo.
+		 *
+		 * @return true if the old name is kept, false otherwise.
+		 */
+		public boolean keepsPastName(){
+			return this == ADD_TAGS || this == RENAME_TAG;
+		}
+	}
+
+	/** The type of a record of a rename about to be made, written before times were kept in milliseconds. */
+	private static final byte INTENT = 1;
+
+	/** The type of a record of a rename that was made. */
+	private static final byte COMMIT = 2;
+
+	/** The type of a record of a rename about to be made, with its time in milliseconds since the epoch. */
+	private static final byte TIMED_INTENT = 3;
+
+	/** The size of the length and checksum written before each record. */
+	private static final int HEADER_SIZE = 8;
+
+	/** The channel records are appended to, or null if the journal is not open. */
+	private FileChannel channel;
+
+	/** The number of bytes appended to the journal. */
+	private long writtenPosition;
+
+	/** The number of bytes known to be forced to disk. */
+	private volatile long syncedPosition;
+
+	/** The lock held while the journal is forced to disk. */
+	private final Object syncLock = new Object();
+
+	/**
+	 * Opens a journal file for appending, creating it if it does not exist.
+	 * Any records already in the file are kept, so replay should be run first.
+	 *
+	 * @param fileName
+	 * 		the journal file.
+	 *
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public synchronized void open(String fileName) throws IOException{
+		close();
+		channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.READ);
+		writtenPosition = channel.size();
+		channel.position(writtenPosition);
+		syncedPosition = writtenPosition;
+	}
+
+	/**
+	 * Returns whether this journal is open for appending.
+	 *
+	 * @return true if the journal is open, false otherwise.
+	 */
+	public synchronized boolean isOpen(){
+		return channel != null;
+	}
+
+	/**
+	 * Records that a file is about to be renamed, and waits until the record
+	 * is forced to disk.
+	 *
+	 * @param operation
+	 * 		the kind of change made by the rename.
+	 * @param from
+	 * 		the file before it is renamed.
+	 * @param to
+	 * 		the file after it is renamed.
+	 * @param time
+	 * 		the date and time of the rename in milliseconds since the epoch,
+	 * 		as recorded in the Log.
+	 *
+	 * @return the sequence number of the intent, to be passed to logCommit.
+	 * 		It is unique among the records in the journal file.
+	 *
+	 * @throws IOException if the journal is not open or cannot be written to.
+	 */
+	public long logIntent(Operation operation, File from, File to, long time) throws IOException{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream record = new DataOutputStream(bytes);
+		long sequence;
+		long end;
+		synchronized (this){
+			// The position of an intent identifies it until the journal is emptied.
+			sequence = writtenPosition;
+			record.writeByte(TIMED_INTENT);
+			record.writeLong(sequence);
+			record.writeByte(operation.ordinal());
+			record.writeUTF(from.getPath());
+			record.writeUTF(to.getPath());
+			record.writeLong(time);
+			end = append(bytes.toByteArray());
+		}
+		sync(end);
+		return sequence;
+	}
+
+	/**
+	 * Records that a rename recorded by logIntent was made. The record is not
+	 * forced to disk on its own; it is forced along with the next intent.
+	 *
+	 * @param sequence
+	 * 		the sequence number of the intent.
+	 *
+	 * @throws IOException if the journal is not open or cannot be written to.
+	 */
+	public synchronized void logCommit(long sequence) throws IOException{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream record = new DataOutputStream(bytes);
+		record.writeByte(COMMIT);
+		record.writeLong(sequence);
+		append(bytes.toByteArray());
+	}
+
+	/**
+	 * Empties the journal. Must only be called after the state files of the
+	 * program have been written, since the renames recorded so far can no
+	 * longer be recovered afterwards.
+	 *
+	 * @throws IOException if the journal cannot be emptied.
+	 */
+	public void checkpoint() throws IOException{
+		synchronized (syncLock){
+			synchronized (this){
+				if (channel == null){
+					return;
+				}
+				channel.truncate(0);
+				channel.position(0);
+				channel.force(true);
+				writtenPosition = 0;
+				syncedPosition = 0;
+			}
+		}
+	}
+
+	/**
+	 * Forces any remaining records to disk and closes the journal.
+	 *
+	 * @throws IOException if the journal cannot be forced or closed.
+	 */
+	public synchronized void close() throws IOException{
+		if (channel == null){
+			return;
+		}
+		try{
+			channel.force(false);
+		}
+		finally{
+			channel.close();
+			channel = null;
+		}
+	}
+
+	/**
+	 * Applies the renames recorded in a journal file to the names of photos
+	 * and the Log. A rename is applied if it was committed, or if its file is
+	 * found under its new name and not under its old name. Renames undone by
+	 * the rollback of a RenameTransaction are not applied at all.
+	 *
+	 * Since the Log is written as events are added, a rename may already be
+	 * in it. Only the events of the Log from the time of the earliest rename
+	 * on are read, with Log.getEventsBetween, and each of them accounts for
+	 * one rename with the same names and time to the millisecond, so a rename
+	 * made twice at once is still applied twice. A photo moved aside in a
+	 * cycle of renames is applied as one rename from its old name to its new
+	 * name, as it is logged. The past names of photos are only written when
+	 * the program is closed, so they are always applied.
+	 *
+	 * Must be called before the journal file is opened for appending.
+	 *
+	 * @param fileName
+	 * 		the journal file.
+	 * @param photoNames
+	 * 		the PhotoNames to add the past names of tagged photos to.
+	 * @param log
+	 * 		the Log to add the events of the renames to.
+	 *
+	 * @return the number of renames recovered from the journal.
+	 *
+	 * @throws IOException if the journal file cannot be read.
+	 */
+	public static int replay(String fileName, PhotoNames photoNames, Log log) throws IOException{
+		Path journalPath = Paths.get(fileName);
+		if (!Files.exists(journalPath)){
+			return 0;
+		}
+		byte[] contents = Files.readAllBytes(journalPath);
+		LinkedHashMap<Long, Intent> intents = new LinkedHashMap<Long, Intent>();
+		HashSet<Long> commits = new HashSet<Long>();
+		ByteBuffer buffer = ByteBuffer.wrap(contents);
+		CRC32 checksum = new CRC32();
+		while (buffer.remaining() >= HEADER_SIZE){
+			int length = buffer.getInt();
+			int expected = buffer.getInt();
+			if (length <= 0 || length > buffer.remaining()){
+				// The last record was torn by a crash.
+				break;
+			}
+			checksum.reset();
+			checksum.update(contents, buffer.position(), length);
+			if ((int) checksum.getValue() != expected){
+				break;
+			}
+			DataInputStream record = new DataInputStream(new ByteArrayInputStream(contents, buffer.position(), length));
+			buffer.position(buffer.position() + length);
+			try{
+				byte type = record.readByte();
+				long sequence = record.readLong();
+				if (type == INTENT || type == TIMED_INTENT){
+					Operation operation = Operation.values()[record.readByte()];
+					File from = new File(record.readUTF());
+					File to = new File(record.readUTF());
+					if (type == TIMED_INTENT){
+						intents.put(sequence, new Intent(operation, from, to, record.readLong(), null));
+					}
+					else{
+						// The time of an intent written as text is only known to the second.
+						intents.put(sequence, new Intent(operation, from, to, -1, record.readUTF()));
+					}
+				}
+				else if (type == COMMIT){
+					commits.add(sequence);
+				}
+			}
+			catch (EOFException | ArrayIndexOutOfBoundsException e){
+				break;
+			}
+		}
+
+		ArrayList<Intent> renames = new ArrayList<Intent>();
+		for (Map.Entry<Long, Intent> element: intents.entrySet()){
+			Intent intent = element.getValue();
+			boolean renamed = commits.contains(element.getKey())
+					|| (intent.to.exists() && !intent.from.exists());
+			if (!renamed){
+				continue;
+			}
+			if (intent.operation != Operation.ROLLBACK){
+				renames.add(intent);
+				continue;
+			}
+			// Drops the latest rename that the rollback undid.
+			for (int i = renames.size() - 1; i >= 0; i--){
+				Intent undone = renames.get(i);
+				if (undone.from.equals(intent.to) && undone.to.equals(intent.from)){
+					renames.remove(i);
+					break;
+				}
+			}
+		}
+
+		// A photo moved aside in a cycle and then renamed from its temporary name is one rename
+		// in the Log, from its old name to its new name; one still aside was never logged.
+		HashMap<File, Intent> movedAside = new HashMap<File, Intent>();
+		ArrayList<Intent> logged = new ArrayList<Intent>(renames.size());
+		for (Intent intent: renames){
+			Intent aside = movedAside.remove(intent.from);
+			if (aside != null){
+				intent = new Intent(intent.operation, aside.from, intent.to, intent.time, intent.timestamp);
+			}
+			if (intent.operation == Operation.MOVE_ASIDE){
+				movedAside.put(intent.to, intent);
+			}
+			else{
+				logged.add(intent);
+			}
+		}
+		renames = logged;
+
+		if (renames.isEmpty()){
+			// The Log is not read when there is nothing to apply to it.
+			return 0;
+		}
+		long earliest = Long.MAX_VALUE;
+		for (Intent intent: renames){
+			earliest = Math.min(earliest, intent.event.getTime());
+		}
+		// Intents written before times were kept in milliseconds are matched to the second.
+		HashMap<String, Integer> inLog = new HashMap<String, Integer>();
+		HashMap<String, Integer> inLogBySecond = new HashMap<String, Integer>();
+		for (Event event: log.getEventsBetween(earliest - earliest % 1000, Long.MAX_VALUE)){
+			addLogged(inLog, event, false);
+			addLogged(inLogBySecond, event, true);
+		}
+		for (Intent intent: renames){
+			boolean bySecond = intent.timestamp != null;
+			HashMap<String, Integer> matching = bySecond ? inLogBySecond : inLog;
+			String key = key(intent.event, bySecond);
+			Integer count = matching.get(key);
+			if (count == null){
+				log.addEvent(intent.event);
+			}
+			else if (count == 1){
+				matching.remove(key);
+			}
+			else{
+				matching.put(key, count - 1);
+			}
+			if (intent.operation.keepsPastName()){
+				photoNames.addPastName(Photo.removeAllTags(intent.from.getName()), intent.from.getName());
+			}
+		}
+		return renames.size();
+	}
+
+	/**
+	 * Appends a record to the journal. The caller must hold the lock of this journal.
+	 *
+	 * @param contents
+	 * 		the contents of the record.
+	 *
+	 * @return the position in the journal after the record.
+	 *
+	 * @throws IOException if the journal is not open or cannot be written to.
+	 */
+	private long append(byte[] contents) throws IOException{
+		if (channel == null){
+			throw new IOException("The rename journal is not open.");
+		}
+		CRC32 checksum = new CRC32();
+		checksum.update(contents, 0, contents.length);
+		ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + contents.length);
+		record.putInt(contents.length);
+		record.putInt((int) checksum.getValue());
+		record.put(contents);
+		record.flip();
+		while (record.hasRemaining()){
+			channel.write(record);
+		}
+		writtenPosition += HEADER_SIZE + contents.length;
+		return writtenPosition;
+	}
+
+	/**
+	 * Waits until the journal is forced to disk up to a given position. Only one
+	 * thread forces the journal at a time, and each force covers every record
+	 * appended before it started, so waiting threads are usually covered
+	 * without forcing the journal again.
+	 *
+	 * @param position
+	 * 		the position in the journal that must be on disk.
+	 *
+	 * @throws IOException if the journal cannot be forced.
+	 */
+	private void sync(long position) throws IOException{
+		if (syncedPosition >= position){
+			return;
+		}
+		synchronized (syncLock){
+			if (syncedPosition >= position){
+				return;
+			}
+			FileChannel syncChannel;
+			long target;
+			synchronized (this){
+				syncChannel = channel;
+				target = writtenPosition;
+			}
+			if (syncChannel == null){
+				throw new IOException("The rename journal is not open.");
+			}
+			syncChannel.force(false);
+			syncedPosition = target;
+		}
+	}
+
+	/**
+	 * Counts the key of an Event, or of each Event in an EventGroup.
+	 *
+	 * @param logged
+	 * 		the number of events in the Log with each key.
+	 * @param event
+	 * 		an event of the Log.
+	 * @param bySecond
+	 * 		whether the key keeps the time of the event only to the second.
+	 */
+	private static void addLogged(HashMap<String, Integer> logged, Event event, boolean bySecond){
+		if (event instanceof EventGroup){
+			for (Event member: ((EventGroup) event).getEvents()){
+				addLogged(logged, member, bySecond);
+			}
+		}
+		else{
+			String key = key(event, bySecond);
+			Integer count = logged.get(key);
+			logged.put(key, count == null ? 1 : count + 1);
+		}
+	}
+
+	/**
+	 * Returns a key identifying an Event by its names and time. The time is
+	 * compared in milliseconds since the epoch rather than as text, since the
+	 * Log formats the times of the events it reads in the current time zone.
+	 *
+	 * @param event
+	 * 		the event.
+	 * @param bySecond
+	 * 		whether the time is only kept to the second, as in intents written
+	 * 		before times were kept in milliseconds.
+	 *
+	 * @return the key of the event.
+	 */
+	private static String key(Event event, boolean bySecond){
+		long millis = bySecond ? event.getTime() - event.getTime() % 1000 : event.getTime();
+		String time = event.getTime() < 0 ? event.getTimestamp() : Long.toString(millis);
+		return event.getOldName() + "\u0000" + event.getNewName() + "\u0000" + time;
+	}
+
+	/**
+	 * A rename read from the journal.
+	 */
+	private static class Intent {
+
+		/** The kind of change made by the rename. */
+		private final Operation operation;
+
+		/** The file before it was renamed. */
+		private final File from;
+
+		/** The file after it was renamed. */
+		private final File to;
+
+		/** The date and time of the rename in milliseconds since the epoch, or -1 if only known as text. */
+		private final long time;
+
+		/** The date and time of the rename as text, or null if its time is known. */
+		private final String timestamp;
+
+		/** The Event recording the rename in the Log. */
+		private final Event event;
+
+		/**
+		 * A new rename read from the journal.
+		 *
+		 * @param operation
+		 * 		the kind of change made by the rename.
+		 * @param from
+		 * 		the file before it was renamed.
+		 * @param to
+		 * 		the file after it was renamed.
+		 * @param time
+		 * 		the date and time of the rename in milliseconds since the epoch,
+		 * 		or -1 if it is only known as text.
+		 * @param timestamp
+		 * 		the date and time of the rename as text, or null if time is known.
+		 */
+		Intent(Operation operation, File from, File to, long time, String timestamp){
+			this.operation = operation;
+			this.from = from;
+			this.to = to;
+			this.time = time;
+			this.timestamp = timestamp;
+			this.event = timestamp == null ? new Event(from.getName(), to.getName(), time, Event.directoryOf(from))
+					: new Event(from.getName(), to.getName(), timestamp, Event.directoryOf(from));
+		}
+	}
+}
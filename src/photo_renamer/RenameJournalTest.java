@@ -0,0 +1,271 @@
+package photo_renamer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RenameJournalTest {
+
+	private File directory;
+	private String journalFile;
+	private String segmentFile;
+	private RenameJournal journal;
+	private PhotoNames photoNames;
+	private Log log;
+	private long time;
+
+    /**
+     * Opens an empty journal and Log in a new directory holding one photo.
+     *
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("rename-journal-test").toFile();
+        new File(directory, "image.jpg").createNewFile();
+        journalFile = new File(directory, "RenameJournal").getPath();
+        segmentFile = new File(directory, "EventLog").getPath();
+        journal = new RenameJournal();
+        journal.open(journalFile);
+        photoNames = new PhotoNames();
+        log = new Log();
+        log.open(segmentFile);
+        time = Event.currentTime();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        Renamer.setJournal(null);
+        Event.setClock(Clock.systemDefaultZone());
+        journal.close();
+        log.close();
+        for (File file: directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private File file(String name) {
+        return new File(directory, name);
+    }
+
+    /**
+     * Makes new events at a fixed time, so that renames are made at once.
+     */
+    private void fixClock() {
+        Event.setClock(Clock.fixed(Instant.ofEpochMilli(time), ZoneId.systemDefault()));
+    }
+
+    /**
+     * Runs a plan with a Program whose Log is opened on a segment file.
+     */
+    private EventGroup executePlan(RenamePlan plan, String programSegmentFile) throws IOException, FileNotRenamedException {
+        Program program = new Program();
+        program.getLog().open(programSegmentFile);
+        try {
+            return program.executePlan(plan, null);
+        } finally {
+            program.getLog().close();
+            program.getIoExecutor().shutdown();
+        }
+    }
+
+    private ArrayList<String> newNames() {
+        ArrayList<String> names = new ArrayList<String>();
+        for (Event event: log.getEventList()) {
+            if (event instanceof EventGroup) {
+                for (Event member: ((EventGroup) event).getEvents()) {
+                    names.add(member.getNewName());
+                }
+            } else {
+                names.add(event.getNewName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Renames a photo and journals the rename as Renamer.move does, leaving
+     * out the commit record if the program is to crash before it.
+     */
+    private void rename(String from, String to, RenameJournal.Operation operation, boolean committed) throws IOException {
+        long sequence = journal.logIntent(operation, file(from), file(to), time);
+        assertTrue(file(from).renameTo(file(to)));
+        if (committed) {
+            journal.logCommit(sequence);
+        }
+    }
+
+    /**
+     * Stops using the journal without emptying it, as a crash would.
+     */
+    private int crashAndReplay() throws IOException {
+        journal.close();
+        return RenameJournal.replay(journalFile, photoNames, log);
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameJournal#replay(java.lang.String, photo_renamer.PhotoNames, photo_renamer.Log)}.
+     * Test case for a committed rename missing from the Log and the PhotoNames.
+     */
+    @Test
+    public void testReplayCommittedRename() throws IOException {
+        rename("image.jpg", "image@a.jpg", RenameJournal.Operation.ADD_TAGS, true);
+        assertEquals(1, crashAndReplay());
+        assertEquals(1, log.size());
+        assertEquals("image@a.jpg", log.get(0).getNewName());
+        assertEquals(Arrays.asList("image.jpg"), photoNames.listNames(new Photo(file("image@a.jpg"))));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameJournal#replay(java.lang.String, photo_renamer.PhotoNames, photo_renamer.Log)}.
+     * Test case for a rename already appended to the Log, whose past name
+     * is still missing from the PhotoNames.
+     */
+    @Test
+    public void testReplayRenameAlreadyLogged() throws Exception {
+        Renamer.setJournal(journal);
+        log.addEvent(new TagManager().addPhotoTags(new ArrayList<String>(Arrays.asList("a")), new Photo(file("image.jpg"))));
+        // Events are read back from the segment.
+        log.open(segmentFile);
+        assertEquals(1, crashAndReplay());
+        assertEquals(1, log.size());
+        assertEquals(Arrays.asList("image.jpg"), photoNames.listNames(new Photo(file("image@a.jpg"))));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameJournal#replay(java.lang.String, photo_renamer.PhotoNames, photo_renamer.Log)}.
+     * Test case for the same rename made twice at once, only the first of
+     * which reached the Log.
+     */
+    @Test
+    public void testReplayRepeatedRename() throws Exception {
+        Renamer.setJournal(journal);
+        fixClock();
+        TagManager tagManager = new TagManager();
+        ArrayList<String> tags = new ArrayList<String>(Arrays.asList("a"));
+        Photo photo = new Photo(file("image.jpg"));
+        log.addEvent(tagManager.addPhotoTags(tags, photo));
+        log.addEvent(TagManager.revertName(photo, "image.jpg"));
+        tagManager.addPhotoTags(tags, photo);
+        assertEquals(3, crashAndReplay());
+        assertEquals(3, log.size());
+        assertEquals("image@a.jpg", log.get(2).getNewName());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameJournal#replay(java.lang.String, photo_renamer.PhotoNames, photo_renamer.Log)}.
+     * Test case for intents without a commit record, applied only if the
+     * file was renamed before the crash.
+     */
+    @Test
+    public void testReplayUncommittedIntents() throws IOException {
+        rename("image.jpg", "image@a.jpg", RenameJournal.Operation.ADD_TAGS, false);
+        journal.logIntent(RenameJournal.Operation.ADD_TAGS, file("image@a.jpg"), file("image@a@b.jpg"), time);
+        assertEquals(1, crashAndReplay());
+        assertEquals(1, log.size());
+        assertEquals("image@a.jpg", log.get(0).getNewName());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameJournal#replay(java.lang.String, photo_renamer.PhotoNames, photo_renamer.Log)}.
+     * Test case for a batch of renames, with a cycle of two photos moved
+     * through a temporary name, already appended to the Log.
+     */
+    @Test
+    public void testReplayBatchAlreadyLogged() throws Exception {
+        Renamer.setJournal(journal);
+        new File(directory, "other.jpg").createNewFile();
+        ArrayList<PhotoEntry> existing = new ArrayList<PhotoEntry>();
+        existing.add(new PhotoEntry(file("image.jpg").toPath(), 0, 0, null));
+        existing.add(new PhotoEntry(file("other.jpg").toPath(), 0, 0, null));
+        List<Photo> photos = Arrays.asList(new Photo(file("image.jpg")), new Photo(file("other.jpg")));
+        log.close();
+        executePlan(new RenamePlanner(existing).planAddTags(photos, new ArrayList<String>(Arrays.asList("a"))), segmentFile);
+        executePlan(new RenamePlanner(existing).planRevert(photos, Arrays.asList("other@a.jpg", "image@a.jpg"),
+                "swapped 2 photos"), segmentFile);
+        log.open(segmentFile);
+        assertEquals(4, crashAndReplay());
+        assertEquals(2, log.size());
+        assertEquals(Arrays.asList("image@a.jpg", "other@a.jpg", "image@a.jpg", "other@a.jpg"), newNames());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameJournal#replay(java.lang.String, photo_renamer.PhotoNames, photo_renamer.Log)}.
+     * Test case for a cycle of two photos moved through a temporary name,
+     * missing from the Log, which is applied as the renames of the photos.
+     */
+    @Test
+    public void testReplayCycleMissingFromLog() throws Exception {
+        Renamer.setJournal(journal);
+        new File(directory, "other.jpg").createNewFile();
+        ArrayList<PhotoEntry> existing = new ArrayList<PhotoEntry>();
+        existing.add(new PhotoEntry(file("image.jpg").toPath(), 0, 0, null));
+        existing.add(new PhotoEntry(file("other.jpg").toPath(), 0, 0, null));
+        List<Photo> photos = Arrays.asList(new Photo(file("image.jpg")), new Photo(file("other.jpg")));
+        EventGroup group = executePlan(new RenamePlanner(existing).planRevert(photos,
+                Arrays.asList("other.jpg", "image.jpg"), "swapped 2 photos"), file("OtherLog").getPath());
+        assertEquals(2, crashAndReplay());
+        assertEquals(2, log.size());
+        assertEquals(Arrays.asList("image.jpg", "other.jpg"), newNames());
+        for (Event event: group.getEvents()) {
+            assertEquals(1, log.getPhotoEvents(event.getDirectory(), event.getOldName()).size());
+        }
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameJournal#replay(java.lang.String, photo_renamer.PhotoNames, photo_renamer.Log)}.
+     * Test case for a rename undone by the rollback of a RenameTransaction.
+     */
+    @Test
+    public void testReplaySkipsRolledBackRename() throws IOException {
+        rename("image.jpg", "image@a.jpg", RenameJournal.Operation.ADD_TAGS, true);
+        rename("image@a.jpg", "image.jpg", RenameJournal.Operation.ROLLBACK, true);
+        assertEquals(0, crashAndReplay());
+        assertEquals(0, log.size());
+        assertNull(photoNames.listNames(new Photo(file("image.jpg"))));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameJournal#replay(java.lang.String, photo_renamer.PhotoNames, photo_renamer.Log)}.
+     * Test case for a journal whose last record was torn by the crash.
+     */
+    @Test
+    public void testReplayIgnoresTornRecord() throws IOException {
+        rename("image.jpg", "image@a.jpg", RenameJournal.Operation.ADD_TAGS, true);
+        journal.close();
+        Files.write(file("RenameJournal").toPath(), new byte[] {0, 0, 0, 40, 1, 2, 3},
+                StandardOpenOption.APPEND);
+        assertEquals(1, RenameJournal.replay(journalFile, photoNames, log));
+        assertEquals(1, log.size());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameJournal#checkpoint()}.
+     * Test case for a journal emptied once its renames were saved.
+     */
+    @Test
+    public void testCheckpointEmptiesJournal() throws IOException {
+        rename("image.jpg", "image@a.jpg", RenameJournal.Operation.ADD_TAGS, true);
+        journal.checkpoint();
+        assertEquals(0, crashAndReplay());
+        assertEquals(0, file("RenameJournal").length());
+        assertEquals(new ArrayList<Event>(), log.getEventList());
+    }
+}
@@ -6,14 +6,10 @@ import java.awt.Dialog;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.event.ItemEvent;
-import java.awt.event.ItemListener;
 import java.util.ArrayList;
 
 import javax.swing.AbstractButton;
-import javax.swing.BoxLayout;
 import javax.swing.JButton;
-import javax.swing.JCheckBox;
 import javax.swing.JDialog;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -117,33 +113,23 @@ public class RenamePhotoButtonListener implements ActionListener{
 			
 			JLabel renamePhotoLabel = new JLabel(photoLabel.getText());
 			
-			JTextArea availableTags = new JTextArea();
-			availableTags.setEditable(false);	
-			availableTags.setText("Available Tags in the Program:\n");
-			availableTags.append(program.getTagManager().toString());
-			JScrollPane availableScroll = new JScrollPane(availableTags);
-			availableScroll.setPreferredSize(new Dimension(250, 250));
-			
+			JTextArea selectedTags = new JTextArea();
+			selectedTags.setEditable(false);
+			selectedTags.setText("Tags to be added:\n");
+			JScrollPane selectScroll = new JScrollPane(selectedTags);
+			selectScroll.setPreferredSize(new Dimension(250, 250));
 			
-			JPanel selectTags = new JPanel();
-			selectTags.setLayout(new BoxLayout(selectTags, BoxLayout.Y_AXIS));
-			for(String tag: program.getTagManager().getAvailableTags()){
-				JCheckBox tagBox = new JCheckBox(tag);
-				tagBox.addItemListener(new ItemListener(){
-					@Override
-					public void itemStateChanged(ItemEvent e) {
-							if(e.getStateChange() == ItemEvent.SELECTED){
-								tagsToAdd.add(tag);
-						}
-							else if(e.getStateChange() == ItemEvent.DESELECTED){
-								tagsToAdd.remove(tag);
-							}
+			TagSearchPanel availableTags = new TagSearchPanel(program.getTagManager(), "Type to search the available tags:");
+			availableTags.addTagListener(new ActionListener(){
+				@Override
+				public void actionPerformed(ActionEvent e) {
+					String tag = e.getActionCommand();
+					if(!tagsToAdd.contains(tag)){
+						tagsToAdd.add(tag);
+						selectedTags.append("@" + tag + "\n");
 					}
-				});
-				selectTags.add(tagBox);
-			}
-			JScrollPane selectScroll = new JScrollPane(selectTags);
-			selectScroll.setPreferredSize(new Dimension(250, 250));
+				}
+			});
 			
 			
 			JButton addButton = new JButton("Add Selected Tags");
@@ -174,7 +160,7 @@ public class RenamePhotoButtonListener implements ActionListener{
 				});
 			Container container = renamerWindow.getContentPane();
 			container.add(selectScroll, BorderLayout.CENTER);
-			container.add(availableScroll, BorderLayout.WEST);
+			container.add(availableTags, BorderLayout.WEST);
 			container.add(addButton, BorderLayout.EAST);
 			container.add(renamePhotoLabel, BorderLayout.NORTH);
 			renamerWindow.pack();
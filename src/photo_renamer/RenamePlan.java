@@ -0,0 +1,321 @@
+package photo_renamer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * The renames planned by a RenamePlanner for a group of photos, computed before
+ * any file is renamed. Each item of the plan has the new name of its photo and
+ * whether that photo can be renamed. A plan can be executed later, as it is,
+ * with Program.executePlan.
+ *
+ * @author group_0653
+ */
+public class RenamePlan {
+
+	/** Whether a planned rename can be made. */
+	public enum Status {
+
+		/** The photo can be renamed. */
+		OK,
+
+		/** The photo already has the planned name, or the change does not apply to it. */
+		NOOP,
+
+		/** Another file, or another photo of the plan, already has the planned name. */
+		COLLISION,
+
+		/** The planned name is longer than file systems allow. */
+		TOO_LONG
+	}
+
+	/** The kind of change made by the plan. */
+	private final RenameJournal.Operation operation;
+
+	/** A description of the change made by the plan, for the Log. */
+	private final String description;
+
+	/** The planned rename of each photo, in the order the photos were given. */
+	private final ArrayList<Item> items;
+
+	/** The number of items with each status. */
+	private final int[] statusCounts;
+
+	/**
+	 * A new, empty plan.
+	 *
+	 * @param operation
+	 * 		the kind of change made by the plan.
+	 * @param description
+	 * 		a description of the change made by the plan, for the Log.
+	 * @param expectedSize
+	 * 		the number of photos expected to be planned.
+	 */
+	RenamePlan(RenameJournal.Operation operation, String description, int expectedSize){
+		this.operation = operation;
+		this.description = description;
+		this.items = new ArrayList<Item>(expectedSize);
+		this.statusCounts = new int[Status.values().length];
+	}
+
+	/**
+	 * Adds a planned rename to this plan.
+	 *
+	 * @param item
+	 * 		the planned rename.
+	 */
+	void add(Item item){
+		items.add(item);
+		statusCounts[item.status.ordinal()]++;
+	}
+
+	/**
+	 * Returns the kind of change made by this plan.
+	 *
+	 * @return the operation of this plan.
+	 */
+	public RenameJournal.Operation getOperation(){
+		return operation;
+	}
+
+	/**
+	 * Returns a description of the change made by this plan.
+	 *
+	 * @return the description of this plan.
+	 */
+	public String getDescription(){
+		return description;
+	}
+
+	/**
+	 * Returns the planned rename of each photo, in the order the photos were given.
+	 *
+	 * @return an unmodifiable list of the items of this plan.
+	 */
+	public List<Item> getItems(){
+		return Collections.unmodifiableList(items);
+	}
+
+	/**
+	 * Returns the number of planned renames with a given status.
+	 *
+	 * @param status
+	 * 		the status to be counted.
+	 *
+	 * @return the number of items with status.
+	 */
+	public int count(Status status){
+		return statusCounts[status.ordinal()];
+	}
+
+	/**
+	 * Returns whether every photo of this plan can be renamed or is left unchanged.
+	 *
+	 * @return true if no item is a COLLISION or TOO_LONG, false otherwise.
+	 */
+	public boolean isExecutable(){
+		return count(Status.COLLISION) == 0 && count(Status.TOO_LONG) == 0;
+	}
+
+	/**
+	 * Returns the photos of this plan that can be renamed, in chains of renames
+	 * that must be made in order. A photo can be planned to take the name that
+	 * another photo of the plan is giving up, as when a group of photos is
+	 * reverted; its rename then follows the rename of that photo in the same
+	 * chain. Renames in different chains can be made at the same time.
+	 *
+	 * A chain whose last photo gives up the name taken by its first photo is a
+	 * cycle, such as two photos swapping names. The first photo of a cycle must
+	 * be moved to a temporary name before the others are renamed.
+	 *
+	 * @return a new list of the chains of the OK items of this plan.
+	 */
+	public ArrayList<Chain> getChains(){
+		HashMap<File, Item> bySource = new HashMap<File, Item>();
+		HashMap<File, Item> byTarget = new HashMap<File, Item>();
+		for (Item item: items){
+			if (item.status == Status.OK){
+				bySource.put(item.source, item);
+				byTarget.put(item.getTarget(), item);
+			}
+		}
+		ArrayList<Chain> chains = new ArrayList<Chain>();
+		HashSet<Item> chained = new HashSet<Item>();
+
+		// A chain starts with a photo whose new name no photo of the plan is giving up.
+		for (Item item: items){
+			if (item.status == Status.OK && !bySource.containsKey(item.getTarget())){
+				chains.add(new Chain(follow(item, byTarget, chained), false));
+			}
+		}
+		// Every photo left is on a cycle.
+		for (Item item: items){
+			if (item.status == Status.OK && !chained.contains(item)){
+				chains.add(new Chain(follow(item, byTarget, chained), true));
+			}
+		}
+		return chains;
+	}
+
+	/**
+	 * Returns the chain of renames starting at an item: each following item
+	 * takes the name given up by the item before it.
+	 *
+	 * @param first
+	 * 		the first item of the chain.
+	 * @param byTarget
+	 * 		the OK items of this plan, by their target file.
+	 * @param chained
+	 * 		the items already in a chain, which the items of this chain are added to.
+	 *
+	 * @return the items of the chain, in the order their renames must be made.
+	 */
+	private static ArrayList<Item> follow(Item first, HashMap<File, Item> byTarget, HashSet<Item> chained){
+		ArrayList<Item> chain = new ArrayList<Item>();
+		Item item = first;
+		while (item != null && chained.add(item)){
+			chain.add(item);
+			item = byTarget.get(item.source);
+		}
+		return chain;
+	}
+
+	/**
+	 * Returns a short summary of this plan, such as "3 to rename, 1 collision".
+	 *
+	 * @return the summary of this plan.
+	 */
+	@Override
+	public String toString(){
+		return count(Status.OK) + " to rename, " + count(Status.NOOP) + " unchanged, "
+				+ count(Status.COLLISION) + " collisions, " + count(Status.TOO_LONG) + " too long";
+	}
+
+	/**
+	 * Renames of a plan that must be made one after another.
+	 */
+	public static final class Chain {
+
+		/** The items of the chain, in the order their renames must be made. */
+		private final ArrayList<Item> items;
+
+		/** Whether the last item gives up the name taken by the first item. */
+		private final boolean cycle;
+
+		/**
+		 * A new chain of renames.
+		 *
+		 * @param items
+		 * 		the items of the chain, in order.
+		 * @param cycle
+		 * 		whether the last item gives up the name taken by the first item.
+		 */
+		Chain(ArrayList<Item> items, boolean cycle){
+			this.items = items;
+			this.cycle = cycle;
+		}
+
+		/**
+		 * Returns the items of this chain, in the order their renames must be made.
+		 *
+		 * @return an unmodifiable list of the items of this chain.
+		 */
+		public List<Item> getItems(){
+			return Collections.unmodifiableList(items);
+		}
+
+		/**
+		 * Returns whether this chain is a cycle, whose first photo must be moved
+		 * to a temporary name before the others are renamed.
+		 *
+		 * @return true if this chain is a cycle, false otherwise.
+		 */
+		public boolean isCycle(){
+			return cycle;
+		}
+	}
+
+	/**
+	 * The planned rename of a single photo.
+	 */
+	public static final class Item {
+
+		/** The photo to be renamed. */
+		private final Photo photo;
+
+		/** The file of the photo when the rename was planned. */
+		private final File source;
+
+		/** The planned name of the photo. */
+		private final String newName;
+
+		/** Whether the rename can be made. */
+		private final Status status;
+
+		/**
+		 * A new planned rename.
+		 *
+		 * @param photo
+		 * 		the photo to be renamed.
+		 * @param newName
+		 * 		the planned name of the photo.
+		 * @param status
+		 * 		whether the rename can be made.
+		 */
+		Item(Photo photo, String newName, Status status){
+			this.photo = photo;
+			this.source = photo.getPhotoFile();
+			this.newName = newName;
+			this.status = status;
+		}
+
+		/**
+		 * Returns the photo to be renamed.
+		 *
+		 * @return the photo of this item.
+		 */
+		public Photo getPhoto(){
+			return photo;
+		}
+
+		/**
+		 * Returns the file of the photo when the rename was planned.
+		 *
+		 * @return the file to be renamed.
+		 */
+		public File getSource(){
+			return source;
+		}
+
+		/**
+		 * Returns the planned name of the photo.
+		 *
+		 * @return the new name of the photo.
+		 */
+		public String getNewName(){
+			return newName;
+		}
+
+		/**
+		 * Returns the planned file of the photo, in the same directory as its source file.
+		 *
+		 * @return the new file of the photo.
+		 */
+		public File getTarget(){
+			return new File(source.getParentFile(), newName);
+		}
+
+		/**
+		 * Returns whether the rename can be made.
+		 *
+		 * @return the status of this item.
+		 */
+		public Status getStatus(){
+			return status;
+		}
+	}
+}
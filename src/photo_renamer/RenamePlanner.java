@@ -0,0 +1,242 @@
+package photo_renamer;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Plans the renames of a group of photos without touching the file system.
+ * Every new name is computed up front and checked against an index of the
+ * names already used in each directory, so collisions, photos left unchanged
+ * and names that are too long are all reported before any file is renamed.
+ *
+ * The index is built from the photo files found by the last directory scan.
+ * A new name always keeps the extension of its photo, so the only files it
+ * can collide with are other photo files. A file created after the scan is
+ * still caught by Renamer, which refuses to replace an existing file.
+ *
+ * A name stays taken for the whole plan even if its photo is renamed by the
+ * same plan, since the renames of a plan may be made in any order. Only a
+ * revert plan may give a photo a name another photo of the plan gives up,
+ * since the renames of a revert are put in order before they are made.
+ *
+ * @author group_0653
+ */
+public class RenamePlanner {
+
+	/** The longest file name, in bytes, allowed by common file systems. */
+	public static final int MAX_NAME_BYTES = 255;
+
+	/** The names of the files in each directory, by the path of the directory. */
+	private final HashMap<String, HashSet<String>> namesByDirectory;
+
+	/**
+	 * A new RenamePlanner that indexes the names of a group of existing files.
+	 *
+	 * @param existingFiles
+	 * 		the files whose names are already taken.
+	 */
+	public RenamePlanner(Iterable<PhotoEntry> existingFiles){
+		this.namesByDirectory = new HashMap<String, HashSet<String>>();
+		for (PhotoEntry entry: existingFiles){
+			File file = entry.getFile();
+			namesIn(file.getParent()).add(file.getName());
+		}
+	}
+
+	/**
+	 * Plans the addition of one or more tags to each of a group of photos.
+	 * A photo that already contains one of the tags is left unchanged.
+	 *
+	 * @param photos
+	 * 		the photos to be tagged.
+	 * @param tags
+	 * 		the tags to be added to each photo.
+	 *
+	 * @return the plan of the renames.
+	 */
+	public RenamePlan planAddTags(Collection<Photo> photos, ArrayList<String> tags){
+		RenamePlan plan = new RenamePlan(RenameJournal.Operation.ADD_TAGS, "added " + describe(tags), photos.size());
+		HashMap<String, HashSet<String>> reserved = new HashMap<String, HashSet<String>>();
+		for (Photo photo: photos){
+			PhotoName name = photo.getPhotoName();
+			if (name.hasAnyTag(tags)){
+				plan.add(new RenamePlan.Item(photo, name.getName(), RenamePlan.Status.NOOP));
+				continue;
+			}
+			plan.add(check(photo, name.withTagsAdded(tags), reserved, null));
+		}
+		return plan;
+	}
+
+	/**
+	 * Plans the removal of one or more tags from each of a group of photos.
+	 * A photo that contains none of the tags is left unchanged.
+	 *
+	 * @param photos
+	 * 		the photos to be renamed.
+	 * @param tags
+	 * 		the tags to be removed from each photo.
+	 *
+	 * @return the plan of the renames.
+	 */
+	public RenamePlan planRemoveTags(Collection<Photo> photos, ArrayList<String> tags){
+		RenamePlan plan = new RenamePlan(RenameJournal.Operation.REMOVE_TAGS, "removed " + describe(tags), photos.size());
+		HashMap<String, HashSet<String>> reserved = new HashMap<String, HashSet<String>>();
+		for (Photo photo: photos){
+			PhotoName name = photo.getPhotoName();
+			if (!name.hasAnyTag(tags)){
+				plan.add(new RenamePlan.Item(photo, name.getName(), RenamePlan.Status.NOOP));
+				continue;
+			}
+			plan.add(check(photo, name.withTagsRemoved(tags), reserved, null));
+		}
+		return plan;
+	}
+
+	/**
+	 * Plans the replacement of one tag by another in each of a group of
+	 * photos. A photo that already has the new tag only loses the old one, so
+	 * the same plan serves to rename a tag and to merge it into another tag.
+	 * A photo without the old tag is left unchanged.
+	 *
+	 * @param photos
+	 * 		the photos to be renamed.
+	 * @param oldTag
+	 * 		the tag to be replaced.
+	 * @param newTag
+	 * 		the tag that replaces it.
+	 * @param description
+	 * 		a description of the change, such as "renamed @a to @b".
+	 *
+	 * @return the plan of the renames.
+	 */
+	public RenamePlan planReplaceTag(Collection<Photo> photos, String oldTag, String newTag, String description){
+		RenamePlan plan = new RenamePlan(RenameJournal.Operation.RENAME_TAG, description, photos.size());
+		HashMap<String, HashSet<String>> reserved = new HashMap<String, HashSet<String>>();
+		for (Photo photo: photos){
+			PhotoName name = photo.getPhotoName();
+			if (!name.hasTag(oldTag)){
+				plan.add(new RenamePlan.Item(photo, name.getName(), RenamePlan.Status.NOOP));
+				continue;
+			}
+			plan.add(check(photo, name.withTagReplaced(oldTag, newTag), reserved, null));
+		}
+		return plan;
+	}
+
+	/**
+	 * Plans the renames of a group of photos back to given names, as when the
+	 * photos are reverted. Unlike the other plans, a photo may take a name that
+	 * another photo of the same plan is giving up; RenamePlan.getChains orders
+	 * such renames, and finds the cycles among them.
+	 *
+	 * @param photos
+	 * 		the photos to be renamed.
+	 * @param newNames
+	 * 		the new name of each photo, in the same order as photos.
+	 * @param description
+	 * 		a description of the change, such as "reverted 3 photos".
+	 *
+	 * @return the plan of the renames.
+	 */
+	public RenamePlan planRevert(List<Photo> photos, List<String> newNames, String description){
+		RenamePlan plan = new RenamePlan(RenameJournal.Operation.REVERT, description, photos.size());
+		HashMap<String, HashSet<String>> vacated = new HashMap<String, HashSet<String>>();
+		for (int i = 0; i < photos.size(); i++){
+			File file = photos.get(i).getPhotoFile();
+			if (!file.getName().equals(newNames.get(i))){
+				HashSet<String> names = vacated.get(file.getParent());
+				if (names == null){
+					names = new HashSet<String>();
+					vacated.put(file.getParent(), names);
+				}
+				names.add(file.getName());
+			}
+		}
+		HashMap<String, HashSet<String>> reserved = new HashMap<String, HashSet<String>>();
+		for (int i = 0; i < photos.size(); i++){
+			Photo photo = photos.get(i);
+			if (photo.getCurName().equals(newNames.get(i))){
+				plan.add(new RenamePlan.Item(photo, newNames.get(i), RenamePlan.Status.NOOP));
+				continue;
+			}
+			plan.add(check(photo, newNames.get(i), reserved, vacated));
+		}
+		return plan;
+	}
+
+	/**
+	 * Checks a new name of a photo against the names already taken in its
+	 * directory and the names planned for earlier photos of the same plan.
+	 *
+	 * @param photo
+	 * 		the photo to be renamed.
+	 * @param newName
+	 * 		the new name of the photo.
+	 * @param reserved
+	 * 		the names planned so far, by the path of their directory.
+	 * @param vacated
+	 * 		the names given up by photos of the plan, by the path of their
+	 * 		directory, which may be taken again; or null if none may be.
+	 *
+	 * @return the planned rename of the photo.
+	 */
+	private RenamePlan.Item check(Photo photo, String newName, HashMap<String, HashSet<String>> reserved,
+			HashMap<String, HashSet<String>> vacated){
+		// A character takes at most three bytes in UTF-8, so short names are not encoded.
+		if (newName.length() * 3 > MAX_NAME_BYTES && newName.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_BYTES){
+			return new RenamePlan.Item(photo, newName, RenamePlan.Status.TOO_LONG);
+		}
+		String directory = photo.getPhotoFile().getParent();
+		HashSet<String> existing = namesByDirectory.get(directory);
+		HashSet<String> planned = reserved.get(directory);
+		if (planned == null){
+			planned = new HashSet<String>();
+			reserved.put(directory, planned);
+		}
+		HashSet<String> free = vacated == null ? null : vacated.get(directory);
+		boolean taken = existing != null && existing.contains(newName) && (free == null || !free.contains(newName));
+		if (taken || !planned.add(newName)){
+			return new RenamePlan.Item(photo, newName, RenamePlan.Status.COLLISION);
+		}
+		return new RenamePlan.Item(photo, newName, RenamePlan.Status.OK);
+	}
+
+	/**
+	 * Returns the names of the files in a directory, creating the set if needed.
+	 *
+	 * @param directory
+	 * 		the path of the directory.
+	 *
+	 * @return the set of names in directory.
+	 */
+	private HashSet<String> namesIn(String directory){
+		HashSet<String> names = namesByDirectory.get(directory);
+		if (names == null){
+			names = new HashSet<String>();
+			namesByDirectory.put(directory, names);
+		}
+		return names;
+	}
+
+	/**
+	 * Returns the tags of a change as they appear in a photo name, such as "@a@b".
+	 *
+	 * @param tags
+	 * 		the tags of the change.
+	 *
+	 * @return the description of the tags.
+	 */
+	private static String describe(ArrayList<String> tags){
+		StringBuilder description = new StringBuilder();
+		for (String tag: tags){
+			description.append('@').append(tag);
+		}
+		return description.toString();
+	}
+}
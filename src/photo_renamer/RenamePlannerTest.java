@@ -0,0 +1,228 @@
+package photo_renamer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RenamePlannerTest {
+
+	private File directory;
+	private ArrayList<PhotoEntry> existing;
+	private ArrayList<String> tags;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        Renamer.setJournal(null);
+        directory = Files.createTempDirectory("rename-planner-test").toFile();
+        existing = new ArrayList<PhotoEntry>();
+        tags = new ArrayList<String>();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        for (File file: directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Returns a photo of the directory, recorded as scanned by the planner.
+     */
+    private Photo photo(String name) {
+        File file = new File(directory, name);
+        existing.add(new PhotoEntry(file.toPath(), 0, 0, null));
+        return new Photo(file);
+    }
+
+    private ArrayList<RenamePlan.Status> statuses(RenamePlan plan) {
+        ArrayList<RenamePlan.Status> statuses = new ArrayList<RenamePlan.Status>();
+        for (RenamePlan.Item item: plan.getItems()) {
+            statuses.add(item.getStatus());
+        }
+        return statuses;
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenamePlanner#planAddTags(java.util.Collection, java.util.ArrayList)}.
+     * Test case for new names that are free, taken by another file, and
+     * already carried by the photo.
+     */
+    @Test
+    public void testPlanAddTagsStatuses() {
+        Photo free = photo("a.jpg");
+        Photo taken = photo("b.jpg");
+        photo("b@x.jpg");
+        Photo tagged = photo("c@x.jpg");
+        tags.add("x");
+        RenamePlan plan = new RenamePlanner(existing).planAddTags(Arrays.asList(free, taken, tagged), tags);
+        assertEquals(Arrays.asList(RenamePlan.Status.OK, RenamePlan.Status.COLLISION, RenamePlan.Status.NOOP),
+                statuses(plan));
+        assertEquals("a@x.jpg", plan.getItems().get(0).getNewName());
+        assertFalse(plan.isExecutable());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenamePlanner#planRemoveTags(java.util.Collection, java.util.ArrayList)}.
+     * Test case for two photos planned to take the same name.
+     */
+    @Test
+    public void testPlanRemoveTagsCollisionWithinPlan() {
+        Photo first = photo("a@x.jpg");
+        Photo second = photo("a@y.jpg");
+        tags.add("x");
+        tags.add("y");
+        RenamePlan plan = new RenamePlanner(existing).planRemoveTags(Arrays.asList(first, second), tags);
+        assertEquals(Arrays.asList(RenamePlan.Status.OK, RenamePlan.Status.COLLISION), statuses(plan));
+        assertEquals(1, plan.count(RenamePlan.Status.COLLISION));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenamePlanner#planAddTags(java.util.Collection, java.util.ArrayList)}.
+     * Test case for a new name longer than file systems allow.
+     */
+    @Test
+    public void testPlanAddTagsTooLong() {
+        Photo photo = photo("a.jpg");
+        char[] longTag = new char[RenamePlanner.MAX_NAME_BYTES];
+        Arrays.fill(longTag, 't');
+        tags.add(new String(longTag));
+        RenamePlan plan = new RenamePlanner(existing).planAddTags(Arrays.asList(photo), tags);
+        assertEquals(Arrays.asList(RenamePlan.Status.TOO_LONG), statuses(plan));
+        assertFalse(plan.isExecutable());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenamePlanner#planRevert(java.util.List, java.util.List, java.lang.String)}.
+     * Test case for a photo taking a name given up by another photo of the
+     * plan, and one taking the name of a photo outside the plan.
+     */
+    @Test
+    public void testPlanRevertVacatedName() {
+        Photo first = photo("a.jpg");
+        Photo second = photo("b.jpg");
+        Photo third = photo("d.jpg");
+        photo("e.jpg");
+        RenamePlan plan = new RenamePlanner(existing).planRevert(Arrays.asList(first, second, third),
+                Arrays.asList("b.jpg", "c.jpg", "e.jpg"), "reverted 3 photos");
+        assertEquals(Arrays.asList(RenamePlan.Status.OK, RenamePlan.Status.OK, RenamePlan.Status.COLLISION),
+                statuses(plan));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenamePlan#getChains()}.
+     * Test case for a photo taking a vacated name, which is renamed after
+     * the photo that gives it up.
+     */
+    @Test
+    public void testChainOrdersVacatedName() {
+        Photo first = photo("a.jpg");
+        Photo second = photo("b.jpg");
+        RenamePlan plan = new RenamePlanner(existing).planRevert(Arrays.asList(first, second),
+                Arrays.asList("b.jpg", "c.jpg"), "reverted 2 photos");
+        ArrayList<RenamePlan.Chain> chains = plan.getChains();
+        assertEquals(1, chains.size());
+        assertFalse(chains.get(0).isCycle());
+        assertSame(second, chains.get(0).getItems().get(0).getPhoto());
+        assertSame(first, chains.get(0).getItems().get(1).getPhoto());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenamePlan#getChains()}.
+     * Test case for three photos renamed in a cycle, and one photo renamed
+     * on its own.
+     */
+    @Test
+    public void testChainFindsCycle() {
+        Photo a = photo("a.jpg");
+        Photo b = photo("b.jpg");
+        Photo c = photo("c.jpg");
+        Photo d = photo("d.jpg");
+        RenamePlan plan = new RenamePlanner(existing).planRevert(Arrays.asList(a, b, c, d),
+                Arrays.asList("b.jpg", "c.jpg", "a.jpg", "e.jpg"), "reverted 4 photos");
+        assertTrue(plan.isExecutable());
+        ArrayList<RenamePlan.Chain> chains = plan.getChains();
+        assertEquals(2, chains.size());
+        assertFalse(chains.get(0).isCycle());
+        assertEquals(1, chains.get(0).getItems().size());
+        assertTrue(chains.get(1).isCycle());
+        assertEquals(3, chains.get(1).getItems().size());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.Program#executePlan(photo_renamer.RenamePlan, photo_renamer.ProgressListener)}.
+     * Test case for two photos swapping names on disk.
+     */
+    @Test
+    public void testExecuteCycle() throws IOException, FileNotRenamedException {
+        Photo a = photo("a.jpg");
+        Photo b = photo("b.jpg");
+        Files.write(a.getPhotoFile().toPath(), new byte[] {'a'});
+        Files.write(b.getPhotoFile().toPath(), new byte[] {'b'});
+        RenamePlan plan = new RenamePlanner(existing).planRevert(Arrays.asList(a, b),
+                Arrays.asList("b.jpg", "a.jpg"), "swapped 2 photos");
+        Program program = new Program();
+        EventGroup group = program.executePlan(plan, null);
+        program.getIoExecutor().shutdown();
+        assertEquals(2, group.getEvents().size());
+        assertArrayEquals(new byte[] {'a'}, Files.readAllBytes(new File(directory, "b.jpg").toPath()));
+        assertArrayEquals(new byte[] {'b'}, Files.readAllBytes(new File(directory, "a.jpg").toPath()));
+        assertEquals(2, directory.list().length);
+        assertEquals("b.jpg", a.getCurName());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.Program#planRevertSince(int)}.
+     * Test case for photos of the same names in two directories, whose
+     * renames are followed apart.
+     */
+    @Test
+    public void testPlanRevertSinceSameNameInTwoDirectories() throws IOException {
+        File first = new File(directory, "first");
+        File second = new File(directory, "second");
+        first.mkdir();
+        second.mkdir();
+        new File(first, "x@t.jpg").createNewFile();
+        new File(second, "x@t@u.jpg").createNewFile();
+        File segmentFile = new File(directory, "EventLog");
+        Program program = new Program();
+        program.getLog().open(segmentFile.getPath());
+        try {
+            program.getLog().addEvent(new Event("x.jpg", "x@t.jpg", 1000L, first.getAbsolutePath()));
+            program.getLog().addEvent(new Event("x@t.jpg", "x@t@u.jpg", 2000L, second.getAbsolutePath()));
+            program.selectDirectory(directory);
+            program.populatePhotos(directory);
+            RenamePlan plan = program.planRevertSince(0);
+            assertEquals(2, plan.getItems().size());
+            for (RenamePlan.Item item: plan.getItems()) {
+                if (item.getSource().getParentFile().equals(first)) {
+                    assertEquals("x.jpg", item.getNewName());
+                } else {
+                    assertEquals("x@t.jpg", item.getNewName());
+                }
+            }
+        } finally {
+            program.getLog().close();
+            program.getIoExecutor().shutdown();
+            for (File subdirectory: new File[] {first, second}) {
+                for (File file: subdirectory.listFiles()) {
+                    file.delete();
+                }
+            }
+        }
+    }
+}
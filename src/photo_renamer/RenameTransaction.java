@@ -0,0 +1,105 @@
+package photo_renamer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * A group of renames that is applied all together or not at all. Each rename is
+ * made as soon as it is requested and remembered; if a later rename of the group
+ * fails, rollback renames every remembered file back to its old name, newest first.
+ * Renames may be requested from several threads at the same time.
+ *
+ * @author group_0653
+ */
+public class RenameTransaction {
+
+	/** The renames made so far, oldest first. */
+	private ArrayList<File[]> applied;
+
+	/** Whether this transaction has been committed or rolled back. */
+	private boolean finished;
+
+	/**
+	 * A new RenameTransaction with no renames.
+	 */
+	public RenameTransaction(){
+		this.applied = new ArrayList<File[]>();
+	}
+
+	/**
+	 * Renames a file as part of this transaction.
+	 *
+	 * @param oldFile
+	 * 		the file to be renamed.
+	 * @param newFile
+	 * 		the new name of the file.
+	 * @param operation
+	 * 		the kind of change made by the rename.
+	 * @param time
+	 * 		the date and time of the rename in milliseconds since the epoch,
+	 * 		as recorded in the Log.
+	 *
+	 * @throws FileNotRenamedException if the file cannot be renamed, or if the
+	 * 		transaction was already committed or rolled back.
+	 */
+	public void rename(File oldFile, File newFile, RenameJournal.Operation operation, long time) throws FileNotRenamedException{
+		synchronized (this){
+			if (finished){
+				throw new FileNotRenamedException("The rename transaction is already finished.");
+			}
+		}
+		try{
+			Renamer.move(oldFile, newFile, operation, time);
+		}
+		catch (IOException e){
+			throw new FileNotRenamedException("This file could not be renamed: " + e);
+		}
+		synchronized (this){
+			if (!finished){
+				applied.add(new File[] {oldFile, newFile});
+				return;
+			}
+		}
+		// The transaction was rolled back while the file was being renamed.
+		Renamer.rename(newFile, oldFile, RenameJournal.Operation.ROLLBACK, Event.currentTime());
+		throw new FileNotRenamedException("The rename transaction was rolled back.");
+	}
+
+	/**
+	 * Returns the number of renames made by this transaction.
+	 *
+	 * @return the number of renames made so far.
+	 */
+	public synchronized int size(){
+		return applied.size();
+	}
+
+	/**
+	 * Keeps every rename made by this transaction. No more renames can be made with it.
+	 */
+	public synchronized void commit(){
+		finished = true;
+	}
+
+	/**
+	 * Renames every file renamed by this transaction back to its old name, newest
+	 * first. A file that cannot be renamed back is skipped, so that the others are
+	 * still restored. No more renames can be made with this transaction.
+	 *
+	 * @return the files that could not be renamed back, by their current names.
+	 */
+	public synchronized ArrayList<File> rollback(){
+		finished = true;
+		ArrayList<File> notRestored = new ArrayList<File>();
+		long time = Event.currentTime();
+		for (int i = applied.size() - 1; i >= 0; i--){
+			File[] rename = applied.get(i);
+			if (!Renamer.rename(rename[1], rename[0], RenameJournal.Operation.ROLLBACK, time)){
+				notRestored.add(rename[1]);
+			}
+		}
+		applied.clear();
+		return notRestored;
+	}
+}
@@ -0,0 +1,147 @@
+package photo_renamer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RenameTransactionTest {
+
+	private File directory;
+	private RenameTransaction transaction;
+	private long time;
+
+    /**
+     * Creates a directory holding two photos and an empty transaction.
+     *
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        Renamer.setJournal(null);
+        directory = Files.createTempDirectory("rename-transaction-test").toFile();
+        file("a.jpg").createNewFile();
+        file("b.jpg").createNewFile();
+        transaction = new RenameTransaction();
+        time = Event.currentTime();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        Renamer.setJournal(null);
+        for (File file: directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private File file(String name) {
+        return new File(directory, name);
+    }
+
+    private void rename(String from, String to) throws FileNotRenamedException {
+        transaction.rename(file(from), file(to), RenameJournal.Operation.ADD_TAGS, time);
+    }
+
+    private ArrayList<String> names() {
+        String[] names = directory.list();
+        Arrays.sort(names);
+        return new ArrayList<String>(Arrays.asList(names));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameTransaction#rollback()}.
+     * Test case for renames of two photos, one of them renamed twice.
+     */
+    @Test
+    public void testRollbackRestoresEveryName() throws FileNotRenamedException {
+        rename("a.jpg", "a@x.jpg");
+        rename("b.jpg", "b@x.jpg");
+        rename("a@x.jpg", "a@x@y.jpg");
+        assertEquals(3, transaction.size());
+        assertTrue(transaction.rollback().isEmpty());
+        assertEquals(Arrays.asList("a.jpg", "b.jpg"), names());
+        assertEquals(0, transaction.size());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameTransaction#rename(java.io.File, java.io.File, photo_renamer.RenameJournal.Operation, java.lang.String)}.
+     * Test case for a rename onto an existing file, after which the earlier
+     * renames of the batch are rolled back.
+     */
+    @Test
+    public void testFailedRenameThenRollback() throws FileNotRenamedException {
+        rename("a.jpg", "a@x.jpg");
+        try {
+            rename("b.jpg", "a@x.jpg");
+            fail("renamed onto an existing file");
+        } catch (FileNotRenamedException e) {
+            // The existing file is never replaced.
+        }
+        assertEquals(1, transaction.size());
+        assertTrue(transaction.rollback().isEmpty());
+        assertEquals(Arrays.asList("a.jpg", "b.jpg"), names());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameTransaction#rollback()}.
+     * Test case for a photo whose old name was taken after it was renamed.
+     */
+    @Test
+    public void testRollbackReportsFileNotRestored() throws FileNotRenamedException, IOException {
+        rename("a.jpg", "a@x.jpg");
+        rename("b.jpg", "b@x.jpg");
+        file("a.jpg").createNewFile();
+        ArrayList<File> notRestored = transaction.rollback();
+        assertEquals(Arrays.asList(file("a@x.jpg")), notRestored);
+        assertEquals(Arrays.asList("a.jpg", "a@x.jpg", "b.jpg"), names());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameTransaction#commit()}.
+     * Test case for a committed transaction, which keeps its renames and
+     * accepts no more.
+     */
+    @Test
+    public void testCommitKeepsRenames() throws FileNotRenamedException {
+        rename("a.jpg", "a@x.jpg");
+        transaction.commit();
+        try {
+            rename("b.jpg", "b@x.jpg");
+            fail("renamed after commit");
+        } catch (FileNotRenamedException e) {
+            // No more renames can be made.
+        }
+        assertEquals(Arrays.asList("a@x.jpg", "b.jpg"), names());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.RenameTransaction#rollback()}.
+     * Test case for a rolled back batch recorded in the RenameJournal, none
+     * of whose renames is applied when the journal is replayed.
+     */
+    @Test
+    public void testRollbackIsJournaled() throws Exception {
+        String journalFile = file("RenameJournal").getPath();
+        RenameJournal journal = new RenameJournal();
+        journal.open(journalFile);
+        Renamer.setJournal(journal);
+        rename("a.jpg", "a@x.jpg");
+        rename("b.jpg", "b@x.jpg");
+        transaction.rollback();
+        journal.close();
+        Log log = new Log();
+        assertEquals(0, RenameJournal.replay(journalFile, new PhotoNames(), log));
+        assertEquals(0, log.size());
+    }
+}
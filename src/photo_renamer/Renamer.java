@@ -0,0 +1,139 @@
+package photo_renamer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Renames photo files for the TagManager. Every rename made by the program goes 
+ * through this class, so that it can be recorded in the RenameJournal of the 
+ * program before the file is renamed.
+ * 
+ * Files are moved atomically where the file system supports it, so a photo is 
+ * always found under either its old or its new name. An existing file is never 
+ * replaced by a rename.
+ * 
+ * @author group_0653
+ */
+public final class Renamer {
+
+	/** The journal renames are recorded in, or null if renames are not recorded. */
+	private static volatile RenameJournal journal;
+
+	/**
+	 * Renamer only has static methods and is never instantiated.
+	 */
+	private Renamer(){
+	}
+
+	/**
+	 * Sets the journal that renames are recorded in.
+	 * 
+	 * @param renameJournal
+	 * 		the RenameJournal to be used, or null to stop recording renames.
+	 */
+	public static void setJournal(RenameJournal renameJournal){
+		journal = renameJournal;
+	}
+
+	/**
+	 * Renames a photo file. If there is a journal, the rename is recorded in it 
+	 * and forced to disk first; if it cannot be recorded, the file is not renamed.
+	 * 
+	 * @param oldFile
+	 * 		the photo file to be renamed.
+	 * 
+	 * @param newFile
+	 * 		the new name of the photo file.
+	 * 
+	 * @param operation
+	 * 		the kind of change made by the rename.
+	 * 
+	 * @param time
+	 * 		the date and time of the rename in milliseconds since the epoch, 
+	 * 		as recorded in the Log.
+	 * 
+	 * @return true if the file was renamed, false otherwise.
+	 * 
+	 * @see #move(File, File, RenameJournal.Operation, long)
+	 */
+	public static boolean rename(File oldFile, File newFile, RenameJournal.Operation operation, long time){
+		try{
+			move(oldFile, newFile, operation, time);
+			return true;
+		}
+		catch (IOException e){
+			return false;
+		}
+	}
+
+	/**
+	 * Renames a photo file, reporting why it could not be renamed. If there is a 
+	 * journal, the rename is recorded in it and forced to disk first; if it cannot 
+	 * be recorded, the file is not renamed.
+	 * 
+	 * @param oldFile
+	 * 		the photo file to be renamed.
+	 * 
+	 * @param newFile
+	 * 		the new name of the photo file.
+	 * 
+	 * @param operation
+	 * 		the kind of change made by the rename.
+	 * 
+	 * @param time
+	 * 		the date and time of the rename in milliseconds since the epoch, 
+	 * 		as recorded in the Log.
+	 * 
+	 * @throws FileAlreadyExistsException if another file already has the new name.
+	 * 
+	 * @throws IOException if the rename cannot be recorded or made.
+	 */
+	public static void move(File oldFile, File newFile, RenameJournal.Operation operation, long time) throws IOException{
+		Path source = oldFile.toPath();
+		Path target = newFile.toPath();
+		// An atomic move may silently replace an existing file, so the target is checked first.
+		if (Files.exists(target) && !Files.isSameFile(source, target)){
+			throw new FileAlreadyExistsException(target.toString());
+		}
+		RenameJournal renameJournal = journal;
+		if (renameJournal == null || !renameJournal.isOpen()){
+			moveFile(source, target);
+			return;
+		}
+		long sequence = renameJournal.logIntent(operation, oldFile, newFile, time);
+		moveFile(source, target);
+		try{
+			renameJournal.logCommit(sequence);
+		}
+		catch (IOException e){
+			// The rename is still found on disk when the journal is replayed.
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Moves a file atomically, or with a plain move if the file system does not 
+	 * support atomic moves.
+	 * 
+	 * @param source
+	 * 		the file to be moved.
+	 * 
+	 * @param target
+	 * 		the new path of the file.
+	 * 
+	 * @throws IOException if the file cannot be moved.
+	 */
+	private static void moveFile(Path source, Path target) throws IOException{
+		try{
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e){
+			Files.move(source, target);
+		}
+	}
+}
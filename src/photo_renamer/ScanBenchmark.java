@@ -0,0 +1,161 @@
+package photo_renamer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+
+/**
+ * A benchmark of the throughput of the DirectoryScanner. It builds a
+ * synthetic tree of empty photo files, several levels deep and several
+ * directories wide, and scans it with one thread and with one thread per
+ * processor, printing the photos found per second of each.
+ *
+ * Run with: java photo_renamer.ScanBenchmark [depth] [width] [photos per directory]
+ *
+ * @author group_0653
+ */
+public class ScanBenchmark {
+
+	/** The number of times each scan is run before it is timed. */
+	private static final int WARMUP_RUNS = 3;
+
+	/** The number of timed runs of each scan. */
+	private static final int TIMED_RUNS = 5;
+
+	/**
+	 * Builds the synthetic tree, runs the benchmark and deletes the tree.
+	 *
+	 * @param args
+	 * 		the depth and width of the tree and the number of photos in each
+	 * 		directory, by default 4, 6 and 20.
+	 *
+	 * @throws IOException if the tree cannot be built or deleted.
+	 */
+	public static void main(String[] args) throws IOException{
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int width = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+		int photos = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		Path root = Files.createTempDirectory("scan-benchmark");
+		try{
+			int created = buildTree(root, depth, width, photos);
+			System.out.println("Tree of " + created + " photos, depth " + depth + ", width " + width);
+			int processors = Runtime.getRuntime().availableProcessors();
+			run(root.toFile(), 1, created);
+			if (processors > 1){
+				run(root.toFile(), processors, created);
+			}
+		}
+		finally{
+			deleteTree(root);
+		}
+	}
+
+	/**
+	 * Scans a tree with a given parallelism and prints its throughput.
+	 *
+	 * @param root
+	 * 		the root of the tree.
+	 * @param parallelism
+	 * 		the number of threads of the scanner.
+	 * @param expected
+	 * 		the number of photos in the tree.
+	 */
+	private static void run(File root, int parallelism, int expected){
+		DirectoryScanner scanner = new DirectoryScanner(parallelism);
+		try{
+			for (int i = 0; i < WARMUP_RUNS; i++){
+				scan(scanner, root, expected);
+			}
+			long start = System.nanoTime();
+			for (int i = 0; i < TIMED_RUNS; i++){
+				scan(scanner, root, expected);
+			}
+			double seconds = (System.nanoTime() - start) / 1e9 / TIMED_RUNS;
+			System.out.printf("%2d threads: %8.1f ms per scan, %10.0f photos/s%n",
+					parallelism, seconds * 1000, expected / seconds);
+		}
+		finally{
+			scanner.shutdown();
+		}
+	}
+
+	/**
+	 * Scans a tree once and checks that every photo was found.
+	 *
+	 * @param scanner
+	 * 		the scanner.
+	 * @param root
+	 * 		the root of the tree.
+	 * @param expected
+	 * 		the number of photos in the tree.
+	 */
+	private static void scan(DirectoryScanner scanner, File root, int expected){
+		int found = 0;
+		for (Iterator<PhotoEntry> photos = scanner.scan(root); photos.hasNext(); photos.next()){
+			found++;
+		}
+		if (found != expected){
+			throw new IllegalStateException("Found " + found + " of " + expected + " photos.");
+		}
+	}
+
+	/**
+	 * Builds a tree of empty photo files.
+	 *
+	 * @param directory
+	 * 		the directory to build the tree in.
+	 * @param depth
+	 * 		the number of levels of subdirectories under directory.
+	 * @param width
+	 * 		the number of subdirectories of each directory.
+	 * @param photos
+	 * 		the number of photos in each directory.
+	 *
+	 * @return the number of photos created.
+	 *
+	 * @throws IOException if a file cannot be created.
+	 */
+	static int buildTree(Path directory, int depth, int width, int photos) throws IOException{
+		int created = 0;
+		for (int i = 0; i < photos; i++){
+			Files.createFile(directory.resolve("IMG_" + i + (i % 2 == 0 ? ".jpg" : "@tag.png")));
+			created++;
+		}
+		Files.createFile(directory.resolve("notes.txt"));
+		if (depth > 0){
+			for (int i = 0; i < width; i++){
+				created += buildTree(Files.createDirectory(directory.resolve("d" + i)), depth - 1, width, photos);
+			}
+		}
+		return created;
+	}
+
+	/**
+	 * Deletes a tree built by buildTree.
+	 *
+	 * @param root
+	 * 		the root of the tree.
+	 *
+	 * @throws IOException if a file cannot be deleted.
+	 */
+	static void deleteTree(Path root) throws IOException{
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>(){
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
@@ -0,0 +1,260 @@
+package photo_renamer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+
+/**
+ * The settings that decide which directories are skipped while scanning:
+ * a set of exclusion patterns, a maximum depth and whether hidden
+ * directories are skipped. A directory is checked before it is listed,
+ * so an excluded directory and everything under it cost no file system calls.
+ *
+ * A pattern starting with "glob:" or "regex:" is matched against the whole
+ * path of a directory, using the syntax of FileSystem.getPathMatcher. Any
+ * other pattern is a glob matched against the directory's name only, such
+ * as ".git" or "thumb*".
+ *
+ * @author group_0653
+ */
+public class ScanFilter implements Serializable {
+
+	/** The serialID for serialization purposes. */
+	private static final long serialVersionUID = 1L;
+
+	/** A maximum depth meaning that directories at any depth are scanned. */
+	public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+
+	/** The exclusion patterns, as entered by the user. */
+	private ArrayList<String> exclusionPatterns;
+
+	/** The deepest level of subdirectories that is scanned; the scanned directory itself is at depth 0. */
+	private int maxDepth;
+
+	/** Whether directories whose names start with a dot are skipped. */
+	private boolean skipHidden;
+
+	/** The compiled matchers for patterns matched against directory names. */
+	private transient PathMatcher[] nameMatchers;
+
+	/** The compiled matchers for patterns matched against whole directory paths. */
+	private transient PathMatcher[] pathMatchers;
+
+	/**
+	 * A new ScanFilter that excludes no directories.
+	 */
+	public ScanFilter(){
+		this.exclusionPatterns = new ArrayList<String>();
+		this.maxDepth = UNLIMITED_DEPTH;
+		this.skipHidden = false;
+		compile();
+	}
+
+	/**
+	 * Returns the exclusion patterns of this ScanFilter.
+	 *
+	 * @return a copy of the list of exclusion patterns.
+	 */
+	public synchronized ArrayList<String> getExclusionPatterns(){
+		return new ArrayList<String>(exclusionPatterns);
+	}
+
+	/**
+	 * Sets the exclusion patterns of this ScanFilter and compiles them.
+	 *
+	 * @param patterns
+	 * 		the new exclusion patterns.
+	 *
+	 * @throws IllegalArgumentException if a pattern is not a valid glob or
+	 * 		regular expression; the old patterns are kept in that case.
+	 */
+	public synchronized void setExclusionPatterns(ArrayList<String> patterns){
+		ArrayList<String> oldPatterns = exclusionPatterns;
+		exclusionPatterns = new ArrayList<String>(patterns);
+		try{
+			compile();
+		}
+		catch (IllegalArgumentException e){
+			exclusionPatterns = oldPatterns;
+			compile();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the deepest level of subdirectories that is scanned.
+	 *
+	 * @return the maximum depth, or UNLIMITED_DEPTH.
+	 */
+	public synchronized int getMaxDepth(){
+		return maxDepth;
+	}
+
+	/**
+	 * Sets the deepest level of subdirectories that is scanned. The scanned
+	 * directory itself is at depth 0, so a maximum depth of 0 scans no subdirectories.
+	 *
+	 * @param maxDepth
+	 * 		the maximum depth, or UNLIMITED_DEPTH.
+	 *
+	 * @throws IllegalArgumentException if maxDepth is negative.
+	 */
+	public synchronized void setMaxDepth(int maxDepth){
+		if (maxDepth < 0){
+			throw new IllegalArgumentException("The maximum depth cannot be negative.");
+		}
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Returns whether directories whose names start with a dot are skipped.
+	 *
+	 * @return true if hidden directories are skipped, false otherwise.
+	 */
+	public synchronized boolean isSkipHidden(){
+		return skipHidden;
+	}
+
+	/**
+	 * Sets whether directories whose names start with a dot are skipped.
+	 *
+	 * @param skipHidden
+	 * 		true if hidden directories should be skipped.
+	 */
+	public synchronized void setSkipHidden(boolean skipHidden){
+		this.skipHidden = skipHidden;
+	}
+
+	/**
+	 * Returns whether a directory should be skipped, without accessing the file system.
+	 *
+	 * @param directory
+	 * 		the directory to be checked.
+	 * @param depth
+	 * 		the depth of the directory below the scanned directory.
+	 *
+	 * @return true if the directory and everything under it should be skipped, false otherwise.
+	 */
+	public boolean excludes(Path directory, int depth){
+		PathMatcher[] names;
+		PathMatcher[] paths;
+		synchronized (this){
+			if (depth > maxDepth){
+				return true;
+			}
+			names = nameMatchers;
+			paths = pathMatchers;
+		}
+		Path name = directory.getFileName();
+		if (name == null){
+			return false;
+		}
+		if (skipHidden && name.toString().startsWith(".")){
+			return true;
+		}
+		for (PathMatcher matcher: names){
+			if (matcher.matches(name)){
+				return true;
+			}
+		}
+		for (PathMatcher matcher: paths){
+			if (matcher.matches(directory)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compiles the exclusion patterns into matchers.
+	 *
+	 * @throws IllegalArgumentException if a pattern is invalid.
+	 */
+	private void compile(){
+		ArrayList<PathMatcher> names = new ArrayList<PathMatcher>();
+		ArrayList<PathMatcher> paths = new ArrayList<PathMatcher>();
+		for (String pattern: exclusionPatterns){
+			if (pattern.startsWith("glob:") || pattern.startsWith("regex:")){
+				paths.add(FileSystems.getDefault().getPathMatcher(pattern));
+			}
+			else{
+				names.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+			}
+		}
+		nameMatchers = names.toArray(new PathMatcher[names.size()]);
+		pathMatchers = paths.toArray(new PathMatcher[paths.size()]);
+	}
+
+	/**
+	 * Serializes this ScanFilter to a file for access by the program if it is
+	 * closed and reopened again.
+	 *
+	 * @param fileName
+	 * 		the file to serialize this ScanFilter to.
+	 *
+	 * @throws IOException if the file to be serialized to is disturbed during
+	 * 		the serializing process.
+	 */
+	public synchronized void serializeScanFilter(String fileName) throws IOException{
+		FileOutputStream file = new FileOutputStream(fileName);
+		BufferedOutputStream buffer = new BufferedOutputStream(file);
+		ObjectOutputStream output = new ObjectOutputStream(buffer);
+		output.writeObject(exclusionPatterns);
+		output.writeInt(maxDepth);
+		output.writeBoolean(skipHidden);
+		output.close();
+	}
+
+	/**
+	 * Deserializes a serialized ScanFilter and sets the settings of this
+	 * ScanFilter to its settings.
+	 *
+	 * @param fileName
+	 * 		the file to deserialize from.
+	 *
+	 * @throws IOException if the file to be deserialized from is disturbed
+	 * 		during the read process.
+	 *
+	 * @throws ClassNotFoundException if the ScanFilter class is not on the classpath.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized void loadScanFilter(String fileName) throws IOException, ClassNotFoundException{
+		FileInputStream file = new FileInputStream(fileName);
+		BufferedInputStream buffer = new BufferedInputStream(file);
+		ObjectInputStream input = new ObjectInputStream(buffer);
+		try{
+			ArrayList<String> patterns = (ArrayList<String>) input.readObject();
+			int depth = input.readInt();
+			boolean hidden = input.readBoolean();
+			setExclusionPatterns(patterns);
+			maxDepth = depth;
+			skipHidden = hidden;
+		}
+		finally{
+			input.close();
+		}
+	}
+
+	/**
+	 * Restores the compiled matchers after this ScanFilter is deserialized.
+	 *
+	 * @param input
+	 * 		the stream this ScanFilter is read from.
+	 *
+	 * @throws IOException if the stream cannot be read.
+	 * @throws ClassNotFoundException if a class of the stream is not on the classpath.
+	 */
+	private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException{
+		input.defaultReadObject();
+		compile();
+	}
+}
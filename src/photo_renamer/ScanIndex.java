@@ -0,0 +1,315 @@
+package photo_renamer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A record of the contents of every directory scanned by the program, kept
+ * between runs so that a directory that has not been modified since it was
+ * last scanned does not have to be listed again. A directory is considered
+ * unchanged while its modification time is the same as when it was recorded.
+ * All methods are thread-safe.
+ *
+ * @author group_0653
+ */
+public class ScanIndex {
+
+	/** The number written at the start of a serialized ScanIndex. */
+	private static final int MAGIC = 0x50525349;
+
+	/** The version of the serialized format of a ScanIndex. */
+	private static final int VERSION = 2;
+
+	/** The recorded contents of each scanned directory. */
+	private ConcurrentHashMap<Path, DirectoryRecord> directoryRecords;
+
+	/** The settings of the scanner that made the records. */
+	private volatile String settings;
+
+	/**
+	 * A new, empty ScanIndex.
+	 */
+	public ScanIndex(){
+		this.directoryRecords = new ConcurrentHashMap<Path, DirectoryRecord>();
+		this.settings = "";
+	}
+
+	/**
+	 * Prepares this ScanIndex to be used by a scanner with the given settings.
+	 * If the records were made with different settings, for example a different
+	 * choice of which files are photos, they are discarded.
+	 *
+	 * @param scannerSettings
+	 * 		the settings of the scanner about to use this ScanIndex.
+	 */
+	public synchronized void useSettings(String scannerSettings){
+		if (!settings.equals(scannerSettings)){
+			directoryRecords.clear();
+			settings = scannerSettings;
+		}
+	}
+
+	/**
+	 * Returns the recorded contents of a directory.
+	 *
+	 * @param directory
+	 * 		the directory whose contents were recorded.
+	 *
+	 * @return the record of the directory, or null if it has not been recorded.
+	 */
+	public DirectoryRecord get(Path directory){
+		return directoryRecords.get(directory);
+	}
+
+	/**
+	 * Records the contents of a directory, replacing any earlier record.
+	 *
+	 * @param directory
+	 * 		the directory whose contents were found.
+	 * @param record
+	 * 		the contents of the directory.
+	 */
+	public void put(Path directory, DirectoryRecord record){
+		directoryRecords.put(directory, record);
+	}
+
+	/**
+	 * Returns the number of directories recorded in this ScanIndex.
+	 *
+	 * @return the number of recorded directories.
+	 */
+	public int size(){
+		return directoryRecords.size();
+	}
+
+	/**
+	 * Removes the records of all directories under root that were not
+	 * visited by the latest scan of root, because they no longer exist.
+	 *
+	 * @param root
+	 * 		the directory that was scanned.
+	 * @param visited
+	 * 		all the directories visited by the scan.
+	 */
+	public void retainVisited(Path root, Collection<Path> visited){
+		HashSet<Path> visitedSet = new HashSet<Path>(visited);
+		Iterator<Path> directories = directoryRecords.keySet().iterator();
+		while (directories.hasNext()){
+			Path directory = directories.next();
+			if (directory.startsWith(root) && !visitedSet.contains(directory)){
+				directories.remove();
+			}
+		}
+	}
+
+	/**
+	 * Serializes this ScanIndex to a file for access by the program if it is
+	 * closed and reopened again. Photo names are stored relative to their
+	 * directory to keep the file compact.
+	 *
+	 * @param fileName
+	 * 		the file to serialize this ScanIndex to.
+	 *
+	 * @throws IOException if the file to be serialized to is disturbed during
+	 * 		the serializing process.
+	 */
+	public void serializeScanIndex(String fileName) throws IOException{
+		FileOutputStream file = new FileOutputStream(fileName);
+		BufferedOutputStream buffer = new BufferedOutputStream(file);
+		DataOutputStream output = new DataOutputStream(buffer);
+		try{
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeUTF(settings);
+			output.writeInt(directoryRecords.size());
+			for (Map.Entry<Path, DirectoryRecord> element: directoryRecords.entrySet()){
+				output.writeUTF(element.getKey().toString());
+				element.getValue().write(output);
+			}
+		}
+		finally{
+			output.close();
+		}
+	}
+
+	/**
+	 * Deserializes a serialized ScanIndex and replaces the records of this
+	 * ScanIndex with its records. A ScanIndex serialized by an older version 
+	 * of the program is ignored, since its records may be out of date.
+	 *
+	 * @param fileName
+	 * 		the file to deserialize from.
+	 *
+	 * @throws IOException if the file to be deserialized from is disturbed
+	 * 		during the read process, or is not a serialized ScanIndex.
+	 */
+	public void loadScanIndex(String fileName) throws IOException{
+		FileInputStream file = new FileInputStream(fileName);
+		BufferedInputStream buffer = new BufferedInputStream(file);
+		DataInputStream input = new DataInputStream(buffer);
+		try{
+			if (input.readInt() != MAGIC){
+				throw new IOException("Not a scan index: " + fileName);
+			}
+			if (input.readInt() != VERSION){
+				return;
+			}
+			String recordedSettings = input.readUTF();
+			int count = input.readInt();
+			ConcurrentHashMap<Path, DirectoryRecord> records = new ConcurrentHashMap<Path, DirectoryRecord>(count * 2);
+			for (int i = 0; i < count; i++){
+				Path directory = Paths.get(input.readUTF());
+				records.put(directory, DirectoryRecord.read(directory, input));
+			}
+			directoryRecords = records;
+			settings = recordedSettings;
+		}
+		finally{
+			input.close();
+		}
+	}
+
+	/**
+	 * The recorded contents of a single directory: its modification time,
+	 * its photo files and its subdirectories, in listing order.
+	 */
+	public static final class DirectoryRecord {
+
+		/** The modification time of the directory when it was listed. */
+		private final long lastModified;
+
+		/** The entries of the photo files directly inside the directory. */
+		private final PhotoEntry[] photos;
+
+		/** The subdirectories of the directory. */
+		private final Path[] subdirectories;
+
+		/**
+		 * The number of photos listed before each subdirectory, so the
+		 * photos and subdirectories can be put back in listing order.
+		 */
+		private final int[] subdirectoryPositions;
+
+		/**
+		 * A new record of the contents of a directory.
+		 *
+		 * @param lastModified
+		 * 		the modification time of the directory when it was listed.
+		 * @param photos
+		 * 		the entries of the photo files directly inside the directory.
+		 * @param subdirectories
+		 * 		the subdirectories of the directory.
+		 * @param subdirectoryPositions
+		 * 		the number of photos listed before each subdirectory.
+		 */
+		public DirectoryRecord(long lastModified, PhotoEntry[] photos, Path[] subdirectories, int[] subdirectoryPositions){
+			this.lastModified = lastModified;
+			this.photos = photos;
+			this.subdirectories = subdirectories;
+			this.subdirectoryPositions = subdirectoryPositions;
+		}
+
+		/**
+		 * Returns the modification time of the directory when it was listed.
+		 *
+		 * @return the recorded modification time in milliseconds since the epoch.
+		 */
+		public long getLastModified(){
+			return lastModified;
+		}
+
+		/**
+		 * Returns the entries of the photo files directly inside the directory.
+		 *
+		 * @return the recorded photo entries.
+		 */
+		public PhotoEntry[] getPhotos(){
+			return photos;
+		}
+
+		/**
+		 * Returns the subdirectories of the directory.
+		 *
+		 * @return the recorded subdirectories.
+		 */
+		public Path[] getSubdirectories(){
+			return subdirectories;
+		}
+
+		/**
+		 * Returns the number of photos listed before each subdirectory.
+		 *
+		 * @return the position of each subdirectory among the photos.
+		 */
+		public int[] getSubdirectoryPositions(){
+			return subdirectoryPositions;
+		}
+
+		/**
+		 * Writes this record to a stream.
+		 *
+		 * @param output
+		 * 		the stream to write to.
+		 *
+		 * @throws IOException if the stream cannot be written to.
+		 */
+		void write(DataOutputStream output) throws IOException{
+			output.writeLong(lastModified);
+			output.writeInt(photos.length);
+			for (PhotoEntry photo: photos){
+				output.writeUTF(photo.getName());
+				output.writeLong(photo.getSize());
+				output.writeLong(photo.getLastModified());
+				output.writeUTF(photo.getFileKey() == null ? "" : photo.getFileKey().toString());
+			}
+			output.writeInt(subdirectories.length);
+			for (int i = 0; i < subdirectories.length; i++){
+				output.writeUTF(subdirectories[i].getFileName().toString());
+				output.writeInt(subdirectoryPositions[i]);
+			}
+		}
+
+		/**
+		 * Reads a record written by write.
+		 *
+		 * @param directory
+		 * 		the directory the record belongs to.
+		 * @param input
+		 * 		the stream to read from.
+		 *
+		 * @return the record read from the stream.
+		 *
+		 * @throws IOException if the stream cannot be read from.
+		 */
+		static DirectoryRecord read(Path directory, DataInputStream input) throws IOException{
+			long lastModified = input.readLong();
+			PhotoEntry[] photos = new PhotoEntry[input.readInt()];
+			for (int i = 0; i < photos.length; i++){
+				Path path = directory.resolve(input.readUTF());
+				long size = input.readLong();
+				long photoModified = input.readLong();
+				String fileKey = input.readUTF();
+				photos[i] = new PhotoEntry(path, size, photoModified, fileKey.isEmpty() ? null : fileKey);
+			}
+			Path[] subdirectories = new Path[input.readInt()];
+			int[] subdirectoryPositions = new int[subdirectories.length];
+			for (int i = 0; i < subdirectories.length; i++){
+				subdirectories[i] = directory.resolve(input.readUTF());
+				subdirectoryPositions[i] = input.readInt();
+			}
+			return new DirectoryRecord(lastModified, photos, subdirectories, subdirectoryPositions);
+		}
+	}
+}
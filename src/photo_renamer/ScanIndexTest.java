@@ -0,0 +1,207 @@
+package photo_renamer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScanIndexTest {
+
+	private Path root;
+	private Path sub;
+	private ScanIndex index;
+	private DirectoryScanner scanner;
+
+    /**
+     * Builds a directory of two photos and a text file, with a subdirectory
+     * of one photo, and a scanner that records its listings in an index.
+     *
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        root = Files.createTempDirectory("scan-index-test");
+        sub = Files.createDirectory(root.resolve("sub"));
+        Files.createFile(root.resolve("a.jpg"));
+        Files.createFile(root.resolve("b@tag.png"));
+        Files.createFile(root.resolve("notes.txt"));
+        Files.createFile(sub.resolve("c.gif"));
+        index = new ScanIndex();
+        scanner = new DirectoryScanner(2);
+        scanner.setScanIndex(index);
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        scanner.shutdown();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>(){
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Returns the names of the photos returned by a scan, in order.
+     */
+    private ArrayList<String> names(Iterator<PhotoEntry> photos) {
+        ArrayList<String> names = new ArrayList<String>();
+        while (photos.hasNext()) {
+            names.add(photos.next().getName());
+        }
+        return names;
+    }
+
+    /**
+     * Replaces the record of the subdirectory with one of a photo that does
+     * not exist, keeping the recorded modification time.
+     */
+    private void forgeSubdirectoryRecord() {
+        ScanIndex.DirectoryRecord record = index.get(sub);
+        PhotoEntry forged = new PhotoEntry(sub.resolve("forged.jpg"), 0, 0, null);
+        index.put(sub, new ScanIndex.DirectoryRecord(record.getLastModified(),
+                new PhotoEntry[] {forged}, new Path[0], new int[0]));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.DirectoryScanner#scan(java.io.File, java.util.Collection)}.
+     * Test case for a first scan, which records every directory.
+     */
+    @Test
+    public void testScanRecordsDirectories() {
+        ConcurrentLinkedQueue<Path> visited = new ConcurrentLinkedQueue<Path>();
+        ArrayList<String> names = names(scanner.scan(root.toFile(), visited));
+        assertEquals(3, names.size());
+        assertTrue(names.containsAll(Arrays.asList("a.jpg", "b@tag.png", "c.gif")));
+        assertEquals(2, index.size());
+        assertEquals(2, visited.size());
+        assertEquals(1, index.get(sub).getPhotos().length);
+    }
+
+    /**
+     * Test method for {@link photo_renamer.DirectoryScanner#scan(java.io.File)}.
+     * Test case for an unchanged directory, whose recorded contents are
+     * returned without listing it again.
+     */
+    @Test
+    public void testScanReusesUnchangedDirectory() {
+        names(scanner.scan(root.toFile()));
+        forgeSubdirectoryRecord();
+        ArrayList<String> names = names(scanner.scan(root.toFile()));
+        assertTrue(names.contains("forged.jpg"));
+        assertFalse(names.contains("c.gif"));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.DirectoryScanner#scan(java.io.File)}.
+     * Test case for a directory modified since it was recorded.
+     */
+    @Test
+    public void testScanRelistsModifiedDirectory() throws IOException {
+        names(scanner.scan(root.toFile()));
+        forgeSubdirectoryRecord();
+        Files.createFile(sub.resolve("d.jpg"));
+        sub.toFile().setLastModified(index.get(sub).getLastModified() - 10000);
+        ArrayList<String> names = names(scanner.scan(root.toFile()));
+        assertFalse(names.contains("forged.jpg"));
+        assertTrue(names.contains("c.gif"));
+        assertTrue(names.contains("d.jpg"));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.DirectoryScanner#rescan(java.io.File, int, java.util.Collection)}.
+     * Test case for a rescan, which lists even unchanged directories.
+     */
+    @Test
+    public void testRescanIgnoresRecords() {
+        names(scanner.scan(root.toFile()));
+        forgeSubdirectoryRecord();
+        ArrayList<String> names = names(scanner.rescan(root.toFile(), 0, null));
+        assertFalse(names.contains("forged.jpg"));
+        assertTrue(names.contains("c.gif"));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.ScanIndex#retainVisited(java.nio.file.Path, java.util.Collection)}.
+     * Test case for a deleted subdirectory, whose record is dropped.
+     */
+    @Test
+    public void testScanDropsDeletedDirectory() throws IOException {
+        names(scanner.scan(root.toFile()));
+        Files.delete(sub.resolve("c.gif"));
+        Files.delete(sub);
+        ArrayList<String> names = names(scanner.scan(root.toFile()));
+        assertEquals(2, names.size());
+        assertNull(index.get(sub));
+        assertEquals(1, index.size());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.ScanIndex#useSettings(java.lang.String)}.
+     * Test case for records made by a scanner with other settings.
+     */
+    @Test
+    public void testUseSettingsDiscardsRecords() {
+        names(scanner.scan(root.toFile()));
+        index.useSettings("other settings");
+        assertEquals(0, index.size());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.ScanIndex#serializeScanIndex(java.lang.String)}.
+     * Test case for an index serialized and loaded again, which is still
+     * reused by the next scan.
+     */
+    @Test
+    public void testSerializeAndLoad() throws IOException {
+        names(scanner.scan(root.toFile()));
+        forgeSubdirectoryRecord();
+        File file = root.resolve("scanindex.ser").toFile();
+        index.serializeScanIndex(file.getPath());
+        ScanIndex loaded = new ScanIndex();
+        loaded.loadScanIndex(file.getPath());
+        file.delete();
+        assertEquals(2, loaded.size());
+        ScanIndex.DirectoryRecord record = loaded.get(root);
+        assertEquals(index.get(root).getLastModified(), record.getLastModified());
+        assertEquals(2, record.getPhotos().length);
+        assertEquals(sub, record.getSubdirectories()[0]);
+        scanner.setScanIndex(loaded);
+        assertTrue(names(scanner.scan(root.toFile())).contains("forged.jpg"));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.ScanIndex#loadScanIndex(java.lang.String)}.
+     * Test case for a file that is not a serialized ScanIndex.
+     */
+    @Test(expected = IOException.class)
+    public void testLoadRejectsOtherFile() throws IOException {
+        File file = root.resolve("notes.txt").toFile();
+        Files.write(file.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        new ScanIndex().loadScanIndex(file.getPath());
+    }
+}
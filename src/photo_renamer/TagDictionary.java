@@ -0,0 +1,143 @@
+package photo_renamer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * Gives every tag seen by the program a small integer ID, so that sets of tags
+ * can be stored as TagSets and compared with word operations instead of string
+ * comparisons. IDs are dense: the first tag is 0, the next is 1, and so on.
+ * A tag keeps its ID for as long as the dictionary exists, even if it is no
+ * longer used, so IDs held in TagSets never change meaning.
+ *
+ * The tag strings are interned by the dictionary: every tag with the same
+ * characters is given back as the same String instance.
+ *
+ * @author group_0653
+ */
+public class TagDictionary {
+
+	/** The ID of each tag. */
+	private final HashMap<String, Integer> ids;
+
+	/** The tag of each ID. */
+	private final ArrayList<String> tags;
+
+	/**
+	 * A new, empty TagDictionary.
+	 */
+	public TagDictionary(){
+		this.ids = new HashMap<String, Integer>();
+		this.tags = new ArrayList<String>();
+	}
+
+	/**
+	 * Returns the ID of a tag, giving it the next free ID if it has none.
+	 *
+	 * @param tag
+	 * 		the tag, without its '@'.
+	 *
+	 * @return the ID of tag.
+	 */
+	public synchronized int intern(String tag){
+		Integer id = ids.get(tag);
+		if (id == null){
+			id = tags.size();
+			ids.put(tag, id);
+			tags.add(tag);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the ID of a tag, without giving it one if it has none.
+	 *
+	 * @param tag
+	 * 		the tag, without its '@'.
+	 *
+	 * @return the ID of tag, or -1 if it has none.
+	 */
+	public synchronized int lookup(String tag){
+		Integer id = ids.get(tag);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the tag with a given ID.
+	 *
+	 * @param id
+	 * 		the ID of the tag.
+	 *
+	 * @return the tag, without its '@'.
+	 *
+	 * @throws IndexOutOfBoundsException if no tag has the ID.
+	 */
+	public synchronized String getTag(int id){
+		return tags.get(id);
+	}
+
+	/**
+	 * Returns the number of tags given an ID. Every ID is below this number.
+	 *
+	 * @return the number of tags in this dictionary.
+	 */
+	public synchronized int size(){
+		return tags.size();
+	}
+
+	/**
+	 * Returns the set of a group of tags, giving an ID to each tag that has none.
+	 *
+	 * @param tags
+	 * 		the tags, without their '@'s.
+	 *
+	 * @return the TagSet of tags.
+	 */
+	public TagSet internAll(Collection<String> tags){
+		int[] tagIds = new int[tags.size()];
+		int i = 0;
+		for (String tag: tags){
+			tagIds[i++] = intern(tag);
+		}
+		return TagSet.of(tagIds);
+	}
+
+	/**
+	 * Returns the set of the tags of a group that already have an ID. Tags
+	 * without an ID are left out, since no TagSet can contain them yet.
+	 *
+	 * @param tags
+	 * 		the tags, without their '@'s.
+	 *
+	 * @return the TagSet of the known tags of tags.
+	 */
+	public TagSet lookupAll(Collection<String> tags){
+		int[] tagIds = new int[tags.size()];
+		int count = 0;
+		for (String tag: tags){
+			int id = lookup(tag);
+			if (id >= 0){
+				tagIds[count++] = id;
+			}
+		}
+		return TagSet.of(count == tagIds.length ? tagIds : Arrays.copyOf(tagIds, count));
+	}
+
+	/**
+	 * Returns the set of the tags in a photo name, giving an ID to each tag that has none.
+	 *
+	 * @param photoName
+	 * 		the parsed photo name.
+	 *
+	 * @return the TagSet of the tags of photoName.
+	 */
+	public TagSet internAll(PhotoName photoName){
+		int[] tagIds = new int[photoName.getTagCount()];
+		for (int i = 0; i < tagIds.length; i++){
+			tagIds[i] = intern(photoName.getTag(i));
+		}
+		return TagSet.of(tagIds);
+	}
+}
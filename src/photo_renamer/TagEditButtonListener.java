@@ -78,12 +78,13 @@ public class TagEditButtonListener implements ActionListener {
 				userInput.setText("");
 				}
 			});
-		JTextArea currentTags = new JTextArea();
-		currentTags.setEditable(false);	
-		currentTags.setText("Current Tags: \n");
-		currentTags.append(program.getTagManager().toString());
-		JScrollPane currentScroll = new JScrollPane(currentTags);
-		currentScroll.setPreferredSize(new Dimension(250, 250));
+		TagSearchPanel currentTags = new TagSearchPanel(program.getTagManager(), "Type to search the current tags:");
+		currentTags.addTagListener(new ActionListener(){
+			public void actionPerformed(ActionEvent a){
+				tags.add(a.getActionCommand());
+				selectedTags.append("@" + a.getActionCommand() + "\n");
+				}
+			});
 		
 		JPanel buttonPanel = new JPanel();
 		buttonPanel.setPreferredSize(new Dimension(175, 100));
@@ -103,9 +104,7 @@ public class TagEditButtonListener implements ActionListener {
 					PhotoDisplay.createErrorMessage("One or more selected tags already exist in the Program!").setVisible(true);
 					tags.clear();
 					selectedTags.setText("Tags to be added or deleted: \n");
-					currentTags.removeAll();
-					currentTags.setText("Current Tags: \n");
-					currentTags.append(program.getTagManager().toString());
+					currentTags.refresh();
 					
 				}	
 			}
@@ -127,9 +126,7 @@ public class TagEditButtonListener implements ActionListener {
 					PhotoDisplay.createErrorMessage("One or more selected tags do not exist in the Program!").setVisible(true);
 					tags.clear();
 					selectedTags.setText("Tags to be added or deleted: \n");
-					currentTags.removeAll();
-					currentTags.setText("Current Tags: \n");
-					currentTags.append(program.getTagManager().toString());
+					currentTags.refresh();
 				}	
 			}
 		});
@@ -152,7 +149,7 @@ public class TagEditButtonListener implements ActionListener {
 		container.add(userInput, BorderLayout.NORTH);
 		container.add(selectScroll, BorderLayout.CENTER);
 		container.add(buttonPanel, BorderLayout.EAST);
-		container.add(currentScroll, BorderLayout.WEST);
+		container.add(currentTags, BorderLayout.WEST);
 		tagWindow.pack();
 		return tagWindow;
 	}
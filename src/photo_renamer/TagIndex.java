@@ -0,0 +1,467 @@
+package photo_renamer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * An inverted index from each tag to the photos that carry it, so the photos
+ * with a tag can be found without parsing the name of every photo file. Each
+ * photo is given an ID by a PhotoRegistry and each tag an ID by the tag
+ * dictionary of the program; the index keeps a PhotoBitmap of photo IDs for
+ * every tag ID, and the TagSet of every photo so its postings can be updated
+ * when it is renamed. Since the bitmaps are compressed, the postings of
+ * millions of photos can be combined by a TagQuery in a few milliseconds.
+ *
+ * The index is built from the photos found by a scan, kept up to date by
+ * listening to a PhotoDirectory, and saved between runs of the program, so
+ * only photos that are new or renamed since the last run need to be parsed.
+ * All methods are thread-safe.
+ *
+ * @author group_0653
+ */
+public class TagIndex implements PhotoDirectory.EntryListener {
+
+	/** The first bytes of a serialized TagIndex. */
+	private static final int MAGIC = 0x50525449;
+
+	/** The version of the serialized format. */
+	private static final int VERSION = 1;
+
+	/** The dictionary giving the tag IDs. */
+	private final TagDictionary dictionary;
+
+	/** The ID of each indexed photo, by path. */
+	private PhotoRegistry photos;
+
+	/** The tags of each indexed photo, by photo ID, or null for a free ID. */
+	private ArrayList<TagSet> photoTags;
+
+	/** The photos carrying each tag, by tag ID, or null if no photo carries it. */
+	private ArrayList<PhotoBitmap> postings;
+
+	/** The IDs of all the indexed photos, which NOT queries are taken from. */
+	private PhotoBitmap allPhotos;
+
+	/** Parses the names of photo files, reused for every photo. */
+	private final PhotoName parser;
+
+	/**
+	 * A new, empty TagIndex.
+	 *
+	 * @param dictionary
+	 * 		the dictionary giving the tag IDs.
+	 */
+	public TagIndex(TagDictionary dictionary){
+		this.dictionary = dictionary;
+		this.photos = new PhotoRegistry();
+		this.photoTags = new ArrayList<TagSet>();
+		this.postings = new ArrayList<PhotoBitmap>();
+		this.allPhotos = new PhotoBitmap();
+		this.parser = new PhotoName();
+	}
+
+	/**
+	 * Adds the photo at a path to this index, or updates its tags if it is
+	 * already indexed.
+	 *
+	 * @param path
+	 * 		the path of the photo file.
+	 */
+	public synchronized void put(Path path){
+		String key = path.toString();
+		int id = photos.lookup(key);
+		if (id < 0){
+			id = photos.register(key);
+			allPhotos.add(id);
+		}
+		setTags(id, tagsOf(path));
+	}
+
+	/**
+	 * Removes the photo at a path from this index.
+	 *
+	 * @param path
+	 * 		the path of the photo file.
+	 */
+	public synchronized void remove(Path path){
+		int id = photos.lookup(path.toString());
+		if (id >= 0){
+			setTags(id, TagSet.EMPTY);
+			photoTags.set(id, null);
+			photos.unregister(id);
+			allPhotos.remove(id);
+		}
+	}
+
+	/**
+	 * Moves a renamed photo to its new path, keeping its ID, and updates its
+	 * tags from its new name. A photo that was not indexed is added.
+	 *
+	 * @param oldPath
+	 * 		the path of the photo file before it was renamed.
+	 * @param newPath
+	 * 		the path of the photo file after it was renamed.
+	 */
+	public synchronized void rename(Path oldPath, Path newPath){
+		int id = photos.lookup(oldPath.toString());
+		if (id < 0){
+			put(newPath);
+			return;
+		}
+		int replaced = photos.lookup(newPath.toString());
+		if (replaced >= 0 && replaced != id){
+			remove(newPath);
+		}
+		photos.rename(id, newPath.toString());
+		setTags(id, tagsOf(newPath));
+	}
+
+	/**
+	 * Replaces the photos indexed under a directory with the photos found by a
+	 * scan of that directory. Photos already indexed at the same path are not
+	 * parsed again, since their tags come only from their names. The photos
+	 * found are read one at a time, and only the IDs of those already indexed
+	 * are kept, in a BitSet, to tell which indexed photos are gone.
+	 *
+	 * @param directory
+	 * 		the directory that was scanned.
+	 * @param photoEntries
+	 * 		an iterator over the entries of all the photo files now under directory.
+	 */
+	public void replaceUnder(Path directory, Iterator<PhotoEntry> photoEntries){
+		BitSet found = new BitSet();
+		while (photoEntries.hasNext()){
+			found.set(add(photoEntries.next().getPath()));
+		}
+		synchronized (this){
+			String prefix = directory.toString();
+			for (int id = 0; id < photos.capacity(); id++){
+				String path = photos.getPath(id);
+				if (path != null && !found.get(id) && isUnder(path, prefix)){
+					remove(Paths.get(path));
+				}
+			}
+			optimize();
+		}
+	}
+
+	/**
+	 * Adds the photo at a path to this index unless it is already indexed.
+	 *
+	 * @param path
+	 * 		the path of the photo file.
+	 *
+	 * @return the ID of the photo.
+	 */
+	private synchronized int add(Path path){
+		String key = path.toString();
+		int id = photos.lookup(key);
+		if (id < 0){
+			put(path);
+			id = photos.lookup(key);
+		}
+		return id;
+	}
+
+	/**
+	 * Applies a change of a PhotoDirectory to this index.
+	 *
+	 * @see PhotoDirectory.EntryListener#entryChanged(Path, PhotoEntry)
+	 */
+	@Override
+	public synchronized void entryChanged(Path oldPath, PhotoEntry newEntry){
+		if (newEntry == null){
+			remove(oldPath);
+		}
+		else if (oldPath == null || oldPath.equals(newEntry.getPath())){
+			if (photos.lookup(newEntry.getPath().toString()) < 0){
+				put(newEntry.getPath());
+			}
+		}
+		else{
+			rename(oldPath, newEntry.getPath());
+		}
+	}
+
+	/**
+	 * Returns the paths of the indexed photos that carry a tag.
+	 *
+	 * @param tag
+	 * 		the tag, without its '@'.
+	 *
+	 * @return a new list of the paths of the photos with tag, in order of photo ID.
+	 */
+	public synchronized ArrayList<Path> getPhotosWithTag(String tag){
+		PhotoBitmap list = postingsOf(tag);
+		if (list == null){
+			return new ArrayList<Path>();
+		}
+		int[] ids = list.toArray();
+		ArrayList<Path> paths = new ArrayList<Path>(ids.length);
+		for (int id: ids){
+			paths.add(Paths.get(photos.getPath(id)));
+		}
+		return paths;
+	}
+
+	/**
+	 * Returns the number of indexed photos that carry a tag.
+	 *
+	 * @param tag
+	 * 		the tag, without its '@'.
+	 *
+	 * @return the number of photos with tag.
+	 */
+	public synchronized int countPhotosWithTag(String tag){
+		PhotoBitmap list = postingsOf(tag);
+		return list == null ? 0 : list.cardinality();
+	}
+
+	/**
+	 * Returns the IDs of the indexed photos that match a query. Use getPath to
+	 * find the photo with each ID.
+	 *
+	 * @param query
+	 * 		the query.
+	 *
+	 * @return a new PhotoBitmap of the IDs of the matching photos.
+	 */
+	public synchronized PhotoBitmap query(TagQuery query){
+		return query.evaluate(this);
+	}
+
+	/**
+	 * Returns the path of the indexed photo with an ID.
+	 *
+	 * @param id
+	 * 		the ID of the photo.
+	 *
+	 * @return the path of the photo file, or null if no photo has the ID any more.
+	 */
+	public synchronized String getPath(int id){
+		return photos.getPath(id);
+	}
+
+	/**
+	 * Returns the number of photos in this index.
+	 *
+	 * @return the number of indexed photos.
+	 */
+	public synchronized int size(){
+		return photos.size();
+	}
+
+	/**
+	 * Serializes this TagIndex to a file. Tags are written as strings, since
+	 * tag IDs are only given for one run of the program.
+	 *
+	 * @param fileName
+	 * 		the file to serialize this TagIndex to.
+	 *
+	 * @throws IOException if the file to be serialized to is disturbed during
+	 * 		the serializing process.
+	 */
+	public synchronized void serializeTagIndex(String fileName) throws IOException{
+		// The tags in use are numbered from 0 in the file.
+		HashMap<Integer, Integer> fileTagIds = new HashMap<Integer, Integer>();
+		ArrayList<String> fileTags = new ArrayList<String>();
+		for (int tagId = 0; tagId < postings.size(); tagId++){
+			if (postings.get(tagId) != null && !postings.get(tagId).isEmpty()){
+				fileTagIds.put(tagId, fileTags.size());
+				fileTags.add(dictionary.getTag(tagId));
+			}
+		}
+		FileOutputStream file = new FileOutputStream(fileName);
+		BufferedOutputStream buffer = new BufferedOutputStream(file);
+		DataOutputStream output = new DataOutputStream(buffer);
+		try{
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(fileTags.size());
+			for (String tag: fileTags){
+				output.writeUTF(tag);
+			}
+			output.writeInt(photos.size());
+			for (int id = 0; id < photos.capacity(); id++){
+				String path = photos.getPath(id);
+				if (path == null){
+					continue;
+				}
+				int[] tagIds = photoTags.get(id).toArray();
+				output.writeUTF(path);
+				output.writeInt(tagIds.length);
+				for (int tagId: tagIds){
+					output.writeInt(fileTagIds.get(tagId));
+				}
+			}
+		}
+		finally{
+			output.close();
+		}
+	}
+
+	/**
+	 * Deserializes a serialized TagIndex and replaces the photos of this
+	 * TagIndex with its photos. A TagIndex serialized by another version of
+	 * the program is ignored, and rebuilt from the next scan.
+	 *
+	 * @param fileName
+	 * 		the file to deserialize from.
+	 *
+	 * @throws IOException if the file to be deserialized from is disturbed
+	 * 		during the read process, or is not a serialized TagIndex.
+	 */
+	public synchronized void loadTagIndex(String fileName) throws IOException{
+		FileInputStream file = new FileInputStream(fileName);
+		BufferedInputStream buffer = new BufferedInputStream(file);
+		DataInputStream input = new DataInputStream(buffer);
+		try{
+			if (input.readInt() != MAGIC){
+				throw new IOException("Not a tag index: " + fileName);
+			}
+			if (input.readInt() != VERSION){
+				return;
+			}
+			int[] tagIds = new int[input.readInt()];
+			for (int i = 0; i < tagIds.length; i++){
+				tagIds[i] = dictionary.intern(input.readUTF());
+			}
+			photos = new PhotoRegistry();
+			photoTags = new ArrayList<TagSet>();
+			postings = new ArrayList<PhotoBitmap>();
+			allPhotos = new PhotoBitmap();
+			int count = input.readInt();
+			for (int i = 0; i < count; i++){
+				int id = photos.register(input.readUTF());
+				allPhotos.add(id);
+				int[] ids = new int[input.readInt()];
+				for (int j = 0; j < ids.length; j++){
+					ids[j] = tagIds[input.readInt()];
+				}
+				setTags(id, TagSet.of(ids));
+			}
+			optimize();
+		}
+		finally{
+			input.close();
+		}
+	}
+
+	/**
+	 * Replaces the tags of a photo, updating the postings of the tags it gained or lost.
+	 * The caller must hold the lock of this TagIndex.
+	 *
+	 * @param id
+	 * 		the ID of the photo.
+	 * @param tags
+	 * 		the new tags of the photo.
+	 */
+	private void setTags(int id, TagSet tags){
+		while (photoTags.size() <= id){
+			photoTags.add(null);
+		}
+		TagSet oldTags = photoTags.get(id);
+		if (oldTags != null){
+			for (int tagId: oldTags.toArray()){
+				if (!tags.contains(tagId)){
+					postings.get(tagId).remove(id);
+				}
+			}
+		}
+		for (int tagId: tags.toArray()){
+			if (oldTags == null || !oldTags.contains(tagId)){
+				while (postings.size() <= tagId){
+					postings.add(null);
+				}
+				if (postings.get(tagId) == null){
+					postings.set(tagId, new PhotoBitmap());
+				}
+				postings.get(tagId).add(id);
+			}
+		}
+		photoTags.set(id, tags);
+	}
+
+	/**
+	 * Returns the tags in the name of a photo file. The caller must hold the
+	 * lock of this TagIndex, since the parser is shared.
+	 *
+	 * @param path
+	 * 		the path of the photo file.
+	 *
+	 * @return the TagSet of the tags of the photo.
+	 */
+	private TagSet tagsOf(Path path){
+		Path fileName = path.getFileName();
+		if (fileName == null){
+			return TagSet.EMPTY;
+		}
+		return dictionary.internAll(parser.parse(fileName.toString()));
+	}
+
+	/**
+	 * Stores the postings in run containers where that takes less space,
+	 * after many photos were added at once. The caller must hold the lock of
+	 * this TagIndex.
+	 */
+	private void optimize(){
+		for (PhotoBitmap list: postings){
+			if (list != null){
+				list.runOptimize();
+			}
+		}
+		allPhotos.runOptimize();
+	}
+
+	/**
+	 * Returns the postings of a tag. The caller must hold the lock of this
+	 * TagIndex, and must not change the postings.
+	 *
+	 * @param tag
+	 * 		the tag, without its '@'.
+	 *
+	 * @return the postings of tag, or null if no photo carries it.
+	 */
+	PhotoBitmap postingsOf(String tag){
+		int tagId = dictionary.lookup(tag);
+		return tagId >= 0 && tagId < postings.size() ? postings.get(tagId) : null;
+	}
+
+	/**
+	 * Returns the IDs of all the indexed photos. The caller must hold the lock
+	 * of this TagIndex, and must not change the bitmap.
+	 *
+	 * @return the bitmap of all the photo IDs.
+	 */
+	PhotoBitmap getAllPhotos(){
+		return allPhotos;
+	}
+
+	/**
+	 * Returns whether a path is a directory or lies under it.
+	 *
+	 * @param path
+	 * 		the path to check.
+	 * @param directory
+	 * 		the path of the directory.
+	 *
+	 * @return true if path is directory or is under it, false otherwise.
+	 */
+	private static boolean isUnder(String path, String directory){
+		return path.startsWith(directory) && (path.length() == directory.length()
+				|| path.charAt(directory.length()) == File.separatorChar
+				|| directory.endsWith(File.separator));
+	}
+}
@@ -0,0 +1,150 @@
+package photo_renamer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TagIndexTest {
+
+	private TagIndex index;
+	private File indexFile;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        index = new TagIndex(new TagDictionary());
+        indexFile = File.createTempFile("tag-index-test", null);
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        indexFile.delete();
+    }
+
+    private Path path(String name) {
+        return Paths.get("/photos", name);
+    }
+
+    private ArrayList<PhotoEntry> entries(String... paths) {
+        ArrayList<PhotoEntry> entries = new ArrayList<PhotoEntry>();
+        for (String path: paths) {
+            entries.add(new PhotoEntry(Paths.get(path), 0, 0, null));
+        }
+        return entries;
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagIndex#put(java.nio.file.Path)}.
+     * Test case for photos with shared tags, and one put again with new tags.
+     */
+    @Test
+    public void testPutFindsPhotosByTag() {
+        index.put(path("a@sun@beach.jpg"));
+        index.put(path("b@sun.jpg"));
+        index.put(path("c.jpg"));
+        assertEquals(3, index.size());
+        assertEquals(Arrays.asList(path("a@sun@beach.jpg"), path("b@sun.jpg")), index.getPhotosWithTag("sun"));
+        assertEquals(1, index.countPhotosWithTag("beach"));
+        assertEquals(0, index.countPhotosWithTag("snow"));
+        assertTrue(index.getPhotosWithTag("snow").isEmpty());
+        index.put(path("a@sun@beach.jpg"));
+        assertEquals(3, index.size());
+        assertEquals(2, index.countPhotosWithTag("sun"));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagIndex#rename(java.nio.file.Path, java.nio.file.Path)}.
+     * Test case for a photo that loses one tag and gains another, keeping its ID.
+     */
+    @Test
+    public void testRenameMovesPostings() throws InvalidQueryException {
+        index.put(path("a@sun.jpg"));
+        int id = index.query(TagQuery.parse("sun")).toArray()[0];
+        index.rename(path("a@sun.jpg"), path("a@snow.jpg"));
+        assertEquals(0, index.countPhotosWithTag("sun"));
+        assertEquals(Arrays.asList(path("a@snow.jpg")), index.getPhotosWithTag("snow"));
+        assertEquals(path("a@snow.jpg").toString(), index.getPath(id));
+        assertEquals(1, index.size());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagIndex#remove(java.nio.file.Path)}.
+     * Test case for a removed photo, whose ID is no longer matched by a NOT query.
+     */
+    @Test
+    public void testRemove() throws InvalidQueryException {
+        index.put(path("a@sun.jpg"));
+        index.put(path("b.jpg"));
+        index.remove(path("a@sun.jpg"));
+        index.remove(path("missing.jpg"));
+        assertEquals(1, index.size());
+        assertEquals(0, index.countPhotosWithTag("sun"));
+        assertEquals(1, index.query(TagQuery.parse("NOT sun")).cardinality());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagIndex#replaceUnder(java.nio.file.Path, java.util.Iterator)}.
+     * Test case for a rescan of one directory, which keeps the photos of
+     * another directory with a name that starts the same.
+     */
+    @Test
+    public void testReplaceUnderOnlyTouchesDirectory() {
+        index.put(Paths.get("/photos/a@sun.jpg"));
+        index.put(Paths.get("/photos/b@sun.jpg"));
+        index.put(Paths.get("/photos2/c@sun.jpg"));
+        index.replaceUnder(Paths.get("/photos"), entries("/photos/b@sun.jpg", "/photos/d@sun.jpg").iterator());
+        assertEquals(Arrays.asList(Paths.get("/photos/b@sun.jpg"), Paths.get("/photos2/c@sun.jpg"),
+                Paths.get("/photos/d@sun.jpg")), index.getPhotosWithTag("sun"));
+        assertEquals(3, index.size());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagIndex#entryChanged(java.nio.file.Path, photo_renamer.PhotoEntry)}.
+     * Test case for a photo added, renamed and removed through a PhotoDirectory.
+     */
+    @Test
+    public void testEntryChanged() {
+        index.entryChanged(null, entries("/photos/a@x.jpg").get(0));
+        index.entryChanged(Paths.get("/photos/a@x.jpg"), entries("/photos/a@y.jpg").get(0));
+        assertEquals(0, index.countPhotosWithTag("x"));
+        assertEquals(1, index.countPhotosWithTag("y"));
+        index.entryChanged(Paths.get("/photos/a@y.jpg"), null);
+        assertEquals(0, index.size());
+        assertEquals(0, index.countPhotosWithTag("y"));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagIndex#loadTagIndex(java.lang.String)}.
+     * Test case for an index serialized and loaded with a dictionary that
+     * gives the tags other IDs.
+     */
+    @Test
+    public void testSerializeAndLoad() throws Exception {
+        index.put(path("a@sun@beach.jpg"));
+        index.put(path("b@beach.jpg"));
+        index.put(path("c.jpg"));
+        index.remove(path("c.jpg"));
+        index.serializeTagIndex(indexFile.getPath());
+        TagDictionary dictionary = new TagDictionary();
+        dictionary.intern("snow");
+        TagIndex loaded = new TagIndex(dictionary);
+        loaded.loadTagIndex(indexFile.getPath());
+        assertEquals(2, loaded.size());
+        assertEquals(index.getPhotosWithTag("beach"), loaded.getPhotosWithTag("beach"));
+        assertEquals(Arrays.asList(path("a@sun@beach.jpg")), loaded.getPhotosWithTag("sun"));
+        assertEquals(0, loaded.countPhotosWithTag("snow"));
+    }
+}
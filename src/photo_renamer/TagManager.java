@@ -1,15 +1,21 @@
 package photo_renamer;
 
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 
 /** 
  * A tag manager that manages tags in this application.
@@ -18,15 +24,35 @@ import java.io.ObjectOutputStream;
 public class TagManager {
 	
 	/** 
-	 * A list of currently available tags.
+	 * The currently available tags, in the order they were added. 
+	 * A hash set is used so that a tag can be found, added or removed 
+	 * without scanning every available tag.
 	 * */
-	private ArrayList<String> availableTags;
+	private LinkedHashSet<String> availableTags;
+	
+	/** The available tags as a prefix tree, to complete tags as they are typed. */
+	private TagTrie tagTrie;
+	
+	/** The dictionary giving every tag seen by the program an integer ID. */
+	private static final TagDictionary tagDictionary = new TagDictionary();
 	
 	/**
 	 * A new instance of TagManager with an empty list of available tags.
 	 */
 	public TagManager() {
-		availableTags = new ArrayList<String>();
+		availableTags = new LinkedHashSet<String>();
+		tagTrie = new TagTrie();
+	}
+	
+	/**
+	 * Returns the dictionary that gives every tag seen by the program an 
+	 * integer ID. The same dictionary is shared by every TagManager, so 
+	 * the TagSets of all photos can be compared with each other.
+	 * 
+	 * @return the tag dictionary of the program.
+	 */
+	public static TagDictionary getTagDictionary() {
+		return tagDictionary;
 	}
 
 	/**
@@ -38,16 +64,48 @@ public class TagManager {
 	 * 		the ArrayList of String tags to set TagManager's availableTags to. 
 	 */
 	private void setAvailableTags(ArrayList<String> tags){
-    	this.availableTags = tags;
+    	this.availableTags = new LinkedHashSet<String>(tags);
+    	this.tagTrie = new TagTrie();
+    	for (String tag: availableTags) {
+    		tagTrie.add(tag);
+    	}
     }
 	
 	/**
-	 * Returns the list of currently available tags.
+	 * Returns the first available tags, in alphabetical order ignoring case, 
+	 * that start with what the user has typed so far. 
+	 * 
+	 * @param prefix
+	 * 		the start of a tag, with or without its '@'.
+	 * 
+	 * @param limit
+	 * 		the largest number of tags to return.
+	 * 
+	 * @return a new list of at most limit available tags starting with prefix.
+	 */
+	public ArrayList<String> completeTag(String prefix, int limit) {
+		return tagTrie.complete(prefix.startsWith("@") ? prefix.substring(1) : prefix, limit);
+	}
+	
+	/**
+	 * Returns whether a tag is one of the available tags.
 	 * 
-	 * @return the list of available tags.
+	 * @param tag
+	 * 		the tag to look for.
+	 * 
+	 * @return true if tag is available, false otherwise.
+	 */
+	public boolean isAvailableTag(String tag) {
+		return availableTags.contains(tag);
+	}
+	
+	/**
+	 * Returns the list of currently available tags, in the order they were added.
+	 * 
+	 * @return a new list of the available tags.
 	 */
 	public ArrayList<String> getAvailableTags() {
-		return availableTags;
+		return new ArrayList<String>(availableTags);
 		
 	}
 	
@@ -58,11 +116,11 @@ public class TagManager {
 	 * @return the string representation of all tags in availableTags.
 	 */
 	public String toString() {
-		String allTags = "";
-		for (String tag: getAvailableTags()) {
-			allTags += "@" + tag + "\n";
+		StringBuilder allTags = new StringBuilder();
+		for (String tag: availableTags) {
+			allTags.append('@').append(tag).append('\n');
 		}
-		return allTags;	
+		return allTags.toString();	
 	}
 	
 	/**
@@ -80,7 +138,7 @@ public class TagManager {
 		ArrayList<String> validTags = new ArrayList<>();
 		ArrayList<String> invalidTags = new ArrayList<>();
 		for(String tag: tags){
-			if (!availableTags.contains(tag)) {
+			if (!isAvailableTag(tag)) {
 				validTags.add(tag);
 			} else {
 				invalidTags.add(tag);
@@ -92,6 +150,7 @@ public class TagManager {
 		} else {
 			for (String validTag: validTags) {
 				availableTags.add(validTag);
+				tagTrie.add(validTag);
 			}
 		}
 	}
@@ -110,7 +169,7 @@ public class TagManager {
 		ArrayList<String> validTags = new ArrayList<>();
 		ArrayList<String> invalidTags = new ArrayList<>();
 		for(String tag: tags){
-			if (availableTags.contains(tag)) {
+			if (isAvailableTag(tag)) {
 				validTags.add(tag);
 			} else {
 				invalidTags.add(tag);
@@ -122,10 +181,73 @@ public class TagManager {
 		} else {
 			for (String validTag: validTags) {
 				availableTags.remove(validTag);
+				tagTrie.remove(validTag);
 			}
 		}
 	}
 	    
+	/**
+	 * Renames one of the available tags, keeping its place in the list of
+	 * available tags. Only the list of tags is changed; the photos carrying
+	 * the tag are renamed by Program.renameTag.
+	 * 
+	 * @param oldTag
+	 * 		the available tag to be renamed.
+	 * 
+	 * @param newTag
+	 * 		the new name of the tag.
+	 * 
+	 * @throws NonExistentTagsException if oldTag is not an available tag.
+	 * 
+	 * @throws DuplicateTagsException if newTag is already an available tag.
+	 * 
+	 * @throws IllegalArgumentException if newTag cannot be used in a photo name.
+	 */
+	public void renameTag(String oldTag, String newTag) throws NonExistentTagsException, DuplicateTagsException {
+		if (!isAvailableTag(oldTag)) {
+			throw new NonExistentTagsException("Cannot rename a non-existant tag!");
+		}
+		if (isAvailableTag(newTag)) {
+			throw new DuplicateTagsException("Tags are already in the program!");
+		}
+		if (!isValidTag(newTag)) {
+			throw new IllegalArgumentException("Not a valid tag: " + newTag);
+		}
+		LinkedHashSet<String> renamedTags = new LinkedHashSet<String>();
+		for (String tag: availableTags) {
+			renamedTags.add(tag.equals(oldTag) ? newTag : tag);
+		}
+		availableTags = renamedTags;
+		tagTrie.remove(oldTag);
+		tagTrie.add(newTag);
+	}
+
+	/**
+	 * Merges one available tag into another, so that only the second tag is
+	 * left available. Only the list of tags is changed; the photos carrying
+	 * the tag are renamed by Program.mergeTags.
+	 * 
+	 * @param sourceTag
+	 * 		the available tag to be merged away.
+	 * 
+	 * @param targetTag
+	 * 		the available tag that is kept.
+	 * 
+	 * @throws NonExistentTagsException if either tag is not an available tag.
+	 * 
+	 * @throws IllegalArgumentException if both tags are the same.
+	 */
+	public void mergeTags(String sourceTag, String targetTag) throws NonExistentTagsException {
+		if (!isAvailableTag(sourceTag) || !isAvailableTag(targetTag)) {
+			throw new NonExistentTagsException("Cannot merge non-existant tags!");
+		}
+		if (sourceTag.equals(targetTag)) {
+			throw new IllegalArgumentException("Cannot merge a tag into itself: " + sourceTag);
+		}
+		availableTags.remove(sourceTag);
+		tagTrie.remove(sourceTag);
+	}
+
 	/**
 	 * Renames photo by adding one or more tags to the photo. 
 	 * Returns a new Event object that represents the renaming of photo.
@@ -144,65 +266,59 @@ public class TagManager {
 	 * @return the Event object that represents the renaming of photo.
 	 */
 	public Event addPhotoTags(ArrayList<String> tags, Photo photo) throws DuplicateTagsException, FileNotRenamedException {
-		
-		String toAdd = new String();
+		return addPhotoTags(tags, photo, null);
+	}
+	
+	/**
+	 * Renames photo by adding one or more tags to the photo, as part of a 
+	 * RenameTransaction that can undo the rename if a later rename fails. 
+	 * Returns a new Event object that represents the renaming of photo.
+	 * 
+	 * @param tags 
+	 * 		list of tags that are going to be added to the photo.
+	 * 
+	 * @param photo 
+	 * 		the photo to be renamed.
+	 * 
+	 * @param transaction
+	 * 		the transaction the rename belongs to, or null to rename on its own.
+	 * 
+	 * @throws DuplicateTagsException if a tag that is going to be added is 
+	 * 		already included in the name of photo.
+	 * 
+	 * @throws FileNotRenamedException if renaming is unsuccessful.
+	 * 
+	 * @return the Event object that represents the renaming of photo.
+	 */
+	public Event addPhotoTags(ArrayList<String> tags, Photo photo, RenameTransaction transaction) throws DuplicateTagsException, FileNotRenamedException {
 		
 		/* if one or more tags from tags are already in the photo,
 		 * throw exception */
 		if (nameContainsTag(tags, photo)) {
 			throw new DuplicateTagsException("ERROR: tag is already in the photo!");
 		} else {
-
-			/* adds tags into the list of available tags
-			 * if they are not already in it. Builds the String of tags to add to the photo name.*/
-		   
-				/* more than one photo can share the same tags,
-				 * so if tag is already in the list of available tags,
-				 * we don't have to add it again
-				 */
-			 for (String tag: tags) {
-			    //if (!availableTags.contains(tag)) {
-			    //	availableTags.add(tag);
-			    //}
-			    toAdd += "@" + tag;
-			    
-			 }
 			 
 			//Creates the new photo name with the added tag(s) 
 			String logOldName = photo.getCurName();
-			String logNewName = logOldName.substring(0, logOldName.length() - 4);	
-			logNewName += toAdd; 
-			logNewName += logOldName.substring(logOldName.length() - 4);	
-				
+			String logNewName = addTagsToName(logOldName, tags);
 				
 			//Creates the new filepath so the photo file can be renamed
 			File oldFile = photo.getPhotoFile();
-			String oldFileName = oldFile.getPath();
-			String newFileName = oldFileName.substring(0, oldFileName.length() - 4);
-			newFileName += toAdd;
-			newFileName += oldFileName.substring(oldFileName.length() - 4);		
-			File newFile = new File(newFileName);
+			File newFile = new File(oldFile.getParentFile(), logNewName);
+				
+			//Gets the current system time for Event creation
+			long time = Event.currentTime();
 				
 			//Renames the photo
-			if(oldFile.renameTo(newFile)){
-					;
-			}
-			else{
-				throw new FileNotRenamedException("This file could not be renamed.");		
-			}				
+			renameFile(oldFile, newFile, RenameJournal.Operation.ADD_TAGS, time, transaction);
 				
 			//Sets the new name of the photo
 			photo.setCurName(logNewName);
 			// NEW LINE
 			photo.setPhotoFile(newFile);
 				
-			 
-			//Gets the current system time for Event creation
-			Calendar calendar = Calendar.getInstance();
-			String cur_time = calendar.getTime().toString();
-				
 			//Creates a new event for the log to record
-			Event newEvent = new Event(logOldName, logNewName, cur_time);
+			Event newEvent = new Event(logOldName, logNewName, time, Event.directoryOf(oldFile));
 			return newEvent;
 		    }
 	
@@ -227,8 +343,31 @@ public class TagManager {
 	 * @return the Event object that represents the renaming of photo.
 	 */
 	public Event removeTags(ArrayList<String> tags, Photo photo) throws NonExistentTagsException, FileNotRenamedException {
-		
-		ArrayList<String> toDel = new ArrayList<String>();
+		return removeTags(tags, photo, null);
+	}
+	
+	/**
+	 * Removes the chosen tags from photo as part of a RenameTransaction 
+	 * that can undo the rename if a later rename fails.
+	 * Returns a new Event object that represents the renaming of photo.
+	 * 
+	 * @param tags 
+	 * 		the list of tags that are going to be removed from the name of photo.
+	 * 
+	 * @param photo 
+	 * 		the photo file that is going to be renamed.
+	 * 
+	 * @param transaction
+	 * 		the transaction the rename belongs to, or null to rename on its own.
+	 * 
+	 * @throws NonExistentTagsException if a tag that is going to
+	 * 		be removed is not in the name of photo.
+	 * 
+	 * @throws FileNotRenamedException if renaming is unsuccessful.
+	 * 
+	 * @return the Event object that represents the renaming of photo.
+	 */
+	public Event removeTags(ArrayList<String> tags, Photo photo, RenameTransaction transaction) throws NonExistentTagsException, FileNotRenamedException {
 		
 		 /*if one or more tags from tags are not in the photo,
 		 throw exception */
@@ -236,52 +375,28 @@ public class TagManager {
 		if (!tags.isEmpty() && !nameContainsTag(tags, photo) ) {
 			throw new NonExistentTagsException("ERROR: can't remove tag, it doesn't exist!");		
 	    	}
-	    	
-        /* remove tags from the list of available tags
-   		if they are in it */	        
-    	for (String tag: tags) {
-    		String taggedElement = "@" + tag;
-    		toDel.add(taggedElement);
-	        }
-
-	 
-    	//Builds the Array of tags to delete
-
 		
 		//Creates the new photo names with the removed tags
 		String logOldName = photo.getCurName();
-		String logNewName = logOldName;
-		for(String element: toDel){
-			logNewName = logNewName.replace(element, "");
-		}
+		String logNewName = removeTagsFromName(logOldName, tags);
 		
 		//Creates the new filepath so the photo file can be renamed
 		File oldFile = photo.getPhotoFile();
-		String oldName = oldFile.getPath();
-		String newName = oldName.replace(logOldName, "");
-		String newFileName = newName += logNewName;
-		File newFile = new File(newFileName);
+		File newFile = new File(oldFile.getParentFile(), logNewName);
+		
+        //Gets the current system time for Event creation
+		long time = Event.currentTime();
 		
 		//Renames the photo
-		if(oldFile.renameTo(newFile)){
-			;
-		}
-		else{
-			throw new FileNotRenamedException("This file could not be renamed.");	
-			}	
+		renameFile(oldFile, newFile, RenameJournal.Operation.REMOVE_TAGS, time, transaction);
 		
 		//Sets the new name of the photo
 		photo.setCurName(logNewName);
 		// NEW LINE
 		photo.setPhotoFile(newFile);
-		
-    	
-        //Gets the current system time for Event creation
-		Calendar calendar = Calendar.getInstance();
-		String cur_time = calendar.getTime().toString();
 				
 		//Creates a new event for the log to record
-		Event newEvent = new Event(logOldName, logNewName, cur_time);
+		Event newEvent = new Event(logOldName, logNewName, time, Event.directoryOf(oldFile));
 		return newEvent;
 	}
 
@@ -304,6 +419,28 @@ public class TagManager {
 	 * @return the Event object that represents the renaming of photo.
 	 */
 	public static Event revertName(Photo photo, String oldName) throws FileNotRenamedException{
+		return revertName(photo, oldName, null);
+	}
+	
+	/**
+	 * Changes the photo's name from its current name to a certain past name, 
+	 * as part of a RenameTransaction that can undo the rename if a later rename fails. 
+	 * Returns a new Event object that represents the renaming of photo.
+	 * 
+	 * @param photo
+	 * 		the photo file that is going to be renamed.		
+	 * 
+	 * @param oldName 
+	 * 		the past photo name that the photo is to be reverted to. 
+	 * 
+	 * @param transaction
+	 * 		the transaction the rename belongs to, or null to rename on its own.
+	 * 
+	 * @throws FileNotRenamedException if file renaming is unsuccessful.
+	 * 
+	 * @return the Event object that represents the renaming of photo.
+	 */
+	public static Event revertName(Photo photo, String oldName, RenameTransaction transaction) throws FileNotRenamedException{
 		String logOldName = photo.getCurName();
 		String logNewName = oldName;
 		
@@ -314,29 +451,84 @@ public class TagManager {
 		newFileName += oldName;	
 		File newFile = new File(newFileName);
 				
-		//Renames the photo
-		if(oldFile.renameTo(newFile)){
-			;
-		}
+		//Gets the current system time for Event creation
+		long time = Event.currentTime();
 		
-		else{
-			throw new FileNotRenamedException("This file could not be renamed.");		
-		}
+		//Renames the photo
+		renameFile(oldFile, newFile, RenameJournal.Operation.REVERT, time, transaction);
 		
 		//Sets the new name of the photo
 		photo.setCurName(oldName);
 		// NEW LINE
 		photo.setPhotoFile(newFile);
-		
-		//Gets the current system time for Event creation
-		Calendar calendar = Calendar.getInstance();
-		String cur_time = calendar.getTime().toString();
 				
 		//Creates a new event for the log to record
-		Event newEvent = new Event(logOldName, logNewName, cur_time);
+		Event newEvent = new Event(logOldName, logNewName, time, Event.directoryOf(oldFile));
 		return newEvent;
 	}
 	
+	/**
+	 * Returns the name of a photo file with one or more tags added after 
+	 * its current tags and before its extension.
+	 * 
+	 * @param name
+	 * 		the current name of the photo file.
+	 * 
+	 * @param tags
+	 * 		the tags to be added.
+	 * 
+	 * @return the name with the tags added.
+	 */
+	public static String addTagsToName(String name, ArrayList<String> tags){
+		return PhotoName.addTags(name, tags);
+	}
+	
+	/**
+	 * Returns the name of a photo file with one or more tags removed.
+	 * 
+	 * @param name
+	 * 		the current name of the photo file.
+	 * 
+	 * @param tags
+	 * 		the tags to be removed.
+	 * 
+	 * @return the name with the tags removed.
+	 */
+	public static String removeTagsFromName(String name, ArrayList<String> tags){
+		return PhotoName.of(name).withTagsRemoved(tags);
+	}
+	
+	/**
+	 * Renames a photo file through the Renamer, or through a transaction if one is given.
+	 * 
+	 * @param oldFile
+	 * 		the photo file to be renamed.
+	 * 
+	 * @param newFile
+	 * 		the new name of the photo file.
+	 * 
+	 * @param operation
+	 * 		the kind of change made by the rename.
+	 * 
+	 * @param time
+	 * 		the date and time of the rename in milliseconds since the epoch, 
+	 * 		as recorded in the Log.
+	 * 
+	 * @param transaction
+	 * 		the transaction the rename belongs to, or null.
+	 * 
+	 * @throws FileNotRenamedException if renaming is unsuccessful.
+	 */
+	private static void renameFile(File oldFile, File newFile, RenameJournal.Operation operation, long time, 
+			RenameTransaction transaction) throws FileNotRenamedException{
+		if (transaction != null){
+			transaction.rename(oldFile, newFile, operation, time);
+		}
+		else if (!Renamer.rename(oldFile, newFile, operation, time)){
+			throw new FileNotRenamedException("This file could not be renamed.");
+		}
+	}
+	
 	/**
 	 * Returns an array list of tags that are included in
 	 * the name of photo.
@@ -348,20 +540,7 @@ public class TagManager {
 	 * @return the array list of tags that are included in the name of the photo.
 	 */
     public static ArrayList<String> getTagsInNameList(Photo photo) {
-    	ArrayList<String> tagsInNameList = new ArrayList<String>();
-
-    	int firstTagIndex = photo.getCurName().indexOf('@');
-    	int extensionIndex = photo.getCurName().indexOf('.');
-    	if (firstTagIndex > 0) {
-    		String tagsInName = photo.getCurName().substring(firstTagIndex + 1, extensionIndex); 
-    		String[] tagsInNameSplit = tagsInName.split("@");
-    		for (String tag: tagsInNameSplit) {
-    			tagsInNameList.add(tag);
-    		}
-    	} else {
-    		
-    	}
-		return tagsInNameList;
+    	return photo.getPhotoName().getTags();
     }
     
     /**
@@ -378,28 +557,129 @@ public class TagManager {
      * 		from tags, false otherwise.
      */
     public static boolean nameContainsTag(ArrayList<String> tags, Photo photo) {
-    	ArrayList<String> tagsInNameList = getTagsInNameList(photo);
-    	
-    	/* creates a new array list that keeps track of the
-    	 * tags that are in both tags and tagsInNameList */
-    	ArrayList<String> sameTags = new ArrayList<String>();
-    	/* checks if each tag in tags is in tagsInNameList*/
+    	if (tags.isEmpty()) {
+    		return false;
+    	}
+    	return photo.getTagSet(tagDictionary).intersects(tagDictionary.lookupAll(tags));
+    }
+ 
+    /**
+     * Returns whether a tag can be used in the name of a photo file. A tag 
+     * cannot be empty, and cannot contain '@', which separates tags, '.', 
+     * which starts the extension, a path separator or a control character.
+     * 
+     * @param tag
+     * 		the tag to be checked, without its '@'.
+     * 
+     * @return true if tag can be used, false otherwise.
+     */
+    public static boolean isValidTag(String tag) {
+    	if (tag.isEmpty()) {
+    		return false;
+    	}
+    	for (int i = 0; i < tag.length(); i++) {
+    		char c = tag.charAt(i);
+    		if (c == '@' || c == '.' || c == '/' || c == '\\' || Character.isISOControl(c)) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+    
+    /**
+     * Adds every new tag of a vocabulary to the available tags in one pass. 
+     * Tags that are already available, or repeated in the vocabulary, are 
+     * skipped rather than rejected, so that the same vocabulary can be 
+     * imported again. Nothing is added if any tag is invalid. 
+     * 
+     * @param tags
+     * 		the tags to be imported, without their '@'s.
+     * 
+     * @return the number of tags added.
+     * 
+     * @throws IllegalArgumentException if a tag cannot be used in the name of a photo file.
+     */
+    public int importTags(Collection<String> tags) {
+    	LinkedHashSet<String> newTags = new LinkedHashSet<String>();
     	for (String tag: tags) {
-    		if (tagsInNameList.contains(tag)) {
-    			sameTags.add(tag);
-    		} else {
-    			/* do nothing */
+    		if (!isValidTag(tag)) {
+    			throw new IllegalArgumentException("Invalid tag: " + tag);
+    		}
+    		if (!availableTags.contains(tag)) {
+    			newTags.add(tag);
     		}
     	}
-    	/* returns false if sameTags is empty, since it means that 
-    	 * the name of the photo file doesn't contain any tags from tags
-    	 * 
-    	 * returns true if sameTags is NOT empty, since it means that the 
-    	 * name of the photo file contains one or more tags from tags
-    	 * */
-    	return !sameTags.isEmpty();
-     }
- 
+    	availableTags.addAll(newTags);
+    	for (String tag: newTags) {
+    		tagTrie.add(tag);
+    	}
+    	return newTags.size();
+    }
+    
+    /**
+     * Imports a vocabulary of tags from a UTF-8 text file with one tag per 
+     * line. Blank lines and lines starting with '#' are ignored, and a tag 
+     * may be written with or without its leading '@'. 
+     * 
+     * @param fileName
+     * 		the vocabulary file.
+     * 
+     * @return the number of tags added.
+     * 
+     * @throws IOException if the file cannot be read, or contains a tag that 
+     * 		cannot be used in the name of a photo file, in which case no tag is added.
+     * 
+     * @see #importTags(Collection)
+     */
+    public int importTagFile(String fileName) throws IOException {
+    	ArrayList<String> tags = new ArrayList<String>();
+    	BufferedReader reader = new BufferedReader(new InputStreamReader(
+    			new FileInputStream(fileName), StandardCharsets.UTF_8));
+    	try {
+    		String line;
+    		int lineNumber = 0;
+    		while ((line = reader.readLine()) != null) {
+    			lineNumber++;
+    			line = line.trim();
+    			if (line.isEmpty() || line.startsWith("#")) {
+    				continue;
+    			}
+    			String tag = line.startsWith("@") ? line.substring(1) : line;
+    			if (!isValidTag(tag)) {
+    				throw new IOException("Invalid tag on line " + lineNumber + " of " + fileName + ": " + line);
+    			}
+    			tags.add(tag);
+    		}
+    	}
+    	finally {
+    		reader.close();
+    	}
+    	return importTags(tags);
+    }
+    
+    /**
+     * Writes the available tags to a UTF-8 text file with one tag per line, 
+     * in the order they were added, so they can be read back with importTagFile.
+     * 
+     * @param fileName
+     * 		the vocabulary file to write.
+     * 
+     * @throws IOException if the file cannot be written.
+     */
+    public void exportTagFile(String fileName) throws IOException {
+    	BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+    			new FileOutputStream(fileName), StandardCharsets.UTF_8));
+    	try {
+    		for (String tag: availableTags) {
+    			writer.write(tag);
+    			writer.newLine();
+    		}
+    	}
+    	finally {
+    		writer.close();
+    	}
+    }
+    
     /**
      * Serializes the ArrayList of Tags to a file for access by the program 
      * if it is closed and reopened again. 
@@ -416,7 +696,9 @@ public class TagManager {
     	BufferedOutputStream buffer = new BufferedOutputStream(file);
     	ObjectOutputStream output = new ObjectOutputStream(buffer);
 		// serialize the list of available tags
-		output.writeObject(availableTags);
+		// an ArrayList is written so that files saved before and after the 
+		// available tags were kept in a set can be read by either version
+		output.writeObject(new ArrayList<String>(availableTags));
 		output.close();
     	}
     
@@ -575,7 +575,51 @@ public class TagManagerTest {
     	tags.add("nameD");
     	assertTrue(tm1.nameContainsTag(tags, photo));
     }
-
-	
+    
+    /**
+     * Test method for {@link photo_renamer.TagManager#getTagsInNameList(Photo)}.
+     * Test case for when the name of the photo has dots before its tags.
+     */
+    @Test
+    public void testGetTagsInNameDottedName() {
+    	file = new File("/Users/shawneerizqa/Desktop/SHAWNEE/Unsorted/my.photo@nameA@nameB.jpg");
+    	photo = new Photo(file);
+    	tags.add("nameA");
+    	tags.add("nameB");
+        ArrayList<String> actual = tm1.getTagsInNameList(photo);
+        ArrayList<String> expected = tags;
+    	assertEquals("getTagsInNameFailed", expected, actual);
+    	assertEquals("getOrigNameFailed", "my.photo.jpg", photo.getOrigName());
+    }
+    
+    /**
+     * Test method for {@link photo_renamer.TagManager#removeTagsFromName(String, java.util.ArrayList<String>)}.
+     * Test case for when a tag is the start of another tag in the name.
+     */
+    @Test
+    public void testRemoveTagsFromNameWholeTagsOnly() {
+    	tags.add("sun");
+    	String actual = TagManager.removeTagsFromName("photo@sunset@sun.jpg", tags);
+    	assertEquals("removeTagsFromNameFailed", "photo@sunset.jpg", actual);
+    }
+    
+    /**
+     * Test method for {@link photo_renamer.TagManager#renameTag(String, String)}.
+     * Test case for when a tag is renamed and then merged into another tag.
+     */
+    @Test
+    public void testRenameAndMergeTags() throws Exception {
+    	tags.add("nameA");
+    	tags.add("nameB");
+    	tags.add("nameC");
+    	tm1.addAvailableTags(tags);
+    	tm1.renameTag("nameB", "nameD");
+    	tm1.mergeTags("nameA", "nameC");
+    	ArrayList<String> expected = new ArrayList<String>();
+    	expected.add("nameD");
+    	expected.add("nameC");
+    	assertEquals("renameTagFailed", expected, tm1.getAvailableTags());
+    	assertEquals("completeTagFailed", 0, tm1.completeTag("nameA", 10).size());
+    }
 
 }
@@ -0,0 +1,491 @@
+package photo_renamer;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * A boolean query over the tags of photos, such as "beach AND 2019 AND NOT
+ * blurry". The query language is:
+ *
+ * <pre>
+ * query   := and (OR and)*
+ * and     := not (AND? not)*
+ * not     := NOT not | primary
+ * primary := ( query ) | tag
+ * </pre>
+ *
+ * The keywords AND, OR and NOT may be in any case, and may also be written
+ * as '&amp;', '|' and '!' or a leading '-'. Two terms with no keyword between
+ * them are both required. A tag may start with '@', and a tag containing
+ * spaces or keywords can be written in double quotes.
+ *
+ * A query is evaluated on the postings of a TagIndex. The terms of an AND are
+ * intersected from the tag with the fewest photos up, so the result shrinks
+ * as fast as possible and evaluation stops as soon as it is empty; the NOT
+ * terms are then taken out of what is left.
+ *
+ * @author group_0653
+ */
+public final class TagQuery {
+
+	/** The text of the query. */
+	private final String text;
+
+	/** The root of the parsed query. */
+	private final Node root;
+
+	/**
+	 * A new TagQuery.
+	 *
+	 * @param text
+	 * 		the text of the query.
+	 * @param root
+	 * 		the root of the parsed query.
+	 */
+	private TagQuery(String text, Node root){
+		this.text = text;
+		this.root = root;
+	}
+
+	/**
+	 * Parses a query.
+	 *
+	 * @param text
+	 * 		the text of the query.
+	 *
+	 * @return the parsed TagQuery.
+	 *
+	 * @throws InvalidQueryException if text is empty or is not a valid query.
+	 */
+	public static TagQuery parse(String text) throws InvalidQueryException{
+		Parser parser = new Parser(text);
+		if (parser.peek() == null){
+			throw new InvalidQueryException("The query is empty.");
+		}
+		Node root = parser.parseOr();
+		if (parser.peek() != null){
+			throw new InvalidQueryException("Unexpected \"" + parser.peek() + "\" in the query.");
+		}
+		return new TagQuery(text, root);
+	}
+
+	/**
+	 * Returns the photos of a TagIndex that match this query. The caller must
+	 * hold the lock of index.
+	 *
+	 * @param index
+	 * 		the TagIndex whose postings are queried.
+	 *
+	 * @return a new PhotoBitmap of the IDs of the matching photos.
+	 */
+	PhotoBitmap evaluate(TagIndex index){
+		// A query of one tag gives back the postings of the index itself.
+		return root.evaluate(index).copy();
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString(){
+		return text;
+	}
+
+	/**
+	 * A node of a parsed query.
+	 */
+	private static abstract class Node {
+
+		/**
+		 * Returns the photos that match this node. The returned bitmap may be
+		 * held by index, and must not be changed.
+		 *
+		 * @param index
+		 * 		the TagIndex whose postings are queried.
+		 *
+		 * @return the IDs of the matching photos.
+		 */
+		abstract PhotoBitmap evaluate(TagIndex index);
+
+		/**
+		 * Returns an estimate of the number of photos that match this node,
+		 * without evaluating it.
+		 *
+		 * @param index
+		 * 		the TagIndex whose postings are queried.
+		 *
+		 * @return the estimated number of matching photos.
+		 */
+		abstract long estimate(TagIndex index);
+	}
+
+	/**
+	 * The photos that carry a tag.
+	 */
+	private static final class Tag extends Node {
+
+		/** The tag, without its '@'. */
+		private final String tag;
+
+		/**
+		 * A new Tag node.
+		 *
+		 * @param tag
+		 * 		the tag, without its '@'.
+		 */
+		Tag(String tag){
+			this.tag = tag;
+		}
+
+		@Override
+		PhotoBitmap evaluate(TagIndex index){
+			PhotoBitmap postings = index.postingsOf(tag);
+			return postings == null ? new PhotoBitmap() : postings;
+		}
+
+		@Override
+		long estimate(TagIndex index){
+			PhotoBitmap postings = index.postingsOf(tag);
+			return postings == null ? 0 : postings.cardinality();
+		}
+	}
+
+	/**
+	 * The photos that do not match a node.
+	 */
+	private static final class Not extends Node {
+
+		/** The node whose photos are left out. */
+		private final Node child;
+
+		/**
+		 * A new Not node.
+		 *
+		 * @param child
+		 * 		the node whose photos are left out.
+		 */
+		Not(Node child){
+			this.child = child;
+		}
+
+		@Override
+		PhotoBitmap evaluate(TagIndex index){
+			return index.getAllPhotos().andNot(child.evaluate(index));
+		}
+
+		@Override
+		long estimate(TagIndex index){
+			return Math.max(0, index.getAllPhotos().cardinality() - child.estimate(index));
+		}
+	}
+
+	/**
+	 * The photos that match every one of a group of nodes.
+	 */
+	private static final class And extends Node {
+
+		/** The nodes whose photos must all match. */
+		private final ArrayList<Node> required;
+
+		/** The nodes whose photos must not match. */
+		private final ArrayList<Node> excluded;
+
+		/**
+		 * A new And node. NOT terms are kept apart, so that they are taken out
+		 * of the intersection instead of being evaluated against every photo.
+		 *
+		 * @param terms
+		 * 		the nodes whose photos must all match.
+		 */
+		And(ArrayList<Node> terms){
+			this.required = new ArrayList<Node>();
+			this.excluded = new ArrayList<Node>();
+			for (Node term: terms){
+				if (term instanceof Not){
+					excluded.add(((Not) term).child);
+				}
+				else{
+					required.add(term);
+				}
+			}
+		}
+
+		@Override
+		PhotoBitmap evaluate(TagIndex index){
+			ArrayList<Node> order = sortByEstimate(index, required);
+			PhotoBitmap result = order.isEmpty() ? index.getAllPhotos() : order.get(0).evaluate(index);
+			for (int i = 1; i < order.size() && !result.isEmpty(); i++){
+				result = result.and(order.get(i).evaluate(index));
+			}
+			for (int i = 0; i < excluded.size() && !result.isEmpty(); i++){
+				result = result.andNot(excluded.get(i).evaluate(index));
+			}
+			return result;
+		}
+
+		@Override
+		long estimate(TagIndex index){
+			long estimate = index.getAllPhotos().cardinality();
+			for (Node term: required){
+				estimate = Math.min(estimate, term.estimate(index));
+			}
+			return estimate;
+		}
+	}
+
+	/**
+	 * The photos that match any of a group of nodes.
+	 */
+	private static final class Or extends Node {
+
+		/** The nodes whose photos match. */
+		private final ArrayList<Node> terms;
+
+		/**
+		 * A new Or node.
+		 *
+		 * @param terms
+		 * 		the nodes whose photos match.
+		 */
+		Or(ArrayList<Node> terms){
+			this.terms = terms;
+		}
+
+		@Override
+		PhotoBitmap evaluate(TagIndex index){
+			PhotoBitmap result = terms.get(0).evaluate(index);
+			for (int i = 1; i < terms.size(); i++){
+				result = result.or(terms.get(i).evaluate(index));
+			}
+			return result;
+		}
+
+		@Override
+		long estimate(TagIndex index){
+			long estimate = 0;
+			for (Node term: terms){
+				estimate += term.estimate(index);
+			}
+			return Math.min(estimate, index.getAllPhotos().cardinality());
+		}
+	}
+
+	/**
+	 * Returns a group of nodes in increasing order of their estimated number of photos.
+	 *
+	 * @param index
+	 * 		the TagIndex whose postings are queried.
+	 * @param nodes
+	 * 		the nodes to be sorted.
+	 *
+	 * @return a new sorted list of the nodes.
+	 */
+	private static ArrayList<Node> sortByEstimate(TagIndex index, ArrayList<Node> nodes){
+		// Each estimate is worked out once; a query has too few terms to need more than an insertion sort.
+		ArrayList<Node> order = new ArrayList<Node>(nodes.size());
+		long[] estimates = new long[nodes.size()];
+		for (Node node: nodes){
+			long estimate = node.estimate(index);
+			int i = order.size();
+			while (i > 0 && estimates[i - 1] > estimate){
+				estimates[i] = estimates[i - 1];
+				i--;
+			}
+			estimates[i] = estimate;
+			order.add(i, node);
+		}
+		return order;
+	}
+
+	/**
+	 * A recursive descent parser of the query language.
+	 */
+	private static final class Parser {
+
+		/** The tokens of the query. Quoted tags keep their leading quote. */
+		private final ArrayList<String> tokens;
+
+		/** The index of the next token. */
+		private int next;
+
+		/**
+		 * A new Parser of a query.
+		 *
+		 * @param text
+		 * 		the text of the query.
+		 *
+		 * @throws InvalidQueryException if a quoted tag is not closed.
+		 */
+		Parser(String text) throws InvalidQueryException{
+			this.tokens = tokenize(text);
+		}
+
+		/**
+		 * Returns the next token without reading it.
+		 *
+		 * @return the next token, or null at the end of the query.
+		 */
+		String peek(){
+			return next < tokens.size() ? tokens.get(next) : null;
+		}
+
+		/**
+		 * Parses the terms of an OR.
+		 *
+		 * @return the parsed node.
+		 *
+		 * @throws InvalidQueryException if the query is not valid.
+		 */
+		Node parseOr() throws InvalidQueryException{
+			ArrayList<Node> terms = new ArrayList<Node>();
+			terms.add(parseAnd());
+			while (isKeyword(peek(), "OR", "|")){
+				next++;
+				terms.add(parseAnd());
+			}
+			return terms.size() == 1 ? terms.get(0) : new Or(terms);
+		}
+
+		/**
+		 * Parses the terms of an AND.
+		 *
+		 * @return the parsed node.
+		 *
+		 * @throws InvalidQueryException if the query is not valid.
+		 */
+		Node parseAnd() throws InvalidQueryException{
+			ArrayList<Node> terms = new ArrayList<Node>();
+			terms.add(parseNot());
+			while (peek() != null && !isKeyword(peek(), "OR", "|") && !peek().equals(")")){
+				if (isKeyword(peek(), "AND", "&")){
+					next++;
+				}
+				terms.add(parseNot());
+			}
+			return terms.size() == 1 ? terms.get(0) : new And(terms);
+		}
+
+		/**
+		 * Parses a term that may be negated.
+		 *
+		 * @return the parsed node.
+		 *
+		 * @throws InvalidQueryException if the query is not valid.
+		 */
+		Node parseNot() throws InvalidQueryException{
+			if (isKeyword(peek(), "NOT", "!") || "-".equals(peek())){
+				next++;
+				Node child = parseNot();
+				return child instanceof Not ? ((Not) child).child : new Not(child);
+			}
+			return parsePrimary();
+		}
+
+		/**
+		 * Parses a tag or a query in parentheses.
+		 *
+		 * @return the parsed node.
+		 *
+		 * @throws InvalidQueryException if the query is not valid.
+		 */
+		Node parsePrimary() throws InvalidQueryException{
+			String token = peek();
+			if (token == null){
+				throw new InvalidQueryException("The query ends too early.");
+			}
+			next++;
+			if (token.equals("(")){
+				Node node = parseOr();
+				if (!")".equals(peek())){
+					throw new InvalidQueryException("A \"(\" in the query is not closed.");
+				}
+				next++;
+				return node;
+			}
+			if (token.startsWith("\"")){
+				return new Tag(stripAt(token.substring(1)));
+			}
+			if (token.equals(")") || isKeyword(token, "AND", "&") || isKeyword(token, "OR", "|")){
+				throw new InvalidQueryException("Expected a tag but found \"" + token + "\".");
+			}
+			return new Tag(stripAt(token));
+		}
+
+		/**
+		 * Returns whether a token is a keyword.
+		 *
+		 * @param token
+		 * 		the token, or null.
+		 * @param keyword
+		 * 		the keyword, in upper case.
+		 * @param symbol
+		 * 		the symbol that can be written for the keyword.
+		 *
+		 * @return true if token is the keyword or its symbol, false otherwise.
+		 */
+		private static boolean isKeyword(String token, String keyword, String symbol){
+			return token != null && (token.equals(symbol) || token.toUpperCase(Locale.ROOT).equals(keyword));
+		}
+
+		/**
+		 * Removes the '@' from the start of a tag.
+		 *
+		 * @param tag
+		 * 		the tag, with or without its '@'.
+		 *
+		 * @return the tag without its '@'.
+		 *
+		 * @throws InvalidQueryException if the tag is empty.
+		 */
+		private static String stripAt(String tag) throws InvalidQueryException{
+			String stripped = tag.startsWith("@") ? tag.substring(1) : tag;
+			if (stripped.isEmpty()){
+				throw new InvalidQueryException("The query has an empty tag.");
+			}
+			return stripped;
+		}
+
+		/**
+		 * Splits a query into tokens: parentheses, the symbols '&amp;', '|', '!'
+		 * and a leading '-', quoted tags, and words.
+		 *
+		 * @param text
+		 * 		the text of the query.
+		 *
+		 * @return the tokens of text.
+		 *
+		 * @throws InvalidQueryException if a quoted tag is not closed.
+		 */
+		private static ArrayList<String> tokenize(String text) throws InvalidQueryException{
+			ArrayList<String> tokens = new ArrayList<String>();
+			int i = 0;
+			while (i < text.length()){
+				char c = text.charAt(i);
+				if (Character.isWhitespace(c)){
+					i++;
+				}
+				else if (c == '(' || c == ')' || c == '&' || c == '|' || c == '!' || c == '-'){
+					tokens.add(String.valueOf(c));
+					i++;
+				}
+				else if (c == '"'){
+					int end = text.indexOf('"', i + 1);
+					if (end < 0){
+						throw new InvalidQueryException("A quoted tag in the query is not closed.");
+					}
+					tokens.add(text.substring(i, end));
+					i = end + 1;
+				}
+				else{
+					int start = i;
+					while (i < text.length() && !Character.isWhitespace(text.charAt(i))
+							&& "()&|!\"".indexOf(text.charAt(i)) < 0){
+						i++;
+					}
+					tokens.add(text.substring(start, i));
+				}
+			}
+			return tokens;
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package photo_renamer;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TagQueryTest {
+
+	private TagIndex index;
+
+    /**
+     * Creates an index of photos 0 to 7, whose tags are a@b@c.jpg style
+     * names: photo i has tag a if bit 0 of i is set, b for bit 1 and c for bit 2.
+     *
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        index = new TagIndex(new TagDictionary());
+        for (int i = 0; i < 8; i++) {
+            StringBuilder name = new StringBuilder("p").append(i);
+            for (int bit = 0; bit < 3; bit++) {
+                if ((i & 1 << bit) != 0) {
+                    name.append('@').append((char) ('a' + bit));
+                }
+            }
+            index.put(Paths.get("/photos", name.append(".jpg").toString()));
+        }
+    }
+
+    /**
+     * Returns the numbers of the photos that match a query.
+     */
+    private BitSet matches(String query) throws InvalidQueryException {
+        BitSet photos = new BitSet();
+        for (int id: index.query(TagQuery.parse(query)).toArray()) {
+            String name = Paths.get(index.getPath(id)).getFileName().toString();
+            photos.set(name.charAt(1) - '0');
+        }
+        return photos;
+    }
+
+    /**
+     * Returns the photo numbers whose digit is 1 in a string of eight digits.
+     */
+    private BitSet expected(String bits) {
+        BitSet photos = new BitSet();
+        for (int i = 0; i < 8; i++) {
+            if (bits.charAt(i) == '1') {
+                photos.set(i);
+            }
+        }
+        return photos;
+    }
+
+    /**
+     * Returns a bitmap and a BitSet of the same random IDs, either spread
+     * out, dense, or in long runs, across several chunks.
+     */
+    private PhotoBitmap randomBitmap(Random random, BitSet model) {
+        PhotoBitmap bitmap = new PhotoBitmap();
+        int kind = random.nextInt(3);
+        for (int chunk = 0; chunk < 3; chunk++) {
+            int base = random.nextInt(4) << 16;
+            if (kind == 0) {
+                for (int i = 0; i < 50; i++) {
+                    int id = base + random.nextInt(65536);
+                    bitmap.add(id);
+                    model.set(id);
+                }
+            }
+            else if (kind == 1) {
+                for (int i = 0; i < 65536; i += 1 + random.nextInt(4)) {
+                    bitmap.add(base + i);
+                    model.set(base + i);
+                }
+            }
+            else {
+                int start = random.nextInt(30000);
+                for (int i = start; i < start + 20000; i++) {
+                    bitmap.add(base + i);
+                    model.set(base + i);
+                }
+            }
+        }
+        if (random.nextBoolean()) {
+            bitmap.runOptimize();
+        }
+        return bitmap;
+    }
+
+    private void assertSameIds(BitSet model, PhotoBitmap bitmap) {
+        assertEquals(model.cardinality(), bitmap.cardinality());
+        assertEquals(model.isEmpty(), bitmap.isEmpty());
+        int[] ids = bitmap.toArray();
+        int i = 0;
+        for (int id = model.nextSetBit(0); id >= 0; id = model.nextSetBit(id + 1)) {
+            assertEquals(id, ids[i++]);
+        }
+        PrimitiveIterator.OfInt iterator = bitmap.iterator();
+        for (int id: ids) {
+            assertEquals(id, iterator.nextInt());
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoBitmap#and(photo_renamer.PhotoBitmap)}.
+     * Test case for the set operations of bitmaps of every kind of
+     * container, checked against BitSets.
+     */
+    @Test
+    public void testBitmapOperationsMatchBitSet() {
+        Random random = new Random(653);
+        for (int trial = 0; trial < 60; trial++) {
+            BitSet first = new BitSet();
+            BitSet second = new BitSet();
+            PhotoBitmap a = randomBitmap(random, first);
+            PhotoBitmap b = randomBitmap(random, second);
+            assertSameIds(first, a);
+            BitSet and = (BitSet) first.clone();
+            and.and(second);
+            assertSameIds(and, a.and(b));
+            BitSet or = (BitSet) first.clone();
+            or.or(second);
+            assertSameIds(or, a.or(b));
+            BitSet andNot = (BitSet) first.clone();
+            andNot.andNot(second);
+            assertSameIds(andNot, a.andNot(b));
+            assertSameIds(first, a);
+            assertSameIds(second, b);
+        }
+    }
+
+    /**
+     * Test method for {@link photo_renamer.PhotoBitmap#remove(int)}.
+     * Test case for IDs added and removed from a run container, and from a copy.
+     */
+    @Test
+    public void testBitmapAddRemove() {
+        PhotoBitmap bitmap = new PhotoBitmap();
+        for (int id = 0; id < 10000; id++) {
+            bitmap.add(id);
+        }
+        bitmap.runOptimize();
+        PhotoBitmap copy = bitmap.copy();
+        assertTrue(bitmap.remove(5000));
+        assertFalse(bitmap.remove(5000));
+        assertFalse(bitmap.contains(5000));
+        assertFalse(bitmap.add(4999));
+        assertTrue(bitmap.add(70000));
+        assertEquals(10000, bitmap.cardinality());
+        assertTrue(copy.contains(5000));
+        assertFalse(copy.contains(70000));
+        assertEquals(10000, copy.cardinality());
+        assertArrayEquals(new int[] {1, 65536, 131072}, PhotoBitmap.of(131072, 1, 65536, 1).toArray());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagQuery#parse(java.lang.String)}.
+     * Test case for AND, OR and NOT written as words, symbols and in lower case.
+     */
+    @Test
+    public void testKeywords() throws InvalidQueryException {
+        assertEquals(expected("00010001"), matches("a AND b"));
+        assertEquals(expected("00010001"), matches("a & @b"));
+        assertEquals(expected("00010001"), matches("a b"));
+        assertEquals(expected("01110111"), matches("a or b"));
+        assertEquals(expected("01110111"), matches("a | b"));
+        assertEquals(expected("10101010"), matches("NOT a"));
+        assertEquals(expected("10101010"), matches("!a"));
+        assertEquals(expected("00100010"), matches("b -a"));
+        assertEquals(expected("01010101"), matches("not not a"));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagQuery#parse(java.lang.String)}.
+     * Test case for AND binding tighter than OR, and parentheses.
+     */
+    @Test
+    public void testPrecedence() throws InvalidQueryException {
+        assertEquals(expected("00011111"), matches("a AND b OR c"));
+        assertEquals(expected("00010101"), matches("a AND (b OR c)"));
+        assertEquals(expected("00000100"), matches("a c NOT b"));
+        assertEquals(expected("10000000"), matches("NOT (a OR b OR c)"));
+        assertEquals(expected("00000000"), matches("a AND missing"));
+        assertEquals(expected("11111111"), matches("missing OR NOT missing"));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagQuery#parse(java.lang.String)}.
+     * Test case for a quoted tag holding a keyword and a space.
+     */
+    @Test
+    public void testQuotedTag() throws InvalidQueryException {
+        index.put(Paths.get("/photos/q@OR.jpg"));
+        index.put(Paths.get("/photos/r@new york.jpg"));
+        assertEquals(1, index.query(TagQuery.parse("\"OR\"")).cardinality());
+        assertEquals(1, index.query(TagQuery.parse("\"@new york\" OR missing")).cardinality());
+        assertEquals("\"new york\"", TagQuery.parse("\"new york\"").toString());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagQuery#parse(java.lang.String)}.
+     * Test case for queries that are not valid.
+     */
+    @Test
+    public void testInvalidQueries() {
+        for (String text: new String[] {"", "   ", "a AND", "(a", "a)", "OR a", "\"a", "@", "a & | b"}) {
+            try {
+                TagQuery.parse(text);
+                fail("parsed " + text);
+            } catch (InvalidQueryException e) {
+                // Expected.
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagIndex#query(photo_renamer.TagQuery)}.
+     * Test case for a query result changed by the caller, which leaves the
+     * postings of the index alone.
+     */
+    @Test
+    public void testQueryResultIsCopy() throws InvalidQueryException {
+        PhotoBitmap result = index.query(TagQuery.parse("a"));
+        for (int id: result.toArray()) {
+            result.remove(id);
+        }
+        assertEquals(4, index.countPhotosWithTag("a"));
+    }
+}
@@ -0,0 +1,150 @@
+package photo_renamer;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+
+import javax.swing.DefaultListModel;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+/**
+ * A type-ahead search over the available tags of a TagManager. As the user
+ * types, only the first few tags starting with the typed text are shown, so
+ * the panel stays fast however many tags there are. Pressing enter, or
+ * double-clicking a shown tag, chooses a tag.
+ *
+ * @author group_0653
+ */
+public class TagSearchPanel extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The largest number of tags shown at a time. */
+	public static final int SHOWN_TAGS = 50;
+
+	/** The TagManager whose tags are searched. */
+	private TagManager tagManager;
+
+	/** The field the user types the start of a tag into. */
+	private JTextField searchField;
+
+	/** The tags starting with the text of searchField. */
+	private DefaultListModel<String> completions;
+
+	/** The list showing the completions. */
+	private JList<String> completionList;
+
+	/** The listeners told when a tag is chosen. */
+	private ArrayList<ActionListener> tagListeners;
+
+	/**
+	 * A new TagSearchPanel showing the first available tags of a TagManager.
+	 *
+	 * @param tagManager
+	 * 		the TagManager whose tags are searched.
+	 *
+	 * @param title
+	 * 		the text shown above the search field.
+	 */
+	public TagSearchPanel(TagManager tagManager, String title){
+		super(new BorderLayout());
+		this.tagManager = tagManager;
+		this.tagListeners = new ArrayList<ActionListener>();
+		this.searchField = new JTextField();
+		this.completions = new DefaultListModel<String>();
+		this.completionList = new JList<String>(completions);
+		completionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+
+		searchField.getDocument().addDocumentListener(new DocumentListener(){
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				refresh();
+			}
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				refresh();
+			}
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				refresh();
+			}
+		});
+		searchField.addActionListener(new ActionListener(){
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				// The selected tag is chosen, or else the first tag shown.
+				String tag = completionList.getSelectedValue();
+				if (tag == null && !completions.isEmpty()){
+					tag = completions.getElementAt(0);
+				}
+				if (tag != null){
+					chooseTag(tag);
+				}
+			}
+		});
+		completionList.addMouseListener(new MouseAdapter(){
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				if (e.getClickCount() == 2 && completionList.getSelectedValue() != null){
+					chooseTag(completionList.getSelectedValue());
+				}
+			}
+		});
+
+		JScrollPane completionScroll = new JScrollPane(completionList);
+		completionScroll.setPreferredSize(new Dimension(250, 250));
+		JPanel searchPanel = new JPanel(new BorderLayout());
+		searchPanel.add(new JLabel(title), BorderLayout.NORTH);
+		searchPanel.add(searchField, BorderLayout.SOUTH);
+		add(searchPanel, BorderLayout.NORTH);
+		add(completionScroll, BorderLayout.CENTER);
+		refresh();
+	}
+
+	/**
+	 * Adds a listener to be told when a tag is chosen. The action command of
+	 * the event is the chosen tag.
+	 *
+	 * @param listener
+	 * 		the listener to be added.
+	 */
+	public void addTagListener(ActionListener listener){
+		tagListeners.add(listener);
+	}
+
+	/**
+	 * Shows the tags starting with the typed text again, after the available
+	 * tags of the TagManager have changed.
+	 */
+	public void refresh(){
+		completions.clear();
+		for (String tag: tagManager.completeTag(searchField.getText().trim(), SHOWN_TAGS)){
+			completions.addElement(tag);
+		}
+	}
+
+	/**
+	 * Tells every listener that a tag was chosen, and clears the search field.
+	 *
+	 * @param tag
+	 * 		the chosen tag.
+	 */
+	private void chooseTag(String tag){
+		ActionEvent event = new ActionEvent(this, ActionEvent.ACTION_PERFORMED, tag);
+		for (ActionListener listener: tagListeners){
+			listener.actionPerformed(event);
+		}
+		searchField.setText("");
+	}
+}
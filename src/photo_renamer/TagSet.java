@@ -0,0 +1,235 @@
+package photo_renamer;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of tag IDs from a TagDictionary. A set whose IDs are close
+ * together is stored as a bitset, so membership and overlap checks are single
+ * word operations; a set of a few IDs spread far apart is stored as a sorted
+ * array of IDs instead, so that it stays small.
+ *
+ * @author group_0653
+ */
+public final class TagSet {
+
+	/** The set with no tags. */
+	public static final TagSet EMPTY = new TagSet(new long[0], null, 0);
+
+	/** The bits of the set, one per ID, or null if the set is stored as an array. */
+	private final long[] words;
+
+	/** The IDs of the set in increasing order, or null if the set is stored as a bitset. */
+	private final int[] ids;
+
+	/** The number of IDs in the set. */
+	private final int size;
+
+	/**
+	 * A new TagSet stored as either a bitset or a sorted array.
+	 *
+	 * @param words
+	 * 		the bits of the set, or null.
+	 * @param ids
+	 * 		the sorted IDs of the set, or null.
+	 * @param size
+	 * 		the number of IDs in the set.
+	 */
+	private TagSet(long[] words, int[] ids, int size){
+		this.words = words;
+		this.ids = ids;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the set of a group of tag IDs. Repeated IDs are kept once.
+	 *
+	 * @param tagIds
+	 * 		the IDs, in any order. The array is not changed.
+	 *
+	 * @return the TagSet of tagIds.
+	 */
+	public static TagSet of(int... tagIds){
+		if (tagIds.length == 0){
+			return EMPTY;
+		}
+		int[] sorted = tagIds.clone();
+		Arrays.sort(sorted);
+		if (sorted[0] < 0){
+			throw new IllegalArgumentException("Tag IDs cannot be negative: " + sorted[0]);
+		}
+		int count = 1;
+		for (int i = 1; i < sorted.length; i++){
+			if (sorted[i] != sorted[count - 1]){
+				sorted[count++] = sorted[i];
+			}
+		}
+		int wordCount = (sorted[count - 1] >>> 6) + 1;
+
+		// A bitset is used unless it would take more space than the array of IDs.
+		if (wordCount * 2 <= count + 1){
+			long[] words = new long[wordCount];
+			for (int i = 0; i < count; i++){
+				words[sorted[i] >>> 6] |= 1L << sorted[i];
+			}
+			return new TagSet(words, null, count);
+		}
+		return new TagSet(null, count == sorted.length ? sorted : Arrays.copyOf(sorted, count), count);
+	}
+
+	/**
+	 * Returns whether this set contains a tag ID.
+	 *
+	 * @param id
+	 * 		the tag ID.
+	 *
+	 * @return true if id is in this set, false otherwise.
+	 */
+	public boolean contains(int id){
+		if (id < 0){
+			return false;
+		}
+		if (words != null){
+			int word = id >>> 6;
+			return word < words.length && (words[word] & (1L << id)) != 0;
+		}
+		return Arrays.binarySearch(ids, id) >= 0;
+	}
+
+	/**
+	 * Returns whether this set and another set have a tag ID in common.
+	 *
+	 * @param other
+	 * 		the other set.
+	 *
+	 * @return true if an ID is in both sets, false otherwise.
+	 */
+	public boolean intersects(TagSet other){
+		if (words != null && other.words != null){
+			int common = Math.min(words.length, other.words.length);
+			for (int i = 0; i < common; i++){
+				if ((words[i] & other.words[i]) != 0){
+					return true;
+				}
+			}
+			return false;
+		}
+		TagSet smaller = size <= other.size ? this : other;
+		TagSet larger = smaller == this ? other : this;
+		for (int id: smaller.toArray()){
+			if (larger.contains(id)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether this set contains every tag ID of another set.
+	 *
+	 * @param other
+	 * 		the other set.
+	 *
+	 * @return true if every ID of other is in this set, false otherwise.
+	 */
+	public boolean containsAll(TagSet other){
+		if (other.size > size){
+			return false;
+		}
+		if (words != null && other.words != null){
+			if (other.words.length > words.length){
+				return false;
+			}
+			for (int i = 0; i < other.words.length; i++){
+				if ((other.words[i] & ~words[i]) != 0){
+					return false;
+				}
+			}
+			return true;
+		}
+		for (int id: other.toArray()){
+			if (!contains(id)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of tag IDs in this set.
+	 *
+	 * @return the size of this set.
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Returns whether this set has no tag IDs.
+	 *
+	 * @return true if this set is empty, false otherwise.
+	 */
+	public boolean isEmpty(){
+		return size == 0;
+	}
+
+	/**
+	 * Returns the tag IDs of this set in increasing order.
+	 *
+	 * @return a new array of the IDs.
+	 */
+	public int[] toArray(){
+		if (ids != null){
+			return ids.clone();
+		}
+		int[] result = new int[size];
+		int count = 0;
+		for (int i = 0; i < words.length; i++){
+			long word = words[i];
+			while (word != 0){
+				result[count++] = (i << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns whether this set has the same tag IDs as another object.
+	 *
+	 * @param obj
+	 * 		the object to compare to.
+	 *
+	 * @return true if obj is a TagSet with the same IDs, false otherwise.
+	 */
+	@Override
+	public boolean equals(Object obj){
+		if (this == obj){
+			return true;
+		}
+		if (!(obj instanceof TagSet)){
+			return false;
+		}
+		TagSet other = (TagSet) obj;
+		return size == other.size && Arrays.equals(toArray(), other.toArray());
+	}
+
+	/**
+	 * Returns a hash code based on the tag IDs of this set.
+	 *
+	 * @return the hash code of this set.
+	 */
+	@Override
+	public int hashCode(){
+		return Arrays.hashCode(toArray());
+	}
+
+	/**
+	 * Returns the tag IDs of this set, such as "[0, 3, 7]".
+	 *
+	 * @return the string form of this set.
+	 */
+	@Override
+	public String toString(){
+		return Arrays.toString(toArray());
+	}
+}
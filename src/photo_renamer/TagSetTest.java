@@ -0,0 +1,164 @@
+package photo_renamer;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TagSetTest {
+
+	private TagDictionary dictionary;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        dictionary = new TagDictionary();
+    }
+
+    /**
+     * Returns a set of random IDs, dense enough for a bitset or spread out
+     * enough for an array depending on range.
+     */
+    private TreeSet<Integer> randomIds(Random random, int count, int range) {
+        TreeSet<Integer> ids = new TreeSet<Integer>();
+        for (int i = 0; i < count; i++) {
+            ids.add(random.nextInt(range));
+        }
+        return ids;
+    }
+
+    private int[] toArray(TreeSet<Integer> ids) {
+        int[] array = new int[ids.size()];
+        int i = 0;
+        for (int id: ids) {
+            array[i++] = id;
+        }
+        return array;
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagSet#of(int...)}.
+     * Test case for IDs given out of order and repeated.
+     */
+    @Test
+    public void testOfSortsAndDeduplicates() {
+        TagSet set = TagSet.of(7, 3, 7, 0, 3);
+        assertEquals(3, set.size());
+        assertArrayEquals(new int[] {0, 3, 7}, set.toArray());
+        assertEquals("[0, 3, 7]", set.toString());
+        assertSame(TagSet.EMPTY, TagSet.of());
+        assertTrue(TagSet.EMPTY.isEmpty());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagSet#of(int...)}.
+     * Test case for a negative ID.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testOfRejectsNegativeId() {
+        TagSet.of(1, -2);
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagSet#toArray()}.
+     * Test case for sets stored as bitsets and as arrays, rebuilt from
+     * their IDs.
+     */
+    @Test
+    public void testToArrayRoundTrip() {
+        Random random = new Random(653);
+        for (int trial = 0; trial < 500; trial++) {
+            int range = trial % 2 == 0 ? 128 : 100000;
+            int[] ids = toArray(randomIds(random, random.nextInt(40), range));
+            TagSet set = TagSet.of(ids);
+            assertArrayEquals(ids, set.toArray());
+            TagSet rebuilt = TagSet.of(set.toArray());
+            assertEquals(set, rebuilt);
+            assertEquals(set.hashCode(), rebuilt.hashCode());
+        }
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagSet#intersects(photo_renamer.TagSet)}.
+     * Test case for pairs of sets of either storage, checked against
+     * sorted sets of Integers.
+     */
+    @Test
+    public void testSetOperationsMatchModel() {
+        Random random = new Random(207);
+        for (int trial = 0; trial < 2000; trial++) {
+            TreeSet<Integer> first = randomIds(random, random.nextInt(12), trial % 3 == 0 ? 5000 : 100);
+            TreeSet<Integer> second = randomIds(random, random.nextInt(12), trial % 5 == 0 ? 5000 : 100);
+            if (trial % 7 == 0) {
+                second.addAll(first);
+            }
+            TagSet a = TagSet.of(toArray(first));
+            TagSet b = TagSet.of(toArray(second));
+            TreeSet<Integer> common = new TreeSet<Integer>(first);
+            common.retainAll(second);
+            assertEquals(!common.isEmpty(), a.intersects(b));
+            assertEquals(!common.isEmpty(), b.intersects(a));
+            assertEquals(first.containsAll(second), a.containsAll(b));
+            assertEquals(second.containsAll(first), b.containsAll(a));
+            for (int id = -1; id < 120; id++) {
+                assertEquals(first.contains(id), a.contains(id));
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagSet#equals(java.lang.Object)}.
+     * Test case for the same IDs stored as a bitset and as an array.
+     */
+    @Test
+    public void testEqualsAcrossStorage() {
+        TagSet dense = TagSet.of(1, 2, 3);
+        TagSet sparse = TagSet.of(1, 2, 3, 90000);
+        assertNotEquals(dense, sparse);
+        assertTrue(sparse.containsAll(dense));
+        assertFalse(dense.containsAll(sparse));
+        assertTrue(dense.intersects(sparse));
+        assertEquals(TagSet.of(3, 2, 1), dense);
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagDictionary#intern(java.lang.String)}.
+     * Test case for tags given dense IDs and read back by ID.
+     */
+    @Test
+    public void testDictionaryRoundTrip() {
+        assertEquals(0, dictionary.intern("beach"));
+        assertEquals(1, dictionary.intern("sun"));
+        assertEquals(0, dictionary.intern(new String("beach")));
+        assertEquals(2, dictionary.size());
+        assertEquals("sun", dictionary.getTag(dictionary.lookup("sun")));
+        assertEquals(-1, dictionary.lookup("snow"));
+        assertEquals(2, dictionary.size());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.TagDictionary#internAll(photo_renamer.PhotoName)}.
+     * Test case for the tags of a photo name turned into a set and back.
+     */
+    @Test
+    public void testPhotoNameRoundTrip() {
+        PhotoName name = PhotoName.of("img@sun@beach@sun.jpg");
+        TagSet set = dictionary.internAll(name);
+        assertEquals(2, set.size());
+        ArrayList<String> tags = new ArrayList<String>();
+        for (int id: set.toArray()) {
+            tags.add(dictionary.getTag(id));
+        }
+        assertEquals(Arrays.asList("sun", "beach"), tags);
+        assertEquals(set, dictionary.internAll(name.getTags()));
+        assertEquals(TagSet.of(dictionary.lookup("sun")), dictionary.lookupAll(Arrays.asList("sun", "snow")));
+        assertEquals(-1, dictionary.lookup("snow"));
+    }
+}
@@ -0,0 +1,253 @@
+package photo_renamer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A prefix tree of tags, used to complete a tag as it is typed. Completions
+ * ignore case and are returned in alphabetical order, so the first few can
+ * be found by walking down to the node of the typed prefix and visiting only
+ * as many nodes below it as there are completions to return. The cost of a
+ * completion depends on the length of the prefix and the number of
+ * completions asked for, not on the number of tags.
+ *
+ * @author group_0653
+ */
+public class TagTrie {
+
+	/** The node of the empty prefix. */
+	private final Node root;
+
+	/**
+	 * A new, empty TagTrie.
+	 */
+	public TagTrie(){
+		this.root = new Node();
+	}
+
+	/**
+	 * Adds a tag to this trie. Adding a tag that is already in the trie has no effect.
+	 *
+	 * @param tag
+	 * 		the tag, without its '@'.
+	 */
+	public synchronized void add(String tag){
+		String key = key(tag);
+		Node node = root;
+		for (int i = 0; i < key.length(); i++){
+			node = node.childOrCreate(key.charAt(i));
+		}
+		if (node.tags == null){
+			node.tags = new ArrayList<String>(1);
+		}
+		else if (node.tags.contains(tag)){
+			return;
+		}
+		node.tags.add(tag);
+
+		// Every node on the path now has one more tag below it.
+		node = root;
+		node.count++;
+		for (int i = 0; i < key.length(); i++){
+			node = node.child(key.charAt(i));
+			node.count++;
+		}
+	}
+
+	/**
+	 * Removes a tag from this trie. Removing a tag that is not in the trie has no effect.
+	 *
+	 * @param tag
+	 * 		the tag, without its '@'.
+	 */
+	public synchronized void remove(String tag){
+		String key = key(tag);
+		Node node = find(key);
+		if (node == null || node.tags == null || !node.tags.remove(tag)){
+			return;
+		}
+		node = root;
+		node.count--;
+		for (int i = 0; i < key.length(); i++){
+			Node child = node.child(key.charAt(i));
+			if (--child.count == 0){
+				// Nothing is left below this child, so it is dropped.
+				node.removeChild(key.charAt(i));
+				return;
+			}
+			node = child;
+		}
+	}
+
+	/**
+	 * Removes every tag from this trie.
+	 */
+	public synchronized void clear(){
+		root.keys = new char[0];
+		root.children = new Node[0];
+		root.tags = null;
+		root.count = 0;
+	}
+
+	/**
+	 * Returns the number of tags in this trie.
+	 *
+	 * @return the number of tags.
+	 */
+	public synchronized int size(){
+		return root.count;
+	}
+
+	/**
+	 * Returns the first tags, in alphabetical order ignoring case, that start
+	 * with a prefix, also ignoring case.
+	 *
+	 * @param prefix
+	 * 		the start of the tags, without a '@'. The empty prefix matches every tag.
+	 * @param limit
+	 * 		the largest number of tags to return.
+	 *
+	 * @return a new list of at most limit tags starting with prefix.
+	 */
+	public synchronized ArrayList<String> complete(String prefix, int limit){
+		ArrayList<String> completions = new ArrayList<String>(Math.min(Math.max(limit, 0), 64));
+		Node node = find(key(prefix));
+		if (node != null && limit > 0){
+			collect(node, completions, limit);
+		}
+		return completions;
+	}
+
+	/**
+	 * Adds the tags at and below a node to a list, in alphabetical order,
+	 * until the list holds limit tags.
+	 *
+	 * @param node
+	 * 		the node to start from.
+	 * @param completions
+	 * 		the list of tags found so far.
+	 * @param limit
+	 * 		the largest number of tags to find.
+	 */
+	private static void collect(Node node, ArrayList<String> completions, int limit){
+		if (node.tags != null){
+			for (String tag: node.tags){
+				if (completions.size() == limit){
+					return;
+				}
+				completions.add(tag);
+			}
+		}
+		for (int i = 0; i < node.children.length && completions.size() < limit; i++){
+			collect(node.children[i], completions, limit);
+		}
+	}
+
+	/**
+	 * Returns the node of a key, or null if no tag starts with the key.
+	 *
+	 * @param key
+	 * 		the key of a prefix.
+	 *
+	 * @return the node of key, or null.
+	 */
+	private Node find(String key){
+		Node node = root;
+		for (int i = 0; i < key.length() && node != null; i++){
+			node = node.child(key.charAt(i));
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the key a tag or prefix is stored under, so that case is ignored.
+	 *
+	 * @param tag
+	 * 		the tag or prefix.
+	 *
+	 * @return the key of tag.
+	 */
+	private static String key(String tag){
+		return tag.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * A node of the trie, for one prefix of the stored tags.
+	 */
+	private static class Node {
+
+		/** The next character of each child, in increasing order. */
+		private char[] keys = new char[0];
+
+		/** The child for each character of keys. */
+		private Node[] children = new Node[0];
+
+		/** The tags whose key is the prefix of this node, or null if there are none. */
+		private ArrayList<String> tags;
+
+		/** The number of tags at and below this node. */
+		private int count;
+
+		/**
+		 * Returns the child for a character.
+		 *
+		 * @param c
+		 * 		the next character of the prefix.
+		 *
+		 * @return the child, or null if there is none.
+		 */
+		private Node child(char c){
+			int index = Arrays.binarySearch(keys, c);
+			return index >= 0 ? children[index] : null;
+		}
+
+		/**
+		 * Returns the child for a character, adding it if there is none.
+		 *
+		 * @param c
+		 * 		the next character of the prefix.
+		 *
+		 * @return the child.
+		 */
+		private Node childOrCreate(char c){
+			int index = Arrays.binarySearch(keys, c);
+			if (index >= 0){
+				return children[index];
+			}
+			int insert = -index - 1;
+			char[] newKeys = new char[keys.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, insert);
+			System.arraycopy(children, 0, newChildren, 0, insert);
+			newKeys[insert] = c;
+			newChildren[insert] = new Node();
+			System.arraycopy(keys, insert, newKeys, insert + 1, keys.length - insert);
+			System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+			keys = newKeys;
+			children = newChildren;
+			return newChildren[insert];
+		}
+
+		/**
+		 * Removes the child for a character.
+		 *
+		 * @param c
+		 * 		the character of the child.
+		 */
+		private void removeChild(char c){
+			int index = Arrays.binarySearch(keys, c);
+			if (index < 0){
+				return;
+			}
+			char[] newKeys = new char[keys.length - 1];
+			Node[] newChildren = new Node[children.length - 1];
+			System.arraycopy(keys, 0, newKeys, 0, index);
+			System.arraycopy(children, 0, newChildren, 0, index);
+			System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+			System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+			keys = newKeys;
+			children = newChildren;
+		}
+	}
+}
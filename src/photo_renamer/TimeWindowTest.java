@@ -0,0 +1,181 @@
+package photo_renamer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimeWindowTest {
+
+	private File directory;
+	private Log log;
+	private Log memoryLog;
+
+    /**
+     * Opens an empty Log in a new directory, and an empty Log that is not open.
+     *
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("time-window-test").toFile();
+        log = new Log();
+        log.open(new File(directory, "EventLog").getPath());
+        memoryLog = new Log();
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        Event.setClock(Clock.systemDefaultZone());
+        log.close();
+        for (File file: directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Adds a rename at a time to both Logs.
+     */
+    private void add(String name, long time) {
+        Event event = new Event(name + ".jpg", name + "@x.jpg", time);
+        log.addEvent(event);
+        memoryLog.addEvent(event);
+    }
+
+    /**
+     * Returns the names of the photos renamed in a span of time, checking
+     * that both Logs agree on them.
+     */
+    private ArrayList<String> between(long from, long to) {
+        ArrayList<String> names = new ArrayList<String>();
+        for (Event event: log.getEventsBetween(from, to)) {
+            names.add(event.getOldName().replace(".jpg", ""));
+        }
+        ArrayList<String> memoryNames = new ArrayList<String>();
+        for (Event event: memoryLog.getEventsBetween(from, to)) {
+            memoryNames.add(event.getOldName().replace(".jpg", ""));
+        }
+        assertEquals(names, memoryNames);
+        return names;
+    }
+
+    /**
+     * Test method for {@link photo_renamer.Log#getEventsBetween(long, long)}.
+     * Test case for spans whose ends fall on and between the times of events.
+     */
+    @Test
+    public void testSpanEnds() {
+        for (int i = 0; i < 100; i++) {
+            add("p" + i, 1000L * i);
+        }
+        assertEquals(Arrays.asList("p10", "p11", "p12"), between(10000, 13000));
+        assertEquals(Arrays.asList("p11", "p12", "p13"), between(10001, 13001));
+        assertEquals(Arrays.asList("p99"), between(99000, Long.MAX_VALUE));
+        assertTrue(between(10001, 10999).isEmpty());
+        assertTrue(between(-5000, 0).isEmpty());
+        assertTrue(between(100000, 200000).isEmpty());
+        assertEquals(100, between(Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.Log#getEventsBetween(long, long)}.
+     * Test case for events with the same time, which are all in a span that
+     * covers the time.
+     */
+    @Test
+    public void testEqualTimes() {
+        add("a", 1000);
+        add("b", 2000);
+        add("c", 2000);
+        add("d", 2000);
+        add("e", 3000);
+        assertEquals(Arrays.asList("b", "c", "d"), between(2000, 2001));
+        assertEquals(Arrays.asList("a", "b", "c", "d"), between(0, 3000));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.LogReader#firstAtOrAfter(long)}.
+     * Test case for an event logged after the clock was set back, which is
+     * found in a span that covers the events logged before it.
+     */
+    @Test
+    public void testClockSetBack() throws Exception {
+        add("a", 1000);
+        add("b", 2000);
+        add("c", 3000);
+        add("back", 1500);
+        add("d", 4000);
+        LogSegment segment = new LogSegment();
+        log.close();
+        segment.open(new File(directory, "EventLog").getPath());
+        LogReader reader = segment.getReader();
+        assertEquals(1, reader.firstAtOrAfter(1500));
+        assertEquals(4, reader.firstAtOrAfter(3500));
+        assertEquals(5, reader.firstAtOrAfter(4001));
+        segment.close();
+        log.open(new File(directory, "EventLog").getPath());
+        assertEquals(Arrays.asList("b", "c", "back"), between(1500, 3500));
+        assertEquals(Arrays.asList("d"), between(3500, 5000));
+    }
+
+    /**
+     * Test method for {@link photo_renamer.Log#getEventsBetween(long, long)}.
+     * Test case for an event whose timestamp could not be read, which is in
+     * no span, and a batch, which is found by the time it finished.
+     */
+    @Test
+    public void testUnreadTimeAndBatch() {
+        add("a", 1000);
+        Event unread = new Event("u.jpg", "u@x.jpg", "not a time");
+        log.addEvent(unread);
+        memoryLog.addEvent(unread);
+        ArrayList<Event> members = new ArrayList<Event>(Arrays.asList(new Event("m.jpg", "m@x.jpg", 1500L)));
+        EventGroup batch = new EventGroup("added x", members, 5000);
+        log.addEvent(batch);
+        memoryLog.addEvent(batch);
+        assertEquals(Arrays.asList("a"), between(0, 4000));
+        ArrayList<Event> events = log.getEventsBetween(5000, 5001);
+        assertEquals(1, events.size());
+        assertTrue(events.get(0) instanceof EventGroup);
+        assertEquals("added x", events.get(0).getNewName());
+        assertEquals(2, memoryLog.getEventsBetween(0, 6000).size());
+    }
+
+    /**
+     * Test method for {@link photo_renamer.Program#recentRenames(long)}.
+     * Test case for single renames and the renames of a batch in the last
+     * hour, read from a fixed clock.
+     */
+    @Test
+    public void testRecentRenames() {
+        long now = 1480000000000L;
+        Event.setClock(Clock.fixed(Instant.ofEpochMilli(now), ZoneId.systemDefault()));
+        Program program = new Program();
+        Log programLog = program.getLog();
+        programLog.addEvent(new Event("old.jpg", "old@x.jpg", now - 7200000));
+        programLog.addEvent(new Event("a.jpg", "a@x.jpg", now - 1800000));
+        ArrayList<Event> members = new ArrayList<Event>(Arrays.asList(new Event("b.jpg", "b@y.jpg", now - 60000),
+                new Event("c.jpg", "c@y.jpg", now - 60000)));
+        programLog.addEvent(new EventGroup("added y", members, now - 60000));
+        programLog.addEvent(new Event("d.jpg", "d@x.jpg", now));
+        ArrayList<String> names = new ArrayList<String>();
+        for (Event event: program.recentRenames(3600000)) {
+            names.add(event.getOldName());
+        }
+        program.getIoExecutor().shutdown();
+        assertEquals(Arrays.asList("a.jpg", "b.jpg", "c.jpg", "d.jpg"), names);
+    }
+}